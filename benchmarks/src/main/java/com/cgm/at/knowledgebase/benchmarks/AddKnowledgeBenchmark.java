@@ -0,0 +1,87 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures adding new questions, replacing the answers of contained questions,
+ * and adding serialized question lines with a varying number of answers.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AddKnowledgeBenchmark {
+
+    //the number of distinct questions cycled through.
+    private static final int QUESTION_COUNT = 100000;
+
+    //the number of answers of each question.
+    @Param({"1", "10", "50"})
+    private int answerCount;
+
+    private TextualKnowledgeService knowledgeBase;
+    private String[] questions;
+    private String[] questionLines;
+    private List<String> answers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUpData() {
+        this.questions = new String[QUESTION_COUNT];
+        this.questionLines = new String[QUESTION_COUNT];
+        this.answers = new ArrayList<>(this.answerCount);
+        for (int i = 0; i < this.answerCount; i++) {
+            this.answers.add(BenchmarkData.answer(i));
+        }
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            this.questions[i] = BenchmarkData.question(i);
+            this.questionLines[i] = BenchmarkData.questionLine(i, this.answerCount);
+        }
+    }
+
+    /**
+     * starts every iteration with a knowledge base containing all questions, so adds within the iteration are replacements.
+     */
+    @Setup(Level.Iteration)
+    public void setUpKnowledgeBase() throws KnowledgeBaseException {
+        this.knowledgeBase = new TextualKnowledgeService();
+        for (String question : this.questions) {
+            this.knowledgeBase.addKnowledge(question, this.answers);
+        }
+    }
+
+    /**
+     * @return the index of the next question to add, cycling through all questions.
+     */
+    private int nextIndex() {
+        int index = this.next;
+        this.next = index + 1 == QUESTION_COUNT ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public boolean addNew() throws KnowledgeBaseException {
+        TextualKnowledgeService empty = new TextualKnowledgeService();
+        return empty.addKnowledge(this.questions[this.nextIndex()], this.answers);
+    }
+
+    @Benchmark
+    public boolean replace() throws KnowledgeBaseException {
+        return this.knowledgeBase.addKnowledge(this.questions[this.nextIndex()], this.answers);
+    }
+
+    @Benchmark
+    public boolean replaceSerialized() throws KnowledgeBaseException {
+        return this.knowledgeBase.addKnowledge(this.questionLines[this.nextIndex()]);
+    }
+}
@@ -0,0 +1,62 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.InternedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+
+/**
+ * measures the heap retained by a textual knowledge base filled with a synthetic dataset,
+ * comparing the {@link TextualKnowledgeService} against the {@link InternedTextualKnowledgeService}.
+ * every question line has one to three answers drawn from a fixed pool of distinct answers, so most answers are duplicates.
+ * run one implementation per JVM, e.g.
+ * java -Xmx4g -cp target/benchmarks.jar com.cgm.at.knowledgebase.benchmarks.AnswerInterningFootprint interned 5000000 10000
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class AnswerInterningFootprint {
+
+    /**
+     * the start entry of the measurement.
+     * @param args the implementation, textual or interned, the number of questions, 5000000 by default,
+     *             and the number of distinct answers, 10000 by default.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be added.
+     */
+    public static void main(String[] args) throws KnowledgeBaseException {
+        String implementation = args.length > 0 ? args[0] : "interned";
+        int questionCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        int answerCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        long before = usedHeap();
+        KnowledgeBase<String, String, String> knowledgeBase = "interned".equals(implementation)
+                ? new InternedTextualKnowledgeService()
+                : new TextualKnowledgeService();
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < questionCount; i++) {
+            StringBuilder line = new StringBuilder(BenchmarkData.question(i));
+            for (int k = random.nextInt(3); k >= 0; k--) {
+                line.append(" \"").append(BenchmarkData.answer(random.nextInt(answerCount))).append('"');
+            }
+            knowledgeBase.addKnowledge(line.toString());
+        }
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long retained = usedHeap() - before;
+        System.out.printf("%s: %,d questions, %,d distinct answers, retained heap %,d MiB (%d bytes per question), loaded in %,d ms%n",
+                implementation, knowledgeBase.getAllKnowledge().size(), answerCount, retained >> 20, retained / questionCount, loadMillis);
+        //keeps the knowledge base reachable until the heap is measured.
+        if (knowledgeBase.askQuestion(BenchmarkData.question(0)).isEmpty()) throw new AssertionError();
+    }
+
+    /**
+     * @return the heap used after several full collections.
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,81 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.ranking.AnswerRanking;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures askQuestion returning all answers against the top 10 answers ranked by popularity,
+ * and recording the usage of an answer, for questions with a varying number of answers.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnswerRankingBenchmark {
+
+    //the number of questions contained in the knowledge base.
+    private static final int QUESTION_COUNT = 1000;
+
+    //the number of answers of every question.
+    @Param({"10", "100", "500"})
+    private int answerCount;
+
+    private TextualKnowledgeService knowledgeBase;
+    private String[] questions;
+    private List<String> answers;
+    private int next;
+
+    @Setup
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeBase = new TextualKnowledgeService();
+        this.knowledgeBase.setAnswerRanking(new AnswerRanking<>(AnswerRanking.Order.POPULARITY));
+        this.answers = new ArrayList<>(this.answerCount);
+        for (int i = 0; i < this.answerCount; i++) {
+            this.answers.add(BenchmarkData.answer(i));
+        }
+        this.questions = new String[QUESTION_COUNT];
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            this.questions[i] = BenchmarkData.question(i);
+            this.knowledgeBase.addKnowledge(this.questions[i], this.answers);
+            //every question is ranked, the later answers are used more often.
+            for (int usage = 0; usage < this.answerCount; usage++) {
+                this.knowledgeBase.recordAnswerUsage(this.questions[i], this.answers.get(usage * usage % this.answerCount));
+            }
+        }
+    }
+
+    /**
+     * @return the index of the next question to ask, cycling through all questions.
+     */
+    private int nextIndex() {
+        int index = this.next;
+        this.next = index + 1 == QUESTION_COUNT ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public List<String> askAllAnswers() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.questions[this.nextIndex()]);
+    }
+
+    @Benchmark
+    public List<String> askTopTenAnswers() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.questions[this.nextIndex()], 10);
+    }
+
+    @Benchmark
+    public boolean recordAnswerUsage() throws KnowledgeBaseException {
+        int index = this.nextIndex();
+        return this.knowledgeBase.recordAnswerUsage(this.questions[index], this.answers.get(index % this.answerCount));
+    }
+}
@@ -0,0 +1,50 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+/**
+ * generates the synthetic questions and answers shared by all benchmarks.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class BenchmarkData {
+
+    /**
+     * The caller should be prevented from constructing objects of
+     * this class, by declaring this private constructor.
+     */
+    private BenchmarkData() {
+        throw new AssertionError();
+    }
+
+    /**
+     * creates a deterministic question for the given index.
+     * @param index the index of the question.
+     * @return a question ending with a question mark.
+     */
+    static String question(int index) {
+        return "What is the favorite color of person number " + index + "?";
+    }
+
+    /**
+     * creates a deterministic answer for the given index.
+     * @param index the index of the answer.
+     * @return an answer text.
+     */
+    static String answer(int index) {
+        return "the favorite color is number " + index;
+    }
+
+    /**
+     * creates a serialized question line of the format <question>? "<answer1>" ... "<answerX>".
+     * @param index the index of the question.
+     * @param answerCount the number of answers in the line.
+     * @return the serialized question line.
+     */
+    static String questionLine(int index, int answerCount) {
+        StringBuilder sb = new StringBuilder(question(index));
+        for (int i = 0; i < answerCount; i++) {
+            sb.append(" \"").append(answer(i)).append('"');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * runs the knowledge base benchmarks with the GC profiler attached,
+ * so the allocation rate per operation (gc.alloc.rate.norm) is reported next to the timings.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+
+    /**
+     * the start entry of the benchmark run.
+     * @param args an optional regular expression selecting the benchmarks to run, all benchmarks are run by default.
+     * @throws RunnerException thrown if the benchmarks cannot be run.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
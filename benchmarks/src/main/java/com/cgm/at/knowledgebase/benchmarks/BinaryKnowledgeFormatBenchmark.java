@@ -0,0 +1,105 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.BinaryKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares importing the same knowledge from a textual file against importing it from a raw and from a
+ * block-compressed binary file, and compares exporting it to both binary variants.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryKnowledgeFormatBenchmark {
+
+    //the number of questions of the knowledge.
+    private static final int KNOWLEDGE_SIZE = 50000;
+
+    //the directory of the files.
+    private Path directory;
+
+    //the textual file.
+    private Path textFile;
+
+    //the raw binary file.
+    private Path binaryFile;
+
+    //the compressed binary file.
+    private Path compressedFile;
+
+    //the file the exports are written to.
+    private Path exportFile;
+
+    //the knowledge base the exports are taken from.
+    private BinaryKnowledgeService knowledgeService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, KnowledgeBaseException {
+        this.directory = Files.createTempDirectory("knowledge-format");
+        Map<String, List<String>> knowledge = new HashMap<>();
+        List<String> lines = new ArrayList<>(KNOWLEDGE_SIZE);
+        for (int i = 0; i < KNOWLEDGE_SIZE; i++) {
+            knowledge.put(BenchmarkData.question(i), List.of(BenchmarkData.answer(0), BenchmarkData.answer(1), BenchmarkData.answer(2)));
+            lines.add(BenchmarkData.questionLine(i, 3));
+        }
+        this.textFile = Files.write(this.directory.resolve("knowledge.txt"), lines);
+        this.knowledgeService = new BinaryKnowledgeService(knowledge, "unknown");
+        this.binaryFile = this.directory.resolve("knowledge.kb");
+        this.compressedFile = this.directory.resolve("knowledge.kbz");
+        this.exportFile = this.directory.resolve("export.kb");
+        this.knowledgeService.exportTo(this.binaryFile, false);
+        this.knowledgeService.exportTo(this.compressedFile, true);
+        System.out.println("\ntext " + Files.size(this.textFile) + " bytes, binary " + Files.size(this.binaryFile)
+                + " bytes, compressed " + Files.size(this.compressedFile) + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (Path file : List.of(this.textFile, this.binaryFile, this.compressedFile, this.exportFile)) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public ImportReport importText() throws KnowledgeBaseException {
+        return new TextualKnowledgeService().importFrom(this.textFile);
+    }
+
+    @Benchmark
+    public ImportReport importBinary() throws KnowledgeBaseException {
+        return new BinaryKnowledgeService().importFrom(this.binaryFile);
+    }
+
+    @Benchmark
+    public ImportReport importCompressed() throws KnowledgeBaseException {
+        return new BinaryKnowledgeService().importFrom(this.compressedFile);
+    }
+
+    @Benchmark
+    public long exportBinary() throws KnowledgeBaseException {
+        return this.knowledgeService.exportTo(this.exportFile, false);
+    }
+
+    @Benchmark
+    public long exportCompressed() throws KnowledgeBaseException {
+        return this.knowledgeService.exportTo(this.exportFile, true);
+    }
+}
@@ -0,0 +1,68 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the throughput of a read-mostly mix of askQuestion and addKnowledge calls,
+ * comparing the {@link ConcurrentTextualKnowledgeService} against a knowledge base guarded by one global lock.
+ * seven reader threads ask questions while one writer thread replaces answers.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentReadWriteBenchmark {
+
+    //the knowledge base implementation under test.
+    @Param({"concurrent", "globalLock"})
+    private String implementation;
+
+    //the number of questions contained in the knowledge base.
+    @Param({"100000"})
+    private int questionCount;
+
+    private KnowledgeBase<String, String, String> knowledgeBase;
+    private String[] questions;
+    private List<String> answers;
+
+    @Setup
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeBase = "concurrent".equals(this.implementation)
+                ? new ConcurrentTextualKnowledgeService()
+                : new TextualKnowledgeService(Collections.synchronizedMap(new HashMap<>()), TextualKnowledgeService.DEFAULT_ANSWER);
+        this.questions = new String[this.questionCount];
+        this.answers = Collections.singletonList(BenchmarkData.answer(0));
+        for (int i = 0; i < this.questionCount; i++) {
+            this.questions[i] = BenchmarkData.question(i);
+            this.knowledgeBase.addKnowledge(this.questions[i], this.answers);
+        }
+    }
+
+    @Benchmark
+    @Group("readWriteMix")
+    @GroupThreads(7)
+    public List<String> ask() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.questions[ThreadLocalRandom.current().nextInt(this.questionCount)]);
+    }
+
+    @Benchmark
+    @Group("readWriteMix")
+    @GroupThreads(1)
+    public boolean add() throws KnowledgeBaseException {
+        return this.knowledgeBase.addKnowledge(this.questions[ThreadLocalRandom.current().nextInt(this.questionCount)], this.answers);
+    }
+}
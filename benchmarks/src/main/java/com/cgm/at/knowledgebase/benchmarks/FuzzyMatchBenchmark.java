@@ -0,0 +1,76 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.FuzzyQuestionIndex;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures askQuestion with a fuzzy question index for exact questions, case variants and questions with a typo,
+ * with a varying number of questions in the knowledge base.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Thread)
+public class FuzzyMatchBenchmark {
+
+    //the number of questions contained in the knowledge base.
+    @Param({"1000", "100000", "1000000"})
+    private int questionCount;
+
+    private TextualKnowledgeService knowledgeBase;
+    private String[] questions;
+    private String[] caseVariants;
+    private String[] typos;
+    private int next;
+
+    @Setup
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeBase = new TextualKnowledgeService();
+        List<String> answers = Collections.singletonList(BenchmarkData.answer(0));
+        this.questions = new String[this.questionCount];
+        this.caseVariants = new String[this.questionCount];
+        this.typos = new String[this.questionCount];
+        for (int i = 0; i < this.questionCount; i++) {
+            this.questions[i] = BenchmarkData.question(i);
+            this.caseVariants[i] = " " + this.questions[i].toUpperCase(Locale.ROOT);
+            this.typos[i] = this.questions[i].replace("favorite", "favourite");
+            this.knowledgeBase.addKnowledge(this.questions[i], answers);
+        }
+        this.knowledgeBase.setQuestionMatcher(new FuzzyQuestionIndex());
+    }
+
+    /**
+     * @return the index of the next question to ask, cycling through all questions.
+     */
+    private int nextIndex() {
+        int index = this.next;
+        this.next = index + 1 == this.questionCount ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public List<String> askExactQuestion() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.questions[this.nextIndex()]);
+    }
+
+    @Benchmark
+    public List<String> askCaseVariant() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.caseVariants[this.nextIndex()]);
+    }
+
+    @Benchmark
+    public List<String> askQuestionWithTypo() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.typos[this.nextIndex()]);
+    }
+}
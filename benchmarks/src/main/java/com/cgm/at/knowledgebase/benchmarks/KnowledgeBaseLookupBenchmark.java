@@ -0,0 +1,90 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.InternedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.MappedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeValidationService;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures askQuestion for contained and unknown questions with a varying number of questions in the knowledge base,
+ * served from the heap, from the heap with interned answers or from an off-heap memory-mapped index, and the question validation on its own.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KnowledgeBaseLookupBenchmark {
+
+    //the number of questions contained in the knowledge base.
+    @Param({"1000", "100000", "1000000"})
+    private int questionCount;
+
+    //where the knowledge is stored, on the heap, on the heap with interned answers or in a memory-mapped index.
+    @Param({"heap", "interned", "mapped"})
+    private String storage;
+
+    private TextualKnowledgeService knowledgeBase;
+    private TextualKnowledgeValidationService validationService;
+    private String[] questions;
+    private String[] unknownQuestions;
+    private int next;
+
+    @Setup
+    public void setUp() throws KnowledgeBaseException, IOException {
+        this.knowledgeBase = "interned".equals(this.storage) ? new InternedTextualKnowledgeService() : new TextualKnowledgeService();
+        this.validationService = new TextualKnowledgeValidationService();
+        List<String> answers = Collections.singletonList(BenchmarkData.answer(0));
+        this.questions = new String[this.questionCount];
+        this.unknownQuestions = new String[this.questionCount];
+        for (int i = 0; i < this.questionCount; i++) {
+            this.questions[i] = BenchmarkData.question(i);
+            this.unknownQuestions[i] = BenchmarkData.question(this.questionCount + i);
+            this.knowledgeBase.addKnowledge(this.questions[i], answers);
+        }
+        if ("mapped".equals(this.storage)) {
+            Path indexFile = Files.createTempFile("knowledge", ".index");
+            indexFile.toFile().deleteOnExit();
+            MappedTextualKnowledgeService.export(this.knowledgeBase, indexFile);
+            this.knowledgeBase = new MappedTextualKnowledgeService(indexFile);
+        }
+    }
+
+    /**
+     * @return the index of the next question to ask, cycling through all questions.
+     */
+    private int nextIndex() {
+        int index = this.next;
+        this.next = index + 1 == this.questionCount ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public List<String> askQuestionHit() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.questions[this.nextIndex()]);
+    }
+
+    @Benchmark
+    public List<String> askQuestionMiss() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.unknownQuestions[this.nextIndex()]);
+    }
+
+    @Benchmark
+    public String validateQuestion() {
+        String question = this.questions[this.nextIndex()];
+        this.validationService.validateQuestion(question);
+        return question;
+    }
+}
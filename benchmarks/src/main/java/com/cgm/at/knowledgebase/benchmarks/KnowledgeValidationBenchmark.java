@@ -0,0 +1,80 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.common.BatchValidation;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeValidationService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares validating a dirty batch of serialized question lines one exception per rejected line
+ * against checking them with {@link TextualKnowledgeValidationService#validateBatch(List)}, which throws nothing.
+ * every other line is rejected, alternating between a blank answer and a question exceeding 255 characters.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KnowledgeValidationBenchmark {
+
+    //the number of serialized question lines of the batch.
+    private static final int BATCH_SIZE = 1000;
+
+    //the serialized question lines to validate.
+    private final List<String> batch = new ArrayList<>(BATCH_SIZE);
+
+    //the validation service under test.
+    private final TextualKnowledgeValidationService validationService = new TextualKnowledgeValidationService();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (i % 2 == 0) {
+                this.batch.add(BenchmarkData.questionLine(i, 3));
+            } else if (i % 4 == 1) {
+                this.batch.add(BenchmarkData.question(i) + " \"" + BenchmarkData.answer(i) + "\" \"  \"");
+            } else {
+                this.batch.add("x".repeat(255) + BenchmarkData.question(i) + " \"" + BenchmarkData.answer(i) + "\"");
+            }
+        }
+    }
+
+    @Benchmark
+    public int exceptionPerLine() {
+        int failed = 0;
+        for (String line : this.batch) {
+            try {
+                this.validationService.validateSerializedKnowledge(line);
+            } catch (IllegalArgumentException e) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    @Benchmark
+    public int exceptionPerLineWithMessage(Blackhole blackhole) {
+        int failed = 0;
+        for (String line : this.batch) {
+            try {
+                this.validationService.validateSerializedKnowledge(line);
+            } catch (IllegalArgumentException e) {
+                blackhole.consume(e.getMessage());
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    @Benchmark
+    public BatchValidation<String> batchBitmap() {
+        return this.validationService.validateBatch(this.batch);
+    }
+}
@@ -0,0 +1,98 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.metrics.KnowledgeBaseMetrics;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the overhead of recording metrics on the hot paths askQuestion and addKnowledge,
+ * with metrics disabled and enabled, single-threaded and with four threads sharing the knowledge base and its metrics.
+ * recordHit measures the calls recording a hit alone, the overhead of the metrics on a lookup apart from the noise of the lookup.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    //the number of questions contained in the knowledge base.
+    private static final int QUESTION_COUNT = 100000;
+
+    //whether metrics are recorded.
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private ConcurrentTextualKnowledgeService knowledgeBase;
+    private KnowledgeBaseMetrics recordedMetrics;
+    private String[] questions;
+    private String[] unknownQuestions;
+    private List<String> answers;
+
+    @Setup
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeBase = new ConcurrentTextualKnowledgeService();
+        this.answers = Collections.singletonList(BenchmarkData.answer(0));
+        this.questions = new String[QUESTION_COUNT];
+        this.unknownQuestions = new String[QUESTION_COUNT];
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            this.questions[i] = BenchmarkData.question(i);
+            this.unknownQuestions[i] = BenchmarkData.question(QUESTION_COUNT + i);
+            this.knowledgeBase.addKnowledge(this.questions[i], this.answers);
+        }
+        this.recordedMetrics = new KnowledgeBaseMetrics();
+        if (this.metrics) this.knowledgeBase.setMetrics(this.recordedMetrics);
+    }
+
+    /**
+     * the index of the next question asked by each thread, cycling through all questions.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int nextIndex() {
+            int index = this.next;
+            this.next = index + 1 == QUESTION_COUNT ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public List<String> askQuestionHit(Cursor cursor) throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.questions[cursor.nextIndex()]);
+    }
+
+    @Benchmark
+    public long recordHit() {
+        long start = this.recordedMetrics.startTimer();
+        this.recordedMetrics.recordValidation(start);
+        this.recordedMetrics.recordHit(start);
+        return start;
+    }
+
+    @Benchmark
+    public List<String> askQuestionMiss(Cursor cursor) throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.unknownQuestions[cursor.nextIndex()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<String> askQuestionHitConcurrent(Cursor cursor) throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.questions[cursor.nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean addKnowledge(Cursor cursor) throws KnowledgeBaseException {
+        return this.knowledgeBase.addKnowledge(this.questions[cursor.nextIndex()], this.answers);
+    }
+}
@@ -0,0 +1,69 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.HashedNgramEmbedding;
+import com.cgm.at.knowledgebase.index.HnswQuestionIndex;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the top 10 search of a HNSW question index and askQuestion falling back to it for reworded questions,
+ * with a varying number of questions in the knowledge base.
+ * The index is built with a smaller construction beam than the default, to keep building 1M questions on a single core short.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Thread)
+public class SemanticMatchBenchmark {
+
+    //the number of questions contained in the knowledge base.
+    @Param({"100000", "1000000"})
+    private int questionCount;
+
+    private TextualKnowledgeService knowledgeBase;
+    private HnswQuestionIndex<String, String> index;
+    private String[] rewordings;
+    private int next;
+
+    @Setup
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeBase = new TextualKnowledgeService();
+        List<String> answers = Collections.singletonList(BenchmarkData.answer(0));
+        this.rewordings = new String[this.questionCount];
+        for (int i = 0; i < this.questionCount; i++) {
+            this.rewordings[i] = "The favorite color of person number " + i + " is what?";
+            this.knowledgeBase.addKnowledge(BenchmarkData.question(i), answers);
+        }
+        this.index = new HnswQuestionIndex<>(new HashedNgramEmbedding(), HnswQuestionIndex.DEFAULT_MIN_SIMILARITY,
+                HnswQuestionIndex.DEFAULT_MAX_LINKS, 40, HnswQuestionIndex.DEFAULT_SEARCH_BEAM);
+        this.knowledgeBase.setQuestionMatcher(this.index);
+    }
+
+    /**
+     * @return the index of the next question to ask, cycling through all questions.
+     */
+    private int nextIndex() {
+        int index = this.next;
+        this.next = index + 1 == this.questionCount ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public List<String> nearestTen() {
+        return this.index.nearest(this.rewordings[this.nextIndex()], 10);
+    }
+
+    @Benchmark
+    public List<String> askRewordedQuestion() throws KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(this.rewordings[this.nextIndex()]);
+    }
+}
@@ -0,0 +1,71 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.common.ErrorMessages;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * compares the single pass {@link TextualKnowledgeParser} against the former split and regex based extraction
+ * of question and answers from a serialized question line.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializedKnowledgeParsingBenchmark {
+
+    //the number of answers contained in the serialized question line.
+    @Param({"1", "5", "10", "50"})
+    private int answerCount;
+
+    //the serialized question line to parse.
+    private String questionLine;
+
+    //the parser under test.
+    private final TextualKnowledgeParser parser = new TextualKnowledgeParser();
+
+    @Setup
+    public void setUp() {
+        this.questionLine = BenchmarkData.questionLine(0, this.answerCount);
+    }
+
+    @Benchmark
+    public void singlePassScanner(Blackhole blackhole) {
+        List<String> answers = new ArrayList<>(this.answerCount);
+        blackhole.consume(this.parser.parse(this.questionLine, answers));
+        blackhole.consume(answers);
+    }
+
+    @Benchmark
+    public void splitAndRegex(Blackhole blackhole) {
+        //format validation as previously done by the validation service.
+        String[] parts = this.questionLine.split("\\?", 2);
+        if (parts.length < 2) throw new IllegalArgumentException(ErrorMessages.QUESTION_FORMAT_INCORRECT);
+        boolean wellFormed = true;
+        for (int i = 0; i < parts[1].length(); i++) {
+            if (parts[1].charAt(i) == '"') wellFormed = !wellFormed;
+        }
+        if (!wellFormed) throw new IllegalArgumentException(ErrorMessages.ANSWERS_FORMAT_INCORRECT);
+        //extraction as previously done by the textual knowledge service.
+        parts = this.questionLine.split("\\?", 2);
+        String question = parts[0] + "?";
+        List<String> answers = new ArrayList<>();
+        Matcher m = Pattern.compile("(\")([\\S\\s]+?)(\")").matcher(parts[1]);
+        while (m.find()) {
+            answers.add(m.group(2));
+        }
+        blackhole.consume(question);
+        blackhole.consume(answers);
+    }
+}
@@ -0,0 +1,80 @@
+package com.cgm.at.knowledgebase.benchmarks;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.sharding.ShardedKnowledgeService;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the throughput of a write-heavy mix of askQuestion and addKnowledge calls on the {@link ShardedKnowledgeService},
+ * comparing a single partition against several partitions, each with a lock of its own.
+ * four threads ask questions while four threads replace answers; askQuestions measures the fan-out of a batch of 64 questions.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ShardedKnowledgeBenchmark {
+
+    //the number of partitions of the sharded knowledge base.
+    @Param({"1", "4"})
+    private int partitionCount;
+
+    //the number of questions contained in the knowledge base.
+    @Param({"100000"})
+    private int questionCount;
+
+    private ShardedKnowledgeService<String, String, String> shardedService;
+    private String[] questions;
+    private List<String> answers;
+    private List<String> batch;
+
+    @Setup
+    public void setUp() throws KnowledgeBaseException {
+        this.shardedService = ShardedKnowledgeService.forTextual(this.partitionCount);
+        this.questions = new String[this.questionCount];
+        this.answers = Collections.singletonList(BenchmarkData.answer(0));
+        for (int i = 0; i < this.questionCount; i++) {
+            this.questions[i] = BenchmarkData.question(i);
+            this.shardedService.addKnowledge(this.questions[i], this.answers);
+        }
+        this.batch = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            this.batch.add(this.questions[i * (this.questionCount / 64)]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.shardedService.close();
+    }
+
+    @Benchmark
+    @Group("readWriteMix")
+    @GroupThreads(4)
+    public List<String> ask() throws KnowledgeBaseException {
+        return this.shardedService.askQuestion(this.questions[ThreadLocalRandom.current().nextInt(this.questionCount)]);
+    }
+
+    @Benchmark
+    @Group("readWriteMix")
+    @GroupThreads(4)
+    public boolean add() throws KnowledgeBaseException {
+        return this.shardedService.addKnowledge(this.questions[ThreadLocalRandom.current().nextInt(this.questionCount)], this.answers);
+    }
+
+    @Benchmark
+    @Group("askQuestions")
+    public List<List<String>> askQuestions() throws KnowledgeBaseException {
+        return this.shardedService.askQuestions(this.batch);
+    }
+}
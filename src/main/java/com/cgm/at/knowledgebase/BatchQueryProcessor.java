@@ -0,0 +1,243 @@
+package com.cgm.at.knowledgebase;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Answers a stream of questions, one question per line, without user interaction.
+ * For every valid question one line of the format {@code <question> "<answer1>" ... "<answerX>"} is written,
+ * so the output can be imported into a knowledge base again. Invalid questions are reported and skipped.
+ *
+ * The questions are read in chunks, every chunk is answered and formatted as a whole and the output is flushed once per chunk.
+ * With more than one thread, the chunks are answered in parallel on a fixed pool while the next chunks are read,
+ * and written in the order they were read, so the output is the same for any number of threads.
+ * At most two chunks per thread are in flight, bounding the memory used for arbitrarily long inputs.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class BatchQueryProcessor {
+
+    //the number of questions answered and written together.
+    static final int CHUNK_SIZE = 1024;
+
+    //the knowledge base answering the questions.
+    private final IKnowledgeService<String, String, String> knowledgeService;
+
+    //the number of threads answering chunks in parallel.
+    private final int threads;
+
+    /**
+     * initializes the processor with the parameters given.
+     * @param knowledgeService the knowledge base answering the questions.
+     * @param threads the number of threads answering the questions, 1 answers them on the calling thread.
+     */
+    public BatchQueryProcessor(IKnowledgeService<String, String, String> knowledgeService, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1!");
+        this.knowledgeService = knowledgeService;
+        this.threads = threads;
+    }
+
+    /**
+     * answers all questions read until the end of the input.
+     * @param in the input, one question per line.
+     * @param out the output the answers are written to, flushed after each chunk but not closed.
+     * @param errors the output the invalid questions are reported to with their line number, flushed after each chunk but not closed.
+     * @return the report of the questions answered.
+     * @throws KnowledgeBaseException thrown if reading or writing fails or the knowledge base reports an error.
+     */
+    public BatchQueryReport process(BufferedReader in, Writer out, Writer errors) throws KnowledgeBaseException {
+        long start = System.nanoTime();
+        long questionCount = 0;
+        long failedCount = 0;
+        ExecutorService executor = this.threads > 1 ? Executors.newFixedThreadPool(this.threads) : null;
+        try {
+            Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+            long lineNumber = 1;
+            List<String> chunk;
+            while (!(chunk = readChunk(in)).isEmpty()) {
+                if (executor == null) {
+                    ChunkResult result = this.answer(chunk, lineNumber);
+                    failedCount += write(result, out, errors);
+                } else {
+                    List<String> questions = chunk;
+                    long firstLineNumber = lineNumber;
+                    inFlight.addLast(executor.submit(() -> this.answer(questions, firstLineNumber)));
+                    if (inFlight.size() >= 2 * this.threads) failedCount += write(await(inFlight.removeFirst()), out, errors);
+                }
+                questionCount += chunk.size();
+                lineNumber += chunk.size();
+            }
+            while (!inFlight.isEmpty()) {
+                failedCount += write(await(inFlight.removeFirst()), out, errors);
+            }
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while answering the questions: " + e.getMessage(), e);
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
+        return new BatchQueryReport(questionCount, failedCount, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * reads the next chunk of lines.
+     * @return the lines read, empty at the end of the input.
+     */
+    private static List<String> readChunk(BufferedReader in) throws IOException {
+        List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+        String line;
+        while (chunk.size() < CHUNK_SIZE && (line = in.readLine()) != null) {
+            chunk.add(line);
+        }
+        return chunk;
+    }
+
+    /**
+     * answers and formats a chunk of questions.
+     * @param questions the questions of the chunk.
+     * @param firstLineNumber the line number of the first question.
+     * @return the formatted answers and errors of the chunk.
+     */
+    private ChunkResult answer(List<String> questions, long firstLineNumber) throws KnowledgeBaseException {
+        StringBuilder output = new StringBuilder(questions.size() * 64);
+        StringBuilder errors = new StringBuilder();
+        int failedCount = 0;
+        for (int i = 0; i < questions.size(); i++) {
+            String question = questions.get(i);
+            try {
+                Iterator<String> answers = this.knowledgeService.streamAnswers(question).iterator();
+                output.append(question);
+                while (answers.hasNext()) {
+                    output.append(" \"").append(answers.next()).append('"');
+                }
+                output.append(System.lineSeparator());
+            } catch (IllegalArgumentException e) {
+                errors.append("line ").append(firstLineNumber + i).append(": ").append(e.getMessage()).append(System.lineSeparator());
+                failedCount++;
+            }
+        }
+        return new ChunkResult(output.toString(), errors.toString(), failedCount);
+    }
+
+    /**
+     * writes and flushes the output and errors of a chunk.
+     * @return the number of invalid questions of the chunk.
+     */
+    private static int write(ChunkResult result, Writer out, Writer errors) throws IOException {
+        out.write(result.output);
+        out.flush();
+        if (!result.errors.isEmpty()) {
+            errors.write(result.errors);
+            errors.flush();
+        }
+        return result.failedCount;
+    }
+
+    /**
+     * waits for the result of a chunk answered in parallel.
+     */
+    private static ChunkResult await(Future<ChunkResult> future) throws KnowledgeBaseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KnowledgeBaseException("Interrupted while answering the questions.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof KnowledgeBaseException) throw (KnowledgeBaseException) cause;
+            throw new KnowledgeBaseException("Error while answering the questions: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * The formatted answers and errors of a chunk.
+     */
+    private static final class ChunkResult {
+
+        private final String output;
+        private final String errors;
+        private final int failedCount;
+
+        ChunkResult(String output, String errors, int failedCount) {
+            this.output = output;
+            this.errors = errors;
+            this.failedCount = failedCount;
+        }
+    }
+
+    /**
+     * The counts and the elapsed time of a batch of questions answered.
+     */
+    public static final class BatchQueryReport {
+
+        //the number of questions read, answered or invalid.
+        private final long questionCount;
+
+        //the number of invalid questions.
+        private final long failedCount;
+
+        //the time needed to read, answer and write all questions.
+        private final Duration elapsedTime;
+
+        BatchQueryReport(long questionCount, long failedCount, Duration elapsedTime) {
+            this.questionCount = questionCount;
+            this.failedCount = failedCount;
+            this.elapsedTime = elapsedTime;
+        }
+
+        /**
+         * @return the number of questions read, answered or invalid.
+         */
+        public long getQuestionCount() {
+            return this.questionCount;
+        }
+
+        /**
+         * @return the number of questions answered.
+         */
+        public long getAnsweredCount() {
+            return this.questionCount - this.failedCount;
+        }
+
+        /**
+         * @return the number of invalid questions.
+         */
+        public long getFailedCount() {
+            return this.failedCount;
+        }
+
+        /**
+         * @return the time needed to read, answer and write all questions.
+         */
+        public Duration getElapsedTime() {
+            return this.elapsedTime;
+        }
+
+        /**
+         * @return the number of questions read, answered and written per second.
+         */
+        public double getQuestionsPerSecond() {
+            long nanos = this.elapsedTime.toNanos();
+            return nanos == 0 ? 0 : this.questionCount * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "BatchQueryReport{answered=" + this.getAnsweredCount() + ", failed=" + this.failedCount
+                    + ", elapsedTime=" + this.elapsedTime + ", questionsPerSecond=" + Math.round(this.getQuestionsPerSecond()) + "}";
+        }
+    }
+}
@@ -2,27 +2,114 @@ package com.cgm.at.knowledgebase;
 
 import com.cgm.at.knowledgebase.api.IKnowledgeService;
 import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.ingest.DirectoryIngestionPipeline;
+import com.cgm.at.knowledgebase.metrics.KnowledgeBaseMetrics;
+import com.cgm.at.knowledgebase.server.KnowledgeHttpServer;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.PersistentTextualKnowledgeService;
 import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 /**
  * Main class, the entry point of the Application.
- * The Application provides two options, first is to add a question to the knowledge base and second to ask a question of it.
+ * The Application provides three options, first is to add a question to the knowledge base, second to ask a question of it
+ * and third to list the stored questions starting with a given prefix.
  * If the question isn't present in the knowledge base, then the answer will be "the answer to life, universe and everything is 42".
+ * If started with the option --data &lt;directory&gt;, the knowledge is persisted in the given directory and loaded again on the next start,
+ * adding --durable acknowledges every added question only once it is forced to the storage device.
+ * If started with the option --batch [&lt;file&gt;], the questions of the file or of the standard input are answered without the menu,
+ * one question per line, optionally in parallel using --threads &lt;n&gt;.
+ * If started with the option --server &lt;port&gt;, the knowledge base is served over HTTP until the Application is terminated,
+ * handling the requests on --threads &lt;n&gt; threads and recording metrics of all operations readable through JMX.
+ * If started with the option --watch &lt;directory&gt;, the question lines appended to the files of the directory are added in the background,
+ * the offsets read are checkpointed in the data directory if one is given, otherwise all files are read again on the next start.
  * @author Usama Morad
  * @version 1.0
  */
 public class Main {
 
+    //the option selecting the directory the knowledge is persisted in.
+    private static final String DATA_OPTION = "--data";
+
+    //the option selecting a durable write-ahead log for the persisted knowledge.
+    private static final String DURABLE_OPTION = "--durable";
+
+    //the option selecting the non-interactive batch mode, optionally followed by the file to read the questions from.
+    private static final String BATCH_OPTION = "--batch";
+
+    //the option selecting the HTTP server mode, followed by the port to listen on.
+    private static final String SERVER_OPTION = "--server";
+
+    //the option selecting the directory whose files are ingested in the background.
+    private static final String WATCH_OPTION = "--watch";
+
+    //the name of the checkpoint file of the ingestion in the data directory.
+    private static final String INGESTION_CHECKPOINT_FILE = "ingestion.checkpoint";
+
+    //the option selecting the number of threads answering the questions in batch or server mode.
+    private static final String THREADS_OPTION = "--threads";
+
+    //the default number of threads handling the requests in server mode.
+    private static final int DEFAULT_SERVER_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    //the size of the buffers of the batch mode input and output.
+    private static final int BATCH_BUFFER_SIZE = 1 << 16;
+
+    //the maximum number of questions suggested for a prefix.
+    private static final int SUGGESTION_LIMIT = 10;
+
     /**
      * the main method, the start entry of the Application.
-     * @param args arguments to pass when Application is started.
+     * @param args arguments to pass when Application is started, optionally --data &lt;directory&gt; [--durable],
+     *             --batch [&lt;file&gt;] or --server &lt;port&gt;, --threads &lt;n&gt; and --watch &lt;directory&gt;.
      */
     public static void main(String[] args) {
         //The textual knowledge base service implementation instance to add and ask questions.
-        IKnowledgeService<String, String, String> textualKnowledgeService = new TextualKnowledgeService();
+        TextualKnowledgeService textualKnowledgeService;
+        try {
+            textualKnowledgeService = createKnowledgeService(args);
+        } catch (KnowledgeBaseException e) {
+            System.out.println("The knowledge base reported following error: " + e.getMessage() + ", Program must exit.");
+            return;
+        }
+        //the ingestion of the watched directory, null if no directory is watched.
+        DirectoryIngestionPipeline ingestion;
+        try {
+            ingestion = startIngestion(textualKnowledgeService, args);
+        } catch (IllegalArgumentException | KnowledgeBaseException e) {
+            System.out.println("The ingestion cannot be started: " + e.getMessage() + ", Program must exit.");
+            closeKnowledgeService(textualKnowledgeService);
+            return;
+        }
+        int serverIndex = indexOf(args, SERVER_OPTION);
+        if (serverIndex >= 0) {
+            serve(textualKnowledgeService, ingestion, args, serverIndex);
+            return;
+        }
+        int batchIndex = indexOf(args, BATCH_OPTION);
+        if (batchIndex >= 0) {
+            try {
+                answerBatch(textualKnowledgeService, args, batchIndex);
+            } finally {
+                closeIngestion(ingestion);
+                closeKnowledgeService(textualKnowledgeService);
+            }
+            return;
+        }
         try (Scanner sc = new Scanner(System.in)) {
             String line;
             //helper variable to exit program, the user need to type exit in order to switch to true.
@@ -33,20 +120,19 @@ public class Main {
                 System.out.println("Please select one of the following options: ");
                 System.out.println("  [1] ask Question");
                 System.out.println("  [2] add Question");
+                System.out.println("  [3] suggest Questions");
                 System.out.println("  [exit] to exit program");
                 if (sc.hasNextLine()) {
                     line = sc.nextLine();
                     switch (line) {
                         case "1":
-                            List<String> answers;
                             do {
                                 System.out.println("Please ask a question or enter [back] to return to main menu.");
                                 if (sc.hasNextLine()) {
                                     line = sc.nextLine();
                                     if (line.equals("back")) break;
                                     try {
-                                        answers = textualKnowledgeService.askQuestion(line);
-                                        printAnswers(answers);
+                                        printAnswers(textualKnowledgeService.streamAnswers(line));
                                     } catch (IllegalArgumentException e) {
                                         System.out.println("Arguments Error: " + e.getMessage());
                                     }
@@ -71,6 +157,18 @@ public class Main {
                                 }
                             } while (!questionAdded);
                             break;
+                        case "3":
+                            do {
+                                System.out.println("Please enter the beginning of a question or enter [back] to return to main menu.");
+                                if (sc.hasNextLine()) {
+                                    line = sc.nextLine();
+                                    if (line.equals("back")) break;
+                                    List<String> suggestions = textualKnowledgeService.suggest(line, SUGGESTION_LIMIT);
+                                    if (suggestions.isEmpty()) System.out.println("No stored question starts with the text entered.");
+                                    printAnswers(suggestions.stream());
+                                }
+                            } while (true); //as long as the user does not enter [back] to return.
+                            break;
                         case "exit":
                             exit = true;
                             break;
@@ -86,18 +184,155 @@ public class Main {
         } catch (NoSuchElementException e) {
             System.out.println("Input Reading Error: " + e.getMessage() + ", Program must exit.");
         } finally {
+            closeIngestion(ingestion);
+            closeKnowledgeService(textualKnowledgeService);
             System.out.println("Program exists, see you in 7,5 Million years!");
         }
     }
 
+    /**
+     * answers the questions of the file or standard input given by the batch option, reporting errors and throughput to System.err.
+     * @param knowledgeService the knowledge base answering the questions.
+     * @param args the arguments the Application is started with.
+     * @param batchIndex the index of the batch option in the arguments.
+     */
+    private static void answerBatch(TextualKnowledgeService knowledgeService, String[] args, int batchIndex) {
+        String file = batchIndex + 1 < args.length && !args[batchIndex + 1].startsWith("--") ? args[batchIndex + 1] : null;
+        int threadsIndex = indexOf(args, THREADS_OPTION);
+        Writer errors = new OutputStreamWriter(System.err, StandardCharsets.UTF_8);
+        try (BufferedReader in = file == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            int threads = threadsIndex >= 0 && threadsIndex + 1 < args.length ? Integer.parseInt(args[threadsIndex + 1]) : 1;
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE);
+            BatchQueryProcessor.BatchQueryReport report = new BatchQueryProcessor(knowledgeService, threads).process(in, out, errors);
+            System.err.println(report);
+        } catch (IOException | KnowledgeBaseException e) {
+            System.err.println("The questions could not be answered: " + e.getMessage() + ", Program must exit.");
+        } catch (IllegalArgumentException e) {
+            System.err.println("Arguments Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * starts the HTTP server on the port given by the server option, the server and the knowledge base are closed on termination.
+     * the metrics of the knowledge base are registered as MBean "server".
+     * Nagle's algorithm is disabled on the connections of the server, unless the JVM is started with another value of the property.
+     * @param knowledgeService the knowledge base answering the requests.
+     * @param ingestion the ingestion of the watched directory, closed with the server, may be null.
+     * @param args the arguments the Application is started with.
+     * @param serverIndex the index of the server option in the arguments.
+     */
+    private static void serve(TextualKnowledgeService knowledgeService, DirectoryIngestionPipeline ingestion, String[] args, int serverIndex) {
+        try {
+            if (serverIndex + 1 >= args.length) throw new IllegalArgumentException("The port of the server is missing.");
+            int port = Integer.parseInt(args[serverIndex + 1]);
+            int threadsIndex = indexOf(args, THREADS_OPTION);
+            int threads = threadsIndex >= 0 && threadsIndex + 1 < args.length ? Integer.parseInt(args[threadsIndex + 1]) : DEFAULT_SERVER_THREADS;
+            KnowledgeBaseMetrics metrics = new KnowledgeBaseMetrics();
+            metrics.registerMBean("server");
+            knowledgeService.setMetrics(metrics);
+            //read once by the JDK server, so it is set before the server is created, a value set by the user is kept.
+            if (System.getProperty(KnowledgeHttpServer.NO_DELAY_PROPERTY) == null) System.setProperty(KnowledgeHttpServer.NO_DELAY_PROPERTY, "true");
+            KnowledgeHttpServer server = new KnowledgeHttpServer(knowledgeService, new InetSocketAddress(port), threads);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                closeIngestion(ingestion);
+                closeKnowledgeService(knowledgeService);
+            }));
+            server.start();
+            System.out.println("The knowledge base is served on port " + server.getAddress().getPort() + ", terminate the Program to stop.");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Arguments Error: " + e.getMessage());
+            closeIngestion(ingestion);
+            closeKnowledgeService(knowledgeService);
+        } catch (KnowledgeBaseException e) {
+            System.out.println("The knowledge base reported following error: " + e.getMessage() + ", Program must exit.");
+            closeIngestion(ingestion);
+            closeKnowledgeService(knowledgeService);
+        }
+    }
+
+    /**
+     * starts ingesting the files of the directory given by the watch option, the rejected lines are reported to System.err.
+     * @param knowledgeService the thread-safe knowledge base the lines are added to.
+     * @param args the arguments the Application is started with.
+     * @return the started ingestion, or null if no directory is watched.
+     * @throws IllegalArgumentException thrown if the directory is missing or not a directory.
+     * @throws KnowledgeBaseException thrown if the directory cannot be watched or the checkpoint cannot be read.
+     */
+    private static DirectoryIngestionPipeline startIngestion(TextualKnowledgeService knowledgeService, String[] args) throws KnowledgeBaseException {
+        int watchIndex = indexOf(args, WATCH_OPTION);
+        if (watchIndex < 0) return null;
+        if (watchIndex + 1 >= args.length) throw new IllegalArgumentException("The directory to watch is missing.");
+        int dataIndex = indexOf(args, DATA_OPTION);
+        Path checkpoint = dataIndex >= 0 && dataIndex + 1 < args.length ? Paths.get(args[dataIndex + 1]).resolve(INGESTION_CHECKPOINT_FILE) : null;
+        DirectoryIngestionPipeline ingestion = new DirectoryIngestionPipeline(knowledgeService, Paths.get(args[watchIndex + 1]), checkpoint,
+                DirectoryIngestionPipeline.DEFAULT_BATCH_BYTES, (file, report) -> report.getErrors().forEach(error -> System.err.println(file + ", " + error)));
+        ingestion.start();
+        return ingestion;
+    }
+
+    /**
+     * stops the ingestion of the watched directory, if there is one.
+     * @param ingestion the ingestion to close, may be null.
+     */
+    private static void closeIngestion(DirectoryIngestionPipeline ingestion) {
+        if (ingestion == null) return;
+        try {
+            ingestion.close();
+        } catch (KnowledgeBaseException e) {
+            System.out.println("The ingestion reported following error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the index of the option in the arguments, or -1 if it is not given.
+     */
+    private static int indexOf(String[] args, String option) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(option)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * creates the knowledge base service selected by the arguments given.
+     * @param args the arguments the Application is started with.
+     * @return a persistent knowledge base service if a data directory is given, otherwise an in-memory one,
+     *         which is thread-safe in server mode or if a directory is watched.
+     * @throws KnowledgeBaseException thrown if the persisted knowledge cannot be loaded.
+     */
+    private static TextualKnowledgeService createKnowledgeService(String[] args) throws KnowledgeBaseException {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (!args[i].equals(DATA_OPTION)) continue;
+            if (indexOf(args, DURABLE_OPTION) < 0) return new PersistentTextualKnowledgeService(Paths.get(args[i + 1]));
+            return new PersistentTextualKnowledgeService(Paths.get(args[i + 1]), PersistentTextualKnowledgeService.DEFAULT_COMPACTION_THRESHOLD,
+                    PersistentTextualKnowledgeService.DEFAULT_MAX_BATCH_DELAY, PersistentTextualKnowledgeService.DEFAULT_MAX_BATCH_BYTES);
+        }
+        boolean concurrent = indexOf(args, SERVER_OPTION) >= 0 || indexOf(args, WATCH_OPTION) >= 0;
+        return concurrent ? new ConcurrentTextualKnowledgeService() : new TextualKnowledgeService();
+    }
+
+    /**
+     * closes the knowledge base service if it holds resources, e.g. a persistent store.
+     * @param knowledgeService the knowledge base service to close.
+     */
+    private static void closeKnowledgeService(IKnowledgeService<String, String, String> knowledgeService) {
+        if (!(knowledgeService instanceof AutoCloseable)) return;
+        try {
+            ((AutoCloseable) knowledgeService).close();
+        } catch (Exception e) {
+            System.out.println("The knowledge base could not be closed: " + e.getMessage());
+        }
+    }
+
     /**
      * prints all answers given, one answer per line.
-     * @param answers A List of answers to print to the System.out stream.
+     * @param answers A Stream of answers to print to the System.out stream, each answer is printed as soon as it is read.
      */
-    private static void printAnswers(List<String> answers){
+    private static void printAnswers(Stream<String> answers){
         if(answers == null) return;
-        for (String answer : answers) {
-            System.out.println(answer);
-        }
+        answers.forEachOrdered(System.out::println);
     }
 }
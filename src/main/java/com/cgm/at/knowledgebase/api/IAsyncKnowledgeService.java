@@ -0,0 +1,51 @@
+package com.cgm.at.knowledgebase.api;
+
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * IAsyncKnowledgeService is the non-blocking counterpart of {@link IKnowledgeService}.
+ * Every operation returns at once, its result is delivered by a CompletableFuture, so no thread of the caller waits for the knowledge base.
+ * A future fails with the IllegalArgumentException or {@link KnowledgeBaseException} the blocking operation would have thrown,
+ * or with a {@link KnowledgeBaseException} if the operation cannot be accepted, e.g. because too many operations are pending.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question
+ * @param <A> Generic type of Answer
+ * @param <S> Generic type of serialized Knowledge.
+ * @see IKnowledgeService
+ */
+public interface IAsyncKnowledgeService<Q, A, S> {
+    /**
+     * Asks a question asynchronously.
+     * @param question the question to ask of the generic type Q.
+     * @return a future completed with the answers of the question, see {@link IKnowledgeService#askQuestion(Object)}.
+     */
+    CompletableFuture<List<A>> askQuestion(Q question);
+
+    /**
+     * Adds the given question and answers asynchronously.
+     * @param question of type Q, example: using type String: "what is james favorite color?"
+     * @param answers a List of Type A, the list must not be empty!
+     * @return a future completed with true if the knowledge has been added, see {@link IKnowledgeService#addKnowledge(Object, List)}.
+     */
+    CompletableFuture<Boolean> addKnowledge(Q question, List<A> answers);
+
+    /**
+     * Adds the given serialized knowledge asynchronously.
+     * @param serializedKnowledge Contains both the question, and the related answers inside of it as one serialized information.
+     * @return a future completed with true if the knowledge has been added, see {@link IKnowledgeService#addKnowledge(Object)}.
+     */
+    CompletableFuture<Boolean> addKnowledge(S serializedKnowledge);
+
+    /**
+     * Adds all serialized knowledge of the given stream asynchronously, the stream is consumed by another thread but not closed.
+     * @param serializedKnowledge a Stream of serialized knowledge.
+     * @return a future completed with the {@link ImportReport} of the import, see {@link IKnowledgeService#addKnowledgeBatch(Stream)}.
+     */
+    CompletableFuture<ImportReport> addKnowledgeBatch(Stream<S> serializedKnowledge);
+}
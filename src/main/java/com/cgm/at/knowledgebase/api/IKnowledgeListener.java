@@ -0,0 +1,41 @@
+package com.cgm.at.knowledgebase.api;
+
+import java.util.List;
+
+/**
+ * IKnowledgeListener is notified about every question added to a knowledge base,
+ * e.g. to keep an index over the stored questions in sync with the knowledge base.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question.
+ * @param <A> Generic type of Answer.
+ */
+public interface IKnowledgeListener<Q, A> {
+    /**
+     * called after a question and its answers have been added to the knowledge base,
+     * replacing the previous answers if the question was already contained.
+     * Called by the thread adding the knowledge, so implementations must be thread-safe and should return quickly.
+     * @param question the validated question added.
+     * @param answers the validated immutable answers of the question.
+     */
+    void knowledgeAdded(Q question, List<A> answers);
+
+    /**
+     * called after a question and its answers have been removed from the knowledge base, e.g. because they have expired.
+     * Called by the thread removing the knowledge, so implementations must be thread-safe and should return quickly.
+     * @param question the question removed.
+     */
+    default void knowledgeRemoved(Q question) {
+    }
+
+    /**
+     * called after a question and its answers have been removed from the knowledge base because their time to live has elapsed.
+     * Listeners replicating the knowledge base may ignore it, as the replicas expire the answers by themselves.
+     * This implementation calls {@link #knowledgeRemoved(Object)}.
+     * @param question the question removed.
+     */
+    default void knowledgeExpired(Q question) {
+        this.knowledgeRemoved(question);
+    }
+}
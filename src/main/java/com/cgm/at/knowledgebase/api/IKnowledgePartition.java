@@ -0,0 +1,56 @@
+package com.cgm.at.knowledgebase.api;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * IKnowledgePartition defines a knowledge base holding one partition of the knowledge of a sharded knowledge base.
+ * Besides the operations of a knowledge base, a partition answers several questions at once, so a sharded knowledge base
+ * needs one call per partition for a batch of questions, and allows knowledge to be moved between partitions when rebalancing.
+ * A partition may be local or reached through a transport, all operations must be safe to be called concurrently.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question
+ * @param <A> Generic type of Answer
+ * @param <S> Generic type of serialized Knowledge.
+ */
+public interface IKnowledgePartition<Q, A, S> extends IKnowledgeService<Q, A, S> {
+
+    /**
+     * Returns the answers of all questions asked, as {@link #askQuestion(Object)} would for every single question.
+     * @param questions the questions to ask.
+     * @return a List containing the answers of every question, in the order of the questions.
+     * @throws IllegalArgumentException thrown if the IKnowledgeValidationService invalidates any of the questions given.
+     * @throws KnowledgeBaseException thrown if the questions cannot be asked due to collection or transport errors.
+     */
+    List<List<A>> askQuestions(List<Q> questions) throws IllegalArgumentException, KnowledgeBaseException;
+
+    /**
+     * Passes every question of the partition and its answers to the consumer.
+     * Knowledge added concurrently may or may not be passed.
+     * @param consumer the consumer of the questions and answers.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be read due to collection or transport errors.
+     */
+    void exportKnowledge(BiConsumer<Q, List<A>> consumer) throws KnowledgeBaseException;
+
+    /**
+     * Adds the questions not contained in the partition yet, atomically per question with regard to all other changes of the partition,
+     * so knowledge copied from another partition never replaces answers added to this partition meanwhile.
+     * @param knowledge validated questions and their answers.
+     * @return the number of questions added.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be added due to collection or transport errors.
+     */
+    long importKnowledgeIfAbsent(Map<Q, List<A>> knowledge) throws KnowledgeBaseException;
+
+    /**
+     * Removes the given questions and their answers from the partition, e.g. after they were moved to another partition.
+     * @param questions the questions to remove.
+     * @return the number of questions removed.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be removed due to collection or transport errors.
+     */
+    long removeKnowledge(Collection<Q> questions) throws KnowledgeBaseException;
+}
@@ -1,7 +1,12 @@
 package com.cgm.at.knowledgebase.api;
 
+import com.cgm.at.knowledgebase.common.ImportReport;
 import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * IKnowledgeService defines which functionality a knowledge base should have.
@@ -30,6 +35,39 @@ public interface IKnowledgeService<Q, A, S> {
      */
     List<A> askQuestion(Q question) throws IllegalArgumentException, KnowledgeBaseException;
 
+    /**
+     * Returns at most limit answers of the asked question, like {@link #askQuestion(Object)}.
+     * Implementations ranking the answers return the best answers, otherwise the first answers in the order they were added are returned.
+     * @param question the question to ask of the generic type Q.
+     *                 needs to be validated using {@link IKnowledgeValidationService}.
+     * @param limit the maximum number of answers to return, must be positive.
+     * @return a List of at most limit answers of type A to the question asked,
+     *         otherwise a default answer of type A will be returned as the only item in the list.
+     * @throws IllegalArgumentException thrown if the limit is not positive or the IKnowledgeValidationService invalidates the question given.
+     * @throws KnowledgeBaseException thrown if the question cannot be asked due to collection implementation errors.
+     */
+    default List<A> askQuestion(Q question, int limit) throws IllegalArgumentException, KnowledgeBaseException {
+        if (limit < 1) throw new IllegalArgumentException("The limit must be positive!");
+        List<A> answers = this.askQuestion(question);
+        return answers.size() <= limit ? answers : answers.subList(0, limit);
+    }
+
+    /**
+     * Returns the answers of the asked question as a stream, like {@link #askQuestion(Object)}.
+     * The question is validated and looked up when this method is called, the answers are retrieved when the stream is consumed.
+     * Knowledge bases storing their answers encoded, e.g. off-heap, decode each answer only when it is consumed,
+     * so a stream terminated early, e.g. by {@link Stream#limit(long)} or {@link Stream#iterator()}, never decodes the remaining answers.
+     * @param question the question to ask of the generic type Q.
+     *                 needs to be validated using {@link IKnowledgeValidationService}.
+     * @return a sequential Stream of the answers of type A to the question asked,
+     *         otherwise a stream of the default answer of type A only.
+     * @throws IllegalArgumentException thrown if the IKnowledgeValidationService invalidates the question given.
+     * @throws KnowledgeBaseException thrown if the question cannot be asked due to collection implementation errors.
+     */
+    default Stream<A> streamAnswers(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.askQuestion(question).stream();
+    }
+
     /**
      * Adds the given question of type Q and adds the given answers to it of type A to the knowledge base.
      * question and answers needs to be validated using {@link IKnowledgeValidationService}.
@@ -53,4 +91,36 @@ public interface IKnowledgeService<Q, A, S> {
      * @throws KnowledgeBaseException thrown if the question cannot be asked due to collection or deserialization implementation errors.
      */
     boolean addKnowledge(S serializedKnowledge) throws IllegalArgumentException, KnowledgeBaseException;
+
+    /**
+     * Adds all serialized knowledge of the given stream to the knowledge base.
+     * Each entry is validated using the {@link IKnowledgeValidationService}, but an invalid entry does not abort the import,
+     * it is skipped and reported in the returned {@link ImportReport} instead.
+     * If a question occurs more than once, the answers of the last occurrence are kept.
+     * By default every entry is added by {@link #addKnowledge(Object)} one after the other,
+     * parsing and merging are not timed apart, so only the elapsed time of the report is measured.
+     * @param serializedKnowledge a Stream of serialized knowledge, the stream is consumed but not closed.
+     * @see IKnowledgeValidationService
+     * @return an {@link ImportReport} containing the counts, errors and timings of the import.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be added due to collection implementation errors.
+     */
+    default ImportReport addKnowledgeBatch(Stream<S> serializedKnowledge) throws KnowledgeBaseException {
+        long start = System.nanoTime();
+        long totalCount = 0;
+        long importedCount = 0;
+        long failedCount = 0;
+        List<ImportReport.ImportError> errors = new ArrayList<>();
+        Iterator<S> iterator = serializedKnowledge.iterator();
+        while (iterator.hasNext()) {
+            S entry = iterator.next();
+            totalCount++;
+            try {
+                if (this.addKnowledge(entry)) importedCount++;
+            } catch (IllegalArgumentException e) {
+                failedCount++;
+                if (errors.size() < ImportReport.MAX_REPORTED_ERRORS) errors.add(new ImportReport.ImportError(totalCount, e.getMessage()));
+            }
+        }
+        return new ImportReport(totalCount, importedCount, failedCount, errors, Duration.ZERO, Duration.ZERO, Duration.ofNanos(System.nanoTime() - start));
+    }
 }
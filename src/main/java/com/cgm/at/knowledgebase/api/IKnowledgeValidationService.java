@@ -1,5 +1,10 @@
 package com.cgm.at.knowledgebase.api;
 
+import com.cgm.at.knowledgebase.common.BatchValidation;
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -7,6 +12,13 @@ import java.util.List;
  * this interface makes use of generics, so if the question is an audio wave, the implementer need to make sure, that the sound wave captured is valid.
  * another simpler example is when the question is in written language as text, then the implementer must take considerations accordingly.
  *
+ * every validation is offered twice: the validate methods throw an IllegalArgumentException for the first violation found,
+ * the check methods return the {@link ValidationError} of the first violation instead, or null if the input is valid,
+ * and are meant to be cheap enough for the hot path, e.g. rejecting the entries of a dirty file without creating an exception per entry.
+ * only the validate methods of question, answers and format must be implemented, the other methods fall back to them by default:
+ * the default checks report the error of an {@link InvalidKnowledgeException} thrown, or {@link ValidationError#KNOWLEDGE_INVALID}
+ * for any other IllegalArgumentException, implementations should override them to check without throwing.
+ *
  * @author Usama Morad
  * @version 1.0
  * @param <Q> Generic type of Question.
@@ -57,4 +69,84 @@ public interface IKnowledgeValidationService<Q, A, S> {
      * dependant of the type of Question and Answer, the implementation of the specific validation class, need to define rules, so this serialization is valid.
      */
     void validateSerializedKnowledgeFormat(S serializedKnowledge) throws IllegalArgumentException;
+
+    /**
+     * validates the serialized knowledge given completely, its format as well as the question and the answers serialized in it.
+     * validates the format only by default, implementations able to extract the question and answers should override it to validate them as well.
+     * @param serializedKnowledge Contains both the question, and the related answers inside of it as one serialized information.
+     * @throws IllegalArgumentException thrown for the first violation of {@link #validateSerializedKnowledgeFormat(Object)},
+     *         {@link #validateQuestion(Object)} or {@link #validateAnswers(List)} found in the serialized knowledge.
+     */
+    default void validateSerializedKnowledge(S serializedKnowledge) throws IllegalArgumentException {
+        this.validateSerializedKnowledgeFormat(serializedKnowledge);
+    }
+
+    /**
+     * checks a question given, like {@link #validateQuestion(Object)} does.
+     * @param question question of generic type Q
+     * @return the error of the first violation found, or null if the question is valid.
+     */
+    default ValidationError checkQuestion(Q question) {
+        try {
+            this.validateQuestion(question);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return errorOf(e);
+        }
+    }
+
+    /**
+     * checks a list of answers given, like {@link #validateAnswers(List)} does.
+     * @param answers the answers of generic type A
+     * @return the error of the first violation found, or null if the answers are valid.
+     */
+    default ValidationError checkAnswers(List<A> answers) {
+        try {
+            this.validateAnswers(answers);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return errorOf(e);
+        }
+    }
+
+    /**
+     * checks the serialized knowledge given completely, like {@link #validateSerializedKnowledge(Object)} does.
+     * @param serializedKnowledge Contains both the question, and the related answers inside of it as one serialized information.
+     * @return the error of the first violation found, or null if the serialized knowledge is valid.
+     */
+    default ValidationError checkSerializedKnowledge(S serializedKnowledge) {
+        try {
+            this.validateSerializedKnowledge(serializedKnowledge);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return errorOf(e);
+        }
+    }
+
+    /**
+     * checks all serialized knowledge of a batch, collecting the rejected entries instead of throwing for them.
+     * @param serializedKnowledge a List of serialized knowledge, it must not be modified while the result is in use.
+     * @return the {@link BatchValidation} containing the indexes and errors of the rejected entries.
+     */
+    default BatchValidation<S> validateBatch(List<S> serializedKnowledge) {
+        BitSet failures = new BitSet(serializedKnowledge.size());
+        List<ValidationError> errors = new ArrayList<>();
+        int index = 0;
+        for (S entry : serializedKnowledge) {
+            ValidationError error = this.checkSerializedKnowledge(entry);
+            if (error != null) {
+                failures.set(index);
+                errors.add(error);
+            }
+            index++;
+        }
+        return new BatchValidation<>(serializedKnowledge, this, failures, errors.toArray(new ValidationError[0]));
+    }
+
+    /**
+     * @return the error of a failed validation, {@link ValidationError#KNOWLEDGE_INVALID} if the exception does not name one.
+     */
+    private static ValidationError errorOf(IllegalArgumentException e) {
+        return e instanceof InvalidKnowledgeException ? ((InvalidKnowledgeException) e).getError() : ValidationError.KNOWLEDGE_INVALID;
+    }
 }
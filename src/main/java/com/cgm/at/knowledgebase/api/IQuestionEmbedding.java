@@ -0,0 +1,26 @@
+package com.cgm.at.knowledgebase.api;
+
+/**
+ * IQuestionEmbedding maps a question to a vector of fixed dimension, so questions of similar meaning are mapped to similar vectors.
+ * The vectors are normalized to unit length, so the cosine similarity of two questions is the dot product of their vectors.
+ * Implementations must be thread-safe, as questions are embedded by every thread asking or adding them.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question.
+ */
+public interface IQuestionEmbedding<Q> {
+    /**
+     * Gets the dimension
+     * @return the number of components of every vector.
+     */
+    int getDimension();
+
+    /**
+     * embeds the question into the given array.
+     * @param question the question to embed.
+     * @param vector the array to write the unit length vector to, or zeros if the question has no features at all.
+     * @param offset the index of the first component in the array.
+     */
+    void embed(Q question, float[] vector, int offset);
+}
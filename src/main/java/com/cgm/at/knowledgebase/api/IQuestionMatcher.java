@@ -0,0 +1,20 @@
+package com.cgm.at.knowledgebase.api;
+
+/**
+ * IQuestionMatcher finds the stored question best matching a question that is not contained in the knowledge base
+ * identically, e.g. because it is written in a different case or contains a typo.
+ * A matcher keeps its own index over the stored questions, which is kept in sync as {@link IKnowledgeListener}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question.
+ * @param <A> Generic type of Answer.
+ */
+public interface IQuestionMatcher<Q, A> extends IKnowledgeListener<Q, A> {
+    /**
+     * finds the stored question best matching the given question.
+     * @param question a valid question that is not contained in the knowledge base identically.
+     * @return the best matching stored question, or null if no stored question matches well enough.
+     */
+    Q match(Q question);
+}
@@ -0,0 +1,214 @@
+package com.cgm.at.knowledgebase.async;
+
+import com.cgm.at.knowledgebase.api.IAsyncKnowledgeService;
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * An {@link IAsyncKnowledgeService} executing the operations of a blocking {@link IKnowledgeService} on a pool of threads of its own.
+ *
+ * Identical questions asked while a lookup of the question is in flight are coalesced into that lookup,
+ * so a burst of duplicate questions costs one lookup of the backend. A question is never joined to a lookup started
+ * before knowledge added through this service was added: adding a question detaches the lookup of the question in flight,
+ * adding serialized knowledge or a batch detaches all lookups in flight.
+ *
+ * The pool applies back-pressure: at most the given number of operations wait for a thread,
+ * further operations are rejected at once with a failed future instead of queuing without bound, so callers can shed load or retry.
+ * Coalesced questions never wait for a thread. The backend must be thread-safe, e.g. a ConcurrentTextualKnowledgeService.
+ * @param <Q> Generic type of Question
+ * @param <A> Generic type of Answer
+ * @param <S> Generic type of serialized Knowledge.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class AsyncKnowledgeService<Q, A, S> implements IAsyncKnowledgeService<Q, A, S>, AutoCloseable {
+
+    //the default maximum number of operations waiting for a thread.
+    public static final int DEFAULT_MAX_PENDING = 1024;
+
+    //the blocking backend.
+    private final IKnowledgeService<Q, A, S> delegate;
+
+    //the threads calling the backend, with a bounded queue of pending operations.
+    private final ThreadPoolExecutor executor;
+
+    //the lookup in flight of every question.
+    private final ConcurrentHashMap<Q, CompletableFuture<List<A>>> inFlight = new ConcurrentHashMap<>();
+
+    //the counters of lookups started, questions coalesced and operations rejected.
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * initializes the service with one thread per processor, at least two, and {@link #DEFAULT_MAX_PENDING} pending operations.
+     * @param delegate the thread-safe blocking backend.
+     */
+    public AsyncKnowledgeService(IKnowledgeService<Q, A, S> delegate) {
+        this(delegate, Math.max(2, Runtime.getRuntime().availableProcessors()), DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * initializes the service with the parameters given.
+     * @param delegate the thread-safe blocking backend.
+     * @param threads the number of threads calling the backend, e.g. more than processors if the backend does I/O.
+     * @param maxPending the maximum number of operations waiting for a thread before further operations are rejected.
+     */
+    public AsyncKnowledgeService(IKnowledgeService<Q, A, S> delegate, int threads, int maxPending) {
+        if (threads < 1) throw new IllegalArgumentException("The number of threads must be positive!");
+        if (maxPending < 1) throw new IllegalArgumentException("The maximum number of pending operations must be positive!");
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxPending), runnable -> {
+            Thread thread = new Thread(runnable, "knowledge-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * the question joins the lookup of an identical question in flight, if there is one.
+     */
+    @Override
+    public CompletableFuture<List<A>> askQuestion(Q question) {
+        //null cannot be coalesced, the backend rejects it like any invalid question.
+        if (question == null) return this.submit(() -> this.delegate.askQuestion(null), () -> { });
+        CompletableFuture<List<A>> lookup = new CompletableFuture<>();
+        CompletableFuture<List<A>> running = this.inFlight.putIfAbsent(question, lookup);
+        if (running != null) {
+            this.coalescedCount.increment();
+            return running.copy();
+        }
+        this.execute(lookup, () -> {
+            this.lookupCount.increment();
+            return this.delegate.askQuestion(question);
+        }, () -> this.inFlight.remove(question, lookup));
+        //hands out a copy, so a caller cancelling or completing its future does not affect the coalesced callers.
+        return lookup.copy();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addKnowledge(Q question, List<A> answers) {
+        List<A> copy = answers == null ? null : new ArrayList<>(answers);
+        return this.submit(() -> this.delegate.addKnowledge(question, copy), () -> {
+            if (question != null) this.inFlight.remove(question);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addKnowledge(S serializedKnowledge) {
+        return this.submit(() -> this.delegate.addKnowledge(serializedKnowledge), this.inFlight::clear);
+    }
+
+    @Override
+    public CompletableFuture<ImportReport> addKnowledgeBatch(Stream<S> serializedKnowledge) {
+        return this.submit(() -> this.delegate.addKnowledgeBatch(serializedKnowledge), this.inFlight::clear);
+    }
+
+    /**
+     * Gets the lookup count
+     * @return the number of lookups of the backend started.
+     */
+    public long getLookupCount() {
+        return this.lookupCount.sum();
+    }
+
+    /**
+     * Gets the coalesced count
+     * @return the number of questions answered by the lookup of an identical question in flight.
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.sum();
+    }
+
+    /**
+     * Gets the rejected count
+     * @return the number of operations rejected because too many operations were pending.
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    /**
+     * Gets the pending count
+     * @return the number of operations currently waiting for a thread.
+     */
+    public int getPendingCount() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * stops accepting operations and waits at most one second for the pending operations.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(1, TimeUnit.SECONDS)) this.executor.shutdownNow();
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * executes the operation on the pool.
+     * @param completed run after the operation and before its future is completed.
+     * @return a new future completed with the result of the operation.
+     */
+    private <T> CompletableFuture<T> submit(Operation<T> operation, Runnable completed) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        this.execute(future, operation, completed);
+        return future;
+    }
+
+    /**
+     * executes the operation on the pool, completing the given future with its result,
+     * or fails the future at once if the operation is rejected.
+     * @param completed run after the operation and before the future is completed.
+     */
+    private <T> void execute(CompletableFuture<T> future, Operation<T> operation, Runnable completed) {
+        try {
+            this.executor.execute(() -> {
+                T result;
+                try {
+                    result = operation.call();
+                } catch (Throwable e) {
+                    completed.run();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                completed.run();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            completed.run();
+            if (this.executor.isShutdown()) {
+                future.completeExceptionally(new KnowledgeBaseException("The knowledge service is closed.", e));
+            } else {
+                this.rejectedCount.increment();
+                future.completeExceptionally(new KnowledgeBaseException("Too many operations are pending, the operation was rejected.", e));
+            }
+        }
+    }
+
+    /**
+     * A blocking operation of the backend.
+     */
+    @FunctionalInterface
+    private interface Operation<T> {
+        T call() throws KnowledgeBaseException;
+    }
+}
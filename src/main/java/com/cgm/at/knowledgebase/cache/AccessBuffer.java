@@ -0,0 +1,75 @@
+package com.cgm.at.knowledgebase.cache;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lossy buffer of the keys of cache hits, so a hit of the {@link CachingKnowledgeService} does not take its lock.
+ * The keys are recorded into a ring of 16 slots per stripe, a stripe per available processor, at most 16,
+ * and applied to the admission and eviction policy in batches by {@link #drain(Consumer)} holding the lock of the cache.
+ * A key recorded into a slot not drained yet overwrites it and concurrent recordings may overwrite each other,
+ * so some accesses are lost under contention, which only makes the policy slightly less accurate.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class AccessBuffer<K> {
+
+    //the maximum number of stripes.
+    private static final int MAX_STRIPES = 16;
+
+    //the number of slots of a stripe, a power of two.
+    private static final int STRIPE_SLOTS = 16;
+
+    //the stripes of recorded keys, a power of two of them.
+    private final Stripe<K>[] stripes;
+
+    /**
+     * initializes an empty buffer with a stripe per available processor, at most 16.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    AccessBuffer() {
+        int stripeCount = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * records an access of the key.
+     * @param key the key accessed.
+     * @return true if the stripe of the calling thread is full and should be drained.
+     */
+    boolean record(K key) {
+        Stripe<K> stripe = this.stripes[(int) Thread.currentThread().getId() & (this.stripes.length - 1)];
+        int slot = stripe.position++ & (STRIPE_SLOTS - 1);
+        stripe.keys.lazySet(slot, key);
+        return slot == STRIPE_SLOTS - 1;
+    }
+
+    /**
+     * passes all keys recorded since the last drain to the consumer and clears them.
+     * must not be called concurrently.
+     * @param consumer the consumer applying the accesses.
+     */
+    void drain(Consumer<K> consumer) {
+        for (Stripe<K> stripe : this.stripes) {
+            for (int slot = 0; slot < STRIPE_SLOTS; slot++) {
+                K key = stripe.keys.get(slot);
+                if (key == null) continue;
+                stripe.keys.lazySet(slot, null);
+                consumer.accept(key);
+            }
+        }
+    }
+
+    /**
+     * The slots of a stripe and the position of its next recording, incremented without synchronization.
+     */
+    private static final class Stripe<K> {
+
+        private final AtomicReferenceArray<K> keys = new AtomicReferenceArray<>(STRIPE_SLOTS);
+        private int position;
+    }
+}
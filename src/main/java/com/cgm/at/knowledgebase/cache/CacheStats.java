@@ -0,0 +1,91 @@
+package com.cgm.at.knowledgebase.cache;
+
+/**
+ * A point-in-time snapshot of the counters of a {@link CachingKnowledgeService}, used to size the cache.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long rejectionCount;
+    private final long entryCount;
+    private final long weightedSize;
+
+    /**
+     * initializes the snapshot with the parameters given.
+     * @param hitCount the number of questions answered from the cache.
+     * @param missCount the number of questions answered by the backend.
+     * @param evictionCount the number of entries evicted from the cache to make room for others.
+     * @param rejectionCount the number of entries not admitted because they were accessed less often than the entries they would evict.
+     * @param entryCount the number of entries in the cache.
+     * @param weightedSize the sum of the weights of the entries in the cache.
+     */
+    CacheStats(long hitCount, long missCount, long evictionCount, long rejectionCount, long entryCount, long weightedSize) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.rejectionCount = rejectionCount;
+        this.entryCount = entryCount;
+        this.weightedSize = weightedSize;
+    }
+
+    /**
+     * @return the number of questions answered from the cache.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * @return the number of questions answered by the backend.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * @return the number of entries evicted from the cache to make room for others.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * @return the number of entries not admitted because they were accessed less often than the entries they would evict.
+     */
+    public long getRejectionCount() {
+        return this.rejectionCount;
+    }
+
+    /**
+     * @return the number of entries in the cache.
+     */
+    public long getEntryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * @return the sum of the weights of the entries in the cache.
+     */
+    public long getWeightedSize() {
+        return this.weightedSize;
+    }
+
+    /**
+     * @return the ratio of questions answered from the cache, 1.0 if no question has been asked yet.
+     */
+    public double getHitRate() {
+        long requestCount = this.hitCount + this.missCount;
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + this.hitCount + ", misses=" + this.missCount + ", evictions=" + this.evictionCount
+                + ", rejections=" + this.rejectionCount + ", entries=" + this.entryCount + ", weightedSize=" + this.weightedSize + "}";
+    }
+}
@@ -0,0 +1,416 @@
+package com.cgm.at.knowledgebase.cache;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeListener;
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeParser;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+import java.util.stream.Stream;
+
+/**
+ * A read-through cache in front of another {@link IKnowledgeService}, e.g. a disk-backed knowledge base.
+ * Answers asked for are kept in a cache bounded by the sum of the weights of its entries,
+ * so repeated questions do not reach the backend. Unknown questions are cached with the default answer as well.
+ * The best answers of {@link #askQuestion(Object, int)} are only taken from the cache if the backend is a {@link KnowledgeBase}
+ * without an {@link com.cgm.at.knowledgebase.ranking.AnswerRanking}, as the first cached answers are its best answers then,
+ * otherwise they are asked of the backend, whose ranking changes with every usage recorded.
+ *
+ * The cache follows the W-TinyLFU policy: new entries enter a small LRU window (1% of the maximum weight),
+ * and an entry leaving the window is only admitted into the main LRU region if it was accessed more often recently
+ * than the entries it would evict, as estimated by a {@link FrequencySketch}. One-off questions therefore cannot flush out hot ones.
+ *
+ * Adding knowledge through this service invalidates the cached answers of the question added,
+ * a bulk import invalidates the whole cache. Answers loaded concurrently with an invalidation are not cached,
+ * so the cache never keeps answers older than the last write. If the backend is a {@link KnowledgeBase}, the cache listens to it
+ * and also invalidates the answers of questions added to it directly or removed from it, e.g. by a
+ * {@link com.cgm.at.knowledgebase.expiry.KnowledgeExpiryScheduler} once their time to live has elapsed.
+ *
+ * Cached answers are looked up in a concurrent map without locking, a hit only records its question into a lossy {@link AccessBuffer}.
+ * Misses, invalidations and the admission and eviction policy hold one lock, which applies the recorded hits in batches
+ * whenever it is taken or a stripe of the buffer is full. The backend is always called without holding it.
+ * @param <Q> Generic type of Question
+ * @param <A> Generic type of Answer
+ * @param <S> Generic type of serialized Knowledge.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class CachingKnowledgeService<Q, A, S> implements IKnowledgeService<Q, A, S>, IKnowledgeListener<Q, A> {
+
+    //the estimated average number of characters of a cached textual question and its answers, used to size the frequency sketch.
+    private static final long AVERAGE_TEXTUAL_ENTRY_CHARACTERS = 64;
+
+    //the backend answering the questions not cached.
+    private final IKnowledgeService<Q, A, S> delegate;
+
+    //the maximum sum of the weights of all cached entries, and its shares of window and main region.
+    private final long maximumWeight;
+    private final long windowMaximumWeight;
+    private final long mainMaximumWeight;
+
+    //computes the weight of a cached entry.
+    private final ToLongBiFunction<Q, List<A>> weigher;
+
+    //extracts the question of serialized knowledge to invalidate its cached answers.
+    private final Function<S, Q> questionExtractor;
+
+    //all cached entries, read without locking and changed holding the lock.
+    private final ConcurrentHashMap<Q, CacheEntry<A>> entries = new ConcurrentHashMap<>();
+
+    //the access ordered window and main regions, guarded by the lock.
+    private final LinkedHashMap<Q, CacheEntry<A>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Q, CacheEntry<A>> main = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowWeight;
+    private long mainWeight;
+
+    //the access frequencies used for admission, guarded by the lock.
+    private final FrequencySketch sketch;
+
+    //the questions of the hits not applied to the regions and the sketch yet.
+    private final AccessBuffer<Q> accessBuffer = new AccessBuffer<>();
+
+    //incremented by every invalidation, a load is only cached if no invalidation happened while loading.
+    private long invalidationEpoch;
+
+    //the counters exposed by getStats(), all but the hits guarded by the lock.
+    private final LongAdder hitCount = new LongAdder();
+    private long missCount;
+    private long evictionCount;
+    private long rejectionCount;
+
+    //the lock guarding the cache.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * initializes the cache with the parameters given, listening to the backend if it is a {@link KnowledgeBase}.
+     * @param delegate the backend answering the questions not cached.
+     * @param maximumWeight the maximum sum of the weights of all cached entries.
+     * @param expectedEntries the number of entries expected to fit into the cache, sizing the frequency sketch.
+     * @param weigher computes the weight of an entry from its question and answers, must be positive.
+     * @param questionExtractor extracts the question of serialized knowledge, used to invalidate the answers of added knowledge.
+     */
+    public CachingKnowledgeService(IKnowledgeService<Q, A, S> delegate, long maximumWeight, long expectedEntries,
+                                   ToLongBiFunction<Q, List<A>> weigher, Function<S, Q> questionExtractor) {
+        if (maximumWeight < 2) throw new IllegalArgumentException("The maximum weight of the cache must be at least 2!");
+        if (expectedEntries < 1) throw new IllegalArgumentException("The expected number of entries must be positive!");
+        this.delegate = delegate;
+        this.maximumWeight = maximumWeight;
+        this.windowMaximumWeight = Math.max(1, maximumWeight / 100);
+        this.mainMaximumWeight = maximumWeight - this.windowMaximumWeight;
+        this.weigher = weigher;
+        this.questionExtractor = questionExtractor;
+        this.sketch = new FrequencySketch(expectedEntries);
+        if (delegate instanceof KnowledgeBase) ((KnowledgeBase<Q, A, S>) delegate).addKnowledgeListener(this);
+    }
+
+    /**
+     * creates a cache in front of a textual knowledge base, weighing each entry by the number of characters of its question and answers.
+     * The frequency sketch is sized for the number of entries of an average of 64 characters fitting into the cache.
+     * @param delegate the textual backend answering the questions not cached.
+     * @param maximumCharacters the maximum number of characters of all cached questions and answers.
+     * @return the caching knowledge service.
+     */
+    public static CachingKnowledgeService<String, String, String> forTextual(IKnowledgeService<String, String, String> delegate, long maximumCharacters) {
+        TextualKnowledgeParser parser = new TextualKnowledgeParser();
+        long expectedEntries = Math.max(1, maximumCharacters / AVERAGE_TEXTUAL_ENTRY_CHARACTERS);
+        return new CachingKnowledgeService<>(delegate, maximumCharacters, expectedEntries, (question, answers) -> {
+            long weight = question.length();
+            for (String answer : answers) weight += answer.length();
+            return weight;
+        }, parser::parseQuestion);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the answers are taken from the cache if present, otherwise they are asked of the backend and cached.
+     */
+    @Override
+    public List<A> askQuestion(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        if (question == null) return this.delegate.askQuestion(null);
+        CacheEntry<A> entry = this.getIfPresent(question);
+        if (entry != null) return entry.answers;
+        long epoch = this.recordMiss(question);
+        List<A> answers = this.delegate.askQuestion(question);
+        this.lock.lock();
+        try {
+            if (epoch == this.invalidationEpoch) this.put(question, answers);
+        } finally {
+            this.lock.unlock();
+        }
+        return answers;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the first answers are taken from the cached answers unless the backend may rank its answers, see the class description.
+     */
+    @Override
+    public List<A> askQuestion(Q question, int limit) throws IllegalArgumentException, KnowledgeBaseException {
+        if (limit < 1) throw new IllegalArgumentException("The limit must be positive!");
+        if (this.mayRank()) return this.delegate.askQuestion(question, limit);
+        List<A> answers = this.askQuestion(question);
+        return answers.size() <= limit ? answers : answers.subList(0, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the cached answers are streamed if present, otherwise the answers are streamed by the backend without being cached,
+     * so a stream terminated early never loads the remaining answers.
+     */
+    @Override
+    public Stream<A> streamAnswers(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        if (question == null) return this.delegate.streamAnswers(null);
+        CacheEntry<A> entry = this.getIfPresent(question);
+        if (entry != null) return entry.answers.stream();
+        this.recordMiss(question);
+        return this.delegate.streamAnswers(question);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the cached answers of the question are invalidated.
+     */
+    @Override
+    public boolean addKnowledge(Q question, List<A> answers) throws IllegalArgumentException, KnowledgeBaseException {
+        try {
+            return this.delegate.addKnowledge(question, answers);
+        } finally {
+            this.invalidate(question);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the cached answers of the question contained in the serialized knowledge are invalidated.
+     */
+    @Override
+    public boolean addKnowledge(S serializedKnowledge) throws IllegalArgumentException, KnowledgeBaseException {
+        boolean added = this.delegate.addKnowledge(serializedKnowledge);
+        this.invalidate(this.questionExtractor.apply(serializedKnowledge));
+        return added;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the whole cache is invalidated.
+     */
+    @Override
+    public ImportReport addKnowledgeBatch(Stream<S> serializedKnowledge) throws KnowledgeBaseException {
+        try {
+            return this.delegate.addKnowledgeBatch(serializedKnowledge);
+        } finally {
+            this.invalidateAll();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the cached answers of the question are invalidated.
+     */
+    @Override
+    public void knowledgeAdded(Q question, List<A> answers) {
+        this.invalidate(question);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the cached answers of the question are invalidated, so expired answers are not served anymore.
+     */
+    @Override
+    public void knowledgeRemoved(Q question) {
+        this.invalidate(question);
+    }
+
+    /**
+     * removes the cached answers of the given question.
+     * @param question the question to invalidate.
+     */
+    public void invalidate(Q question) {
+        this.lock.lock();
+        try {
+            this.invalidationEpoch++;
+            if (this.entries.remove(question) == null) return;
+            CacheEntry<A> entry = this.window.remove(question);
+            if (entry != null) {
+                this.windowWeight -= entry.weight;
+                return;
+            }
+            entry = this.main.remove(question);
+            if (entry != null) this.mainWeight -= entry.weight;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * removes all cached answers.
+     */
+    public void invalidateAll() {
+        this.lock.lock();
+        try {
+            this.invalidationEpoch++;
+            this.entries.clear();
+            this.window.clear();
+            this.main.clear();
+            this.windowWeight = 0;
+            this.mainWeight = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return a snapshot of the counters of the cache.
+     */
+    public CacheStats getStats() {
+        this.lock.lock();
+        try {
+            return new CacheStats(this.hitCount.sum(), this.missCount, this.evictionCount, this.rejectionCount,
+                    this.window.size() + this.main.size(), this.windowWeight + this.mainWeight);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the backend is known to return its first answers as its best answers, true if it may rank them.
+     */
+    private boolean mayRank() {
+        return !(this.delegate instanceof KnowledgeBase) || ((KnowledgeBase<?, ?, ?>) this.delegate).getAnswerRanking() != null;
+    }
+
+    /**
+     * looks up the cached entry of a question without locking, recording a hit.
+     * @return the cached entry, or null if the question is not cached.
+     */
+    private CacheEntry<A> getIfPresent(Q question) {
+        CacheEntry<A> entry = this.entries.get(question);
+        if (entry == null) return null;
+        this.hitCount.increment();
+        if (this.accessBuffer.record(question) && this.lock.tryLock()) {
+            try {
+                this.drainAccesses();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * records a miss of a question.
+     * @return the invalidation epoch the answers loaded by the backend must be cached in.
+     */
+    private long recordMiss(Q question) {
+        this.lock.lock();
+        try {
+            this.drainAccesses();
+            this.sketch.increment(question);
+            this.missCount++;
+            return this.invalidationEpoch;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * applies the hits recorded in the access buffer to the sketch and the recency order of the regions.
+     * must be called holding the lock.
+     */
+    private void drainAccesses() {
+        this.accessBuffer.drain(question -> {
+            this.sketch.increment(question);
+            if (this.window.get(question) == null) this.main.get(question);
+        });
+    }
+
+    /**
+     * adds the answers to the window, moving the least recently used window entries towards the main region.
+     * must be called holding the lock.
+     */
+    private void put(Q question, List<A> answers) {
+        long weight = this.weigher.applyAsLong(question, answers);
+        if (weight > this.maximumWeight) return;
+        if (this.entries.containsKey(question)) return;
+        this.drainAccesses();
+        CacheEntry<A> entry = new CacheEntry<>(answers, weight);
+        this.entries.put(question, entry);
+        this.window.put(question, entry);
+        this.windowWeight += weight;
+        Iterator<Map.Entry<Q, CacheEntry<A>>> iterator = this.window.entrySet().iterator();
+        while (this.windowWeight > this.windowMaximumWeight && iterator.hasNext()) {
+            Map.Entry<Q, CacheEntry<A>> candidate = iterator.next();
+            iterator.remove();
+            this.windowWeight -= candidate.getValue().weight;
+            this.admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * admits an entry leaving the window into the main region, if it is accessed more often than each of the least recently used
+     * entries of the main region it needs to evict. all these victims are compared before any of them is evicted,
+     * so a rejected candidate never evicts entries. must be called holding the lock.
+     */
+    private void admit(Q question, CacheEntry<A> candidate) {
+        if (candidate.weight > this.mainMaximumWeight) {
+            this.reject(question);
+            return;
+        }
+        int candidateFrequency = this.sketch.frequency(question);
+        long requiredWeight = this.mainWeight + candidate.weight - this.mainMaximumWeight;
+        long victimWeight = 0;
+        int victimCount = 0;
+        for (Map.Entry<Q, CacheEntry<A>> victim : this.main.entrySet()) {
+            if (victimWeight >= requiredWeight) break;
+            if (candidateFrequency <= this.sketch.frequency(victim.getKey())) {
+                this.reject(question);
+                return;
+            }
+            victimWeight += victim.getValue().weight;
+            victimCount++;
+        }
+        Iterator<Map.Entry<Q, CacheEntry<A>>> iterator = this.main.entrySet().iterator();
+        for (int i = 0; i < victimCount; i++) {
+            Map.Entry<Q, CacheEntry<A>> victim = iterator.next();
+            iterator.remove();
+            this.entries.remove(victim.getKey());
+            this.mainWeight -= victim.getValue().weight;
+            this.evictionCount++;
+        }
+        this.main.put(question, candidate);
+        this.mainWeight += candidate.weight;
+    }
+
+    /**
+     * drops a candidate leaving the window that is not admitted into the main region.
+     * must be called holding the lock.
+     */
+    private void reject(Q question) {
+        this.entries.remove(question);
+        this.rejectionCount++;
+    }
+
+    /**
+     * A cached answer list together with its weight.
+     */
+    private static final class CacheEntry<A> {
+
+        private final List<A> answers;
+        private final long weight;
+
+        CacheEntry(List<A> answers, long weight) {
+            this.answers = answers;
+            this.weight = weight;
+        }
+    }
+}
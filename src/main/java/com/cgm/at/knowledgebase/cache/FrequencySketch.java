@@ -0,0 +1,103 @@
+package com.cgm.at.knowledgebase.cache;
+
+/**
+ * A count-min sketch estimating how often a key has been accessed recently, used for the admission decisions of the {@link CachingKnowledgeService}.
+ * Each key increments one 4-bit counter in each of four rows, the estimated frequency is the minimum of these counters.
+ * Each row has four counters per expected key, so few keys share a counter.
+ * After a sample of accesses ten times the number of expected keys all counters are halved,
+ * so the frequencies of keys that were popular long ago fade out.
+ * The sketch is not thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class FrequencySketch {
+
+    //the seeds used to derive the counter index of each row.
+    private static final int[] SEEDS = {0x97CB3127, 0xB9B0D4C1, 0xC2B2AE35, 0x27D4EB2F};
+
+    //the maximum value of a counter.
+    private static final int MAX_FREQUENCY = 15;
+
+    //the counters of all rows, row r occupies the indices [r * width, (r + 1) * width).
+    private final byte[] counters;
+
+    //the number of counters per row, a power of two.
+    private final int width;
+
+    //the number of increments after which all counters are halved.
+    private final int sampleSize;
+
+    //the number of increments since the last halving.
+    private int additions;
+
+    /**
+     * initializes the sketch for the given number of distinct keys.
+     * @param expectedKeys the number of keys expected to be tracked, e.g. the maximum number of cached entries, not their weight.
+     */
+    FrequencySketch(long expectedKeys) {
+        int keys = (int) Math.max(16, Math.min(1 << 22, expectedKeys));
+        this.width = Integer.highestOneBit(4 * keys * 2 - 1);
+        this.counters = new byte[SEEDS.length * this.width];
+        this.sampleSize = 10 * keys;
+    }
+
+    /**
+     * records one access of the key.
+     * @param key the key accessed.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = this.indexOf(hash, row);
+            if (this.counters[index] < MAX_FREQUENCY) {
+                this.counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++this.additions == this.sampleSize) this.reset();
+    }
+
+    /**
+     * @param key the key to estimate.
+     * @return the estimated number of recent accesses of the key, at most 15.
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < SEEDS.length; row++) {
+            frequency = Math.min(frequency, this.counters[this.indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * halves all counters.
+     */
+    private void reset() {
+        for (int i = 0; i < this.counters.length; i++) {
+            this.counters[i] >>= 1;
+        }
+        this.additions = 0;
+    }
+
+    /**
+     * @return the index of the counter of the given row for the hash.
+     */
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * this.width + (h & (this.width - 1));
+    }
+
+    /**
+     * spreads the bits of a hash code.
+     */
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xED5AD4BB;
+        hash ^= hash >>> 11;
+        return hash;
+    }
+}
@@ -0,0 +1,346 @@
+package com.cgm.at.knowledgebase.codec;
+
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes one question and its answers as a compact binary record, the binary counterpart of a question line.
+ * A record has the following layout, every length is an unsigned varint of 7 bits per byte, least significant group first:
+ * [questionLength][question UTF-8 bytes][answerCount]([answerLength][answer UTF-8 bytes])*
+ * The lengths are counted in bytes. Unlike a question line, a record can hold answers containing quotations.
+ *
+ * Strings are encoded straight into the target buffer and decoded straight from the source buffer,
+ * and a record can be checked for well-formedness and validity without decoding it, see {@link #check(ByteBuffer, int)}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class BinaryKnowledgeCodec {
+
+    //the maximum number of bytes of a varint encoding a non-negative int.
+    static final int MAX_VARINT_SIZE = 5;
+
+    //the replacement encoded for an unpaired surrogate, like String.getBytes does.
+    private static final byte REPLACEMENT = '?';
+
+    //the errors reported by checkString in the upper half of its result, indexed by their code.
+    private static final ValidationError[] ERRORS = {null, ValidationError.QUESTION_NONE_GIVEN, ValidationError.QUESTION_EXCEEDS_255_CHARACTERS,
+            ValidationError.QUESTION_NO_QUESTIONMARK, ValidationError.QUESTION_IS_EMPTY_OR_BLANK,
+            ValidationError.ANSWER_EXCEEDS_255_CHARACTERS, ValidationError.ANSWER_IS_EMPTY_OR_BLANK};
+
+    /**
+     * The caller should be prevented from constructing objects of
+     * this class, by declaring this private constructor.
+     */
+    private BinaryKnowledgeCodec() {
+        throw new AssertionError();
+    }
+
+    /**
+     * computes the size of the record of the question and answers.
+     * @param question the question of the record.
+     * @param answers the answers of the record.
+     * @return the number of bytes {@link #encode(String, List, ByteBuffer)} writes.
+     */
+    public static int encodedLength(String question, List<String> answers) {
+        int length = stringLength(question) + varintLength(answers.size());
+        for (String answer : answers) {
+            length += stringLength(answer);
+        }
+        return length;
+    }
+
+    /**
+     * encodes the question and answers as one record into a new buffer.
+     * @param question the question of the record.
+     * @param answers the answers of the record.
+     * @return a buffer containing the record, positioned at 0.
+     */
+    public static ByteBuffer encode(String question, List<String> answers) {
+        ByteBuffer record = ByteBuffer.allocate(encodedLength(question, answers));
+        encode(question, answers, record);
+        return record.flip();
+    }
+
+    /**
+     * encodes the question and answers as one record at the position of the target buffer, and advances the position behind it.
+     * @param question the question of the record.
+     * @param answers the answers of the record.
+     * @param target the buffer to write to, it needs {@link #encodedLength(String, List)} bytes remaining.
+     * @throws java.nio.BufferOverflowException thrown if the record does not fit into the buffer.
+     */
+    public static void encode(String question, List<String> answers, ByteBuffer target) {
+        writeString(question, target);
+        writeVarint(answers.size(), target);
+        for (String answer : answers) {
+            writeString(answer, target);
+        }
+    }
+
+    /**
+     * decodes the record starting at the position of the given buffer, and advances the position behind the record.
+     * @param buffer the buffer to read the record from.
+     * @return the question as key and the immutable answers as value.
+     * @throws IllegalArgumentException thrown if the buffer does not contain a complete record at its position.
+     */
+    public static Map.Entry<String, List<String>> decode(ByteBuffer buffer) throws IllegalArgumentException {
+        String question = readString(buffer);
+        int answerCount = readVarint(buffer);
+        //every answer takes at least one byte, which bounds the array allocated for a corrupt count.
+        if (answerCount > buffer.remaining()) throw malformed();
+        String[] answers = new String[answerCount];
+        for (int i = 0; i < answers.length; i++) {
+            answers[i] = readString(buffer);
+        }
+        return Map.entry(question, List.of(answers));
+    }
+
+    /**
+     * finds the end of the record starting at the position of the given buffer without decoding it.
+     * @param buffer the buffer containing the record, its position is not changed.
+     * @return the size of the record in bytes.
+     * @throws IllegalArgumentException thrown if the buffer does not contain a complete record at its position.
+     */
+    public static int recordLength(ByteBuffer buffer) throws IllegalArgumentException {
+        ByteBuffer record = buffer.duplicate();
+        skipString(record);
+        for (int answerCount = readVarint(record); answerCount > 0; answerCount--) {
+            skipString(record);
+        }
+        return record.position() - buffer.position();
+    }
+
+    /**
+     * checks the record between position and limit of the given buffer completely without decoding it, its position is not changed.
+     * the errors are reported in the order a validation of the decoded record reports them:
+     * format errors first, i.e. a truncated or malformed record or bytes behind it, then errors of the question,
+     * then the first error of the answers. The question and the answers are checked by their length in UTF-16 chars,
+     * like a String of them would be.
+     * @param buffer the buffer containing exactly one record.
+     * @param maxLength the maximum length of the question and of every answer.
+     * @return the error of the first violation found, or null if the record is valid.
+     */
+    public static ValidationError check(ByteBuffer buffer, int maxLength) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        //the result of checking a string: its end, or -1 if malformed, and the error of the string.
+        long question = checkString(buffer, position, limit, maxLength, true);
+        if (question < 0) return ValidationError.BINARY_FORMAT_INCORRECT;
+        position = (int) question;
+        long answerCount = readVarint(buffer, position, limit);
+        if (answerCount < 0) return ValidationError.BINARY_FORMAT_INCORRECT;
+        position = (int) answerCount;
+        answerCount >>>= 32;
+        ValidationError answerError = null;
+        for (long i = 0; i < answerCount; i++) {
+            long answer = checkString(buffer, position, limit, maxLength, false);
+            if (answer < 0) return ValidationError.BINARY_FORMAT_INCORRECT;
+            position = (int) answer;
+            if (answerError == null) answerError = ERRORS[(int) (answer >>> 32)];
+        }
+        if (position != limit) return ValidationError.BINARY_FORMAT_INCORRECT;
+        ValidationError questionError = ERRORS[(int) (question >>> 32)];
+        if (questionError != null) return questionError;
+        if (answerCount == 0) return ValidationError.ANSWERS_NONE_GIVEN;
+        return answerError;
+    }
+
+    /**
+     * checks the length prefixed UTF-8 string at the given position, decoding its code points without creating the string.
+     * @return the end of the string in the lower and the code of its error in the upper 32 bits, or -1 if the string is malformed.
+     */
+    private static long checkString(ByteBuffer buffer, int position, int limit, int maxLength, boolean question) {
+        long prefix = readVarint(buffer, position, limit);
+        if (prefix < 0) return -1;
+        int start = (int) prefix;
+        int length = (int) (prefix >>> 32);
+        if (length > limit - start) return -1;
+        int end = start + length;
+        long chars = 0;
+        int nonBlank = 0;
+        for (int i = start; i < end; ) {
+            int b = buffer.get(i);
+            int codePoint;
+            int size;
+            if (b >= 0) {
+                codePoint = b;
+                size = 1;
+            } else if ((b & 0xE0) == 0xC0) {
+                codePoint = b & 0x1F;
+                size = 2;
+            } else if ((b & 0xF0) == 0xE0) {
+                codePoint = b & 0x0F;
+                size = 3;
+            } else if ((b & 0xF8) == 0xF0) {
+                codePoint = b & 0x07;
+                size = 4;
+            } else {
+                return -1;
+            }
+            if (size > end - i) return -1;
+            for (int k = 1; k < size; k++) {
+                int continuation = buffer.get(i + k);
+                if ((continuation & 0xC0) != 0x80) return -1;
+                codePoint = codePoint << 6 | continuation & 0x3F;
+            }
+            //rejects overlong encodings, surrogates and code points beyond the Unicode range, which a String never encodes.
+            if (size == 2 && codePoint < 0x80 || size == 3 && (codePoint < 0x800 || Character.isSurrogate((char) codePoint))
+                    || size == 4 && (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT)) return -1;
+            chars += Character.charCount(codePoint);
+            if (!Character.isWhitespace(codePoint)) nonBlank++;
+            i += size;
+        }
+        int error;
+        if (question) {
+            if (chars == 0) error = 1;
+            else if (chars > maxLength) error = 2;
+            else if (buffer.get(end - 1) != '?') error = 3;
+            //the question mark is the only character that is not white space.
+            else if (nonBlank == 1) error = 4;
+            else error = 0;
+        } else {
+            if (chars > maxLength) error = 5;
+            else if (nonBlank == 0) error = 6;
+            else error = 0;
+        }
+        return (long) error << 32 | end;
+    }
+
+    /**
+     * @return the number of bytes of the length prefixed UTF-8 encoding of the string.
+     */
+    private static int stringLength(String value) {
+        int length = utf8Length(value);
+        return varintLength(length) + length;
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding of the string, counting an unpaired surrogate as one replacement byte.
+     */
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) continue;
+            if (c < 0x800) {
+                bytes++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                //a surrogate pair of two chars takes four bytes.
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * writes the string as length prefixed UTF-8 bytes.
+     */
+    private static void writeString(String value, ByteBuffer target) {
+        int length = value.length();
+        writeVarint(utf8Length(value), target);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                target.put((byte) c);
+            } else if (c < 0x800) {
+                target.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                target.put((byte) (0xF0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F)).put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                target.put(REPLACEMENT);
+            } else {
+                target.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * reads a length prefixed UTF-8 string at the position of the buffer.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        if (length > buffer.remaining()) throw malformed();
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * skips a length prefixed string at the position of the buffer.
+     */
+    private static void skipString(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        if (length > buffer.remaining()) throw malformed();
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * @return the number of bytes of the varint encoding the non-negative value.
+     */
+    static int varintLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) length++;
+        return length;
+    }
+
+    /**
+     * writes the non-negative value as varint at the position of the buffer.
+     */
+    static void writeVarint(int value, ByteBuffer target) {
+        while ((value & ~0x7F) != 0) {
+            target.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        target.put((byte) value);
+    }
+
+    /**
+     * reads a varint encoding a non-negative int at the position of the buffer.
+     * @throws IllegalArgumentException thrown if the varint is truncated or exceeds a non-negative int.
+     */
+    static int readVarint(ByteBuffer buffer) throws IllegalArgumentException {
+        long result = readVarint(buffer, buffer.position(), buffer.limit());
+        if (result < 0) throw malformed();
+        buffer.position((int) result);
+        return (int) (result >>> 32);
+    }
+
+    /**
+     * reads a varint encoding a non-negative int at the given position of the buffer, without changing its position.
+     * @return the value in the upper and the position behind the varint in the lower 32 bits, or -1 if the varint is truncated or too large.
+     */
+    private static long readVarint(ByteBuffer buffer, int position, int limit) {
+        long value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+            if (position >= limit) return -1;
+            int b = buffer.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value > Integer.MAX_VALUE ? -1 : value << 32 | position;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the exception thrown for a truncated or malformed record.
+     */
+    private static IllegalArgumentException malformed() {
+        return new InvalidKnowledgeException(ValidationError.BINARY_FORMAT_INCORRECT, null);
+    }
+}
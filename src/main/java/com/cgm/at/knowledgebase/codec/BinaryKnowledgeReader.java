@@ -0,0 +1,237 @@
+package com.cgm.at.knowledgebase.codec;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a stream of binary knowledge written by a {@link BinaryKnowledgeWriter} from a channel, block by block.
+ * Every block is read into an array of its own and verified by its checksum, deflated blocks are inflated.
+ * The lengths of a block header are checked against {@link BinaryKnowledgeWriter#MAX_BLOCK_SIZE} before anything is allocated,
+ * so a corrupt header cannot make the reader allocate more than a block the writer could have written.
+ * The records are handed out either decoded, see {@link #forEach(BiConsumer)}, or as buffers slicing the block,
+ * see {@link #records()}, which can be passed to a knowledge base of serialized type ByteBuffer without copying them.
+ * A reader is not thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class BinaryKnowledgeReader implements Closeable {
+
+    //the size of the buffer the block headers are read through.
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    //the channel the stream is read from, closed with the reader.
+    private final ReadableByteChannel channel;
+
+    //the bytes read from the channel but not consumed yet, in read mode.
+    private final ByteBuffer input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+
+    //the checksum of the raw bytes of a block.
+    private final CRC32 crc = new CRC32();
+
+    //the decompressor of deflated blocks, created on the first deflated block.
+    private Inflater inflater;
+
+    //true once the end of the stream was read.
+    private boolean finished;
+
+    /**
+     * initializes the reader and reads the header of the stream.
+     * @param channel the channel to read the stream from, it is closed with the reader.
+     * @throws IOException thrown if the header cannot be read or the channel does not contain binary knowledge.
+     */
+    public BinaryKnowledgeReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.input.flip();
+        this.fill(5);
+        if (this.input.remaining() < 5 || this.input.getInt() != BinaryKnowledgeWriter.MAGIC) {
+            throw new IOException("The stream does not contain binary knowledge.");
+        }
+        byte version = this.input.get();
+        if (version != BinaryKnowledgeWriter.VERSION) throw new IOException("The binary knowledge version " + version + " is not supported.");
+    }
+
+    /**
+     * reads the next block of records.
+     * @return a buffer containing the raw records of the block, or null if the end of the stream is reached.
+     * @throws IOException thrown if the block cannot be read, is truncated or corrupt.
+     */
+    public ByteBuffer nextBlock() throws IOException {
+        if (this.finished) return null;
+        this.fill(BinaryKnowledgeWriter.MAX_BLOCK_HEADER_SIZE);
+        byte flags;
+        int rawLength;
+        int storedLength;
+        int checksum;
+        try {
+            flags = this.input.get();
+            rawLength = BinaryKnowledgeCodec.readVarint(this.input);
+            storedLength = BinaryKnowledgeCodec.readVarint(this.input);
+            checksum = this.input.getInt();
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new EOFException("The binary knowledge stream is truncated.");
+        }
+        boolean deflated = flags == BinaryKnowledgeWriter.FLAG_DEFLATED;
+        if (rawLength < 0 || rawLength > BinaryKnowledgeWriter.MAX_BLOCK_SIZE || storedLength < 0
+                || (deflated ? storedLength >= rawLength : flags != 0 || storedLength != rawLength)) {
+            throw new IOException("The binary knowledge stream contains a corrupt block header.");
+        }
+        if (rawLength == 0) {
+            this.finished = true;
+            return null;
+        }
+        byte[] stored = this.readFully(storedLength);
+        byte[] raw = deflated ? this.inflate(stored, rawLength) : stored;
+        this.crc.reset();
+        this.crc.update(raw, 0, rawLength);
+        if ((int) this.crc.getValue() != checksum) throw new IOException("The binary knowledge stream contains a corrupt block.");
+        return ByteBuffer.wrap(raw);
+    }
+
+    /**
+     * streams the records of all remaining blocks as buffers, each containing exactly one record.
+     * the blocks are read while the stream is consumed, closing the stream closes the reader.
+     * @return a sequential ordered stream of the records.
+     * @throws UncheckedIOException thrown while consuming the stream if a block cannot be read, is truncated or corrupt.
+     */
+    public Stream<ByteBuffer> records() {
+        Iterator<ByteBuffer> iterator = new Iterator<>() {
+
+            //the records of the current block not handed out yet.
+            private ByteBuffer block = ByteBuffer.allocate(0);
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (this.block != null && !this.block.hasRemaining()) {
+                        this.block = BinaryKnowledgeReader.this.nextBlock();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return this.block != null;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                if (!this.hasNext()) throw new NoSuchElementException();
+                int length;
+                try {
+                    length = BinaryKnowledgeCodec.recordLength(this.block);
+                } catch (IllegalArgumentException e) {
+                    throw new UncheckedIOException(new IOException("The binary knowledge stream contains a malformed record.", e));
+                }
+                ByteBuffer record = this.block.slice();
+                record.limit(length);
+                this.block.position(this.block.position() + length);
+                return record;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        this.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * decodes the records of all remaining blocks and passes them to the consumer.
+     * @param consumer the consumer of the question and the immutable answers of each record.
+     * @return the number of records read.
+     * @throws IOException thrown if a block cannot be read, is truncated or corrupt, or contains a malformed record.
+     */
+    public long forEach(BiConsumer<String, List<String>> consumer) throws IOException {
+        long count = 0;
+        for (ByteBuffer block; (block = this.nextBlock()) != null; ) {
+            try {
+                while (block.hasRemaining()) {
+                    Map.Entry<String, List<String>> record = BinaryKnowledgeCodec.decode(block);
+                    consumer.accept(record.getKey(), record.getValue());
+                    count++;
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("The binary knowledge stream contains a malformed record.", e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * closes the channel.
+     * @throws IOException thrown if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.inflater != null) this.inflater.end();
+        this.channel.close();
+    }
+
+    /**
+     * reads from the channel until at least the given number of bytes are buffered or the channel is exhausted.
+     */
+    private void fill(int count) throws IOException {
+        if (this.input.remaining() >= count) return;
+        this.input.compact();
+        try {
+            while (this.input.position() < count && this.channel.read(this.input) >= 0);
+        } finally {
+            this.input.flip();
+        }
+    }
+
+    /**
+     * reads the given number of bytes into a new array, taking the buffered bytes first.
+     */
+    private byte[] readFully(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int buffered = Math.min(length, this.input.remaining());
+        this.input.get(bytes, 0, buffered);
+        ByteBuffer target = ByteBuffer.wrap(bytes, buffered, length - buffered);
+        while (target.hasRemaining()) {
+            if (this.channel.read(target) < 0) throw new EOFException("The binary knowledge stream is truncated.");
+        }
+        return bytes;
+    }
+
+    /**
+     * inflates a deflated block.
+     */
+    private byte[] inflate(byte[] stored, int rawLength) throws IOException {
+        if (this.inflater == null) this.inflater = new Inflater();
+        this.inflater.reset();
+        this.inflater.setInput(stored);
+        byte[] raw = new byte[rawLength];
+        try {
+            int length = 0;
+            while (length < rawLength && !this.inflater.finished()) {
+                int inflated = this.inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary())) break;
+                length += inflated;
+            }
+            if (length != rawLength || !this.inflater.finished()) throw new IOException("The binary knowledge stream contains a corrupt deflated block.");
+        } catch (DataFormatException e) {
+            throw new IOException("The binary knowledge stream contains a corrupt deflated block.", e);
+        }
+        return raw;
+    }
+}
@@ -0,0 +1,215 @@
+package com.cgm.at.knowledgebase.codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes knowledge to a channel as a stream of {@link BinaryKnowledgeCodec} records, grouped into blocks.
+ * The stream has the following layout, the varints are encoded like the lengths of a record:
+ * [int magic][byte version]([byte flags][rawLength][storedLength][int crc32 of raw bytes][stored bytes])*[byte 0][0][0][int 0]
+ * A block holds whole records only, a block of raw length zero ends the stream. With compression enabled,
+ * every block is deflated unless deflating does not make it smaller, the flags of the block tell which is the case.
+ *
+ * The records are encoded straight into the block buffer, and every block is written with one gathering write,
+ * so writing is bound by the bandwidth of the channel rather than by copying. A writer is not thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class BinaryKnowledgeWriter implements Closeable {
+
+    //the magic number at the start of every binary knowledge stream.
+    static final int MAGIC = 0x4B42494E;
+
+    //the version of the stream format.
+    static final byte VERSION = 1;
+
+    //the flag marking a deflated block.
+    static final byte FLAG_DEFLATED = 1;
+
+    //the maximum size of a block header.
+    static final int MAX_BLOCK_HEADER_SIZE = 1 + 2 * BinaryKnowledgeCodec.MAX_VARINT_SIZE + 4;
+
+    //the default size of a block in bytes.
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    //the maximum size of a block in bytes, also of a record written as a block of its own, so a reader can bound its allocations.
+    public static final int MAX_BLOCK_SIZE = 1 << 26;
+
+    //the channel the stream is written to, closed with the writer.
+    private final WritableByteChannel channel;
+
+    //the buffer the records of the current block are encoded into.
+    private final ByteBuffer block;
+
+    //the buffer of the header of the current block.
+    private final ByteBuffer header = ByteBuffer.allocate(MAX_BLOCK_HEADER_SIZE);
+
+    //the compressor of the blocks, null if compression is disabled.
+    private final Deflater deflater;
+
+    //the buffer a block is deflated into, null if compression is disabled.
+    private byte[] deflated;
+
+    //the checksum of the raw bytes of a block.
+    private final CRC32 crc = new CRC32();
+
+    //the number of records written.
+    private long recordCount;
+
+    //true once the writer is closed.
+    private boolean closed;
+
+    /**
+     * initializes the writer with the parameters given and writes the header of the stream.
+     * @param channel the channel to write the stream to, it is closed with the writer.
+     * @param blockSize the size of a block in bytes, at most {@link #MAX_BLOCK_SIZE}, a larger record is written as a block of its own.
+     * @param compress true if the blocks should be deflated.
+     * @throws IOException thrown if the header cannot be written.
+     */
+    public BinaryKnowledgeWriter(WritableByteChannel channel, int blockSize, boolean compress) throws IOException {
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) throw new IllegalArgumentException("The block size must be positive and at most " + MAX_BLOCK_SIZE + "!");
+        this.channel = channel;
+        this.block = ByteBuffer.allocate(blockSize);
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        ByteBuffer streamHeader = ByteBuffer.allocate(5).putInt(MAGIC).put(VERSION).flip();
+        this.writeFully(streamHeader);
+    }
+
+    /**
+     * writes the question and its answers as one record.
+     * @param question the question of the record.
+     * @param answers the answers of the record.
+     * @throws IOException thrown if a full block cannot be written, or the record exceeds {@link #MAX_BLOCK_SIZE}.
+     */
+    public void write(String question, List<String> answers) throws IOException {
+        if (this.closed) throw new IOException("The writer is closed.");
+        int length = BinaryKnowledgeCodec.encodedLength(question, answers);
+        if (length > MAX_BLOCK_SIZE) throw new IOException("The record of " + answers.size() + " answers exceeds the maximum block size of " + MAX_BLOCK_SIZE + " bytes.");
+        if (length > this.block.remaining()) this.flushBlock();
+        if (length > this.block.capacity()) {
+            ByteBuffer record = ByteBuffer.allocate(length);
+            BinaryKnowledgeCodec.encode(question, answers, record);
+            this.writeBlock(record.array(), length);
+        } else {
+            BinaryKnowledgeCodec.encode(question, answers, this.block);
+        }
+        this.recordCount++;
+    }
+
+    /**
+     * writes every question of the given knowledge and its answers as one record.
+     * @param knowledge the knowledge to write, e.g. the knowledge of a knowledge base.
+     * @throws IOException thrown if a full block cannot be written.
+     */
+    public void writeAll(Map<String, List<String>> knowledge) throws IOException {
+        for (Map.Entry<String, List<String>> entry : knowledge.entrySet()) {
+            this.write(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets the record count
+     * @return the number of records written.
+     */
+    public long getRecordCount() {
+        return this.recordCount;
+    }
+
+    /**
+     * writes the last block and the end of the stream, and closes the channel.
+     * @throws IOException thrown if the stream cannot be completed or the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) return;
+        this.closed = true;
+        try {
+            this.flushBlock();
+            this.writeBlock(this.block.array(), 0);
+        } finally {
+            try {
+                this.channel.close();
+            } finally {
+                if (this.deflater != null) this.deflater.end();
+            }
+        }
+    }
+
+    /**
+     * writes the records of the current block, if there are any, and clears it.
+     */
+    private void flushBlock() throws IOException {
+        if (this.block.position() == 0) return;
+        this.writeBlock(this.block.array(), this.block.position());
+        this.block.clear();
+    }
+
+    /**
+     * writes one block, deflated if compression is enabled and deflating makes it smaller.
+     * @param raw the array containing the records of the block from index 0.
+     * @param rawLength the number of bytes of the records.
+     */
+    private void writeBlock(byte[] raw, int rawLength) throws IOException {
+        this.crc.reset();
+        this.crc.update(raw, 0, rawLength);
+        byte flags = 0;
+        byte[] stored = raw;
+        int storedLength = rawLength;
+        if (this.deflater != null && rawLength > 0) {
+            int deflatedLength = this.deflate(raw, rawLength);
+            if (deflatedLength < rawLength) {
+                flags = FLAG_DEFLATED;
+                stored = this.deflated;
+                storedLength = deflatedLength;
+            }
+        }
+        this.header.clear().put(flags);
+        BinaryKnowledgeCodec.writeVarint(rawLength, this.header);
+        BinaryKnowledgeCodec.writeVarint(storedLength, this.header);
+        this.header.putInt((int) this.crc.getValue()).flip();
+        ByteBuffer data = ByteBuffer.wrap(stored, 0, storedLength);
+        if (this.channel instanceof GatheringByteChannel) {
+            ByteBuffer[] buffers = {this.header, data};
+            long remaining = this.header.remaining() + (long) storedLength;
+            while (remaining > 0) {
+                remaining -= ((GatheringByteChannel) this.channel).write(buffers);
+            }
+        } else {
+            this.writeFully(this.header);
+            this.writeFully(data);
+        }
+    }
+
+    /**
+     * deflates the raw bytes into the deflated buffer, stopping once the result is not smaller than the raw bytes.
+     * @return the number of deflated bytes, or rawLength if deflating does not make the block smaller.
+     */
+    private int deflate(byte[] raw, int rawLength) {
+        if (this.deflated == null || this.deflated.length < rawLength) this.deflated = new byte[rawLength];
+        this.deflater.reset();
+        this.deflater.setInput(raw, 0, rawLength);
+        this.deflater.finish();
+        int length = 0;
+        while (!this.deflater.finished() && length < rawLength) {
+            length += this.deflater.deflate(this.deflated, length, rawLength - length);
+        }
+        return this.deflater.finished() ? length : rawLength;
+    }
+
+    /**
+     * writes the whole buffer to the channel.
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.cgm.at.knowledgebase.common;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of validating a batch of serialized knowledge without throwing an exception per rejected entry.
+ * The rejected entries are kept as a bitmap of their indexes and the reason of each, the messages are formatted on request only,
+ * so validating a dirty file costs one bit per entry and one reference per rejected entry.
+ * @param <S> generic type of the serialized knowledge validated.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class BatchValidation<S> {
+
+    //the validated entries, kept to format the messages.
+    private final List<S> serializedKnowledge;
+
+    //the validation service the messages are formatted by.
+    private final IKnowledgeValidationService<?, ?, S> validationService;
+
+    //the indexes of the rejected entries.
+    private final BitSet failures;
+
+    //the reasons of the rejected entries, in the order of their indexes.
+    private final ValidationError[] errors;
+
+    /**
+     * initializes the result with the parameters given.
+     * @param serializedKnowledge the validated entries.
+     * @param validationService the validation service the messages are formatted by.
+     * @param failures the indexes of the rejected entries.
+     * @param errors the reasons of the rejected entries, in the order of their indexes.
+     */
+    public BatchValidation(List<S> serializedKnowledge, IKnowledgeValidationService<?, ?, S> validationService,
+                           BitSet failures, ValidationError[] errors) {
+        if (failures.cardinality() != errors.length) throw new IllegalArgumentException("Every rejected entry needs exactly one error!");
+        this.serializedKnowledge = serializedKnowledge;
+        this.validationService = validationService;
+        this.failures = failures;
+        this.errors = errors;
+    }
+
+    /**
+     * Gets the size
+     * @return the number of entries validated.
+     */
+    public int size() {
+        return this.serializedKnowledge.size();
+    }
+
+    /**
+     * Gets the failed count
+     * @return the number of entries rejected.
+     */
+    public int getFailedCount() {
+        return this.errors.length;
+    }
+
+    /**
+     * Gets the failures
+     * @return a copy of the bitmap of the indexes of the rejected entries.
+     */
+    public BitSet getFailures() {
+        return (BitSet) this.failures.clone();
+    }
+
+    /**
+     * @param index the index of an entry of the batch.
+     * @return true if the entry is valid.
+     */
+    public boolean isValid(int index) {
+        Objects.checkIndex(index, this.size());
+        return !this.failures.get(index);
+    }
+
+    /**
+     * Gets the error
+     * @param index the index of an entry of the batch.
+     * @return the reason the entry was rejected, or null if the entry is valid.
+     */
+    public ValidationError getError(int index) {
+        if (this.isValid(index)) return null;
+        //the rank of the index among the rejected entries, counted in the words of the bitmap.
+        return this.errors[this.failures.get(0, index).cardinality()];
+    }
+
+    /**
+     * Gets the message
+     * @param index the index of an entry of the batch.
+     * @return the message of the error of the entry formatted from the entry, or null if the entry is valid.
+     */
+    public String getMessage(int index) {
+        if (this.isValid(index)) return null;
+        try {
+            this.validationService.validateSerializedKnowledge(this.serializedKnowledge.get(index));
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        //the entry was modified since the batch was validated.
+        return this.getError(index).getTemplate();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchValidation{size=" + this.size() + ", failed=" + this.getFailedCount() + "}";
+    }
+}
@@ -17,6 +17,8 @@ public final class ErrorMessages  {
     public static final String ANSWER_INVALID = "Invalid answer given!";
     public static final String ANSWER_EXCEEDS_255_CHARACTERS = "The answer length of {'%s'} exceeds the maximum length of 255 characters!";
     public static final String ANSWER_IS_EMPTY_OR_BLANK = "The answer {'%s'} is empty or blank!";
+    public static final String BINARY_FORMAT_INCORRECT = "The binary knowledge record is truncated or malformed!";
+    public static final String KNOWLEDGE_INVALID = "The knowledge {'%s'} is invalid!";
 
     /**
      * The caller should be prevented from constructing objects of
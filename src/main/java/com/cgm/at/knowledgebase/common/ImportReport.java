@@ -0,0 +1,158 @@
+package com.cgm.at.knowledgebase.common;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a bulk import of serialized knowledge into the knowledge base.
+ * Contains the counts of imported and failed entries, the errors of the failed entries and the timings of the import.
+ * To keep the memory of an import of a dirty file bounded, only the first {@link #MAX_REPORTED_ERRORS} errors are kept,
+ * while {@link #getFailedCount()} always contains the number of all failed entries.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class ImportReport {
+
+    //the maximum number of errors kept in the report.
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    //the number of serialized entries read.
+    private final long totalCount;
+
+    //the number of entries added to the knowledge base.
+    private final long importedCount;
+
+    //the number of entries rejected.
+    private final long failedCount;
+
+    //the errors of the rejected entries, at most MAX_REPORTED_ERRORS.
+    private final List<ImportError> errors;
+
+    //the time spent parsing and validating the entries.
+    private final Duration parseTime;
+
+    //the time spent merging the entries into the knowledge base.
+    private final Duration mergeTime;
+
+    //the overall time of the import.
+    private final Duration elapsedTime;
+
+    /**
+     * initializes the import report with the parameters given.
+     * @param totalCount the number of serialized entries read.
+     * @param importedCount the number of entries added to the knowledge base.
+     * @param failedCount the number of entries rejected.
+     * @param errors the errors of the rejected entries.
+     * @param parseTime the time spent parsing and validating the entries.
+     * @param mergeTime the time spent merging the entries into the knowledge base.
+     * @param elapsedTime the overall time of the import.
+     */
+    public ImportReport(long totalCount, long importedCount, long failedCount, List<ImportError> errors,
+                        Duration parseTime, Duration mergeTime, Duration elapsedTime) {
+        this.totalCount = totalCount;
+        this.importedCount = importedCount;
+        this.failedCount = failedCount;
+        this.errors = Collections.unmodifiableList(errors);
+        this.parseTime = parseTime;
+        this.mergeTime = mergeTime;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * @return the number of serialized entries read.
+     */
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    /**
+     * @return the number of entries added to the knowledge base, replaced questions included.
+     */
+    public long getImportedCount() {
+        return this.importedCount;
+    }
+
+    /**
+     * @return the number of entries rejected.
+     */
+    public long getFailedCount() {
+        return this.failedCount;
+    }
+
+    /**
+     * @return an unmodifiable list of the errors of the rejected entries in the order of their occurrence.
+     */
+    public List<ImportError> getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * @return the time spent parsing and validating the entries.
+     */
+    public Duration getParseTime() {
+        return this.parseTime;
+    }
+
+    /**
+     * @return the time spent merging the entries into the knowledge base.
+     */
+    public Duration getMergeTime() {
+        return this.mergeTime;
+    }
+
+    /**
+     * @return the overall time of the import.
+     */
+    public Duration getElapsedTime() {
+        return this.elapsedTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{total=" + this.totalCount + ", imported=" + this.importedCount + ", failed=" + this.failedCount
+                + ", parseTime=" + this.parseTime + ", mergeTime=" + this.mergeTime + ", elapsedTime=" + this.elapsedTime + "}";
+    }
+
+    /**
+     * The error of one rejected serialized entry.
+     */
+    public static final class ImportError {
+
+        //the 1-based position of the entry in the imported stream.
+        private final long lineNumber;
+
+        //the message describing why the entry was rejected, one of the {@link ErrorMessages}.
+        private final String message;
+
+        /**
+         * initializes the import error with the parameters given.
+         * @param lineNumber the 1-based position of the entry in the imported stream.
+         * @param message the message describing why the entry was rejected.
+         */
+        public ImportError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        /**
+         * @return the 1-based position of the entry in the imported stream.
+         */
+        public long getLineNumber() {
+            return this.lineNumber;
+        }
+
+        /**
+         * @return the message describing why the entry was rejected.
+         */
+        public String getMessage() {
+            return this.message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + this.lineNumber + ": " + this.message;
+        }
+    }
+}
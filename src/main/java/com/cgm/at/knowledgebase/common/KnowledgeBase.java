@@ -1,11 +1,22 @@
 package com.cgm.at.knowledgebase.common;
 
+import com.cgm.at.knowledgebase.api.IKnowledgeListener;
 import com.cgm.at.knowledgebase.api.IKnowledgeService;
 import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
+import com.cgm.at.knowledgebase.api.IQuestionMatcher;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import com.cgm.at.knowledgebase.expiry.ExpiringAnswers;
 import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.metrics.KnowledgeBaseMetrics;
+import com.cgm.at.knowledgebase.ranking.AnswerRanking;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 /**
  * An abstract class encapsulating the main functionalities of the {@link IKnowledgeService} interface.
@@ -21,6 +32,9 @@ import java.util.Map;
  */
 public abstract class KnowledgeBase<Q, A, S> implements IKnowledgeService<Q, A, S> {
 
+    // the limit of a lookup returning all answers in the order they were added.
+    private static final int ALL_ANSWERS = 0;
+
     // a map containing all knowledge of the knowledge base.
     private Map<Q, List<A>> knowledge;
 
@@ -30,8 +44,27 @@ public abstract class KnowledgeBase<Q, A, S> implements IKnowledgeService<Q, A,
     // the default value if a question is not in the knowledge base.
     private A defaultValue;
 
+    // the immutable answer list returned if a question is not in the knowledge base.
+    private List<A> defaultAnswers;
+
+    // the listeners notified about every question added.
+    private final List<IKnowledgeListener<Q, A>> listeners = new CopyOnWriteArrayList<>();
+
+    // the matcher consulted if a question is not in the knowledge base identically, null if disabled.
+    private volatile IQuestionMatcher<Q, A> questionMatcher;
+
+    // the metrics recording every operation, null if disabled.
+    private volatile KnowledgeBaseMetrics metrics;
+
+    // the ranking of the answers returned by askQuestion with a limit, null if disabled.
+    private volatile AnswerRanking<Q, A> answerRanking;
+
+    // the last version stamped on knowledge added with a time to live.
+    private final AtomicLong versions = new AtomicLong();
+
     /**
      * initializes the knowledge base with the parameters given.
+     * the given map becomes the knowledge map and its entries are left as given, the answers added later are stored as immutable copies.
      *
      * @param knowledge A Map consisting of a question of generic type Q as the key, and a List of answers of generic type A.
      * @param validationService a validation service to validate inputs.
@@ -41,38 +74,455 @@ public abstract class KnowledgeBase<Q, A, S> implements IKnowledgeService<Q, A,
         this.knowledge = knowledge;
         this.validationService = validationService;
         this.defaultValue = defaultValue;
+        this.defaultAnswers = Collections.singletonList(defaultValue);
     }
 
     /**
      * {@inheritDoc}
+     * the returned list is immutable, unless it is one of the answer lists given on construction.
+     * if the question is not contained identically and a {@link IQuestionMatcher} is set,
+     * the answers of the best matching stored question are returned.
      */
     @Override
     public List<A> askQuestion(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        KnowledgeBaseMetrics metrics = this.metrics;
+        if (metrics != null) return this.askQuestion(question, ALL_ANSWERS, metrics);
+        this.validationService.validateQuestion(question);
+        return this.lookup(question, ALL_ANSWERS, null, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the returned list is immutable, unless it is one of the answer lists given on construction.
+     * if an {@link AnswerRanking} is set, the answers are returned in ranked order, otherwise in the order they were added.
+     */
+    @Override
+    public List<A> askQuestion(Q question, int limit) throws IllegalArgumentException, KnowledgeBaseException {
+        if (limit < 1) throw new IllegalArgumentException("The limit must be positive!");
+        KnowledgeBaseMetrics metrics = this.metrics;
+        if (metrics != null) return this.askQuestion(question, limit, metrics);
+        this.validationService.validateQuestion(question);
+        return this.lookup(question, limit, null, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the answers of a question contained identically are streamed by {@link #streamStoredAnswers(Object)},
+     * all other answers and all answers asked while metrics are recorded are looked up like by {@link #askQuestion(Object)}.
+     */
+    @Override
+    public Stream<A> streamAnswers(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        if (this.metrics != null) return this.askQuestion(question).stream();
         this.validationService.validateQuestion(question);
+        Stream<A> answers;
         try {
-            return knowledge.getOrDefault(question, Collections.singletonList(defaultValue));
+            answers = this.streamStoredAnswers(question);
         } catch (NullPointerException | ClassCastException e) {
             throw new KnowledgeBaseException("Error while asking a Question to the knowledge base: " + e.getMessage(), e);
         }
+        return answers != null ? answers : this.lookup(question, ALL_ANSWERS, null, 0).stream();
+    }
+
+    /**
+     * Streams the answers stored for a question from the representation they are stored in.
+     * Subclasses storing their answers encoded may override this method to decode every answer only when it is consumed.
+     * @param question the validated question.
+     * @return a sequential stream of the answers stored for the question, or null to look the answers up like {@link #askQuestion(Object)}.
+     *         this implementation always returns null.
+     */
+    protected Stream<A> streamStoredAnswers(Q question) {
+        return null;
+    }
+
+    /**
+     * asks a question recording its outcome and latency in the metrics, kept apart to keep askQuestion small enough to be inlined.
+     */
+    private List<A> askQuestion(Q question, int limit, KnowledgeBaseMetrics metrics) throws IllegalArgumentException, KnowledgeBaseException {
+        long start = metrics.startTimer();
+        this.validateQuestion(question, metrics);
+        metrics.recordValidation(start);
+        return this.lookup(question, limit, metrics, start);
+    }
+
+    /**
+     * looks up the answers of a validated question, falling back to the question matcher and the default answers.
+     * @param limit the maximum number of ranked answers to return, or {@link #ALL_ANSWERS}.
+     * @param metrics the metrics to record the outcome in, or null if disabled.
+     * @param start the value of {@link KnowledgeBaseMetrics#startTimer()} when the question was asked.
+     */
+    private List<A> lookup(Q question, int limit, KnowledgeBaseMetrics metrics, long start) throws KnowledgeBaseException {
+        try {
+            List<A> answers = live(knowledge.get(question));
+            if (answers != null) {
+                if (metrics != null) metrics.recordHit(start);
+                return limit == ALL_ANSWERS ? answers : this.rank(question, answers, limit);
+            }
+            IQuestionMatcher<Q, A> matcher = this.questionMatcher;
+            Q match = null;
+            if (matcher != null) {
+                match = matcher.match(question);
+                if (match != null) answers = live(knowledge.get(match));
+            }
+            if (answers != null) {
+                if (metrics != null) metrics.recordMatch(start);
+                return limit == ALL_ANSWERS ? answers : this.rank(match, answers, limit);
+            }
+            if (metrics != null) metrics.recordMiss(start);
+            return this.defaultAnswers;
+        } catch (NullPointerException | ClassCastException e) {
+            throw new KnowledgeBaseException("Error while asking a Question to the knowledge base: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the answers without the stamp of a time to live, or null if they have expired or are null.
+     */
+    private static <A> List<A> live(List<A> answers) {
+        return answers instanceof ExpiringAnswers ? ((ExpiringAnswers<A>) answers).getLiveAnswers() : answers;
+    }
+
+    /**
+     * returns the best answers of a stored question by the answer ranking, or the first answers if ranking is disabled.
+     */
+    private List<A> rank(Q question, List<A> answers, int limit) {
+        AnswerRanking<Q, A> ranking = this.answerRanking;
+        if (ranking != null) return ranking.top(question, answers, limit);
+        return answers.size() <= limit ? answers : answers.subList(0, limit);
+    }
+
+    /**
+     * Records that an answer of a question has been used, raising its rank in the answers returned by {@link #askQuestion(Object, int)}.
+     * The usage is recorded for the stored question the question is answered by, so it may be a question matched by the question matcher.
+     * @param question the question asked.
+     * @param answer the answer used.
+     * @return true if the usage has been recorded, false if ranking is disabled or the answer is not one of the answers of the question.
+     * @throws IllegalArgumentException thrown if the {@link IKnowledgeValidationService} invalidates the question given.
+     * @throws KnowledgeBaseException thrown if the question cannot be looked up due to collection implementation errors.
+     */
+    public boolean recordAnswerUsage(Q question, A answer) throws IllegalArgumentException, KnowledgeBaseException {
+        this.validationService.validateQuestion(question);
+        AnswerRanking<Q, A> ranking = this.answerRanking;
+        if (ranking == null) return false;
+        try {
+            Q stored = question;
+            List<A> answers = live(knowledge.get(question));
+            IQuestionMatcher<Q, A> matcher = this.questionMatcher;
+            if (answers == null && matcher != null) {
+                stored = matcher.match(question);
+                if (stored != null) answers = live(knowledge.get(stored));
+            }
+            return answers != null && ranking.recordUsage(stored, answers, answer);
+        } catch (NullPointerException | ClassCastException e) {
+            throw new KnowledgeBaseException("Error while recording an Answer usage of the knowledge base: " + e.getMessage(), e);
+        }
     }
 
     /**
      * {@inheritDoc}
+     * an immutable copy of the answers is stored, later modifications of the given list do not affect the knowledge base.
      */
     @Override
     public boolean addKnowledge(Q question, List<A> answers) throws IllegalArgumentException, KnowledgeBaseException {
-        this.validationService.validateQuestion(question);
-        this.validationService.validateAnswers(answers);
+        this.addKnowledge(question, answers, 0, null);
+        return true;
+    }
+
+    /**
+     * Adds the given question and answers like {@link #addKnowledge(Object, List)}, expiring after the given time to live.
+     * The answers are stored as {@link ExpiringAnswers} stamped with a new version, and are hidden from every lookup once they have expired,
+     * a {@link com.cgm.at.knowledgebase.expiry.KnowledgeExpiryScheduler} removes them from the knowledge map.
+     * Adding the question again replaces the answers together with their time to live.
+     * The time to live is kept in memory only, knowledge bases persisting or re-encoding the answers do not support it, see {@link #supportsTimeToLive()}.
+     * @param question of type Q.
+     * @param answers a List of Type A, the list must not be empty!
+     * @param timeToLive the positive time after which the answers expire.
+     * @return the version stamped on the added answers, unique within the knowledge base.
+     * @throws IllegalArgumentException thrown if the time to live is not positive or the {@link IKnowledgeValidationService} invalidates the question or answers given.
+     * @throws KnowledgeBaseException thrown if the question cannot be added due to collection implementation errors.
+     */
+    public long addKnowledge(Q question, List<A> answers, Duration timeToLive) throws IllegalArgumentException, KnowledgeBaseException {
+        if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero()) throw new IllegalArgumentException("The time to live must be positive!");
+        long version = this.versions.incrementAndGet();
+        this.addKnowledge(question, answers, version, timeToLive);
+        return version;
+    }
+
+    /**
+     * validates and stores the answers of a question, stamped with the version and the time to live if given.
+     * @param timeToLive the time to live of the answers, or null if they never expire.
+     */
+    private void addKnowledge(Q question, List<A> answers, long version, Duration timeToLive) throws IllegalArgumentException, KnowledgeBaseException {
+        KnowledgeBaseMetrics metrics = this.metrics;
+        if (metrics == null) {
+            this.validationService.validateQuestion(question);
+            this.validationService.validateAnswers(answers);
+            this.storeKnowledge(question, stamp(List.copyOf(answers), version, timeToLive));
+            return;
+        }
+        long start = metrics.startTimer();
+        this.validateQuestion(question, metrics);
+        try {
+            this.validationService.validateAnswers(answers);
+        } catch (IllegalArgumentException e) {
+            recordValidationFailure(metrics, e);
+            throw e;
+        }
+        metrics.recordValidation(start);
+        this.storeKnowledge(question, stamp(List.copyOf(answers), version, timeToLive));
+        metrics.recordAdd(start);
+    }
+
+    /**
+     * @return the answers stamped with the version and the time to live, or the answers themselves if they never expire.
+     */
+    private static <A> List<A> stamp(List<A> answers, long version, Duration timeToLive) {
+        return timeToLive == null ? answers : new ExpiringAnswers<>(answers, version, timeToLive);
+    }
+
+    /**
+     * Removes a question added with a time to live from the knowledge map, if its answers have expired
+     * and have not been replaced since they were stamped with the given version. The listeners are notified about the expiry.
+     * The removal is atomic if the knowledge map is a {@link java.util.concurrent.ConcurrentMap}.
+     * @param question the question to remove.
+     * @param version the version stamped on the expired answers.
+     * @return true if the question has been removed.
+     * @throws KnowledgeBaseException thrown if the question cannot be removed due to collection implementation errors.
+     */
+    public boolean expireKnowledge(Q question, long version) throws KnowledgeBaseException {
+        boolean[] removed = new boolean[1];
+        try {
+            this.knowledge.computeIfPresent(question, (key, answers) -> {
+                if (!(answers instanceof ExpiringAnswers)) return answers;
+                ExpiringAnswers<A> expiring = (ExpiringAnswers<A>) answers;
+                removed[0] = expiring.getVersion() == version && expiring.isExpired();
+                return removed[0] ? null : answers;
+            });
+        } catch (NullPointerException | ClassCastException | UnsupportedOperationException e) {
+            throw new KnowledgeBaseException("Error while removing an expired Question from the knowledge base: " + e.getMessage(), e);
+        }
+        if (!removed[0]) return false;
+        for (IKnowledgeListener<Q, A> listener : this.listeners) {
+            listener.knowledgeExpired(question);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a question and its answers from the knowledge map, e.g. after it has been moved to another partition.
+     * The listeners are notified about the removal, so indexes, rankings and schedulers drop the question as well.
+     * Knowledge bases persisting their knowledge only remove it from the knowledge map, not from their storage.
+     * @param question the question to remove.
+     * @return true if the question was contained and has been removed.
+     * @throws KnowledgeBaseException thrown if the question cannot be removed due to collection implementation errors.
+     */
+    public boolean removeKnowledge(Q question) throws KnowledgeBaseException {
+        try {
+            if (this.knowledge.remove(question) == null) return false;
+        } catch (NullPointerException | ClassCastException | UnsupportedOperationException e) {
+            throw new KnowledgeBaseException("Error while removing a Question from the knowledge base: " + e.getMessage(), e);
+        }
+        for (IKnowledgeListener<Q, A> listener : this.listeners) {
+            listener.knowledgeRemoved(question);
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the knowledge is extracted using {@link #deserializeKnowledge(Object)} and added using {@link #addKnowledge(Object, List)}.
+     */
+    @Override
+    public boolean addKnowledge(S serializedKnowledge) throws IllegalArgumentException, KnowledgeBaseException {
+        KnowledgeBaseMetrics metrics = this.metrics;
+        if (metrics == null) {
+            Map.Entry<Q, List<A>> knowledge = this.deserializeKnowledge(serializedKnowledge);
+            return this.addKnowledge(knowledge.getKey(), knowledge.getValue());
+        }
+        long start = metrics.startTimer();
+        Map.Entry<Q, List<A>> knowledge;
+        try {
+            knowledge = this.deserializeKnowledge(serializedKnowledge);
+        } catch (IllegalArgumentException e) {
+            recordValidationFailure(metrics, e);
+            throw e;
+        }
+        metrics.recordParse(start);
+        return this.addKnowledge(knowledge.getKey(), knowledge.getValue());
+    }
+
+    /**
+     * validates a question, recording a failed validation in the metrics.
+     */
+    private void validateQuestion(Q question, KnowledgeBaseMetrics metrics) throws IllegalArgumentException {
+        try {
+            this.validationService.validateQuestion(question);
+        } catch (IllegalArgumentException e) {
+            recordValidationFailure(metrics, e);
+            throw e;
+        }
+    }
+
+    /**
+     * records a failed validation in the metrics, by its reason if known, so the message is not formatted for the metrics.
+     */
+    private static void recordValidationFailure(KnowledgeBaseMetrics metrics, IllegalArgumentException e) {
+        if (e instanceof InvalidKnowledgeException) {
+            metrics.recordValidationFailure(((InvalidKnowledgeException) e).getError());
+        } else {
+            metrics.recordValidationFailure(e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the entries are parsed and validated in parallel on the common {@link ForkJoinPool}.
+     */
+    @Override
+    public ImportReport addKnowledgeBatch(Stream<S> serializedKnowledge) throws KnowledgeBaseException {
+        return this.addKnowledgeBatch(serializedKnowledge, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Adds all serialized knowledge of the given stream to the knowledge base,
+     * the entries are parsed and validated in parallel on the given pool.
+     * @param serializedKnowledge a Stream of serialized knowledge, the stream is consumed but not closed.
+     * @param pool the fork-join pool to parse and validate the entries on.
+     * @return an {@link ImportReport} containing the counts, errors and timings of the import.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be merged due to collection implementation errors.
+     */
+    public ImportReport addKnowledgeBatch(Stream<S> serializedKnowledge, ForkJoinPool pool) throws KnowledgeBaseException {
+        return new KnowledgeImporter<>(this, pool).importAll(serializedKnowledge);
+    }
+
+    /**
+     * Extracts the question and the answers from the given serialized knowledge without validating them.
+     * The format of the serialization itself needs to be validated.
+     * Implementations must be thread-safe, as bulk imports deserialize entries concurrently.
+     * @param serializedKnowledge Contains both the question, and the related answers inside of it as one serialized information.
+     * @return an entry with the question as key and the answers as value.
+     * @throws IllegalArgumentException thrown if the format of the {@param serializedKnowledge} is invalid.
+     */
+    protected abstract Map.Entry<Q, List<A>> deserializeKnowledge(S serializedKnowledge) throws IllegalArgumentException;
+
+    /**
+     * Puts an already validated question and its answers into the knowledge map,
+     * replacing the answers if the question is already contained.
+     * Subclasses may override this method to act on every question added, e.g. to persist it.
+     * @param question A validated question.
+     * @param answers The validated immutable answers of the question.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be added due to collection implementation errors.
+     */
+    protected void storeKnowledge(Q question, List<A> answers) throws KnowledgeBaseException {
         try {
             this.knowledge.put(question, answers);
-        } catch (NullPointerException | ClassCastException e) {
+        } catch (NullPointerException | ClassCastException | UnsupportedOperationException e) {
             throw new KnowledgeBaseException("Error while adding a Question to the knowledge base: " + e.getMessage(), e);
         }
+        for (IKnowledgeListener<Q, A> listener : this.listeners) {
+            listener.knowledgeAdded(question, answers);
+        }
+    }
+
+    /**
+     * Merges already validated knowledge into the knowledge map at once.
+     * Subclasses may override this method to act on every chunk of questions added by a bulk import.
+     * @param knowledge A Map of validated questions and their immutable answers.
+     * @throws KnowledgeBaseException thrown if the knowledge cannot be merged due to collection implementation errors.
+     */
+    protected void storeKnowledge(Map<Q, List<A>> knowledge) throws KnowledgeBaseException {
+        try {
+            this.knowledge.putAll(knowledge);
+        } catch (NullPointerException | ClassCastException | UnsupportedOperationException e) {
+            throw new KnowledgeBaseException("Error while adding Questions to the knowledge base: " + e.getMessage(), e);
+        }
+        for (IKnowledgeListener<Q, A> listener : this.listeners) {
+            knowledge.forEach(listener::knowledgeAdded);
+        }
+    }
+
+    /**
+     * Registers a listener notified about every question added from now on.
+     * @param listener the listener to notify.
+     */
+    public void addKnowledgeListener(IKnowledgeListener<Q, A> listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a registered listener.
+     * @param listener the listener to remove.
+     */
+    public void removeKnowledgeListener(IKnowledgeListener<Q, A> listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Enables approximate matching of questions not contained identically, using the given matcher.
+     * The matcher is registered as listener and is passed all knowledge already contained, replacing a previous matcher.
+     * The identical lookup stays the fast path, the matcher is only consulted if it fails.
+     * @param matcher the matcher to use, or null to disable approximate matching.
+     */
+    public void setQuestionMatcher(IQuestionMatcher<Q, A> matcher) {
+        IQuestionMatcher<Q, A> previous = this.questionMatcher;
+        if (previous != null) this.listeners.remove(previous);
+        if (matcher != null) {
+            this.listeners.add(matcher);
+            this.knowledge.forEach(matcher::knowledgeAdded);
+        }
+        this.questionMatcher = matcher;
+    }
+
+    /**
+     * Enables ranking the answers returned by {@link #askQuestion(Object, int)} by the usages recorded with {@link #recordAnswerUsage(Object, Object)}.
+     * The ranking is registered as listener, so replacing the answers of a question discards their ranking, replacing a previous ranking.
+     * @param ranking the ranking to use, or null to return the answers in the order they were added.
+     */
+    public void setAnswerRanking(AnswerRanking<Q, A> ranking) {
+        AnswerRanking<Q, A> previous = this.answerRanking;
+        if (previous != null) this.listeners.remove(previous);
+        if (ranking != null) this.listeners.add(ranking);
+        this.answerRanking = ranking;
+    }
+
+    /**
+     * Gets the answer ranking
+     * @return the ranking of the answers, or null if disabled.
+     */
+    public AnswerRanking<Q, A> getAnswerRanking() {
+        return this.answerRanking;
+    }
+
+    /**
+     * Enables recording the counters and latencies of all operations in the given metrics.
+     * The metrics may be shared by several knowledge bases to aggregate their operations.
+     * Recording is disabled by default, it adds a few nanoseconds to a lookup, see {@link KnowledgeBaseMetrics}.
+     * @param metrics the metrics to record in, or null to disable recording.
+     */
+    public void setMetrics(KnowledgeBaseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Determines whether answers can be added with a time to live, which components removing or replicating expiring knowledge require.
+     * @return true, unless a subclass persists or re-encodes the answers without their time to live.
+     */
+    public boolean supportsTimeToLive() {
         return true;
     }
 
+    /**
+     * Gets the metrics
+     * @return the metrics recording all operations, or null if disabled.
+     */
+    public KnowledgeBaseMetrics getMetrics() {
+        return this.metrics;
+    }
+
     /**
      * Gets the knowledge map
+     * the map is the live knowledge map, iterating it while knowledge is added is only consistent if the map supports it,
+     * e.g. {@link com.cgm.at.knowledgebase.services.VersionedTextualKnowledgeService} iterates immutable snapshots.
+     * the answers added with a time to live are {@link ExpiringAnswers}, which stay contained after their expiry until they are removed.
      * @return a map contains all knowledge of the knowledge base.
      */
     public Map<Q, List<A>> getAllKnowledge(){
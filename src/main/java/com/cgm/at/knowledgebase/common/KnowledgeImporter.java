@@ -0,0 +1,194 @@
+package com.cgm.at.knowledgebase.common;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.metrics.KnowledgeBaseMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Imports a stream of serialized knowledge into a {@link KnowledgeBase} in chunks.
+ * The entries of each chunk are checked and deserialized in parallel on a {@link ForkJoinPool},
+ * rejected entries are collected as {@link ImportReport.ImportError} instead of aborting the import,
+ * without an exception per rejected entry, only the messages of the errors reported are formatted,
+ * and the valid entries of a chunk are merged into the knowledge base at once, preserving the order of the stream.
+ * An importer keeps the counters of one import and must not be reused.
+ * @param <Q> generic type of the Question stored in the KnowledgeBase.
+ * @param <A> generic type of the Answer stored in the KnowledgeBase.
+ * @param <S> generic type of the serialized knowledge input.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class KnowledgeImporter<Q, A, S> {
+
+    //the number of serialized entries read from the stream before they are parsed and merged.
+    static final int CHUNK_SIZE = 16384;
+
+    //the number of entries below which a parse task is no longer split.
+    private static final int PARSE_THRESHOLD = 256;
+
+    //the knowledge base to import into.
+    private final KnowledgeBase<Q, A, S> knowledgeBase;
+
+    //the pool the entries are parsed on.
+    private final ForkJoinPool pool;
+
+    //the metrics of the knowledge base at the start of the import, null if disabled.
+    private final KnowledgeBaseMetrics metrics;
+
+    //the counters of the import.
+    private long totalCount;
+    private long importedCount;
+    private long failedCount;
+    private long parseNanos;
+    private long mergeNanos;
+
+    //the errors of the rejected entries, at most ImportReport.MAX_REPORTED_ERRORS.
+    private final List<ImportReport.ImportError> errors = new ArrayList<>();
+
+    /**
+     * initializes the importer with the parameters given.
+     * @param knowledgeBase the knowledge base to import into.
+     * @param pool the fork-join pool the entries are parsed on.
+     */
+    KnowledgeImporter(KnowledgeBase<Q, A, S> knowledgeBase, ForkJoinPool pool) {
+        this.knowledgeBase = knowledgeBase;
+        this.pool = pool;
+        this.metrics = knowledgeBase.getMetrics();
+    }
+
+    /**
+     * imports all entries of the given stream.
+     * @param serializedKnowledge the serialized entries to import, the stream is consumed but not closed.
+     * @return the report of the import.
+     * @throws KnowledgeBaseException thrown if the valid entries cannot be merged due to collection implementation errors.
+     */
+    ImportReport importAll(Stream<S> serializedKnowledge) throws KnowledgeBaseException {
+        long start = System.nanoTime();
+        Iterator<S> iterator = serializedKnowledge.iterator();
+        List<S> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == CHUNK_SIZE) {
+                this.importChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) this.importChunk(chunk);
+        return new ImportReport(this.totalCount, this.importedCount, this.failedCount, this.errors,
+                Duration.ofNanos(this.parseNanos), Duration.ofNanos(this.mergeNanos), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * parses the given chunk in parallel and merges its valid entries into the knowledge base.
+     * @param chunk the serialized entries to import.
+     * @throws KnowledgeBaseException thrown if the valid entries cannot be merged due to collection implementation errors.
+     */
+    private void importChunk(List<S> chunk) throws KnowledgeBaseException {
+        int size = chunk.size();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map.Entry<Q, List<A>>[] entries = new Map.Entry[size];
+        ValidationError[] validationErrors = new ValidationError[size];
+        long parseStart = System.nanoTime();
+        this.pool.invoke(new ParseTask(chunk, entries, validationErrors, 0, size));
+        long mergeStart = System.nanoTime();
+        this.parseNanos += mergeStart - parseStart;
+
+        Map<Q, List<A>> merged = new LinkedHashMap<>(size * 4 / 3 + 1);
+        long chunkImportedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (entries[i] != null) {
+                merged.put(entries[i].getKey(), entries[i].getValue());
+                chunkImportedCount++;
+            } else {
+                this.failedCount++;
+                if (this.metrics != null) this.metrics.recordValidationFailure(validationErrors[i]);
+                if (this.errors.size() < ImportReport.MAX_REPORTED_ERRORS) {
+                    this.errors.add(new ImportReport.ImportError(this.totalCount + i + 1, this.formatMessage(chunk.get(i), validationErrors[i])));
+                }
+            }
+        }
+        this.knowledgeBase.storeKnowledge(merged);
+        this.importedCount += chunkImportedCount;
+        if (this.metrics != null) this.metrics.recordImport(chunkImportedCount);
+        this.totalCount += size;
+        this.mergeNanos += System.nanoTime() - mergeStart;
+    }
+
+    /**
+     * formats the message of a rejected entry, the entry is validated again to find the question or answer rejected.
+     * @param serialized the rejected entry.
+     * @param error the reason the entry was rejected.
+     * @return the message of the error.
+     */
+    private String formatMessage(S serialized, ValidationError error) {
+        if (serialized == null) return error.format(null);
+        try {
+            this.knowledgeBase.getValidationService().validateSerializedKnowledge(serialized);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return error.getTemplate();
+    }
+
+    /**
+     * checks and deserializes a range of a chunk, splitting the range until it is below {@link #PARSE_THRESHOLD}.
+     * each entry ends up either in the entries array or as reason in the validation errors array.
+     */
+    private final class ParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<S> chunk;
+        private final Map.Entry<Q, List<A>>[] entries;
+        private final ValidationError[] validationErrors;
+        private final int from;
+        private final int to;
+
+        ParseTask(List<S> chunk, Map.Entry<Q, List<A>>[] entries, ValidationError[] validationErrors, int from, int to) {
+            this.chunk = chunk;
+            this.entries = entries;
+            this.validationErrors = validationErrors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > PARSE_THRESHOLD) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new ParseTask(this.chunk, this.entries, this.validationErrors, this.from, middle),
+                        new ParseTask(this.chunk, this.entries, this.validationErrors, middle, this.to));
+                return;
+            }
+            IKnowledgeValidationService<Q, A, S> validationService = knowledgeBase.getValidationService();
+            for (int i = this.from; i < this.to; i++) {
+                S serialized = this.chunk.get(i);
+                long start = metrics == null ? 0 : metrics.startTimer();
+                //the complete check of the serialized entry makes validating the deserialized question and answers unnecessary.
+                ValidationError error = validationService.checkSerializedKnowledge(serialized);
+                if (error != null) {
+                    if (metrics != null) metrics.recordParse(start);
+                    this.validationErrors[i] = error;
+                    continue;
+                }
+                try {
+                    Map.Entry<Q, List<A>> entry = knowledgeBase.deserializeKnowledge(serialized);
+                    if (metrics != null) metrics.recordParse(start);
+                    this.entries[i] = Map.entry(entry.getKey(), List.copyOf(entry.getValue()));
+                } catch (InvalidKnowledgeException e) {
+                    this.validationErrors[i] = e.getError();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.cgm.at.knowledgebase.common;
+
+/**
+ * The reasons knowledge is rejected by a validation, one per {@link ErrorMessages} constant of the same name.
+ * A validation reports the reason only, the message is formatted from the template and the rejected input once it is needed,
+ * so rejecting knowledge neither allocates nor formats anything until the message is read.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public enum ValidationError {
+    QUESTION_NONE_GIVEN(ErrorMessages.QUESTION_NONE_GIVEN),
+    QUESTION_EXCEEDS_255_CHARACTERS(ErrorMessages.QUESTION_EXCEEDS_255_CHARACTERS),
+    QUESTION_NO_QUESTIONMARK(ErrorMessages.QUESTION_NO_QUESTIONMARK),
+    QUESTION_IS_EMPTY_OR_BLANK(ErrorMessages.QUESTION_IS_EMPTY_OR_BLANK),
+    QUESTION_FORMAT_INCORRECT(ErrorMessages.QUESTION_FORMAT_INCORRECT),
+    ANSWERS_NONE_GIVEN(ErrorMessages.ANSWERS_NONE_GIVEN),
+    ANSWERS_FORMAT_INCORRECT(ErrorMessages.ANSWERS_FORMAT_INCORRECT),
+    ANSWER_INVALID(ErrorMessages.ANSWER_INVALID),
+    ANSWER_EXCEEDS_255_CHARACTERS(ErrorMessages.ANSWER_EXCEEDS_255_CHARACTERS),
+    ANSWER_IS_EMPTY_OR_BLANK(ErrorMessages.ANSWER_IS_EMPTY_OR_BLANK),
+    BINARY_FORMAT_INCORRECT(ErrorMessages.BINARY_FORMAT_INCORRECT),
+    KNOWLEDGE_INVALID(ErrorMessages.KNOWLEDGE_INVALID);
+
+    //the template of the message, containing a placeholder for the rejected input if hasSubject is set.
+    private final String template;
+
+    //true if the message contains the rejected input.
+    private final boolean hasSubject;
+
+    /**
+     * initializes the error with the template of its message.
+     * @param template the template of the message, see {@link ErrorMessages}.
+     */
+    ValidationError(String template) {
+        this.template = template;
+        this.hasSubject = template.contains("%s");
+    }
+
+    /**
+     * Gets the template
+     * @return the {@link ErrorMessages} constant of the error.
+     */
+    public String getTemplate() {
+        return this.template;
+    }
+
+    /**
+     * formats the message of the error.
+     * @param subject the rejected question or answer, ignored if the message does not contain the rejected input.
+     * @return the message of the error.
+     */
+    public String format(Object subject) {
+        return this.hasSubject ? String.format(this.template, subject) : this.template;
+    }
+}
@@ -0,0 +1,49 @@
+package com.cgm.at.knowledgebase.exceptions;
+
+import com.cgm.at.knowledgebase.common.ValidationError;
+
+/**
+ * The IllegalArgumentException thrown if a question or answer is rejected by a validation.
+ * The message is formatted from the {@link ValidationError} and the rejected input on the first call of {@link #getMessage()},
+ * so callers only interested in the reason, e.g. an import counting its failures, never pay for formatting it.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class InvalidKnowledgeException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    //the reason the input was rejected.
+    private final ValidationError error;
+
+    //the rejected question or answer.
+    private final transient Object subject;
+
+    //the message, formatted on first use.
+    private volatile String message;
+
+    /**
+     * This constructor allows to initialize the reason and the rejected input the message is formatted from.
+     * @param error the reason the input was rejected.
+     * @param subject the rejected question or answer.
+     */
+    public InvalidKnowledgeException(ValidationError error, Object subject) {
+        this.error = error;
+        this.subject = subject;
+    }
+
+    /**
+     * Gets the error
+     * @return the reason the input was rejected.
+     */
+    public ValidationError getError() {
+        return this.error;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = this.message;
+        if (message == null) this.message = message = this.error.format(this.subject);
+        return message;
+    }
+}
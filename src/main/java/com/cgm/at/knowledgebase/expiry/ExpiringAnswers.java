@@ -0,0 +1,92 @@
+package com.cgm.at.knowledgebase.expiry;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The immutable answers of a question added with a time to live, stamped with the version of the addition and the deadline of their expiry.
+ * The answers are stored in the knowledge map in place of the plain answers, so the stamp is replaced atomically together with them.
+ * The knowledge base hides expired answers on every lookup, a {@link KnowledgeExpiryScheduler} removes them from the map.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <A> Generic type of Answer.
+ */
+public final class ExpiringAnswers<A> extends AbstractList<A> implements RandomAccess {
+
+    //the longest time to live, so deadlines never overflow the time of System.nanoTime().
+    private static final long MAX_TIME_TO_LIVE_NANOS = Long.MAX_VALUE >>> 1;
+
+    //the immutable answers.
+    private final List<A> answers;
+
+    //the version stamped on the addition of the answers, unique within a knowledge base.
+    private final long version;
+
+    //the time of System.nanoTime() at which the answers expire.
+    private final long deadline;
+
+    /**
+     * initializes the answers expiring after the given time to live from now on.
+     * @param answers the immutable answers.
+     * @param version the version stamped on the addition of the answers.
+     * @param timeToLive the positive time after which the answers expire, longer times are limited to about 146 years.
+     */
+    public ExpiringAnswers(List<A> answers, long version, Duration timeToLive) {
+        if (timeToLive.isNegative() || timeToLive.isZero()) throw new IllegalArgumentException("The time to live must be positive!");
+        long nanos = timeToLive.compareTo(Duration.ofNanos(MAX_TIME_TO_LIVE_NANOS)) < 0 ? timeToLive.toNanos() : MAX_TIME_TO_LIVE_NANOS;
+        this.answers = answers;
+        this.version = version;
+        this.deadline = System.nanoTime() + nanos;
+    }
+
+    @Override
+    public A get(int index) {
+        return this.answers.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.answers.size();
+    }
+
+    /**
+     * Gets the answers
+     * @return the immutable answers without the stamp.
+     */
+    public List<A> getAnswers() {
+        return this.answers;
+    }
+
+    /**
+     * @return the immutable answers without the stamp, or null if they have expired.
+     */
+    public List<A> getLiveAnswers() {
+        return System.nanoTime() - this.deadline < 0 ? this.answers : null;
+    }
+
+    /**
+     * Gets the version
+     * @return the version stamped on the addition of the answers.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Gets the deadline
+     * @return the time of {@link System#nanoTime()} at which the answers expire.
+     */
+    public long getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * @return true if the answers have expired.
+     */
+    public boolean isExpired() {
+        return System.nanoTime() - this.deadline >= 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.cgm.at.knowledgebase.expiry;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeListener;
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Removes the knowledge added with a time to live from a knowledge base once it has expired, without scanning the knowledge.
+ *
+ * The scheduler listens to the knowledge base and puts a timer of the question and the version of its answers into a {@link TimingWheel}
+ * for every {@link ExpiringAnswers} added. A background thread advances the wheel every tick and removes the questions of the due timers
+ * by {@link KnowledgeBase#expireKnowledge(Object, long)}, which ignores questions added again with another version in the meantime.
+ * Scheduling and expiring a question therefore take amortized O(1), and the memory of expired answers is reclaimed within a tick of their expiry.
+ * The expired answers are hidden by the knowledge base as soon as they expire, regardless of the scheduler.
+ *
+ * The background thread removes questions concurrently to the threads using the knowledge base, so it must be thread-safe,
+ * e.g. a {@link com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService}.
+ * A knowledge base used by a single thread instead calls {@link #expireDue()} itself, without starting the scheduler.
+ * If removing a question fails, the scheduler keeps running and the failure is thrown by {@link #close()}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question.
+ * @param <A> Generic type of Answer.
+ */
+public class KnowledgeExpiryScheduler<Q, A> implements IKnowledgeListener<Q, A>, AutoCloseable {
+
+    //the default duration of a tick of the wheel.
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    //the knowledge base to remove the expired questions from.
+    private final KnowledgeBase<Q, A, ?> knowledgeBase;
+
+    //the duration of a tick in nanoseconds.
+    private final long tickNanos;
+
+    //the time of System.nanoTime() of tick 0.
+    private final long origin;
+
+    //the timers of all expiring questions, guarded by its own monitor.
+    private final TimingWheel<Q> wheel;
+
+    //the number of questions removed.
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    //the background thread, null until started.
+    private Thread sweeper;
+
+    //true once the scheduler is closed.
+    private volatile boolean closed;
+
+    //the first failure of the background thread, null while it works.
+    private volatile KnowledgeBaseException failure;
+
+    /**
+     * initializes the scheduler for the given knowledge base with the default tick.
+     * @param knowledgeBase the knowledge base to remove the expired questions from.
+     */
+    public KnowledgeExpiryScheduler(KnowledgeBase<Q, A, ?> knowledgeBase) {
+        this(knowledgeBase, DEFAULT_TICK);
+    }
+
+    /**
+     * initializes the scheduler for the given knowledge base, registering it as listener and scheduling the expiring knowledge already contained.
+     * @param knowledgeBase the knowledge base to remove the expired questions from.
+     * @param tick the duration of a tick, the expired questions are removed at most one tick after their expiry.
+     * @throws IllegalArgumentException thrown if the tick is not positive or the knowledge base does not support a time to live.
+     */
+    public KnowledgeExpiryScheduler(KnowledgeBase<Q, A, ?> knowledgeBase, Duration tick) {
+        if (tick.isNegative() || tick.isZero()) throw new IllegalArgumentException("The tick must be positive!");
+        if (!knowledgeBase.supportsTimeToLive()) throw new IllegalArgumentException("The knowledge base does not support a time to live!");
+        this.knowledgeBase = knowledgeBase;
+        this.tickNanos = tick.toNanos();
+        this.origin = System.nanoTime();
+        this.wheel = new TimingWheel<>(0);
+        knowledgeBase.addKnowledgeListener(this);
+        knowledgeBase.getAllKnowledge().forEach(this::knowledgeAdded);
+    }
+
+    /**
+     * starts the background thread removing the expired questions every tick.
+     * @throws IllegalStateException thrown if the scheduler is started twice or already closed.
+     */
+    public synchronized void start() {
+        if (this.sweeper != null || this.closed) throw new IllegalStateException("The scheduler can only be started once!");
+        this.sweeper = new Thread(this::sweepLoop, "knowledge-expiry-sweeper");
+        this.sweeper.setDaemon(true);
+        this.sweeper.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * schedules the removal of answers added with a time to live.
+     */
+    @Override
+    public void knowledgeAdded(Q question, List<A> answers) {
+        if (!(answers instanceof ExpiringAnswers)) return;
+        ExpiringAnswers<A> expiring = (ExpiringAnswers<A>) answers;
+        //the tick at or after the deadline, so a question is never removed before it has expired.
+        long dueTick = Math.floorDiv(expiring.getDeadline() - this.origin + this.tickNanos - 1, this.tickNanos);
+        synchronized (this.wheel) {
+            this.wheel.schedule(question, expiring.getVersion(), dueTick);
+        }
+    }
+
+    /**
+     * removes all questions expired until now from the knowledge base.
+     * @return the number of questions removed.
+     * @throws KnowledgeBaseException thrown if a question cannot be removed due to collection implementation errors.
+     */
+    public int expireDue() throws KnowledgeBaseException {
+        long tick = Math.floorDiv(System.nanoTime() - this.origin, this.tickNanos);
+        TimingWheel.Timer<Q> timer;
+        synchronized (this.wheel) {
+            timer = this.wheel.advance(tick);
+        }
+        int expired = 0;
+        for (; timer != null; timer = timer.getNext()) {
+            if (this.knowledgeBase.expireKnowledge(timer.getItem(), timer.getStamp())) expired++;
+        }
+        this.expiredCount.addAndGet(expired);
+        return expired;
+    }
+
+    /**
+     * @return the number of questions removed since the scheduler was created.
+     */
+    public long getExpiredCount() {
+        return this.expiredCount.get();
+    }
+
+    /**
+     * @return the number of expiry timers not yet due, including the timers of questions added again since.
+     */
+    public int getPendingCount() {
+        synchronized (this.wheel) {
+            return this.wheel.size();
+        }
+    }
+
+    /**
+     * stops the background thread and unregisters the scheduler from the knowledge base.
+     * @throws KnowledgeBaseException thrown if the background thread failed to remove a question.
+     */
+    @Override
+    public void close() throws KnowledgeBaseException {
+        Thread sweeper;
+        synchronized (this) {
+            if (this.closed) return;
+            this.closed = true;
+            sweeper = this.sweeper;
+        }
+        this.knowledgeBase.removeKnowledgeListener(this);
+        boolean interrupted = false;
+        while (sweeper != null && sweeper.isAlive()) {
+            LockSupport.unpark(sweeper);
+            try {
+                sweeper.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (this.failure != null) throw this.failure;
+    }
+
+    /**
+     * the loop of the background thread: sleeps until the next tick and removes the questions due.
+     */
+    private void sweepLoop() {
+        while (!this.closed) {
+            long elapsed = System.nanoTime() - this.origin;
+            LockSupport.parkNanos(this.tickNanos - Math.floorMod(elapsed, this.tickNanos));
+            if (this.closed) return;
+            try {
+                this.expireDue();
+            } catch (KnowledgeBaseException e) {
+                if (this.failure == null) this.failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.cgm.at.knowledgebase.expiry;
+
+/**
+ * A hierarchical timing wheel of timers due at a tick, the scheduling structure of the {@link KnowledgeExpiryScheduler}.
+ *
+ * The wheel consists of four levels of 64 slots. A timer due within 64 ticks is put into the slot of its tick on the lowest level,
+ * a timer due within 64^2 ticks into the slot of its block of 64 ticks on the second level, and so on. Whenever the lowest level wraps around,
+ * the next slot of the second level is cascaded: its timers are put into the lower level again, now being due within 64 ticks.
+ * Scheduling is O(1) and every timer is cascaded at most three times, so advancing the wheel takes amortized O(1) per timer,
+ * without ever scanning the timers not due. Timers due beyond 64^4 ticks are parked in the farthest slot and rescheduled when it is cascaded.
+ * The wheel is not thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <T> Generic type of the item of a timer.
+ */
+final class TimingWheel<T> {
+
+    //the number of bits of the slot index of one level.
+    private static final int SLOT_BITS = 6;
+
+    //the number of slots of one level.
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    //the number of levels.
+    private static final int LEVELS = 4;
+
+    //the slots of all levels, each the head of a linked list of timers.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Timer<T>[][] slots = new Timer[LEVELS][SLOTS];
+
+    //the last tick the wheel has been advanced to.
+    private long tick;
+
+    //the number of timers scheduled and not yet due.
+    private int size;
+
+    /**
+     * initializes an empty wheel at the given tick.
+     * @param tick the tick the wheel starts at.
+     */
+    TimingWheel(long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * schedules a timer, a timer due at a tick already passed is due at the next advance.
+     * @param item the item of the timer.
+     * @param stamp a number stored with the item.
+     * @param dueTick the tick the timer is due at.
+     */
+    void schedule(T item, long stamp, long dueTick) {
+        this.insert(new Timer<>(item, stamp, dueTick));
+        this.size++;
+    }
+
+    /**
+     * advances the wheel to the given tick and returns all timers due until then.
+     * @param tick the current tick, the wheel does not move back.
+     * @return the first due timer, linked to the others by {@link Timer#getNext()}, or null if no timer is due.
+     */
+    Timer<T> advance(long tick) {
+        Timer<T> due = null;
+        while (this.tick < tick) {
+            long nextTick = this.tick + 1;
+            int index = (int) (nextTick & (SLOTS - 1));
+            //cascades the slots of the higher levels whose block of ticks starts with the next tick, highest level first,
+            //before the wheel moves on, so the timers due at the next tick land in the slot processed now.
+            if (index == 0) this.cascade(1, nextTick);
+            this.tick = nextTick;
+            Timer<T> timer = this.slots[0][index];
+            this.slots[0][index] = null;
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                if (timer.dueTick <= this.tick) {
+                    timer.next = due;
+                    due = timer;
+                    this.size--;
+                } else {
+                    this.insert(timer);
+                }
+                timer = next;
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return the number of timers scheduled and not yet due.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * moves the timers of the slot of a level starting at the given tick into the lower levels,
+     * after cascading the higher levels if the level wraps around too.
+     */
+    private void cascade(int level, long tick) {
+        int index = (int) ((tick >>> (level * SLOT_BITS)) & (SLOTS - 1));
+        if (index == 0 && level + 1 < LEVELS) this.cascade(level + 1, tick);
+        Timer<T> timer = this.slots[level][index];
+        this.slots[level][index] = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            this.insert(timer);
+            timer = next;
+        }
+    }
+
+    /**
+     * puts a timer into the slot of the lowest level covering its due tick, relative to the next tick to process.
+     */
+    private void insert(Timer<T> timer) {
+        long nextTick = this.tick + 1;
+        long delay = timer.dueTick - nextTick;
+        int level = 0;
+        long slotTick;
+        if (delay <= 0) {
+            slotTick = nextTick;
+        } else {
+            while (level < LEVELS - 1 && delay >= 1L << ((level + 1) * SLOT_BITS)) {
+                level++;
+            }
+            //a timer due beyond the range of the wheel is parked in the farthest slot.
+            slotTick = delay < 1L << (LEVELS * SLOT_BITS) ? timer.dueTick : nextTick + (1L << (LEVELS * SLOT_BITS)) - 1;
+        }
+        int index = (int) ((slotTick >>> (level * SLOT_BITS)) & (SLOTS - 1));
+        timer.next = this.slots[level][index];
+        this.slots[level][index] = timer;
+    }
+
+    /**
+     * A timer of the wheel, linked to the next timer of its slot.
+     */
+    static final class Timer<T> {
+
+        //the item and the stamp of the timer.
+        private final T item;
+        private final long stamp;
+
+        //the tick the timer is due at.
+        private final long dueTick;
+
+        //the next timer of the slot or of the due timers.
+        private Timer<T> next;
+
+        private Timer(T item, long stamp, long dueTick) {
+            this.item = item;
+            this.stamp = stamp;
+            this.dueTick = dueTick;
+        }
+
+        /**
+         * Gets the item
+         * @return the item of the timer.
+         */
+        T getItem() {
+            return this.item;
+        }
+
+        /**
+         * Gets the stamp
+         * @return the number stored with the item.
+         */
+        long getStamp() {
+            return this.stamp;
+        }
+
+        /**
+         * Gets the next timer
+         * @return the next due timer, or null if it is the last.
+         */
+        Timer<T> getNext() {
+            return this.next;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.cgm.at.knowledgebase.index;
+
+import com.cgm.at.knowledgebase.api.IQuestionMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An {@link IQuestionMatcher} for textual questions, finding stored questions written in a different case,
+ * with different whitespace or with typos.
+ *
+ * The index keeps two structures over the normalized stored questions (case-folded, whitespace collapsed):
+ * 1) a hash map from the normalized question to the stored questions of that form, answering case and whitespace variants in O(1)
+ *    with the stored question of the form added last, removing it falls back to the one added before.
+ * 2) an inverted index from each character trigram to the ids of the questions containing it.
+ * An approximate match counts the shared trigrams of the candidates found in the posting lists of the rarest trigrams
+ * of the question, until a budget of postings is visited, and ranks the best candidates by the Dice coefficient
+ * of their trigram sets. Once a bounded number of candidates is collected, further postings only count for them. The work per lookup is therefore bounded by the budget, not by the number of stored questions.
+ * Removed questions are marked dead in place and skipped by lookups, the index is rebuilt from the live questions
+ * once there are more dead questions than live ones, so the memory of removed questions is reclaimed in amortized constant time.
+ * Lookups share a read lock, adding and removing questions takes the write lock.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class FuzzyQuestionIndex implements IQuestionMatcher<String, String> {
+
+    //the default minimum Dice similarity of a stored question to be returned as match.
+    public static final double DEFAULT_MIN_SIMILARITY = 0.6;
+
+    //the maximum number of postings visited to collect candidates.
+    private static final int POSTINGS_BUDGET = 16384;
+
+    //the maximum number of distinct candidates collected, further postings only count for collected candidates.
+    private static final int MAX_CANDIDATES = 4096;
+
+    //the number of candidates with the most shared trigrams that are ranked exactly.
+    private static final int RANKED_CANDIDATES = 32;
+
+    //the minimum Dice similarity of a stored question to be returned as match.
+    private final double minSimilarity;
+
+    //the normalized questions by id and the stored questions of each of them in the order they were added, both null for removed questions.
+    private final ArrayList<String> normalizedQuestions = new ArrayList<>();
+    private final ArrayList<List<String>> questions = new ArrayList<>();
+
+    //the id of each normalized question.
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    //the ids of the questions containing each trigram, in ascending order.
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    //the number of removed questions whose ids are still contained in the posting lists.
+    private int removedCount;
+
+    //guards all structures of the index.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * initializes an empty index with the default minimum similarity.
+     */
+    public FuzzyQuestionIndex() {
+        this(DEFAULT_MIN_SIMILARITY);
+    }
+
+    /**
+     * initializes an empty index with the given minimum similarity.
+     * @param minSimilarity the minimum Dice similarity between 0 and 1 of a stored question to be returned as match.
+     */
+    public FuzzyQuestionIndex(double minSimilarity) {
+        if (minSimilarity < 0 || minSimilarity > 1) throw new IllegalArgumentException("The minimum similarity must be between 0 and 1!");
+        this.minSimilarity = minSimilarity;
+    }
+
+    /**
+     * normalizes a question by case-folding it and collapsing all whitespace to single spaces.
+     * @param question the question to normalize.
+     * @return the normalized question without leading and trailing whitespace.
+     */
+    public static String normalize(String question) {
+        StringBuilder sb = new StringBuilder(question.length());
+        boolean whitespace = false;
+        for (int i = 0; i < question.length(); i++) {
+            char c = question.charAt(i);
+            if (Character.isWhitespace(c)) {
+                whitespace = sb.length() > 0;
+            } else {
+                if (whitespace) sb.append(' ');
+                whitespace = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * {@inheritDoc}
+     * indexes the trigrams of the question if its normalized form is not indexed yet,
+     * otherwise the question becomes the stored question last added of its normalized form.
+     */
+    @Override
+    public void knowledgeAdded(String question, List<String> answers) {
+        String normalized = normalize(question);
+        this.lock.writeLock().lock();
+        try {
+            Integer id = this.ids.get(normalized);
+            if (id != null) {
+                if (this.storedQuestion(id).equals(question)) return;
+                List<String> variants = new ArrayList<>(this.questions.get(id));
+                variants.remove(question);
+                variants.add(question);
+                this.questions.set(id, variants);
+                return;
+            }
+            this.index(normalized, List.of(question));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * removes the question from the stored questions of its normalized form, the form is marked dead once it has none left,
+     * and the index is rebuilt once there are more dead questions than live ones.
+     */
+    @Override
+    public void knowledgeRemoved(String question) {
+        String normalized = normalize(question);
+        this.lock.writeLock().lock();
+        try {
+            Integer id = this.ids.get(normalized);
+            if (id == null || !this.questions.get(id).contains(question)) return;
+            if (this.questions.get(id).size() > 1) {
+                List<String> variants = new ArrayList<>(this.questions.get(id));
+                variants.remove(question);
+                this.questions.set(id, variants);
+                return;
+            }
+            this.ids.remove(normalized);
+            this.normalizedQuestions.set(id, null);
+            this.questions.set(id, null);
+            this.removedCount++;
+            if (this.removedCount > this.questions.size() - this.removedCount) this.compact();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * a stored question with the same normalized form is returned directly,
+     * otherwise the stored question with the highest trigram similarity above the minimum similarity.
+     */
+    @Override
+    public String match(String question) {
+        String normalized = normalize(question);
+        long[] queryTrigrams = trigrams(normalized);
+        this.lock.readLock().lock();
+        try {
+            Integer id = this.ids.get(normalized);
+            if (id != null) return this.storedQuestion(id);
+
+            //collect candidates from the rarest trigrams first.
+            PostingList[] lists = new PostingList[queryTrigrams.length];
+            int listCount = 0;
+            for (long trigram : queryTrigrams) {
+                PostingList list = this.postings.get(trigram);
+                if (list != null) lists[listCount++] = list;
+            }
+            if (listCount == 0) return null;
+            Arrays.sort(lists, 0, listCount, (a, b) -> Integer.compare(a.size, b.size));
+            IntCounter counter = new IntCounter(MAX_CANDIDATES);
+            int visited = 0;
+            for (int l = 0; l < listCount && visited < POSTINGS_BUDGET; l++) {
+                int end = Math.min(lists[l].size, POSTINGS_BUDGET - visited);
+                int[] postingIds = lists[l].ids;
+                if (this.removedCount == 0) {
+                    for (int i = 0; i < end; i++) {
+                        counter.increment(postingIds[i]);
+                    }
+                } else {
+                    for (int i = 0; i < end; i++) {
+                        if (this.questions.get(postingIds[i]) != null) counter.increment(postingIds[i]);
+                    }
+                }
+                visited += end;
+            }
+
+            //rank the candidates sharing the most trigrams by their exact similarity.
+            int best = -1;
+            double bestSimilarity = this.minSimilarity;
+            for (int candidate : counter.top(RANKED_CANDIDATES)) {
+                double similarity = dice(queryTrigrams, trigrams(this.normalizedQuestions.get(candidate)));
+                if (similarity >= bestSimilarity && (best < 0 || similarity > bestSimilarity)) {
+                    best = candidate;
+                    bestSimilarity = similarity;
+                }
+            }
+            return best < 0 ? null : this.storedQuestion(best);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct normalized questions indexed.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.questions.size() - this.removedCount;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the stored question last added of the normalized question of the given live id.
+     */
+    private String storedQuestion(int id) {
+        List<String> variants = this.questions.get(id);
+        return variants.get(variants.size() - 1);
+    }
+
+    /**
+     * indexes the trigrams of a question not indexed yet under a new id.
+     * must be called holding the write lock.
+     */
+    private void index(String normalized, List<String> variants) {
+        int id = this.questions.size();
+        this.ids.put(normalized, id);
+        this.normalizedQuestions.add(normalized);
+        this.questions.add(variants);
+        for (long trigram : trigrams(normalized)) {
+            this.postings.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+        }
+    }
+
+    /**
+     * rebuilds the index from the live questions, dropping the ids of all removed questions.
+     * must be called holding the write lock.
+     */
+    private void compact() {
+        List<String> normalizedQuestions = new ArrayList<>(this.normalizedQuestions);
+        List<List<String>> questions = new ArrayList<>(this.questions);
+        this.normalizedQuestions.clear();
+        this.questions.clear();
+        this.ids.clear();
+        this.postings.clear();
+        this.removedCount = 0;
+        for (int id = 0; id < questions.size(); id++) {
+            if (questions.get(id) != null) this.index(normalizedQuestions.get(id), questions.get(id));
+        }
+        this.normalizedQuestions.trimToSize();
+        this.questions.trimToSize();
+    }
+
+    /**
+     * computes the distinct character trigrams of a normalized question padded with a space on both sides,
+     * each trigram packed into a long.
+     * @param normalized the normalized question.
+     * @return the sorted distinct trigrams.
+     */
+    static long[] trigrams(String normalized) {
+        String padded = " " + normalized + " ";
+        int count = Math.max(0, padded.length() - 2);
+        long[] trigrams = new long[count];
+        for (int i = 0; i < count; i++) {
+            //the multiplication is a bijection spreading the characters over all bits for hashing.
+            trigrams[i] = (((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2)) * 0x9E3779B97F4A7C15L;
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) trigrams[distinct++] = trigrams[i];
+        }
+        return distinct == count ? trigrams : Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * computes the Dice coefficient of two sorted trigram sets, 2 * |shared| / (|a| + |b|).
+     */
+    static double dice(long[] a, long[] b) {
+        if (a.length + b.length == 0) return 1;
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return 2.0 * shared / (a.length + b.length);
+    }
+
+    /**
+     * A growable list of question ids.
+     */
+    private static final class PostingList {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (this.size == this.ids.length) this.ids = Arrays.copyOf(this.ids, this.size * 2);
+            this.ids[this.size++] = id;
+        }
+    }
+
+    /**
+     * An open-addressing map counting occurrences of at most a fixed number of non-negative ints without boxing.
+     * once full, only the counts of the ints already contained are incremented.
+     */
+    private static final class IntCounter {
+
+        private final int[] keys;
+        private final int[] counts;
+        private final int shift;
+        private final int capacity;
+        private int size;
+
+        IntCounter(int capacity) {
+            int slots = Integer.highestOneBit(capacity) << 2;
+            this.keys = new int[slots];
+            this.counts = new int[slots];
+            this.shift = 32 - Integer.numberOfTrailingZeros(slots);
+            this.capacity = capacity;
+            Arrays.fill(this.keys, -1);
+        }
+
+        void increment(int key) {
+            int mask = this.keys.length - 1;
+            int slot = (key * 0x9E3779B9) >>> this.shift;
+            while (this.keys[slot] != key) {
+                if (this.keys[slot] == -1) {
+                    if (this.size == this.capacity) return;
+                    this.keys[slot] = key;
+                    this.size++;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            this.counts[slot]++;
+        }
+
+        /**
+         * @return the keys with the highest counts, at most limit of them.
+         */
+        int[] top(int limit) {
+            int[] topKeys = new int[Math.min(limit, this.size)];
+            int[] topCounts = new int[topKeys.length];
+            int filled = 0;
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] == -1) continue;
+                int count = this.counts[i];
+                if (filled == topKeys.length && count <= topCounts[filled - 1]) continue;
+                //insertion into the descending top list.
+                int position = filled < topKeys.length ? filled++ : filled - 1;
+                while (position > 0 && topCounts[position - 1] < count) {
+                    topKeys[position] = topKeys[position - 1];
+                    topCounts[position] = topCounts[position - 1];
+                    position--;
+                }
+                topKeys[position] = this.keys[i];
+                topCounts[position] = count;
+            }
+            return topKeys;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.cgm.at.knowledgebase.index;
+
+import com.cgm.at.knowledgebase.api.IQuestionEmbedding;
+import java.util.Arrays;
+
+/**
+ * A local {@link IQuestionEmbedding} of textual questions hashing their words and character trigrams into a vector, without any model.
+ *
+ * The question is case-folded and split into words of letters and digits, apostrophes within words are dropped. Every word and every trigram of a word padded with spaces
+ * is a feature, hashed to one component of the vector and to a sign, and the vector is normalized to unit length.
+ * Questions sharing most of their words, in any order, or differing by typos and inflections share most of their features,
+ * so their vectors are similar. The meaning is thereby approximated by the wording, synonyms are not recognized.
+ * The embedding is stateless and thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class HashedNgramEmbedding implements IQuestionEmbedding<String> {
+
+    //the default number of components of a vector.
+    public static final int DEFAULT_DIMENSION = 128;
+
+    //the weight of a word relative to one of its trigrams.
+    private static final float WORD_WEIGHT = 2.0f;
+
+    //the number of components of a vector.
+    private final int dimension;
+
+    /**
+     * initializes the embedding with the default dimension.
+     */
+    public HashedNgramEmbedding() {
+        this(DEFAULT_DIMENSION);
+    }
+
+    /**
+     * initializes the embedding with the given dimension.
+     * @param dimension the number of components of a vector, more components cause fewer collisions of features but take more memory.
+     */
+    public HashedNgramEmbedding(int dimension) {
+        if (dimension < 1) throw new IllegalArgumentException("The dimension must be positive!");
+        this.dimension = dimension;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void embed(String question, float[] vector, int offset) {
+        Arrays.fill(vector, offset, offset + this.dimension, 0f);
+        int length = question.length();
+        int start = 0;
+        while (start < length) {
+            if (!Character.isLetterOrDigit(question.charAt(start))) {
+                start++;
+                continue;
+            }
+            int end = start;
+            long wordHash = 0;
+            //the trigram of the last two characters and the current one, starting with the padding space.
+            long previous = ' ';
+            long current = ' ';
+            for (; end < length && isWordCharacter(question.charAt(end)); end++) {
+                char c = Character.toLowerCase(question.charAt(end));
+                if (c == '\'' || c == '\u2019') continue;
+                this.add(vector, offset, (previous << 32) | (current << 16) | c, 1f);
+                previous = current;
+                current = c;
+                wordHash = wordHash * 31 + c;
+            }
+            this.add(vector, offset, (previous << 32) | (current << 16) | ' ', 1f);
+            //words are set apart from trigrams by the highest bit, which no packed trigram has.
+            this.add(vector, offset, wordHash | Long.MIN_VALUE, WORD_WEIGHT);
+            start = end;
+        }
+        double norm = 0;
+        for (int i = offset; i < offset + this.dimension; i++) {
+            norm += vector[i] * vector[i];
+        }
+        if (norm == 0) return;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = offset; i < offset + this.dimension; i++) {
+            vector[i] *= scale;
+        }
+    }
+
+    /**
+     * @return true if the character is part of a word, a letter, a digit or an apostrophe.
+     */
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '\'' || c == '\u2019';
+    }
+
+    /**
+     * adds the weight of a feature to the component selected by its hash, with the sign selected by its lowest bit.
+     */
+    private void add(float[] vector, int offset, long feature, float weight) {
+        long hash = mix(feature);
+        int component = (int) ((hash >>> 1) % this.dimension);
+        vector[offset + component] += (hash & 1) == 0 ? weight : -weight;
+    }
+
+    /**
+     * spreads the bits of a feature over the whole hash, the finalizer of the 64 bit MurmurHash3.
+     */
+    private static long mix(long feature) {
+        long hash = feature;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
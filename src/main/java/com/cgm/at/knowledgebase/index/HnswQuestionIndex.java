@@ -0,0 +1,596 @@
+package com.cgm.at.knowledgebase.index;
+
+import com.cgm.at.knowledgebase.api.IQuestionEmbedding;
+import com.cgm.at.knowledgebase.api.IQuestionMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An {@link IQuestionMatcher} finding the stored question closest in meaning to a question,
+ * by the cosine similarity of the vectors of an {@link IQuestionEmbedding}.
+ *
+ * The vectors are indexed in a hierarchical navigable small world graph (HNSW): every question is a node linked to its
+ * nearest neighbours on level 0, and a random, exponentially shrinking subset of the nodes is linked on every higher level.
+ * A search descends greedily from the entry point on the top level to level 1, and searches level 0 with a beam of candidates,
+ * so it visits a few hundred nodes regardless of the number of stored questions. The result is approximate,
+ * a wider beam finds the exact nearest question more often at the cost of more similarities computed.
+ * A question is inserted by searching its neighbours the same way, so the index is maintained incrementally as {@link com.cgm.at.knowledgebase.api.IKnowledgeListener}.
+ *
+ * All vectors are packed into one float array and the links of level 0 into one int array, indexed by the id of the question,
+ * so the index needs no object per question besides the question itself, and a similarity is a dot product over adjacent floats.
+ * A removed question stays in the graph as a dead node: searches still pass through it, so the graph stays connected,
+ * but never return it. Once there are more dead nodes than live ones, the graph is rebuilt from the vectors of the live questions,
+ * so the memory of removed questions is reclaimed in amortized constant time.
+ * Searches share a read lock, adding and removing questions takes the write lock.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question.
+ * @param <A> Generic type of Answer.
+ */
+public class HnswQuestionIndex<Q, A> implements IQuestionMatcher<Q, A> {
+
+    //the default minimum cosine similarity of a stored question to be returned as match.
+    public static final double DEFAULT_MIN_SIMILARITY = 0.75;
+
+    //the default number of links of a node on the levels above level 0, level 0 has twice as many.
+    public static final int DEFAULT_MAX_LINKS = 16;
+
+    //the default width of the beam searching the neighbours of a question inserted.
+    public static final int DEFAULT_CONSTRUCTION_BEAM = 100;
+
+    //the default width of the beam searching the nearest questions.
+    public static final int DEFAULT_SEARCH_BEAM = 64;
+
+    //the highest level a node is linked on.
+    private static final int MAX_LEVEL = 15;
+
+    //the initial number of questions the arrays are allocated for.
+    private static final int INITIAL_CAPACITY = 64;
+
+    //the embedding mapping the questions to vectors.
+    private final IQuestionEmbedding<Q> embedding;
+
+    //the number of components of a vector.
+    private final int dimension;
+
+    //the minimum cosine similarity of a stored question to be returned as match.
+    private final double minSimilarity;
+
+    //the number of links of a node on level 0 and on the levels above.
+    private final int maxLinks0;
+    private final int maxLinks;
+
+    //the width of the beam searching the neighbours of a question inserted, and searching the nearest questions.
+    private final int constructionBeam;
+    private final int searchBeam;
+
+    //the factor turning a uniform random number into the exponentially distributed level of a node.
+    private final double levelFactor;
+
+    //the random numbers drawing the levels, with a fixed seed so the same questions build the same graph.
+    private final Random random = new Random(42);
+
+    //the vectors of all nodes, the vector of node id starts at id * dimension.
+    private float[] vectors;
+
+    //the links of all nodes on level 0, the links of node id start at id * (maxLinks0 + 1) with their count.
+    private int[] links0;
+
+    //the links of the nodes on the levels above 0, null for nodes on level 0 only,
+    //the links of level l start at (l - 1) * (maxLinks + 1) with their count.
+    private int[][] upperLinks;
+
+    //the stored questions by id, null for the dead nodes of removed questions, and the id of each stored question.
+    private final ArrayList<Q> questions = new ArrayList<>();
+    private final Map<Q, Integer> ids = new HashMap<>();
+
+    //the number of dead nodes.
+    private int removedCount;
+
+    //the node every search starts from, linked on the top level, -1 while the index is empty.
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    //guards all structures of the index.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //the buffers of the searches of each thread.
+    private final ThreadLocal<SearchContext> contexts;
+
+    /**
+     * initializes an empty index with the given embedding, the default minimum similarity and the default graph parameters.
+     * @param embedding the embedding mapping the questions to vectors.
+     */
+    public HnswQuestionIndex(IQuestionEmbedding<Q> embedding) {
+        this(embedding, DEFAULT_MIN_SIMILARITY, DEFAULT_MAX_LINKS, DEFAULT_CONSTRUCTION_BEAM, DEFAULT_SEARCH_BEAM);
+    }
+
+    /**
+     * initializes an empty index with the given embedding and minimum similarity, and the default graph parameters.
+     * @param embedding the embedding mapping the questions to vectors.
+     * @param minSimilarity the minimum cosine similarity between 0 and 1 of a stored question to be returned as match.
+     */
+    public HnswQuestionIndex(IQuestionEmbedding<Q> embedding, double minSimilarity) {
+        this(embedding, minSimilarity, DEFAULT_MAX_LINKS, DEFAULT_CONSTRUCTION_BEAM, DEFAULT_SEARCH_BEAM);
+    }
+
+    /**
+     * initializes an empty index with the parameters given.
+     * @param embedding the embedding mapping the questions to vectors.
+     * @param minSimilarity the minimum cosine similarity between 0 and 1 of a stored question to be returned as match.
+     * @param maxLinks the number of links of a node on the levels above 0, at least 2, level 0 has twice as many.
+     * @param constructionBeam the width of the beam searching the neighbours of a question inserted.
+     * @param searchBeam the width of the beam searching the nearest questions, at least the number of questions searched is used.
+     */
+    public HnswQuestionIndex(IQuestionEmbedding<Q> embedding, double minSimilarity, int maxLinks, int constructionBeam, int searchBeam) {
+        if (minSimilarity < 0 || minSimilarity > 1) throw new IllegalArgumentException("The minimum similarity must be between 0 and 1!");
+        if (maxLinks < 2) throw new IllegalArgumentException("The number of links must be at least 2!");
+        if (constructionBeam < 1 || searchBeam < 1) throw new IllegalArgumentException("The width of a beam must be positive!");
+        this.embedding = embedding;
+        this.dimension = embedding.getDimension();
+        this.minSimilarity = minSimilarity;
+        this.maxLinks = maxLinks;
+        this.maxLinks0 = 2 * maxLinks;
+        this.constructionBeam = constructionBeam;
+        this.searchBeam = searchBeam;
+        this.levelFactor = 1 / Math.log(maxLinks);
+        this.vectors = new float[INITIAL_CAPACITY * this.dimension];
+        this.links0 = new int[INITIAL_CAPACITY * (this.maxLinks0 + 1)];
+        this.upperLinks = new int[INITIAL_CAPACITY][];
+        this.contexts = ThreadLocal.withInitial(() -> new SearchContext(this.dimension));
+    }
+
+    /**
+     * {@inheritDoc}
+     * inserts the question into the graph if it is not stored yet.
+     */
+    @Override
+    public void knowledgeAdded(Q question, List<A> answers) {
+        SearchContext context = this.contexts.get();
+        this.embedding.embed(question, context.query, 0);
+        this.lock.writeLock().lock();
+        try {
+            if (this.ids.containsKey(question)) return;
+            this.insert(question, context);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * marks the node of the question dead, and rebuilds the graph once there are more dead nodes than live ones.
+     */
+    @Override
+    public void knowledgeRemoved(Q question) {
+        SearchContext context = this.contexts.get();
+        this.lock.writeLock().lock();
+        try {
+            Integer id = this.ids.remove(question);
+            if (id == null) return;
+            this.questions.set(id, null);
+            this.removedCount++;
+            if (this.removedCount > this.questions.size() - this.removedCount) this.compact(context);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the nearest stored question is returned if its similarity reaches the minimum similarity.
+     */
+    @Override
+    public Q match(Q question) {
+        SearchContext context = this.contexts.get();
+        this.embedding.embed(question, context.query, 0);
+        this.lock.readLock().lock();
+        try {
+            if (this.entryPoint < 0) return null;
+            int count = this.search(context, 1, this.searchBeam);
+            return count > 0 && context.resultSimilarities[0] >= this.minSimilarity ? this.questions.get(context.resultIds[0]) : null;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * finds the stored questions most similar to the given question, regardless of the minimum similarity.
+     * @param question the question to search.
+     * @param limit the maximum number of questions to return.
+     * @return at most limit stored questions, the most similar first.
+     */
+    public List<Q> nearest(Q question, int limit) {
+        if (limit < 0) throw new IllegalArgumentException("The limit cannot be negative!");
+        SearchContext context = this.contexts.get();
+        this.embedding.embed(question, context.query, 0);
+        this.lock.readLock().lock();
+        try {
+            if (this.entryPoint < 0 || limit == 0) return new ArrayList<>();
+            int count = this.search(context, limit, Math.max(this.searchBeam, limit));
+            List<Q> nearest = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                nearest.add(this.questions.get(context.resultIds[i]));
+            }
+            return nearest;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of questions indexed.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.questions.size() - this.removedCount;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * searches the nearest live nodes of the query of the context, must be called holding the read lock of a non-empty index.
+     * @return the number of nodes found, at most limit, stored in the results of the context, the most similar first.
+     */
+    private int search(SearchContext context, int limit, int beam) {
+        float[] query = context.query;
+        int current = this.entryPoint;
+        float similarity = dot(query, 0, this.vectors, current * this.dimension, this.dimension);
+        for (int level = this.topLevel; level > 0; level--) {
+            current = this.greedy(query, 0, current, similarity, level);
+            similarity = dot(query, 0, this.vectors, current * this.dimension, this.dimension);
+        }
+        int count = this.searchLevel(context, query, 0, current, similarity, beam, 0, this.removedCount > 0);
+        return Math.min(count, limit);
+    }
+
+    /**
+     * inserts a new node for the question with the vector in the query of the context, must be called holding the write lock.
+     */
+    private void insert(Q question, SearchContext context) {
+        int id = this.questions.size();
+        this.ensureCapacity(id + 1);
+        System.arraycopy(context.query, 0, this.vectors, id * this.dimension, this.dimension);
+        this.questions.add(question);
+        this.ids.put(question, id);
+        int level = Math.min(MAX_LEVEL, (int) (-Math.log(1 - this.random.nextDouble()) * this.levelFactor));
+        if (level > 0) this.upperLinks[id] = new int[level * (this.maxLinks + 1)];
+        if (this.entryPoint < 0) {
+            this.entryPoint = id;
+            this.topLevel = level;
+            return;
+        }
+        float[] vectors = this.vectors;
+        int offset = id * this.dimension;
+        int current = this.entryPoint;
+        float similarity = dot(vectors, offset, vectors, current * this.dimension, this.dimension);
+        for (int l = this.topLevel; l > level; l--) {
+            current = this.greedy(vectors, offset, current, similarity, l);
+            similarity = dot(vectors, offset, vectors, current * this.dimension, this.dimension);
+        }
+        for (int l = Math.min(level, this.topLevel); l >= 0; l--) {
+            int count = this.searchLevel(context, vectors, offset, current, similarity, this.constructionBeam, l, false);
+            current = context.resultIds[0];
+            similarity = context.resultSimilarities[0];
+            int[] neighbours = this.selectNeighbours(context.resultIds, context.resultSimilarities, count, this.maxLinks);
+            int[] links = l == 0 ? this.links0 : this.upperLinks[id];
+            int start = this.linksStart(id, l);
+            links[start] = neighbours.length;
+            System.arraycopy(neighbours, 0, links, start + 1, neighbours.length);
+            for (int neighbour : neighbours) {
+                this.link(neighbour, id, l);
+            }
+        }
+        if (level > this.topLevel) {
+            this.entryPoint = id;
+            this.topLevel = level;
+        }
+    }
+
+    /**
+     * rebuilds the graph from the vectors of the live nodes, dropping all dead nodes. must be called holding the write lock.
+     */
+    private void compact(SearchContext context) {
+        float[] vectors = this.vectors;
+        List<Q> questions = new ArrayList<>(this.questions);
+        int capacity = Math.max(INITIAL_CAPACITY, questions.size() - this.removedCount);
+        this.vectors = new float[capacity * this.dimension];
+        this.links0 = new int[capacity * (this.maxLinks0 + 1)];
+        this.upperLinks = new int[capacity][];
+        this.questions.clear();
+        this.questions.trimToSize();
+        this.ids.clear();
+        this.entryPoint = -1;
+        this.topLevel = -1;
+        this.removedCount = 0;
+        for (int id = 0; id < questions.size(); id++) {
+            Q question = questions.get(id);
+            if (question == null) continue;
+            System.arraycopy(vectors, id * this.dimension, context.query, 0, this.dimension);
+            this.insert(question, context);
+        }
+    }
+
+    /**
+     * links the node to the new node on the given level, pruning its links by the neighbour heuristic once they exceed the maximum.
+     */
+    private void link(int node, int newNode, int level) {
+        int[] links = level == 0 ? this.links0 : this.upperLinks[node];
+        int start = this.linksStart(node, level);
+        int count = links[start];
+        int max = level == 0 ? this.maxLinks0 : this.maxLinks;
+        if (count < max) {
+            links[start + 1 + count] = newNode;
+            links[start] = count + 1;
+            return;
+        }
+        int[] candidates = new int[count + 1];
+        float[] similarities = new float[count + 1];
+        System.arraycopy(links, start + 1, candidates, 0, count);
+        candidates[count] = newNode;
+        int offset = node * this.dimension;
+        for (int i = 0; i <= count; i++) {
+            similarities[i] = dot(this.vectors, offset, this.vectors, candidates[i] * this.dimension, this.dimension);
+        }
+        sortDescending(candidates, similarities, count + 1);
+        int[] selected = this.selectNeighbours(candidates, similarities, count + 1, max);
+        links[start] = selected.length;
+        System.arraycopy(selected, 0, links, start + 1, selected.length);
+    }
+
+    /**
+     * selects the neighbours of a node among the candidates sorted by descending similarity to it:
+     * a candidate is skipped if it is more similar to a neighbour selected already than to the node,
+     * so the links point into different directions instead of all into the nearest cluster.
+     */
+    private int[] selectNeighbours(int[] candidates, float[] similarities, int count, int max) {
+        int[] selected = new int[Math.min(count, max)];
+        int selectedCount = 0;
+        for (int i = 0; i < count && selectedCount < selected.length; i++) {
+            int candidateOffset = candidates[i] * this.dimension;
+            boolean diverse = true;
+            for (int j = 0; j < selectedCount && diverse; j++) {
+                diverse = dot(this.vectors, candidateOffset, this.vectors, selected[j] * this.dimension, this.dimension) <= similarities[i];
+            }
+            if (diverse) selected[selectedCount++] = candidates[i];
+        }
+        return selectedCount == selected.length ? selected : Arrays.copyOf(selected, selectedCount);
+    }
+
+    /**
+     * moves from the given node to its most similar neighbour on the given level until no neighbour is more similar.
+     * @return the most similar node found.
+     */
+    private int greedy(float[] query, int queryOffset, int node, float similarity, int level) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] links = this.upperLinks[node];
+            int start = this.linksStart(node, level);
+            for (int i = start + 1, end = start + 1 + links[start]; i < end; i++) {
+                int neighbour = links[i];
+                float neighbourSimilarity = dot(query, queryOffset, this.vectors, neighbour * this.dimension, this.dimension);
+                if (neighbourSimilarity > similarity) {
+                    similarity = neighbourSimilarity;
+                    node = neighbour;
+                    changed = true;
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * searches the nearest nodes of the query on one level, starting from the given node with a beam of the given width.
+     * @param liveOnly true to expand the dead nodes like live ones without returning them.
+     * @return the number of nodes found, at most the width of the beam, stored in the results of the context, the most similar first.
+     */
+    private int searchLevel(SearchContext context, float[] query, int queryOffset, int entry, float entrySimilarity, int beam, int level, boolean liveOnly) {
+        context.startSearch(this.questions.size(), beam);
+        NodeHeap candidates = context.candidates;
+        NodeHeap results = context.results;
+        context.visit(entry);
+        candidates.push(entry, entrySimilarity);
+        if (!liveOnly || this.questions.get(entry) != null) results.push(entry, -entrySimilarity);
+        while (candidates.size() > 0) {
+            float similarity = candidates.topKey();
+            int node = candidates.pop();
+            if (results.size() >= beam && similarity < -results.topKey()) break;
+            int[] links = level == 0 ? this.links0 : this.upperLinks[node];
+            int start = this.linksStart(node, level);
+            for (int i = start + 1, end = start + 1 + links[start]; i < end; i++) {
+                int neighbour = links[i];
+                if (!context.visit(neighbour)) continue;
+                float neighbourSimilarity = dot(query, queryOffset, this.vectors, neighbour * this.dimension, this.dimension);
+                if (results.size() < beam || neighbourSimilarity > -results.topKey()) {
+                    candidates.push(neighbour, neighbourSimilarity);
+                    if (liveOnly && this.questions.get(neighbour) == null) continue;
+                    results.push(neighbour, -neighbourSimilarity);
+                    if (results.size() > beam) results.pop();
+                }
+            }
+        }
+        //the results heap pops the least similar node first.
+        int count = results.size();
+        for (int i = count - 1; i >= 0; i--) {
+            context.resultSimilarities[i] = -results.topKey();
+            context.resultIds[i] = results.pop();
+        }
+        return count;
+    }
+
+    /**
+     * @return the index of the count of the links of the node on the given level, followed by the links.
+     */
+    private int linksStart(int node, int level) {
+        return level == 0 ? node * (this.maxLinks0 + 1) : (level - 1) * (this.maxLinks + 1);
+    }
+
+    /**
+     * grows the arrays to hold at least the given number of nodes.
+     */
+    private void ensureCapacity(int capacity) {
+        int current = this.upperLinks.length;
+        if (capacity <= current) return;
+        int grown = Math.max(capacity, current + (current >> 1));
+        this.vectors = Arrays.copyOf(this.vectors, grown * this.dimension);
+        this.links0 = Arrays.copyOf(this.links0, grown * (this.maxLinks0 + 1));
+        this.upperLinks = Arrays.copyOf(this.upperLinks, grown);
+    }
+
+    /**
+     * computes the dot product of two vectors packed into arrays, with four sums to overlap the additions.
+     */
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (int end = dimension & ~3; i < end; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < dimension; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * sorts the ids by descending similarity, an insertion sort for the few links of a node.
+     */
+    private static void sortDescending(int[] ids, float[] similarities, int count) {
+        for (int i = 1; i < count; i++) {
+            int id = ids[i];
+            float similarity = similarities[i];
+            int j = i - 1;
+            for (; j >= 0 && similarities[j] < similarity; j--) {
+                ids[j + 1] = ids[j];
+                similarities[j + 1] = similarities[j];
+            }
+            ids[j + 1] = id;
+            similarities[j + 1] = similarity;
+        }
+    }
+
+    /**
+     * The buffers of the searches of one thread, reused to search without allocating.
+     */
+    private static final class SearchContext {
+
+        //the vector of the question searched.
+        final float[] query;
+
+        //the nodes to expand, the most similar on top, and the nodes found, the least similar on top.
+        final NodeHeap candidates = new NodeHeap();
+        final NodeHeap results = new NodeHeap();
+
+        //the nodes found by the last search, the most similar first.
+        int[] resultIds = new int[0];
+        float[] resultSimilarities = new float[0];
+
+        //the generation each node was last visited in, and the generation of the current search.
+        private int[] visited = new int[0];
+        private int generation;
+
+        SearchContext(int dimension) {
+            this.query = new float[dimension];
+        }
+
+        /**
+         * starts a new search over the given number of nodes with a beam of the given width.
+         */
+        void startSearch(int nodeCount, int beam) {
+            if (this.visited.length < nodeCount) this.visited = new int[Math.max(nodeCount, this.visited.length + (this.visited.length >> 1))];
+            if (++this.generation == 0) {
+                Arrays.fill(this.visited, 0);
+                this.generation = 1;
+            }
+            if (this.resultIds.length < beam) {
+                this.resultIds = new int[beam];
+                this.resultSimilarities = new float[beam];
+            }
+            this.candidates.clear();
+            this.results.clear();
+        }
+
+        /**
+         * @return true if the node is visited for the first time in the current search.
+         */
+        boolean visit(int node) {
+            if (this.visited[node] == this.generation) return false;
+            this.visited[node] = this.generation;
+            return true;
+        }
+    }
+
+    /**
+     * A binary heap of node ids with float keys, the highest key on top, without boxing.
+     */
+    private static final class NodeHeap {
+
+        private int[] nodes = new int[64];
+        private float[] keys = new float[64];
+        private int size;
+
+        int size() {
+            return this.size;
+        }
+
+        void clear() {
+            this.size = 0;
+        }
+
+        float topKey() {
+            return this.keys[0];
+        }
+
+        void push(int node, float key) {
+            if (this.size == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            }
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (this.keys[parent] >= key) break;
+                this.nodes[i] = this.nodes[parent];
+                this.keys[i] = this.keys[parent];
+                i = parent;
+            }
+            this.nodes[i] = node;
+            this.keys[i] = key;
+        }
+
+        int pop() {
+            int top = this.nodes[0];
+            int last = this.nodes[--this.size];
+            float key = this.keys[this.size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.size) break;
+                if (child + 1 < this.size && this.keys[child + 1] > this.keys[child]) child++;
+                if (this.keys[child] <= key) break;
+                this.nodes[i] = this.nodes[child];
+                this.keys[i] = this.keys[child];
+                i = child;
+            }
+            this.nodes[i] = last;
+            this.keys[i] = key;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.cgm.at.knowledgebase.index;
+
+import com.cgm.at.knowledgebase.api.IQuestionMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An {@link IQuestionMatcher} consulting several matchers in order, e.g. a cheap matcher of case variants and typos
+ * before a matcher of questions similar in meaning. The match of the first matcher finding one is returned.
+ * Every matcher is passed all knowledge added, so each keeps its own index in sync.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question.
+ * @param <A> Generic type of Answer.
+ */
+public class QuestionMatcherChain<Q, A> implements IQuestionMatcher<Q, A> {
+
+    //the matchers in the order they are consulted.
+    private final List<IQuestionMatcher<Q, A>> matchers;
+
+    /**
+     * initializes the chain with the given matchers.
+     * @param matchers the matchers in the order they are consulted.
+     */
+    @SafeVarargs
+    public QuestionMatcherChain(IQuestionMatcher<Q, A>... matchers) {
+        //copied element by element, as passing the generic array on to List.of is not type safe.
+        List<IQuestionMatcher<Q, A>> chain = new ArrayList<>(matchers.length);
+        for (IQuestionMatcher<Q, A> matcher : matchers) {
+            chain.add(Objects.requireNonNull(matcher));
+        }
+        this.matchers = Collections.unmodifiableList(chain);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the knowledge is passed to every matcher.
+     */
+    @Override
+    public void knowledgeAdded(Q question, List<A> answers) {
+        for (IQuestionMatcher<Q, A> matcher : this.matchers) {
+            matcher.knowledgeAdded(question, answers);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the removal is passed to every matcher.
+     */
+    @Override
+    public void knowledgeRemoved(Q question) {
+        for (IQuestionMatcher<Q, A> matcher : this.matchers) {
+            matcher.knowledgeRemoved(question);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the matchers are consulted in order until one finds a match.
+     */
+    @Override
+    public Q match(Q question) {
+        for (IQuestionMatcher<Q, A> matcher : this.matchers) {
+            Q match = matcher.match(question);
+            if (match != null) return match;
+        }
+        return null;
+    }
+}
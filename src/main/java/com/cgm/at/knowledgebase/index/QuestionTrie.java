@@ -0,0 +1,277 @@
+package com.cgm.at.knowledgebase.index;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A radix trie over the stored textual questions, suggesting the stored questions starting with a given prefix.
+ *
+ * Every edge of the trie is labeled with a string instead of a single character, chains of nodes with one child
+ * are therefore merged into one node and the trie needs at most 2 * n nodes for n questions.
+ * The children of a node are kept in an array sorted by the first character of their label,
+ * so a suggestion walks down the prefix with a binary search per node and collects the completions in lexicographic order,
+ * stopping as soon as the limit is reached. Its cost depends on the length of the prefix and the completions returned,
+ * not on the number of stored questions.
+ * Removing a question prunes the nodes no longer leading to a question and merges the chains left behind,
+ * so the trie shrinks again as expired questions are removed.
+ * Suggestions share a read lock, adding and removing questions takes the write lock.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class QuestionTrie implements IKnowledgeListener<String, String> {
+
+    //the root node, labeled with the empty string.
+    private final Node root = new Node("");
+
+    //the number of distinct questions contained.
+    private int size;
+
+    //guards all nodes of the trie.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * {@inheritDoc}
+     * inserts the question into the trie if it is not contained yet.
+     */
+    @Override
+    public void knowledgeAdded(String question, List<String> answers) {
+        this.lock.writeLock().lock();
+        try {
+            this.insert(question);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * removes the question from the trie, so it is not suggested anymore.
+     */
+    @Override
+    public void knowledgeRemoved(String question) {
+        this.lock.writeLock().lock();
+        try {
+            this.remove(question);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * suggests the stored questions starting with the given prefix.
+     * @param prefix the prefix the questions must start with, the empty prefix matches all questions.
+     * @param limit the maximum number of questions to return.
+     * @return at most limit stored questions starting with the prefix, in lexicographic order.
+     * @throws IllegalArgumentException thrown if the prefix is null or the limit is negative.
+     */
+    public List<String> suggest(String prefix, int limit) throws IllegalArgumentException {
+        if (prefix == null) throw new IllegalArgumentException("The prefix must not be null!");
+        if (limit < 0) throw new IllegalArgumentException("The limit must not be negative!");
+        if (limit == 0) return Collections.emptyList();
+        this.lock.readLock().lock();
+        try {
+            StringBuilder path = new StringBuilder(prefix.length() + 32);
+            Node node = this.root;
+            int i = 0;
+            while (i < prefix.length()) {
+                Node child = node.child(prefix.charAt(i));
+                if (child == null) return Collections.emptyList();
+                int length = Math.min(child.label.length(), prefix.length() - i);
+                if (!child.label.regionMatches(0, prefix, i, length)) return Collections.emptyList();
+                path.append(child.label);
+                i += length;
+                node = child;
+            }
+            List<String> suggestions = new ArrayList<>(Math.min(limit, 16));
+            collect(node, path, suggestions, limit);
+            return suggestions;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct questions contained.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * inserts a question, splitting the edge at which it diverges from the stored questions.
+     * must be called holding the write lock.
+     */
+    private void insert(String question) {
+        Node node = this.root;
+        int i = 0;
+        while (i < question.length()) {
+            int index = node.indexOf(question.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(question.substring(i));
+                leaf.terminal = true;
+                node.insertChild(-index - 1, leaf);
+                this.size++;
+                return;
+            }
+            Node child = node.children[index];
+            int common = 1;
+            int max = Math.min(child.label.length(), question.length() - i);
+            while (common < max && child.label.charAt(common) == question.charAt(i + common)) common++;
+            if (common < child.label.length()) {
+                //split the edge at the first character not shared.
+                Node middle = new Node(child.label.substring(0, common), child);
+                child.label = child.label.substring(common);
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        if (!node.terminal) {
+            node.terminal = true;
+            this.size++;
+        }
+    }
+
+    /**
+     * removes a question, pruning its node if it has no children and merging the nodes left with a single child into it.
+     * must be called holding the write lock.
+     */
+    private void remove(String question) {
+        Node grandparent = null;
+        Node parent = null;
+        int parentIndex = -1;
+        Node node = this.root;
+        int index = -1;
+        int i = 0;
+        while (i < question.length()) {
+            int childIndex = node.indexOf(question.charAt(i));
+            if (childIndex < 0) return;
+            Node child = node.children[childIndex];
+            if (!question.startsWith(child.label, i)) return;
+            grandparent = parent;
+            parent = node;
+            parentIndex = index;
+            node = child;
+            index = childIndex;
+            i += child.label.length();
+        }
+        if (!node.terminal) return;
+        node.terminal = false;
+        this.size--;
+        if (parent == null) return;
+        if (node.childCount == 1) {
+            merge(parent, index);
+        } else if (node.childCount == 0) {
+            parent.removeChild(index);
+            if (grandparent != null && !parent.terminal && parent.childCount == 1) merge(grandparent, parentIndex);
+        }
+    }
+
+    /**
+     * replaces the child at the index by its only child, prepending the label of the child to the label of its child.
+     */
+    private static void merge(Node node, int index) {
+        Node child = node.children[index];
+        Node grandchild = child.children[0];
+        grandchild.label = child.label + grandchild.label;
+        node.children[index] = grandchild;
+    }
+
+    /**
+     * collects the questions below the node in lexicographic order until the limit is reached.
+     * @return true if the limit is reached.
+     */
+    private static boolean collect(Node node, StringBuilder path, List<String> suggestions, int limit) {
+        if (node.terminal) {
+            suggestions.add(path.toString());
+            if (suggestions.size() == limit) return true;
+        }
+        int length = path.length();
+        for (int i = 0; i < node.childCount; i++) {
+            Node child = node.children[i];
+            path.append(child.label);
+            boolean full = collect(child, path, suggestions, limit);
+            path.setLength(length);
+            if (full) return true;
+        }
+        return false;
+    }
+
+    /**
+     * A node of the trie, labeled with the characters of the edge leading to it.
+     */
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+        private boolean terminal;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node(String label, Node child) {
+            this(label);
+            this.children = new Node[] {child};
+            this.childCount = 1;
+        }
+
+        /**
+         * @return the child whose label starts with the character, or null.
+         */
+        Node child(char c) {
+            int index = this.indexOf(c);
+            return index < 0 ? null : this.children[index];
+        }
+
+        /**
+         * binary searches the child whose label starts with the character.
+         * @return the index of the child, or (-(insertion point) - 1) if there is none.
+         */
+        int indexOf(char c) {
+            int low = 0;
+            int high = this.childCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char first = this.children[middle].label.charAt(0);
+                if (first < c) {
+                    low = middle + 1;
+                } else if (first > c) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertChild(int index, Node child) {
+            if (this.childCount == this.children.length) {
+                this.children = Arrays.copyOf(this.children, Math.max(2, this.childCount * 2));
+            }
+            System.arraycopy(this.children, index, this.children, index + 1, this.childCount - index);
+            this.children[index] = child;
+            this.childCount++;
+        }
+
+        void removeChild(int index) {
+            System.arraycopy(this.children, index + 1, this.children, index, this.childCount - index - 1);
+            this.children[--this.childCount] = null;
+        }
+    }
+}
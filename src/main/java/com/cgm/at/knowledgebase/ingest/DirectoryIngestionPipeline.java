@@ -0,0 +1,580 @@
+package com.cgm.at.knowledgebase.ingest;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests the question lines of the text files in a directory into a knowledge base while the files are written,
+ * one question line per line in the format {@code <question>? "<answer1>" ... "<answerX>"}.
+ *
+ * The pipeline consists of two stages connected by a bounded queue. The tailer watches the directory with a {@link WatchService},
+ * reads the bytes appended to a created or modified file since its last offset and splits the complete lines into batches.
+ * The applier adds every batch with {@link IKnowledgeService#addKnowledgeBatch(java.util.stream.Stream)},
+ * so the lines are parsed and validated in parallel and merged at once, while the tailer already reads the next batch.
+ * A line is ingested once its line break is written, a trailing line without a line break waits for it.
+ * Files whose name starts with a dot are ignored, e.g. the default checkpoint file and temporary files of editors.
+ *
+ * Once the batches taken from the queue are added, the offsets following their last line are written to a checkpoint file,
+ * which is read again on the next start, so only the bytes appended while the pipeline was stopped are read.
+ * A file that is truncated or replaced by another file of the same name is ingested again from its start.
+ * As the offsets are checkpointed after the lines are added, a crash may add the lines of the last batches twice,
+ * which replaces their answers by the same answers. Rejected lines are reported with the line number in their file.
+ * If a stage fails, the pipeline stops and the failure is thrown by {@link #close()} and {@link #awaitOffset(Path, long, Duration)}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class DirectoryIngestionPipeline implements AutoCloseable {
+
+    //the default number of bytes read from a file into one batch.
+    public static final int DEFAULT_BATCH_BYTES = 1 << 20;
+
+    //the default name of the checkpoint file in the watched directory.
+    public static final String DEFAULT_CHECKPOINT_FILE = ".knowledge-ingestion.checkpoint";
+
+    //the number of batches read ahead of the batch added.
+    static final int MAX_PENDING_BATCHES = 4;
+
+    //the time without events after which the whole directory is scanned for changes missed by the watch service.
+    static final long RESCAN_INTERVAL_MILLIS = 1000;
+
+    //the batch marking the end of the batches read by the tailer.
+    private static final Batch END = new Batch(null, 0, null, null);
+
+    //the knowledge base the lines are added to.
+    private final IKnowledgeService<String, String, String> knowledgeService;
+
+    //the watched directory.
+    private final Path directory;
+
+    //the path of the checkpoint file and of its temporary file, null if the offsets are kept in memory only.
+    private final Path checkpointFile;
+    private final Path temporaryCheckpointFile;
+
+    //the consumer of the report of every batch added, may be null.
+    private final BiConsumer<Path, ImportReport> reportConsumer;
+
+    //the number of bytes read from a file into one batch.
+    private final int batchBytes;
+
+    //the watch service of the directory.
+    private final WatchService watchService;
+
+    //the batches read by the tailer and not yet taken by the applier.
+    private final BlockingQueue<Batch> pending = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+
+    //the offsets of the lines added, guarded by the lock.
+    private final IngestionCheckpoint checkpoint;
+
+    //the offsets of the lines read by the tailer, only accessed by the tailer.
+    private final Map<String, IngestionCheckpoint.Position> readPositions;
+
+    //guards the checkpoint, signalled whenever batches are added or the pipeline fails.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition added = this.lock.newCondition();
+
+    //the buffer the tailer reads the files through, grown for lines longer than a batch.
+    private ByteBuffer buffer;
+
+    //the number of lines added and rejected.
+    private volatile long ingestedCount;
+    private volatile long failedCount;
+
+    //the failure that stopped the pipeline, null while it works.
+    private volatile Exception failure;
+
+    //true once the pipeline is closed.
+    private volatile boolean closed;
+
+    //the threads of the stages, null until the pipeline is started.
+    private Thread tailer;
+    private Thread applier;
+
+    /**
+     * initializes the pipeline for the given directory with the default checkpoint file in the directory and the default batch size.
+     * @param knowledgeService the thread-safe knowledge base the lines are added to.
+     * @param directory the directory to watch.
+     * @param reportConsumer the consumer of the file and report of every batch added, called on the applier thread, may be null.
+     * @throws KnowledgeBaseException thrown if the directory cannot be watched or the checkpoint cannot be read.
+     */
+    public DirectoryIngestionPipeline(IKnowledgeService<String, String, String> knowledgeService, Path directory,
+                                      BiConsumer<Path, ImportReport> reportConsumer) throws KnowledgeBaseException {
+        this(knowledgeService, directory, directory.resolve(DEFAULT_CHECKPOINT_FILE), DEFAULT_BATCH_BYTES, reportConsumer);
+    }
+
+    /**
+     * initializes the pipeline with the parameters given.
+     * @param knowledgeService the thread-safe knowledge base the lines are added to.
+     * @param directory the directory to watch.
+     * @param checkpointFile the file the offsets are checkpointed in, or null to keep them in memory only,
+     *                       e.g. if the knowledge base is not persisted and all files have to be ingested again on the next start.
+     * @param batchBytes the number of bytes read from a file into one batch, a longer line is read into a batch of its own.
+     * @param reportConsumer the consumer of the file and report of every batch added, called on the applier thread, may be null.
+     * @throws KnowledgeBaseException thrown if the directory cannot be watched or the checkpoint cannot be read.
+     */
+    public DirectoryIngestionPipeline(IKnowledgeService<String, String, String> knowledgeService, Path directory, Path checkpointFile,
+                                      int batchBytes, BiConsumer<Path, ImportReport> reportConsumer) throws KnowledgeBaseException {
+        if (batchBytes < 1) throw new IllegalArgumentException("The batch size must be positive!");
+        if (!Files.isDirectory(directory)) throw new IllegalArgumentException("The path " + directory + " is not a directory!");
+        this.knowledgeService = knowledgeService;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.checkpointFile = checkpointFile == null ? null : checkpointFile.toAbsolutePath().normalize();
+        this.temporaryCheckpointFile = checkpointFile == null ? null : this.checkpointFile.resolveSibling(this.checkpointFile.getFileName() + ".tmp");
+        this.batchBytes = batchBytes;
+        this.reportConsumer = reportConsumer;
+        this.buffer = ByteBuffer.allocate(batchBytes);
+        try {
+            this.checkpoint = new IngestionCheckpoint(this.checkpointFile);
+            this.readPositions = new HashMap<>(this.checkpoint.getPositions());
+            this.watchService = this.directory.getFileSystem().newWatchService();
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while opening the ingestion of directory " + directory + ": " + e.getMessage(), e);
+        }
+        try {
+            this.directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            try {
+                this.watchService.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new KnowledgeBaseException("Error while watching directory " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * starts the stages, the files are scanned first for the bytes appended since the last checkpoint.
+     * @throws IllegalStateException thrown if the pipeline is started twice or already closed.
+     */
+    public synchronized void start() {
+        if (this.tailer != null || this.closed) throw new IllegalStateException("The pipeline can only be started once!");
+        this.applier = new Thread(this::applyLoop, "knowledge-ingestion-applier");
+        this.applier.setDaemon(true);
+        this.applier.start();
+        this.tailer = new Thread(this::tailLoop, "knowledge-ingestion-tailer");
+        this.tailer.setDaemon(true);
+        this.tailer.start();
+    }
+
+    /**
+     * Gets the offset of a file
+     * @param file the path of a file in the watched directory.
+     * @return the offset in bytes up to which the lines of the file are added to the knowledge base.
+     */
+    public long getOffset(Path file) {
+        this.lock.lock();
+        try {
+            IngestionCheckpoint.Position position = this.checkpoint.get(file.getFileName().toString());
+            return position == null ? 0 : position.offset;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * waits until the lines of the given file are added up to the given offset, e.g. up to the size of a file just written.
+     * @param file the path of a file in the watched directory.
+     * @param offset the offset in bytes, following a line break of the file.
+     * @param timeout the maximum time to wait.
+     * @return true if the lines are added up to the offset, false if the time elapsed before.
+     * @throws KnowledgeBaseException thrown if the pipeline failed.
+     * @throws InterruptedException thrown if the thread is interrupted while waiting.
+     */
+    public boolean awaitOffset(Path file, long offset, Duration timeout) throws KnowledgeBaseException, InterruptedException {
+        String fileName = file.getFileName().toString();
+        long nanos = timeout.toNanos();
+        this.lock.lock();
+        try {
+            while (true) {
+                this.checkFailure();
+                IngestionCheckpoint.Position position = this.checkpoint.get(fileName);
+                if (position != null && position.offset >= offset) return true;
+                if (nanos <= 0) return false;
+                nanos = this.added.awaitNanos(nanos);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the ingested count
+     * @return the number of lines added to the knowledge base.
+     */
+    public long getIngestedCount() {
+        return this.ingestedCount;
+    }
+
+    /**
+     * Gets the failed count
+     * @return the number of lines rejected.
+     */
+    public long getFailedCount() {
+        return this.failedCount;
+    }
+
+    /**
+     * stops watching the directory, adds the batches read already and waits for the stages to stop.
+     * @throws KnowledgeBaseException thrown if the pipeline failed.
+     */
+    @Override
+    public void close() throws KnowledgeBaseException {
+        Thread tailer;
+        Thread applier;
+        synchronized (this) {
+            if (this.closed) return;
+            this.closed = true;
+            tailer = this.tailer;
+            applier = this.applier;
+        }
+        try {
+            this.watchService.close();
+        } catch (IOException e) {
+            this.fail(e);
+        }
+        boolean interrupted = false;
+        for (Thread thread : new Thread[]{tailer, applier}) {
+            while (thread != null && thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        this.lock.lock();
+        try {
+            this.checkFailure();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * the loop of the tailer: scans the directory once, then reads the files the watch service reports as changed,
+     * and scans the directory again if events were lost or no event arrived for a while.
+     */
+    private void tailLoop() {
+        try {
+            this.scanDirectory();
+            while (!this.closed && this.failure == null) {
+                WatchKey key = this.watchService.poll(RESCAN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    this.scanDirectory();
+                    continue;
+                }
+                //the events of all keys available are collected first, so a file modified repeatedly is read once.
+                Set<String> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+                for (; key != null; key = this.watchService.poll()) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            changed.add(event.context().toString());
+                        }
+                    }
+                    if (!key.reset()) throw new IOException("The directory " + this.directory + " cannot be watched anymore.");
+                }
+                if (overflow) {
+                    this.scanDirectory();
+                } else {
+                    for (String fileName : changed) this.tail(fileName);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            //the pipeline is closed.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            this.fail(e);
+        } finally {
+            this.enqueue(END);
+        }
+    }
+
+    /**
+     * reads the changes of all files of the directory, and forgets the offsets of the files deleted.
+     */
+    private void scanDirectory() throws IOException, InterruptedException {
+        Set<String> fileNames = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path file : files) {
+                fileNames.add(file.getFileName().toString());
+            }
+        }
+        for (String fileName : fileNames) {
+            if (this.closed) return;
+            this.tail(fileName);
+        }
+        List<String> deleted = this.readPositions.keySet().stream().filter(fileName -> !fileNames.contains(fileName)).collect(Collectors.toList());
+        for (String fileName : deleted) this.forget(fileName);
+    }
+
+    /**
+     * reads the lines appended to the given file since its last offset and queues them in batches of complete lines.
+     */
+    private void tail(String fileName) throws IOException, InterruptedException {
+        Path file = this.directory.resolve(fileName);
+        if (fileName.startsWith(".") || file.equals(this.checkpointFile) || file.equals(this.temporaryCheckpointFile)) return;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            this.forget(fileName);
+            return;
+        }
+        if (!attributes.isRegularFile()) return;
+        String fileKey = attributes.fileKey() == null ? IngestionCheckpoint.NO_FILE_KEY : attributes.fileKey().toString();
+        IngestionCheckpoint.Position position = this.readPositions.get(fileName);
+        //a file replaced or truncated is ingested again from its start.
+        if (position == null || !position.fileKey.equals(fileKey) || attributes.size() < position.offset) {
+            position = new IngestionCheckpoint.Position(0, 0, fileKey);
+        }
+        if (attributes.size() == position.offset) {
+            this.readPositions.put(fileName, position);
+            return;
+        }
+        long offset = position.offset;
+        long lineNumber = position.lineNumber;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.buffer.clear();
+            boolean endOfFile = false;
+            while (!endOfFile && !this.closed) {
+                //the buffer holds the bytes from the offset on, the bytes following the last line break of the previous batch first.
+                while (this.buffer.hasRemaining()) {
+                    if (channel.read(this.buffer, offset + this.buffer.position()) <= 0) {
+                        endOfFile = true;
+                        break;
+                    }
+                }
+                int end = lastLineBreak(this.buffer) + 1;
+                if (end == 0) {
+                    if (!endOfFile) this.buffer = ByteBuffer.allocate(this.buffer.capacity() * 2).put(this.buffer.flip());
+                    continue;
+                }
+                List<String> lines = splitLines(this.buffer.array(), end);
+                offset += end;
+                lineNumber += lines.size();
+                IngestionCheckpoint.Position read = new IngestionCheckpoint.Position(offset, lineNumber, fileKey);
+                if (!this.enqueue(new Batch(fileName, lineNumber - lines.size() + 1, lines, read))) return;
+                this.readPositions.put(fileName, read);
+                this.buffer.limit(this.buffer.position()).position(end);
+                this.buffer.compact();
+            }
+        } catch (NoSuchFileException e) {
+            this.forget(fileName);
+        } finally {
+            if (this.buffer.capacity() > this.batchBytes) this.buffer = ByteBuffer.allocate(this.batchBytes);
+        }
+    }
+
+    /**
+     * forgets the offset of a deleted file, so a new file of the same name is ingested from its start.
+     */
+    private void forget(String fileName) {
+        if (this.readPositions.remove(fileName) != null) this.enqueue(new Batch(fileName, 0, null, null));
+    }
+
+    /**
+     * queues the batch for the applier, waiting while the queue is full.
+     * @return true if the batch is queued, false if the pipeline failed, in which case the applier discards all batches.
+     */
+    private boolean enqueue(Batch batch) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (this.pending.offer(batch, RESCAN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) return true;
+                    if (this.failure != null && batch != END) return false;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * the loop of the applier: adds all batches queued, then checkpoints their offsets once, until the end is taken.
+     * after a failure the batches are taken and discarded, so the tailer never waits for a full queue.
+     */
+    private void applyLoop() {
+        List<Batch> batches = new ArrayList<>(MAX_PENDING_BATCHES);
+        boolean end = false;
+        while (!end) {
+            try {
+                batches.add(this.pending.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            this.pending.drainTo(batches);
+            end = batches.get(batches.size() - 1) == END;
+            if (this.failure == null) {
+                try {
+                    this.apply(batches);
+                } catch (KnowledgeBaseException | IOException | RuntimeException e) {
+                    this.fail(e);
+                }
+            }
+            batches.clear();
+        }
+    }
+
+    /**
+     * adds the lines of the batches to the knowledge base and checkpoints their offsets.
+     */
+    private void apply(List<Batch> batches) throws KnowledgeBaseException, IOException {
+        List<ImportReport> reports = new ArrayList<>(batches.size());
+        for (Batch batch : batches) {
+            if (batch.lines == null) {
+                reports.add(null);
+                continue;
+            }
+            ImportReport report = this.knowledgeService.addKnowledgeBatch(batch.lines.stream());
+            reports.add(shiftLineNumbers(report, batch.firstLineNumber - 1));
+            this.ingestedCount += report.getImportedCount();
+            this.failedCount += report.getFailedCount();
+        }
+        //the reports are handed out before the offsets are checkpointed, so they are complete once an offset is awaited.
+        for (int i = 0; i < batches.size() && this.reportConsumer != null; i++) {
+            if (reports.get(i) != null) this.reportConsumer.accept(this.directory.resolve(batches.get(i).fileName), reports.get(i));
+        }
+        this.lock.lock();
+        try {
+            for (Batch batch : batches) {
+                if (batch != END) this.checkpoint.put(batch.fileName, batch.position);
+            }
+            this.checkpoint.save();
+            this.added.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * stops the pipeline with the given failure, unless it failed before.
+     */
+    private void fail(Exception e) {
+        this.lock.lock();
+        try {
+            if (this.failure == null) this.failure = e;
+            this.added.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * throws the failure of the pipeline, if there is one, must be called holding the lock.
+     */
+    private void checkFailure() throws KnowledgeBaseException {
+        if (this.failure == null) return;
+        throw new KnowledgeBaseException("Error while ingesting directory " + this.directory + ": " + this.failure.getMessage(), this.failure);
+    }
+
+    /**
+     * @return the index of the last line break among the bytes read into the buffer, or -1 if there is none.
+     */
+    private static int lastLineBreak(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        for (int i = buffer.position() - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * decodes the UTF-8 lines ending before the given index, a line break of the form \r\n is removed as a whole.
+     * a line break byte never occurs within a multi-byte UTF-8 sequence, so the bytes are split before decoding.
+     */
+    private static List<String> splitLines(byte[] bytes, int end) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] != '\n') continue;
+            int lineEnd = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+            lines.add(new String(bytes, start, lineEnd - start, StandardCharsets.UTF_8));
+            start = i + 1;
+        }
+        return lines;
+    }
+
+    /**
+     * @return a report equal to the given one, with the line numbers of the errors shifted by the given number of lines.
+     */
+    private static ImportReport shiftLineNumbers(ImportReport report, long shift) {
+        if (shift == 0 || report.getErrors().isEmpty()) return report;
+        List<ImportReport.ImportError> errors = report.getErrors().stream()
+                .map(error -> new ImportReport.ImportError(error.getLineNumber() + shift, error.getMessage()))
+                .collect(Collectors.toList());
+        return new ImportReport(report.getTotalCount(), report.getImportedCount(), report.getFailedCount(), errors,
+                report.getParseTime(), report.getMergeTime(), report.getElapsedTime());
+    }
+
+    /**
+     * The complete lines read from one file, or the marker to forget a deleted file if the lines are null.
+     */
+    private static final class Batch {
+
+        //the name of the file in the watched directory.
+        final String fileName;
+
+        //the line number of the first line in the file.
+        final long firstLineNumber;
+
+        //the lines without their line breaks, null to forget the file.
+        final List<String> lines;
+
+        //the position following the last line, null to forget the file.
+        final IngestionCheckpoint.Position position;
+
+        /**
+         * initializes the batch with the parameters given.
+         * @param fileName the name of the file in the watched directory.
+         * @param firstLineNumber the line number of the first line in the file.
+         * @param lines the lines without their line breaks, null to forget the file.
+         * @param position the position following the last line, null to forget the file.
+         */
+        Batch(String fileName, long firstLineNumber, List<String> lines, IngestionCheckpoint.Position position) {
+            this.fileName = fileName;
+            this.firstLineNumber = firstLineNumber;
+            this.lines = lines;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.cgm.at.knowledgebase.ingest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The offsets up to which the files of a watched directory are ingested, kept in a small text file.
+ * Every line of the file holds the position of one file: {@code <offset>\t<lineNumber>\t<fileKey>\t<fileName>}.
+ * The file key identifies the file on the file system, e.g. by its inode, so a file replaced under the same name is ingested again.
+ * The checkpoint is written to a temporary file, forced and then moved over the old one atomically,
+ * so a crash leaves either the old or the new checkpoint. Without a file, the positions are kept in memory only.
+ * A checkpoint is not thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class IngestionCheckpoint {
+
+    //the first line of every checkpoint file.
+    private static final String HEADER = "knowledge-ingestion-checkpoint 1";
+
+    //the file key written for files the file system does not provide a key for.
+    static final String NO_FILE_KEY = "-";
+
+    //the path of the checkpoint file, null if the positions are kept in memory only.
+    private final Path file;
+
+    //the positions by file name.
+    private final Map<String, Position> positions = new HashMap<>();
+
+    /**
+     * loads the checkpoint from the given file, an absent file is an empty checkpoint.
+     * @param file the path of the checkpoint file, or null to keep the positions in memory only.
+     * @throws IOException thrown if the checkpoint cannot be read or is malformed.
+     */
+    IngestionCheckpoint(Path file) throws IOException {
+        this.file = file;
+        if (file == null) return;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) throw new IOException("The file " + file + " is not an ingestion checkpoint.");
+            for (String line; (line = reader.readLine()) != null; ) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length != 4) throw new IOException("The ingestion checkpoint " + file + " is malformed.");
+                try {
+                    this.positions.put(fields[3], new Position(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("The ingestion checkpoint " + file + " is malformed.", e);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            //nothing was ingested yet.
+        }
+    }
+
+    /**
+     * Gets the position of a file
+     * @param fileName the name of the file in the watched directory.
+     * @return the position up to which the file is ingested, or null if nothing of it is ingested.
+     */
+    Position get(String fileName) {
+        return this.positions.get(fileName);
+    }
+
+    /**
+     * Gets the positions of all files
+     * @return an unmodifiable view of the positions by file name.
+     */
+    Map<String, Position> getPositions() {
+        return Collections.unmodifiableMap(this.positions);
+    }
+
+    /**
+     * sets the position of a file, or removes it if the position is null.
+     * @param fileName the name of the file in the watched directory.
+     * @param position the position up to which the file is ingested.
+     */
+    void put(String fileName, Position position) {
+        if (position == null) {
+            this.positions.remove(fileName);
+        } else {
+            this.positions.put(fileName, position);
+        }
+    }
+
+    /**
+     * writes the checkpoint and forces it to the storage device.
+     * @throws IOException thrown if the checkpoint cannot be written.
+     */
+    void save() throws IOException {
+        if (this.file == null) return;
+        Path temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, Position> entry : this.positions.entrySet()) {
+                Position position = entry.getValue();
+                writer.write(position.offset + "\t" + position.lineNumber + "\t" + position.fileKey + "\t" + entry.getKey());
+                writer.newLine();
+            }
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The position up to which a file is ingested.
+     */
+    static final class Position {
+
+        //the offset in bytes following the last ingested line break.
+        final long offset;
+
+        //the number of lines ingested.
+        final long lineNumber;
+
+        //the key identifying the file on the file system, or NO_FILE_KEY.
+        final String fileKey;
+
+        /**
+         * initializes the position with the parameters given.
+         * @param offset the offset in bytes following the last ingested line break.
+         * @param lineNumber the number of lines ingested.
+         * @param fileKey the key identifying the file on the file system, or NO_FILE_KEY.
+         */
+        Position(long offset, long lineNumber, String fileKey) {
+            this.offset = offset;
+            this.lineNumber = lineNumber;
+            this.fileKey = fileKey;
+        }
+    }
+}
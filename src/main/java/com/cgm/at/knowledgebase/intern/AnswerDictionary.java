@@ -0,0 +1,170 @@
+package com.cgm.at.knowledgebase.intern;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A dictionary storing every distinct answer once, assigning it a dense int id.
+ *
+ * The answers are stored UTF-8 encoded back to back in one growing byte array, the arena,
+ * so a distinct answer costs its encoded bytes and three ints instead of a String object and its array.
+ * The ids are found by an open addressing hash table of ints, answers are never removed.
+ * Interning is synchronized, decoding never blocks. An id obtained from {@link #intern(String)} may be decoded by any thread
+ * the id is safely published to, e.g. through a concurrent map.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class AnswerDictionary {
+
+    //the initial capacity of the arena in bytes and of the id tables in answers.
+    private static final int INITIAL_CAPACITY = 1024;
+
+    //the largest array length supported by all JVMs.
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    //the UTF-8 encoded answers, answer id is stored at [offsets[id], offsets[id + 1]).
+    private volatile byte[] arena = new byte[INITIAL_CAPACITY];
+
+    //the start offset of every answer in the arena, followed by the end offset of the last answer.
+    private volatile int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+    //the hash of every answer, to compare hashes before bytes while probing.
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    //the hash table, id + 1 of the answer in a used slot and 0 in a free slot, at most half of the slots are used.
+    private int[] table = new int[2 * INITIAL_CAPACITY];
+
+    //the number of answers.
+    private volatile int size;
+
+    /**
+     * Gets the id of the given answer, adding the answer if it is not contained yet.
+     * @param answer the answer to intern.
+     * @return the id of the answer, equal answers always get the same id.
+     * @throws IllegalArgumentException thrown if the answer is null or the arena is full.
+     */
+    public synchronized int intern(String answer) throws IllegalArgumentException {
+        if (answer == null) throw new IllegalArgumentException("An answer cannot be null!");
+        byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        byte[] arena = this.arena;
+        int[] offsets = this.offsets;
+        int mask = this.table.length - 1;
+        int slot = hash & mask;
+        for (int stored; (stored = this.table[slot]) != 0; slot = (slot + 1) & mask) {
+            int id = stored - 1;
+            if (this.hashes[id] == hash && Arrays.equals(arena, offsets[id], offsets[id + 1], bytes, 0, bytes.length)) return id;
+        }
+        int id = this.size;
+        int start = offsets[id];
+        if (bytes.length > MAX_ARRAY_LENGTH - start) throw new IllegalArgumentException("The answer dictionary is full!");
+        if (start + bytes.length > arena.length) {
+            arena = Arrays.copyOf(arena, (int) Math.min(MAX_ARRAY_LENGTH, Math.max(2L * arena.length, (long) start + bytes.length)));
+        }
+        System.arraycopy(bytes, 0, arena, start, bytes.length);
+        if (id == this.hashes.length) {
+            this.hashes = Arrays.copyOf(this.hashes, 2 * id);
+            offsets = Arrays.copyOf(offsets, 2 * id + 1);
+        }
+        offsets[id + 1] = start + bytes.length;
+        this.hashes[id] = hash;
+        this.table[slot] = id + 1;
+        //publishes the arrays before the new size, so any thread seeing the id sees its bytes.
+        this.arena = arena;
+        this.offsets = offsets;
+        this.size = id + 1;
+        if (2 * this.size > this.table.length) this.rehash();
+        return id;
+    }
+
+    /**
+     * Gets the ids of the given answers.
+     * @param answers the answers to intern.
+     * @return the ids of the answers, in the order of the answers.
+     * @throws IllegalArgumentException thrown if any answer is null or the arena is full.
+     */
+    public int[] intern(List<String> answers) throws IllegalArgumentException {
+        int[] ids = new int[answers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = this.intern(answers.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Decodes the answer of the given id.
+     * @param id an id returned by {@link #intern(String)}.
+     * @return a new String equal to the interned answer.
+     * @throws IndexOutOfBoundsException thrown if the id was never returned by this dictionary.
+     */
+    public String answer(int id) throws IndexOutOfBoundsException {
+        //reads the size first, so the arrays read afterwards contain all answers up to the size.
+        if (id < 0 || id >= this.size) throw new IndexOutOfBoundsException("Unknown answer id: " + id);
+        int[] offsets = this.offsets;
+        int start = offsets[id];
+        return new String(this.arena, start, offsets[id + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the answers of the given ids.
+     * @param ids ids returned by {@link #intern(String)}.
+     * @return an immutable list of the decoded answers, in the order of the ids.
+     * @throws IndexOutOfBoundsException thrown if any id was never returned by this dictionary.
+     */
+    public List<String> answers(int[] ids) throws IndexOutOfBoundsException {
+        if (ids.length == 1) return List.of(this.answer(ids[0]));
+        String[] answers = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            answers[i] = this.answer(ids[i]);
+        }
+        return List.of(answers);
+    }
+
+    /**
+     * Gets the size
+     * @return the number of distinct answers.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the arena size
+     * @return the number of bytes of all distinct answers, UTF-8 encoded.
+     */
+    public int arenaSize() {
+        int size = this.size;
+        return this.offsets[size];
+    }
+
+    /**
+     * doubles the hash table, reinserting all ids by their stored hashes.
+     */
+    private void rehash() {
+        int[] table = new int[2 * this.table.length];
+        int mask = table.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = this.hashes[id] & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+        this.table = table;
+    }
+
+    /**
+     * computes the hash of the given UTF-8 bytes, FNV-1a followed by a final avalanche step.
+     */
+    private static int hash(byte[] value) {
+        int hash = 0x811C9DC5;
+        for (byte b : value) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.cgm.at.knowledgebase.intern;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * A knowledge map storing the answers of every question as an int array of ids of an {@link AnswerDictionary}.
+ *
+ * Questions sharing answers share their bytes in the dictionary, so an entry only costs its question, its map node and 4 bytes per answer.
+ * The answers are decoded into a new immutable list on every retrieval, trading the allocation of the answers handed out for the heap
+ * they would occupy while stored, {@link #streamAnswers(Object)} decodes only the answers consumed. Answer lists put into the map are not retained.
+ * The map is as thread-safe as the map of ids it is backed by, several maps may share one dictionary.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class InternedKnowledgeMap extends AbstractMap<String, List<String>> {
+
+    //the answer ids of every question.
+    private final Map<String, int[]> ids;
+
+    //the dictionary of the answers.
+    private final AnswerDictionary dictionary;
+
+    //the view of the entries, created on first use.
+    private Set<Map.Entry<String, List<String>>> entrySet;
+
+    /**
+     * initializes an empty map backed by a HashMap and a dictionary of its own.
+     */
+    public InternedKnowledgeMap() {
+        this(new HashMap<>(), new AnswerDictionary());
+    }
+
+    /**
+     * initializes the map with the parameters given.
+     * @param ids the map storing the answer ids of every question, e.g. a ConcurrentHashMap for concurrent access.
+     * @param dictionary the dictionary of the answers, which may be shared with other maps.
+     */
+    public InternedKnowledgeMap(Map<String, int[]> ids, AnswerDictionary dictionary) {
+        this.ids = ids;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public List<String> get(Object question) {
+        int[] answers = this.ids.get(question);
+        return answers == null ? null : this.dictionary.answers(answers);
+    }
+
+    /**
+     * Streams the answers of the given question, decoding each answer when it is consumed,
+     * so the answers of a stream terminated early are never decoded.
+     * @param question the question to stream the answers of.
+     * @return a sequential stream of the answers, or null if the question is not contained.
+     */
+    public Stream<String> streamAnswers(Object question) {
+        int[] answers = this.ids.get(question);
+        return answers == null ? null : Arrays.stream(answers).mapToObj(this.dictionary::answer);
+    }
+
+    @Override
+    public boolean containsKey(Object question) {
+        return this.ids.containsKey(question);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the answers are interned, the given list is not retained.
+     * @throws IllegalArgumentException thrown if the answers are null or contain null.
+     */
+    @Override
+    public List<String> put(String question, List<String> answers) {
+        if (answers == null) throw new IllegalArgumentException("The answers cannot be null!");
+        return this.decode(this.ids.put(question, this.dictionary.intern(answers)));
+    }
+
+    @Override
+    public List<String> remove(Object question) {
+        return this.decode(this.ids.remove(question));
+    }
+
+    @Override
+    public void clear() {
+        this.ids.clear();
+    }
+
+    @Override
+    public int size() {
+        return this.ids.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super List<String>> action) {
+        this.ids.forEach((question, answers) -> action.accept(question, this.dictionary.answers(answers)));
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super List<String>, ? extends List<String>> function) {
+        this.ids.replaceAll((question, answers) -> this.dictionary.intern(function.apply(question, this.dictionary.answers(answers))));
+    }
+
+    /**
+     * {@inheritDoc}
+     * the answers of every entry are decoded when the entry is retrieved, the entries cannot be changed but removed.
+     */
+    @Override
+    public Set<Map.Entry<String, List<String>>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, List<String>>> iterator() {
+                    Iterator<Map.Entry<String, int[]>> iterator = ids.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, List<String>> next() {
+                            Map.Entry<String, int[]> entry = iterator.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), dictionary.answers(entry.getValue()));
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ids.size();
+                }
+            };
+        }
+        return this.entrySet;
+    }
+
+    /**
+     * Gets the dictionary
+     * @return the dictionary of the answers.
+     */
+    public AnswerDictionary getDictionary() {
+        return this.dictionary;
+    }
+
+    /**
+     * @return the decoded answers of the ids, or null if there are none.
+     */
+    private List<String> decode(int[] answers) {
+        return answers == null ? null : this.dictionary.answers(answers);
+    }
+}
@@ -0,0 +1,102 @@
+package com.cgm.at.knowledgebase.metrics;
+
+/**
+ * An immutable copy of the counts of a {@link LatencyHistogram}, answering count, mean, maximum and percentiles.
+ * Percentiles are reported as the highest value of the bucket they fall into, so they are at most about 3% too high.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class HistogramSnapshot {
+
+    //the number of values recorded per bucket.
+    private final long[] counts;
+
+    //the number, sum and maximum of all values recorded.
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * @return the number of values recorded.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the mean of the values recorded in nanoseconds, 0 if no value is recorded.
+     */
+    public double getMeanNanos() {
+        return this.count == 0 ? 0 : (double) this.sum / this.count;
+    }
+
+    /**
+     * @return the maximum value recorded in nanoseconds, 0 if no value is recorded.
+     */
+    public long getMaxNanos() {
+        return this.max;
+    }
+
+    /**
+     * computes a percentile of the values recorded.
+     * @param percentile the percentile between 0 and 100.
+     * @return the value in nanoseconds that the given percentage of the values recorded does not exceed, 0 if no value is recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("The percentile must be between 0 and 100!");
+        if (this.count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) return Math.min(LatencyHistogram.highestValue(i), this.max);
+        }
+        return this.max;
+    }
+
+    /**
+     * @return the median in nanoseconds.
+     */
+    public long getP50Nanos() {
+        return this.getPercentileNanos(50);
+    }
+
+    /**
+     * @return the 90th percentile in nanoseconds.
+     */
+    public long getP90Nanos() {
+        return this.getPercentileNanos(90);
+    }
+
+    /**
+     * @return the 99th percentile in nanoseconds.
+     */
+    public long getP99Nanos() {
+        return this.getPercentileNanos(99);
+    }
+
+    /**
+     * @return the 99.9th percentile in nanoseconds.
+     */
+    public long getP999Nanos() {
+        return this.getPercentileNanos(99.9);
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{count=" + this.count + ", mean=" + Math.round(this.getMeanNanos()) + "ns, p50=" + this.getP50Nanos()
+                + "ns, p99=" + this.getP99Nanos() + "ns, p99.9=" + this.getP999Nanos() + "ns, max=" + this.max + "ns}";
+    }
+}
@@ -0,0 +1,492 @@
+package com.cgm.at.knowledgebase.metrics;
+
+import com.cgm.at.knowledgebase.common.ErrorMessages;
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The counters and latency histograms of the operations of a knowledge base, enabled with
+ * {@link com.cgm.at.knowledgebase.common.KnowledgeBase#setMetrics(KnowledgeBaseMetrics)}.
+ *
+ * Every thread counts the operations it records in counters of its own, written without atomic read-modify-write instructions,
+ * which are only summed up when the metrics are read, so counting an operation costs a thread local lookup and a plain increment.
+ * The counters of terminated threads are folded into the sums when the metrics are read next.
+ * The counters count every operation, while the latencies are only measured for every {@link #DEFAULT_SAMPLING_INTERVAL}th operation
+ * of a thread by default, counted down per thread, as a sampled operation reads the clock three times and costs about 200 ns on some systems.
+ * The sampled latencies are recorded in striped {@link LatencyHistogram}s, so recording never allocates or locks,
+ * and the metrics add a few nanoseconds to a lookup, see the recordHit method of the MetricsOverheadBenchmark.
+ * An operation is timed by passing the value of {@link #startTimer()} to the record method of the operation.
+ * Validation failures are counted by the {@link ErrorMessages} constant their message was formatted from,
+ * which is only determined when a validation fails.
+ * The metrics can be read with {@link #snapshot()} or through JMX after {@link #registerMBean(String)}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class KnowledgeBaseMetrics implements KnowledgeBaseMetricsMXBean {
+
+    //the JMX domain the metrics are registered in.
+    public static final String JMX_DOMAIN = "com.cgm.at.knowledgebase";
+
+    //the default number of operations per operation whose latency is measured.
+    public static final int DEFAULT_SAMPLING_INTERVAL = 256;
+
+    //the value of startTimer() for operations whose latency is not measured.
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    //the category of validation failures whose message was not formatted from an ErrorMessages constant.
+    public static final String OTHER_FAILURE = "OTHER";
+
+    //the templates of all ErrorMessages constants with the name of the constant.
+    private static final List<MessageTemplate> MESSAGE_TEMPLATES = loadMessageTemplates();
+
+    //the indexes of the counters of the operations in the counters of a thread.
+    private static final int HIT = 0;
+    private static final int MATCH = 1;
+    private static final int MISS = 2;
+    private static final int ADD = 3;
+    private static final int COUNTER_COUNT = 4;
+
+    //the number of operations per operation whose latency is measured.
+    private final int samplingInterval;
+
+    //the number of slots caching the counters of the threads by their id, a power of two.
+    private static final int RECORDER_SLOTS = 256;
+
+    //the counters of the calling thread, registered on first use.
+    private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(this::register);
+
+    //the counters of recently recording threads in the slot of their id, saving the thread local lookup on the hot path.
+    private final Recorder[] recorderSlots = new Recorder[RECORDER_SLOTS];
+
+    //the counters of all threads alive when the metrics were last read, guarded by itself.
+    private final List<Recorder> recorders = new ArrayList<>();
+
+    //the sums of the counters of the terminated threads, guarded by the recorders.
+    private final long[] retiredCounts = new long[COUNTER_COUNT];
+
+    //the counter of the questions imported, recorded once per import.
+    private final LongAdder importedCount = new LongAdder();
+
+    //the counters of the validation failures by category.
+    private final Map<String, LongAdder> validationFailures = new ConcurrentHashMap<>();
+
+    //the latencies of the operations.
+    private final LatencyHistogram askLatency = new LatencyHistogram();
+    private final LatencyHistogram addLatency = new LatencyHistogram();
+    private final LatencyHistogram validateLatency = new LatencyHistogram();
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+
+    /**
+     * initializes the metrics measuring the latency of one in {@link #DEFAULT_SAMPLING_INTERVAL} operations.
+     */
+    public KnowledgeBaseMetrics() {
+        this(DEFAULT_SAMPLING_INTERVAL);
+    }
+
+    /**
+     * initializes the metrics measuring the latency of one in samplingInterval operations.
+     * @param samplingInterval a power of two, 1 measures the latency of every operation.
+     */
+    public KnowledgeBaseMetrics(int samplingInterval) {
+        if (samplingInterval < 1 || Integer.bitCount(samplingInterval) != 1) throw new IllegalArgumentException("The sampling interval must be a power of two!");
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * starts measuring the latency of an operation, if the operation is sampled.
+     * @return the current value of {@link System#nanoTime()} if the operation is sampled, otherwise {@link #NOT_SAMPLED}.
+     */
+    public long startTimer() {
+        Recorder recorder = this.recorder();
+        if (--recorder.countdown > 0) return NOT_SAMPLED;
+        recorder.countdown = this.samplingInterval;
+        return System.nanoTime();
+    }
+
+    /**
+     * records a question answered by an identical stored question.
+     * @param start the value of {@link #startTimer()} when the question was asked.
+     */
+    public void recordHit(long start) {
+        this.recorder().hit();
+        record(this.askLatency, start);
+    }
+
+    /**
+     * records a question answered by an approximately matching stored question.
+     * @param start the value of {@link #startTimer()} when the question was asked.
+     */
+    public void recordMatch(long start) {
+        this.recorder().match();
+        record(this.askLatency, start);
+    }
+
+    /**
+     * records a question answered with the default answer.
+     * @param start the value of {@link #startTimer()} when the question was asked.
+     */
+    public void recordMiss(long start) {
+        this.recorder().miss();
+        record(this.askLatency, start);
+    }
+
+    /**
+     * records a question added.
+     * @param start the value of {@link #startTimer()} when the question was added.
+     */
+    public void recordAdd(long start) {
+        this.recorder().add();
+        record(this.addLatency, start);
+    }
+
+    /**
+     * records the questions added by a bulk import.
+     * @param count the number of questions imported.
+     */
+    public void recordImport(long count) {
+        this.importedCount.add(count);
+    }
+
+    /**
+     * records the successful validation of a question or a question and its answers.
+     * @param start the value of {@link #startTimer()} when the validation started.
+     */
+    public void recordValidation(long start) {
+        record(this.validateLatency, start);
+    }
+
+    /**
+     * records the successful deserialization of knowledge.
+     * @param start the value of {@link #startTimer()} when the deserialization started.
+     */
+    public void recordParse(long start) {
+        record(this.parseLatency, start);
+    }
+
+    /**
+     * records a failed validation, counted by the {@link ErrorMessages} constant the message was formatted from.
+     * @param message the message of the validation error.
+     */
+    public void recordValidationFailure(String message) {
+        this.validationFailures.computeIfAbsent(categorize(message), category -> new LongAdder()).increment();
+    }
+
+    /**
+     * records a failed validation of a known reason, counted by the {@link ErrorMessages} constant of the same name.
+     * @param error the reason of the validation error.
+     */
+    public void recordValidationFailure(ValidationError error) {
+        this.validationFailures.computeIfAbsent(error.name(), category -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return a copy of all counters and histograms.
+     */
+    public MetricsSnapshot snapshot() {
+        long[] counts = this.sumCounts();
+        return new MetricsSnapshot(counts[HIT], counts[MATCH], counts[MISS], counts[ADD], this.importedCount.sum(),
+                this.getValidationFailures(), this.askLatency.snapshot(), this.addLatency.snapshot(),
+                this.validateLatency.snapshot(), this.parseLatency.snapshot());
+    }
+
+    /**
+     * registers the metrics at the platform MBean server.
+     * @param name the name distinguishing the knowledge base, e.g. "main".
+     * @return the object name the metrics are registered with.
+     * @throws KnowledgeBaseException thrown if the name is invalid or already registered.
+     */
+    public ObjectName registerMBean(String name) throws KnowledgeBaseException {
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=KnowledgeBaseMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new KnowledgeBaseException("The metrics could not be registered as " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * removes the metrics registered with the given object name from the platform MBean server.
+     * @param objectName the object name returned by {@link #registerMBean(String)}.
+     * @throws KnowledgeBaseException thrown if no metrics are registered with the object name.
+     */
+    public static void unregisterMBean(ObjectName objectName) throws KnowledgeBaseException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new KnowledgeBaseException("The metrics " + objectName + " could not be unregistered: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long getAskCount() {
+        long[] counts = this.sumCounts();
+        return counts[HIT] + counts[MATCH] + counts[MISS];
+    }
+
+    @Override
+    public long getHitCount() {
+        return this.sumCounts()[HIT];
+    }
+
+    @Override
+    public long getMatchCount() {
+        return this.sumCounts()[MATCH];
+    }
+
+    @Override
+    public long getMissCount() {
+        return this.sumCounts()[MISS];
+    }
+
+    @Override
+    public double getHitRate() {
+        long[] counts = this.sumCounts();
+        long askCount = counts[HIT] + counts[MATCH] + counts[MISS];
+        return askCount == 0 ? 0 : (double) (askCount - counts[MISS]) / askCount;
+    }
+
+    @Override
+    public long getAddCount() {
+        return this.sumCounts()[ADD];
+    }
+
+    @Override
+    public long getImportedCount() {
+        return this.importedCount.sum();
+    }
+
+    @Override
+    public long getValidationFailureCount() {
+        long count = 0;
+        for (LongAdder failures : this.validationFailures.values()) {
+            count += failures.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> getValidationFailures() {
+        Map<String, Long> failures = new TreeMap<>();
+        this.validationFailures.forEach((category, count) -> failures.put(category, count.sum()));
+        return Collections.unmodifiableMap(failures);
+    }
+
+    @Override
+    public HistogramSnapshot getAskLatency() {
+        return this.askLatency.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getAddLatency() {
+        return this.addLatency.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getValidateLatency() {
+        return this.validateLatency.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getParseLatency() {
+        return this.parseLatency.snapshot();
+    }
+
+    /**
+     * @return the counters of the calling thread, from its slot if no other thread of the same slot has recorded since.
+     */
+    private Recorder recorder() {
+        Thread thread = Thread.currentThread();
+        int slot = (int) thread.getId() & (RECORDER_SLOTS - 1);
+        Recorder recorder = this.recorderSlots[slot];
+        if (recorder != null && recorder.owner == thread) return recorder;
+        recorder = this.recorder.get();
+        //a racy write, a thread finding the counters of another thread in its slot falls back to the thread local.
+        this.recorderSlots[slot] = recorder;
+        return recorder;
+    }
+
+    /**
+     * registers the counters of the calling thread.
+     */
+    private Recorder register() {
+        Recorder recorder = new Recorder(Thread.currentThread());
+        synchronized (this.recorders) {
+            this.recorders.add(recorder);
+        }
+        return recorder;
+    }
+
+    /**
+     * sums up the counters of all threads, folding the counters of terminated threads into the retired counts.
+     * @return the sum of every counter, operations recorded concurrently may or may not be included.
+     */
+    private long[] sumCounts() {
+        synchronized (this.recorders) {
+            long[] counts = this.retiredCounts.clone();
+            Iterator<Recorder> iterator = this.recorders.iterator();
+            while (iterator.hasNext()) {
+                Recorder recorder = iterator.next();
+                //a terminated thread has written all its counts, detecting its termination makes them visible.
+                boolean terminated = !recorder.owner.isAlive();
+                long[] recorded = recorder.counts();
+                for (int i = 0; i < COUNTER_COUNT; i++) {
+                    counts[i] += recorded[i];
+                    if (terminated) this.retiredCounts[i] += recorded[i];
+                }
+                if (terminated) {
+                    iterator.remove();
+                    //releases the terminated thread, a slot overwritten concurrently only costs its thread a thread local lookup.
+                    int slot = (int) recorder.owner.getId() & (RECORDER_SLOTS - 1);
+                    if (this.recorderSlots[slot] == recorder) this.recorderSlots[slot] = null;
+                }
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * records the time elapsed since start in the histogram, if the operation is sampled.
+     */
+    private static void record(LatencyHistogram histogram, long start) {
+        if (start != NOT_SAMPLED) histogram.record(System.nanoTime() - start);
+    }
+
+    /**
+     * determines the {@link ErrorMessages} constant a message was formatted from.
+     * @param message the message of a validation error.
+     * @return the name of the constant, or {@link #OTHER_FAILURE} if no constant matches.
+     */
+    static String categorize(String message) {
+        if (message == null) return OTHER_FAILURE;
+        for (MessageTemplate template : MESSAGE_TEMPLATES) {
+            if (template.matches(message)) return template.name;
+        }
+        return OTHER_FAILURE;
+    }
+
+    /**
+     * reads the templates of all public String constants of {@link ErrorMessages}.
+     */
+    private static List<MessageTemplate> loadMessageTemplates() {
+        List<MessageTemplate> templates = new ArrayList<>();
+        for (Field field : ErrorMessages.class.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class) continue;
+            try {
+                templates.add(new MessageTemplate(field.getName(), (String) field.get(null)));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("The error message " + field.getName() + " cannot be read.", e);
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * The counters of one thread, only written by the thread and read with opaque reads when the metrics are read.
+     */
+    private static final class Recorder {
+
+        //the handles of the counters, opaque accesses are plain moves but never torn or reordered away.
+        private static final VarHandle HITS;
+        private static final VarHandle MATCHES;
+        private static final VarHandle MISSES;
+        private static final VarHandle ADDS;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                HITS = lookup.findVarHandle(Recorder.class, "hits", long.class);
+                MATCHES = lookup.findVarHandle(Recorder.class, "matches", long.class);
+                MISSES = lookup.findVarHandle(Recorder.class, "misses", long.class);
+                ADDS = lookup.findVarHandle(Recorder.class, "adds", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        //the thread writing the counters.
+        private final Thread owner;
+
+        //the counters of the operations of the thread.
+        private long hits;
+        private long matches;
+        private long misses;
+        private long adds;
+
+        //the operations left until the next operation is sampled, only accessed by the owner.
+        private int countdown = 1;
+
+        Recorder(Thread owner) {
+            this.owner = owner;
+        }
+
+        void hit() {
+            HITS.setOpaque(this, this.hits + 1);
+        }
+
+        void match() {
+            MATCHES.setOpaque(this, this.matches + 1);
+        }
+
+        void miss() {
+            MISSES.setOpaque(this, this.misses + 1);
+        }
+
+        void add() {
+            ADDS.setOpaque(this, this.adds + 1);
+        }
+
+        /**
+         * @return the counters, indexed by the counter constants.
+         */
+        long[] counts() {
+            long[] counts = new long[COUNTER_COUNT];
+            counts[HIT] = (long) HITS.getOpaque(this);
+            counts[MATCH] = (long) MATCHES.getOpaque(this);
+            counts[MISS] = (long) MISSES.getOpaque(this);
+            counts[ADD] = (long) ADDS.getOpaque(this);
+            return counts;
+        }
+    }
+
+    /**
+     * The text before and after the placeholder of an error message constant.
+     */
+    private static final class MessageTemplate {
+
+        private final String name;
+        private final String prefix;
+        private final String suffix;
+        private final boolean formatted;
+
+        MessageTemplate(String name, String template) {
+            int placeholder = template.indexOf("%s");
+            this.name = name;
+            this.formatted = placeholder >= 0;
+            this.prefix = this.formatted ? template.substring(0, placeholder) : template;
+            this.suffix = this.formatted ? template.substring(placeholder + 2) : "";
+        }
+
+        boolean matches(String message) {
+            if (!this.formatted) return message.equals(this.prefix);
+            return message.length() >= this.prefix.length() + this.suffix.length()
+                    && message.startsWith(this.prefix) && message.endsWith(this.suffix);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.cgm.at.knowledgebase.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of {@link KnowledgeBaseMetrics}, readable with any JMX client, e.g. jconsole.
+ * All attributes are read live from the counters and histograms, the histograms only contain the sampled operations.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public interface KnowledgeBaseMetricsMXBean {
+
+    /**
+     * @return the number of valid questions asked.
+     */
+    long getAskCount();
+
+    /**
+     * @return the number of questions answered by an identical stored question.
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of questions answered by an approximately matching stored question.
+     */
+    long getMatchCount();
+
+    /**
+     * @return the number of questions answered with the default answer.
+     */
+    long getMissCount();
+
+    /**
+     * @return the share of questions asked answered by an identical or matching stored question, 0 if no question was asked.
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of questions added one by one.
+     */
+    long getAddCount();
+
+    /**
+     * @return the number of questions added by bulk imports.
+     */
+    long getImportedCount();
+
+    /**
+     * @return the number of questions, answers and serialized knowledge rejected by the validation.
+     */
+    long getValidationFailureCount();
+
+    /**
+     * @return the number of validation failures by the name of their {@link com.cgm.at.knowledgebase.common.ErrorMessages} constant.
+     */
+    Map<String, Long> getValidationFailures();
+
+    /**
+     * @return the latencies of asking a question, validation included.
+     */
+    HistogramSnapshot getAskLatency();
+
+    /**
+     * @return the latencies of adding a question, validation included.
+     */
+    HistogramSnapshot getAddLatency();
+
+    /**
+     * @return the latencies of validating a question or a question and its answers.
+     */
+    HistogramSnapshot getValidateLatency();
+
+    /**
+     * @return the latencies of deserializing knowledge.
+     */
+    HistogramSnapshot getParseLatency();
+}
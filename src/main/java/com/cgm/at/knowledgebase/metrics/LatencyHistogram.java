@@ -0,0 +1,92 @@
+package com.cgm.at.knowledgebase.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies in nanoseconds with log-linear buckets, in the style of an HDR histogram.
+ *
+ * Values below 64 have a bucket each, above that every power of two is divided into 32 linear buckets,
+ * so every recorded value is reported with a relative error of at most 1 / 32 (about 3%) up to the maximum of a long.
+ * Recording a value takes a few shifts and striped atomic increments without allocation. To avoid contention and false sharing
+ * between threads recording concurrently, the counts are striped over several arrays selected by the id of the recording thread,
+ * and summed up when a snapshot is taken.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    //the number of linear buckets per power of two, and its logarithm.
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    //the number of buckets, covering all non-negative long values.
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    //the maximum number of stripes of counts.
+    private static final int MAX_STRIPES = 16;
+
+    //the stripes of bucket counts, a power of two of them.
+    private final AtomicLongArray[] stripes;
+
+    //the sum and maximum of all recorded values.
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * initializes an empty histogram with a stripe per available processor, at most 16.
+     */
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+    }
+
+    /**
+     * records a latency.
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int stripe = (int) Thread.currentThread().getId() & (this.stripes.length - 1);
+        this.stripes[stripe].incrementAndGet(bucketIndex(value));
+        this.sum.add(value);
+        this.max.accumulate(value);
+    }
+
+    /**
+     * @return a copy of the counts recorded so far, values recorded concurrently may or may not be included.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (AtomicLongArray stripe : this.stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new HistogramSnapshot(counts, this.sum.sum(), this.max.get());
+    }
+
+    /**
+     * computes the bucket of a non-negative value.
+     */
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * computes the highest value counted in a bucket.
+     */
+    static long highestValue(int bucketIndex) {
+        if (bucketIndex < 2 * SUB_BUCKET_COUNT) return bucketIndex;
+        int shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+        long subBucket = bucketIndex % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,126 @@
+package com.cgm.at.knowledgebase.metrics;
+
+import java.util.Map;
+
+/**
+ * An immutable copy of the counters and histograms of {@link KnowledgeBaseMetrics} taken at one point in time.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class MetricsSnapshot {
+
+    //the counters of the operations.
+    private final long hitCount;
+    private final long matchCount;
+    private final long missCount;
+    private final long addCount;
+    private final long importedCount;
+
+    //the number of validation failures by the name of their ErrorMessages constant.
+    private final Map<String, Long> validationFailures;
+
+    //the latencies of the operations.
+    private final HistogramSnapshot askLatency;
+    private final HistogramSnapshot addLatency;
+    private final HistogramSnapshot validateLatency;
+    private final HistogramSnapshot parseLatency;
+
+    MetricsSnapshot(long hitCount, long matchCount, long missCount, long addCount, long importedCount, Map<String, Long> validationFailures,
+                    HistogramSnapshot askLatency, HistogramSnapshot addLatency, HistogramSnapshot validateLatency, HistogramSnapshot parseLatency) {
+        this.hitCount = hitCount;
+        this.matchCount = matchCount;
+        this.missCount = missCount;
+        this.addCount = addCount;
+        this.importedCount = importedCount;
+        this.validationFailures = validationFailures;
+        this.askLatency = askLatency;
+        this.addLatency = addLatency;
+        this.validateLatency = validateLatency;
+        this.parseLatency = parseLatency;
+    }
+
+    /**
+     * @return the number of valid questions asked.
+     */
+    public long getAskCount() {
+        return this.hitCount + this.matchCount + this.missCount;
+    }
+
+    /**
+     * @return the number of questions answered by an identical stored question.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * @return the number of questions answered by an approximately matching stored question.
+     */
+    public long getMatchCount() {
+        return this.matchCount;
+    }
+
+    /**
+     * @return the number of questions answered with the default answer.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * @return the number of questions added one by one.
+     */
+    public long getAddCount() {
+        return this.addCount;
+    }
+
+    /**
+     * @return the number of questions added by bulk imports.
+     */
+    public long getImportedCount() {
+        return this.importedCount;
+    }
+
+    /**
+     * @return the unmodifiable number of validation failures by the name of their ErrorMessages constant.
+     */
+    public Map<String, Long> getValidationFailures() {
+        return this.validationFailures;
+    }
+
+    /**
+     * @return the latencies of asking a question, validation included.
+     */
+    public HistogramSnapshot getAskLatency() {
+        return this.askLatency;
+    }
+
+    /**
+     * @return the latencies of adding a question, validation included.
+     */
+    public HistogramSnapshot getAddLatency() {
+        return this.addLatency;
+    }
+
+    /**
+     * @return the latencies of validating a question or a question and its answers.
+     */
+    public HistogramSnapshot getValidateLatency() {
+        return this.validateLatency;
+    }
+
+    /**
+     * @return the latencies of deserializing knowledge.
+     */
+    public HistogramSnapshot getParseLatency() {
+        return this.parseLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{hits=" + this.hitCount + ", matches=" + this.matchCount + ", misses=" + this.missCount
+                + ", adds=" + this.addCount + ", imported=" + this.importedCount + ", validationFailures=" + this.validationFailures
+                + ", ask=" + this.askLatency + ", add=" + this.addLatency + ", validate=" + this.validateLatency + ", parse=" + this.parseLatency + "}";
+    }
+}
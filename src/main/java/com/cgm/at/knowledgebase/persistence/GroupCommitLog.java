@@ -0,0 +1,296 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A write-ahead log of knowledge records, every append returns only once its records are on the storage device.
+ *
+ * Appends of concurrent writers are committed together: a committer thread collects the records queued,
+ * writes them with one gathering write and forces them with one {@link FileChannel#force(boolean)},
+ * then acknowledges all writers of the batch at once. A batch is committed when the oldest record waited for the maximum batch delay,
+ * or once the records queued reach the maximum batch size, records queued while a batch is forced form the next batch.
+ * With a delay of zero, a batch is committed at once, and only the writers arriving during the previous force are grouped.
+ * If a batch cannot be written or forced, it and all later appends fail, as the state of the log file is unknown.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class GroupCommitLog implements KnowledgeLog {
+
+    //the channel of the log file.
+    private final FileChannel channel;
+
+    //the time the oldest record of a batch waits for further records in nanoseconds.
+    private final long maxBatchDelayNanos;
+
+    //the number of bytes of queued records that commits a batch at once.
+    private final int maxBatchBytes;
+
+    //guards the queue, the sequence numbers and the state of the log.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    //signalled when records are queued or the log is closed, and when a batch is durable or failed.
+    private final Condition queued = this.lock.newCondition();
+    private final Condition committed = this.lock.newCondition();
+
+    //the records waiting for the next batch, and their total size in bytes.
+    private List<ByteBuffer> queue = new ArrayList<>();
+    private long queuedBytes;
+
+    //the time the oldest queued record was queued.
+    private long oldestQueuedNanos;
+
+    //the sequence number of the last record queued, and of the last record durable.
+    private long queuedSequence;
+    private long durableSequence;
+
+    //the failure that stopped the log, null while the log works.
+    private IOException failure;
+
+    //true once the log is closed.
+    private boolean closed;
+
+    //the end of the last durable record.
+    private volatile long position;
+
+    //the number of batches forced.
+    private volatile long syncCount;
+
+    //the thread committing the batches, started once the log is replayed.
+    private Thread committer;
+
+    /**
+     * opens or creates the log file, the records must be replayed before anything is appended.
+     * @param file the path of the log file.
+     * @param maxBatchDelay the time the oldest record of a batch waits for further records.
+     * @param maxBatchBytes the number of bytes of queued records that commits a batch at once.
+     * @throws IOException thrown if the log file cannot be opened.
+     */
+    GroupCommitLog(Path file, Duration maxBatchDelay, int maxBatchBytes) throws IOException {
+        if (maxBatchDelay.isNegative()) throw new IllegalArgumentException("The maximum batch delay cannot be negative!");
+        if (maxBatchBytes < 1) throw new IllegalArgumentException("The maximum batch size must be positive!");
+        this.maxBatchDelayNanos = maxBatchDelay.toNanos();
+        this.maxBatchBytes = maxBatchBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * a torn record at the end of the log, caused by a crash while a batch was written, is cut off.
+     * The records of a torn batch were never acknowledged.
+     */
+    @Override
+    public long replay(BiConsumer<String, List<String>> consumer) throws IOException {
+        long[] count = new long[1];
+        long position = KnowledgeRecordReader.read(this.channel, 0, this.channel.size(), (question, answers) -> {
+            consumer.accept(question, answers);
+            count[0]++;
+        });
+        this.channel.truncate(position);
+        this.channel.force(true);
+        this.channel.position(position);
+        this.position = position;
+        this.lock.lock();
+        try {
+            if (this.committer == null) {
+                this.committer = new Thread(this::commitLoop, "knowledge-group-commit");
+                this.committer.setDaemon(true);
+                this.committer.start();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return count[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     * the records are queued for the next batch, and the call returns once the batch is forced to the storage device.
+     * @throws IOException thrown if the batch cannot be written or forced, if the log failed before, or if the log is closed.
+     */
+    @Override
+    public void append(List<ByteBuffer> records) throws IOException {
+        if (records.isEmpty()) return;
+        this.lock.lock();
+        try {
+            this.ensureOpen();
+            if (this.committer == null) throw new IllegalStateException("The log must be replayed before records are appended!");
+            if (this.queue.isEmpty()) this.oldestQueuedNanos = System.nanoTime();
+            for (ByteBuffer record : records) {
+                this.queue.add(record);
+                this.queuedBytes += record.remaining();
+            }
+            long sequence = this.queuedSequence += records.size();
+            this.queued.signal();
+            boolean interrupted = false;
+            while (this.durableSequence < sequence && this.failure == null) {
+                try {
+                    this.committed.await();
+                } catch (InterruptedException e) {
+                    //the records are queued already and will be committed, so the writer has to wait for the outcome.
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (this.durableSequence < sequence) throw new IOException("The log failed to commit the records: " + this.failure.getMessage(), this.failure);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        return this.position;
+    }
+
+    /**
+     * {@inheritDoc}
+     * nothing to do, every batch is forced before its writers are acknowledged.
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public long syncCount() {
+        return this.syncCount;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        this.lock.lock();
+        try {
+            this.ensureOpen();
+            if (!this.queue.isEmpty() || this.durableSequence < this.queuedSequence) {
+                throw new IllegalStateException("The log cannot be reset while records are appended!");
+            }
+            this.channel.truncate(0);
+            this.channel.force(true);
+            this.channel.position(0);
+            this.position = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * commits the queued records, stops the committer thread and closes the log file.
+     * @throws IOException thrown if the log file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread committer;
+        this.lock.lock();
+        try {
+            if (this.closed) return;
+            this.closed = true;
+            this.queued.signal();
+            committer = this.committer;
+        } finally {
+            this.lock.unlock();
+        }
+        if (committer != null) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.channel.close();
+    }
+
+    /**
+     * fails if the log failed or is closed, must be called holding the lock.
+     */
+    private void ensureOpen() throws IOException {
+        if (this.failure != null) throw new IOException("The log failed before: " + this.failure.getMessage(), this.failure);
+        if (this.closed) throw new IOException("The log is closed.");
+    }
+
+    /**
+     * commits batches until the log is closed and all queued records are committed, or a batch fails.
+     */
+    private void commitLoop() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long sequence;
+            this.lock.lock();
+            try {
+                if (!this.awaitBatch()) return;
+                batch = this.queue;
+                sequence = this.queuedSequence;
+                this.queue = new ArrayList<>();
+                this.queuedBytes = 0;
+            } finally {
+                this.lock.unlock();
+            }
+            IOException failure = null;
+            long bytes = 0;
+            try {
+                bytes = this.write(batch);
+                this.channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+            }
+            this.lock.lock();
+            try {
+                if (failure == null) {
+                    this.position += bytes;
+                    this.syncCount++;
+                    this.durableSequence = sequence;
+                } else {
+                    this.failure = failure;
+                }
+                this.committed.signalAll();
+                if (failure != null) return;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * waits until a batch is due, must be called holding the lock.
+     * @return true if the queued records are to be committed, false if the log is closed and no records are queued.
+     */
+    private boolean awaitBatch() {
+        while (this.queue.isEmpty()) {
+            if (this.closed) return false;
+            this.queued.awaitUninterruptibly();
+        }
+        //waits for further records until the oldest record waited long enough or the batch is full, closing commits at once.
+        long deadline = this.oldestQueuedNanos + this.maxBatchDelayNanos;
+        for (long remaining; !this.closed && this.queuedBytes < this.maxBatchBytes && (remaining = deadline - System.nanoTime()) > 0; ) {
+            try {
+                this.queued.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                //the committer is never interrupted by the log, queued records are committed regardless.
+            }
+        }
+        return true;
+    }
+
+    /**
+     * writes the records of a batch at the end of the log with gathering writes.
+     * @return the number of bytes written.
+     */
+    private long write(List<ByteBuffer> batch) throws IOException {
+        ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+        long bytes = 0;
+        for (ByteBuffer buffer : buffers) bytes += buffer.remaining();
+        for (long written = 0; written < bytes; ) {
+            written += this.channel.write(buffers);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,54 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * An append-only log of knowledge records encoded by the {@link KnowledgeRecordCodec}, the log of a {@link KnowledgeStore}.
+ * The records must be replayed before anything is appended, appending is thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+interface KnowledgeLog extends Closeable {
+
+    /**
+     * passes all intact records of the log to the consumer in the order they were appended, cutting off a torn record at the end.
+     * @param consumer the consumer of the question and the answers of each record.
+     * @return the number of records replayed.
+     * @throws IOException thrown if the log file cannot be read.
+     */
+    long replay(BiConsumer<String, List<String>> consumer) throws IOException;
+
+    /**
+     * appends the given records to the log, in the order given.
+     * @param records buffers containing one encoded record each.
+     * @throws IOException thrown if the records cannot be appended.
+     */
+    void append(List<ByteBuffer> records) throws IOException;
+
+    /**
+     * @return the number of bytes of intact records in the log.
+     */
+    long size();
+
+    /**
+     * forces all appended records to the storage device.
+     */
+    void flush();
+
+    /**
+     * @return the number of times records were forced to the storage device.
+     */
+    long syncCount();
+
+    /**
+     * discards all records of the log, used after the records have been compacted into a snapshot.
+     * no records may be appended concurrently.
+     * @throws IOException thrown if the log file cannot be truncated.
+     */
+    void reset() throws IOException;
+}
@@ -0,0 +1,103 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes and decodes one question and its answers as a binary record, used by the log and the snapshot of the {@link KnowledgeStore}.
+ * A record has the following layout, all integers are big endian:
+ * [int payloadLength][int crc32 of payload][payload]
+ * payload: [int questionLength][question UTF-8 bytes][int answerCount]([int answerLength][answer UTF-8 bytes])*
+ * A payload length of zero marks the end of the records, a checksum mismatch marks a torn record.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class KnowledgeRecordCodec {
+
+    //the size of the record header consisting of payload length and checksum.
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * The caller should be prevented from constructing objects of
+     * this class, by declaring this private constructor.
+     */
+    private KnowledgeRecordCodec() {
+        throw new AssertionError();
+    }
+
+    /**
+     * encodes the question and answers as one record.
+     * @param question the question of the record.
+     * @param answers the answers of the record.
+     * @return a buffer containing the complete record, positioned at 0.
+     */
+    static ByteBuffer encode(String question, List<String> answers) {
+        byte[] questionBytes = question.getBytes(StandardCharsets.UTF_8);
+        byte[][] answerBytes = new byte[answers.size()][];
+        int payloadLength = 4 + questionBytes.length + 4;
+        for (int i = 0; i < answerBytes.length; i++) {
+            answerBytes[i] = answers.get(i).getBytes(StandardCharsets.UTF_8);
+            payloadLength += 4 + answerBytes[i].length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadLength);
+        record.putInt(payloadLength).putInt(0);
+        record.putInt(questionBytes.length).put(questionBytes).putInt(answerBytes.length);
+        for (byte[] answer : answerBytes) {
+            record.putInt(answer.length).put(answer);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, payloadLength);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * decodes the record starting at the position of the given buffer, and advances the position behind the record.
+     * if there is no complete and intact record at the position, the position is left unchanged.
+     * @param buffer the buffer to read the record from.
+     * @return the question as key and the immutable answers as value, or null if no intact record is found.
+     */
+    static Map.Entry<String, List<String>> decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE) return null;
+        int payloadLength = buffer.getInt(start);
+        if (payloadLength <= 0 || payloadLength > buffer.remaining() - HEADER_SIZE) return null;
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + HEADER_SIZE).limit(start + HEADER_SIZE + payloadLength);
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(start + 4)) return null;
+
+        buffer.position(start + HEADER_SIZE);
+        String question = readString(buffer);
+        String[] answers = new String[buffer.getInt()];
+        for (int i = 0; i < answers.length; i++) {
+            answers[i] = readString(buffer);
+        }
+        return Map.entry(question, List.of(answers));
+    }
+
+    /**
+     * reads a length prefixed UTF-8 string at the position of the buffer.
+     * @param buffer the buffer to read from.
+     * @return the decoded string.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
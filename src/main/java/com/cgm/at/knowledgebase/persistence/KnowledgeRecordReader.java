@@ -0,0 +1,54 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the knowledge records of a file through read-only memory-mapped windows.
+ * Files larger than one window are read window by window, a window always starts at a record boundary.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class KnowledgeRecordReader {
+
+    //the maximum size of one mapped window.
+    private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+    /**
+     * The caller should be prevented from constructing objects of
+     * this class, by declaring this private constructor.
+     */
+    private KnowledgeRecordReader() {
+        throw new AssertionError();
+    }
+
+    /**
+     * passes all intact records between the given positions to the consumer, stopping at the first missing or torn record.
+     * @param channel the channel of the file to read.
+     * @param from the position of the first record.
+     * @param to the end of the readable area of the file.
+     * @param consumer the consumer of the question and the answers of each record.
+     * @return the end position of the last intact record.
+     * @throws IOException thrown if the file cannot be mapped.
+     */
+    static long read(FileChannel channel, long from, long to, BiConsumer<String, List<String>> consumer) throws IOException {
+        long position = from;
+        while (position < to) {
+            long windowSize = Math.min(MAX_WINDOW_SIZE, to - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            Map.Entry<String, List<String>> record;
+            while ((record = KnowledgeRecordCodec.decode(window)) != null) {
+                consumer.accept(record.getKey(), record.getValue());
+            }
+            position += window.position();
+            //stop if the window reached the end, or not even one record fits into a full window.
+            if (windowSize < MAX_WINDOW_SIZE || window.position() == 0) break;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,197 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent store for textual knowledge consisting of a snapshot and an append-only log in one directory.
+ * Every added question is appended to the log, a compaction writes the whole knowledge
+ * into a new snapshot and discards the log. The snapshot is a {@link MappedKnowledgeIndex}, loading the store maps it
+ * and replays only the log records appended since the last compaction into the heap, see {@link LayeredKnowledgeMap}.
+ * A snapshot of the former sequential format is still read into the heap, it is replaced by the next compaction.
+ *
+ * The log is either a {@link MappedKnowledgeLog}, whose records survive a crash of the process but reach the storage device only
+ * when flushed, or a {@link GroupCommitLog}, whose appends return once the records are on the storage device,
+ * committing the records of concurrent writers with one force. Both logs write the same records, so either can open a store.
+ * Appends are thread-safe, loading, compacting and closing must not run concurrently with any other operation.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class KnowledgeStore implements Closeable {
+
+    //the name of the snapshot file in the store directory.
+    public static final String SNAPSHOT_FILE = "knowledge.snapshot";
+
+    //the name of the log file in the store directory.
+    public static final String LOG_FILE = "knowledge.log";
+
+    //the magic number at the start of every snapshot file of the former sequential format.
+    private static final int SEQUENTIAL_SNAPSHOT_MAGIC = 0x4B42534E;
+
+    //the version of the former sequential snapshot file format.
+    private static final int SEQUENTIAL_SNAPSHOT_VERSION = 1;
+
+    //the size of the header of a sequential snapshot consisting of magic number and version.
+    private static final int SEQUENTIAL_SNAPSHOT_HEADER_SIZE = 8;
+
+    //the directory containing snapshot and log.
+    private final Path directory;
+
+    //the log of the questions added since the last compaction.
+    private final KnowledgeLog log;
+
+    //the knowledge loaded from snapshot and log, null until loaded.
+    private LayeredKnowledgeMap knowledge;
+
+    /**
+     * initializes the store with the parameters given.
+     * @param directory the directory containing snapshot and log.
+     * @param log the opened log.
+     */
+    private KnowledgeStore(Path directory, KnowledgeLog log) {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * opens the store in the given directory, the directory is created if it does not exist.
+     * the knowledge of the store must be loaded using {@link #load()} before anything is appended.
+     * @param directory the directory containing snapshot and log.
+     * @return the opened store.
+     * @throws IOException thrown if the directory or the log cannot be opened.
+     */
+    public static KnowledgeStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new KnowledgeStore(directory, new MappedKnowledgeLog(directory.resolve(LOG_FILE)));
+    }
+
+    /**
+     * opens the store in the given directory with a durable log committing concurrent appends in groups,
+     * the directory is created if it does not exist.
+     * the knowledge of the store must be loaded using {@link #load()} before anything is appended.
+     * @param directory the directory containing snapshot and log.
+     * @param maxBatchDelay the time the first record of a group waits for further records before the group is forced,
+     *                      longer delays group more records at the cost of the latency of every append.
+     * @param maxBatchBytes the number of bytes of waiting records that forces a group at once.
+     * @return the opened store.
+     * @throws IOException thrown if the directory or the log cannot be opened.
+     */
+    public static KnowledgeStore open(Path directory, Duration maxBatchDelay, int maxBatchBytes) throws IOException {
+        Files.createDirectories(directory);
+        return new KnowledgeStore(directory, new GroupCommitLog(directory.resolve(LOG_FILE), maxBatchDelay, maxBatchBytes));
+    }
+
+    /**
+     * maps the snapshot and replays the log on top of it, later records replace the answers of earlier ones.
+     * @return the stored questions and their immutable answers, the map is rebased onto the new snapshot by every compaction.
+     * @throws IOException thrown if snapshot or log cannot be read or the snapshot is not a knowledge snapshot.
+     */
+    public LayeredKnowledgeMap load() throws IOException {
+        Path snapshot = this.directory.resolve(SNAPSHOT_FILE);
+        LayeredKnowledgeMap knowledge;
+        if (!Files.exists(snapshot)) {
+            knowledge = new LayeredKnowledgeMap(Map.of());
+        } else if (isSequentialSnapshot(snapshot)) {
+            knowledge = new LayeredKnowledgeMap(Map.of());
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                KnowledgeRecordReader.read(channel, SEQUENTIAL_SNAPSHOT_HEADER_SIZE, channel.size(), knowledge::put);
+            }
+        } else {
+            knowledge = new LayeredKnowledgeMap(MappedKnowledgeIndex.open(snapshot));
+        }
+        this.log.replay(knowledge::put);
+        this.knowledge = knowledge;
+        return knowledge;
+    }
+
+    /**
+     * @return true if the snapshot file starts with the header of the former sequential format.
+     * @throws IOException thrown if the snapshot cannot be read.
+     */
+    private static boolean isSequentialSnapshot(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SEQUENTIAL_SNAPSHOT_HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0);
+            return header.position() == SEQUENTIAL_SNAPSHOT_HEADER_SIZE
+                    && header.getInt(0) == SEQUENTIAL_SNAPSHOT_MAGIC && header.getInt(4) == SEQUENTIAL_SNAPSHOT_VERSION;
+        }
+    }
+
+    /**
+     * appends the question and its answers to the log, with a durable log it returns once the record is on the storage device.
+     * @param question the question added.
+     * @param answers the answers of the question.
+     * @throws IOException thrown if the log cannot be extended.
+     */
+    public void append(String question, List<String> answers) throws IOException {
+        this.log.append(List.of(KnowledgeRecordCodec.encode(question, answers)));
+    }
+
+    /**
+     * appends all questions and their answers to the log, in the iteration order of the map,
+     * with a durable log they are committed in one group and it returns once all records are on the storage device.
+     * @param knowledge the questions and answers added.
+     * @throws IOException thrown if the log cannot be extended.
+     */
+    public void appendAll(Map<String, List<String>> knowledge) throws IOException {
+        List<ByteBuffer> records = new ArrayList<>(knowledge.size());
+        for (Map.Entry<String, List<String>> entry : knowledge.entrySet()) {
+            records.add(KnowledgeRecordCodec.encode(entry.getKey(), entry.getValue()));
+        }
+        this.log.append(records);
+    }
+
+    /**
+     * @return the number of bytes appended to the log since the last compaction.
+     */
+    public long getLogSize() {
+        return this.log.size();
+    }
+
+    /**
+     * forces all appended records to the storage device.
+     */
+    public void flush() {
+        this.log.flush();
+    }
+
+    /**
+     * @return the number of times the log was forced to the storage device, by flushes or group commits.
+     */
+    public long getSyncCount() {
+        return this.log.syncCount();
+    }
+
+    /**
+     * writes the loaded knowledge into a new snapshot, rebases the knowledge onto it and discards the log.
+     * the snapshot is written by {@link MappedKnowledgeIndex#write(Map, Path)}, which moves it over the old snapshot atomically
+     * and forces the directory afterwards, so a crash during compaction leaves either the old snapshot and log or the new snapshot.
+     * @throws IOException thrown if the snapshot cannot be written or mapped.
+     */
+    public void compact() throws IOException {
+        if (this.knowledge == null) throw new IllegalStateException("The knowledge of the store has not been loaded!");
+        Path snapshot = this.directory.resolve(SNAPSHOT_FILE);
+        MappedKnowledgeIndex.write(this.knowledge, snapshot);
+        this.knowledge.rebase(MappedKnowledgeIndex.open(snapshot));
+        this.log.reset();
+    }
+
+    /**
+     * forces the log to the storage device and closes it.
+     * @throws IOException thrown if the log cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.log.close();
+    }
+}
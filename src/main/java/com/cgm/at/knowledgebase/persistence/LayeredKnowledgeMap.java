@@ -0,0 +1,198 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The knowledge of a {@link KnowledgeStore}, layering the questions added since the last compaction in a heap map
+ * over the compacted snapshot, which is served from a memory-mapped {@link MappedKnowledgeIndex}.
+ * Only the questions of the log are kept on the heap, a removed question of the snapshot is hidden by a marker in the heap map.
+ * Once the store is compacted the map is rebased onto the new snapshot and the heap map starts empty again.
+ *
+ * Reading is thread-safe and never blocks. Writers of the same question must be serialized,
+ * and no question may be written while the map is rebased.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class LayeredKnowledgeMap extends AbstractMap<String, List<String>> {
+
+    //marks a question of the snapshot as removed, compared by identity.
+    private static final List<String> REMOVED = Collections.unmodifiableList(new ArrayList<>());
+
+    //the snapshot and the questions added since, replaced as a whole when rebased.
+    private volatile Layers layers;
+
+    //the lazily created entry set view.
+    private Set<Map.Entry<String, List<String>>> entrySet;
+
+    /**
+     * initializes the map with the given snapshot and no questions added since.
+     * @param snapshot the knowledge of the snapshot, e.g. a {@link MappedKnowledgeIndex}, it is never changed.
+     */
+    LayeredKnowledgeMap(Map<String, List<String>> snapshot) {
+        this.layers = new Layers(snapshot);
+    }
+
+    /**
+     * replaces the snapshot by a new one containing all questions of the map, discarding the questions added since the old one.
+     * @param snapshot the knowledge of the new snapshot, it is never changed.
+     */
+    void rebase(Map<String, List<String>> snapshot) {
+        this.layers = new Layers(snapshot);
+    }
+
+    /**
+     * @return the number of questions kept on the heap, added or removed since the last compaction.
+     */
+    public int getHeapSize() {
+        return this.layers.added.size();
+    }
+
+    @Override
+    public List<String> get(Object question) {
+        return this.layers.get(question);
+    }
+
+    /**
+     * {@inheritDoc}
+     * a miss costs one lookup per layer only, as no question is mapped to null.
+     */
+    @Override
+    public List<String> getOrDefault(Object question, List<String> defaultValue) {
+        List<String> answers = this.layers.get(question);
+        return answers != null ? answers : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object question) {
+        return this.layers.get(question) != null;
+    }
+
+    @Override
+    public List<String> put(String question, List<String> answers) {
+        if (question == null || answers == null) throw new NullPointerException();
+        Layers layers = this.layers;
+        List<String> previous = layers.get(question);
+        layers.added.put(question, answers);
+        if (previous == null) layers.size.incrementAndGet();
+        return previous;
+    }
+
+    @Override
+    public List<String> remove(Object question) {
+        Layers layers = this.layers;
+        List<String> previous = layers.get(question);
+        if (previous == null) return null;
+        String key = (String) question;
+        if (layers.snapshot.containsKey(key)) {
+            layers.added.put(key, REMOVED);
+        } else {
+            layers.added.remove(key);
+        }
+        layers.size.decrementAndGet();
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return this.layers.size.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * the questions added since the last compaction are iterated first, then the remaining questions of the snapshot.
+     */
+    @Override
+    public Set<Map.Entry<String, List<String>>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, List<String>>> iterator() {
+                    return new EntryIterator(layers);
+                }
+
+                @Override
+                public int size() {
+                    return LayeredKnowledgeMap.this.size();
+                }
+            };
+        }
+        return this.entrySet;
+    }
+
+    /**
+     * A snapshot together with the questions added or removed since and the number of questions of both.
+     */
+    private static final class Layers {
+
+        private final Map<String, List<String>> snapshot;
+        private final ConcurrentHashMap<String, List<String>> added = new ConcurrentHashMap<>();
+        private final AtomicInteger size;
+
+        Layers(Map<String, List<String>> snapshot) {
+            this.snapshot = snapshot;
+            this.size = new AtomicInteger(snapshot.size());
+        }
+
+        List<String> get(Object question) {
+            List<String> answers = this.added.get(question);
+            if (answers == REMOVED) return null;
+            return answers != null ? answers : this.snapshot.get(question);
+        }
+    }
+
+    /**
+     * Iterates over the questions added, skipping the removal markers, and then over the questions of the snapshot not added again.
+     */
+    private static final class EntryIterator implements Iterator<Map.Entry<String, List<String>>> {
+
+        private final Layers layers;
+        private Iterator<Map.Entry<String, List<String>>> current;
+        private boolean inSnapshot;
+        private Map.Entry<String, List<String>> next;
+
+        EntryIterator(Layers layers) {
+            this.layers = layers;
+            this.current = layers.added.entrySet().iterator();
+            this.advance();
+        }
+
+        private void advance() {
+            this.next = null;
+            while (true) {
+                while (this.current.hasNext()) {
+                    Map.Entry<String, List<String>> entry = this.current.next();
+                    if (this.inSnapshot ? this.layers.added.containsKey(entry.getKey()) : entry.getValue() == REMOVED) continue;
+                    this.next = entry;
+                    return;
+                }
+                if (this.inSnapshot) return;
+                this.inSnapshot = true;
+                this.current = this.layers.snapshot.entrySet().iterator();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public Map.Entry<String, List<String>> next() {
+            if (this.next == null) throw new NoSuchElementException();
+            Map.Entry<String, List<String>> entry = this.next;
+            this.advance();
+            return new AbstractMap.SimpleImmutableEntry<>(entry);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An immutable, memory-mapped open-addressing hash table of textual knowledge, used as a read-only Map.
+ * The questions and answers are kept as UTF-8 bytes outside of the heap: a lookup hashes the question while encoding it
+ * on the fly and compares it with the stored bytes in place, without creating any objects.
+ * The answers of a question are decoded lazily, an answer string is only created when it is retrieved from the answer list.
+ *
+ * The file has the following layout, all integers are big endian:
+ * header: [int magic][int version][int slotCount][int entryCount][long dataStart]
+ * slots:  slotCount times [long entryOffset + 1, 0 if empty][int hash], probed linearly, at most half of them used.
+ * data:   one entry per question [int questionLength][question bytes][int answerCount][int answerOffset]*([int answerLength][answer bytes])*
+ * The data is mapped in segments of 1 GB, an entry never crosses a segment boundary.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class MappedKnowledgeIndex extends AbstractMap<String, List<String>> {
+
+    //the magic number at the start of every index file.
+    private static final int MAGIC = 0x4B42494E;
+
+    //the version of the index file format.
+    private static final int VERSION = 1;
+
+    //the size of the header.
+    private static final int HEADER_SIZE = 24;
+
+    //the size of one slot of the hash table.
+    private static final int SLOT_SIZE = 12;
+
+    //the size of one mapped data segment.
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    //the size of the buffer the index is written through.
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    //the mapped slots of the hash table.
+    private final MappedByteBuffer slots;
+
+    //the mapped data segments.
+    private final MappedByteBuffer[] segments;
+
+    //the number of slots, a power of two.
+    private final int slotCount;
+
+    //the number of questions in the index.
+    private final int entryCount;
+
+    //the lazily created entry set view.
+    private Set<Map.Entry<String, List<String>>> entrySet;
+
+    /**
+     * initializes the index with the mapped regions given.
+     */
+    private MappedKnowledgeIndex(MappedByteBuffer slots, MappedByteBuffer[] segments, int slotCount, int entryCount) {
+        this.slots = slots;
+        this.segments = segments;
+        this.slotCount = slotCount;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * maps the index file at the given path.
+     * @param file the path of the index file.
+     * @return the mapped index.
+     * @throws IOException thrown if the file cannot be mapped or is not a knowledge index.
+     */
+    public static MappedKnowledgeIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("The file " + file + " is not a knowledge index");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("The file " + file + " is not a knowledge index of version " + VERSION);
+            }
+            int slotCount = header.getInt(8);
+            int entryCount = header.getInt(12);
+            long dataStart = header.getLong(16);
+            MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) slotCount * SLOT_SIZE);
+            long dataSize = size - dataStart;
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((dataSize + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long segmentStart = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + segmentStart, Math.min(SEGMENT_SIZE, dataSize - segmentStart));
+            }
+            return new MappedKnowledgeIndex(slots, segments, slotCount, entryCount);
+        }
+    }
+
+    /**
+     * writes the given knowledge as index file to the given path.
+     * the file is written to a temporary file first and then moved to the given path atomically,
+     * the directory is forced afterwards so the move survives a crash of the machine.
+     * @param knowledge the questions and answers to write, e.g. the knowledge of any knowledge base.
+     * @param file the path of the index file.
+     * @throws IOException thrown if the file cannot be written.
+     */
+    public static void write(Map<String, List<String>> knowledge, Path file) throws IOException {
+        int entryCount = knowledge.size();
+        int slotCount = Integer.highestOneBit(Math.max(2, entryCount) * 2 - 1) << 1;
+        if ((long) slotCount * SLOT_SIZE > Integer.MAX_VALUE) throw new IOException("Too many questions for one knowledge index: " + entryCount);
+        long dataStart = HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+        ByteBuffer slots = ByteBuffer.allocate(slotCount * SLOT_SIZE);
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            long offset = 0;
+            channel.position(dataStart);
+            for (Map.Entry<String, List<String>> entry : knowledge.entrySet()) {
+                byte[] question = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                List<String> answers = entry.getValue();
+                byte[][] answerBytes = new byte[answers.size()][];
+                long entrySize = 4 + question.length + 4 + 4L * answerBytes.length;
+                for (int i = 0; i < answerBytes.length; i++) {
+                    answerBytes[i] = answers.get(i).getBytes(StandardCharsets.UTF_8);
+                    entrySize += 4 + answerBytes[i].length;
+                }
+                if (entrySize > SEGMENT_SIZE) throw new IOException("The answers of the question {'" + entry.getKey() + "'} are too large");
+                //pad to the next segment if the entry would cross the segment boundary.
+                long segmentEnd = ((offset >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+                if (offset + entrySize > segmentEnd) {
+                    flush(channel, buffer);
+                    channel.position(dataStart + segmentEnd);
+                    offset = segmentEnd;
+                }
+                if (buffer.remaining() < entrySize) flush(channel, buffer);
+                //an entry larger than the buffer is written through a buffer of its own.
+                ByteBuffer target = entrySize > WRITE_BUFFER_SIZE ? ByteBuffer.allocate((int) entrySize) : buffer;
+
+                target.putInt(question.length).put(question).putInt(answerBytes.length);
+                int answerOffset = 4 + question.length + 4 + 4 * answerBytes.length;
+                for (byte[] answer : answerBytes) {
+                    target.putInt(answerOffset);
+                    answerOffset += 4 + answer.length;
+                }
+                for (byte[] answer : answerBytes) {
+                    target.putInt(answer.length).put(answer);
+                }
+                if (target != buffer) flush(channel, target);
+                insertSlot(slots, slotCount, hash(question), offset);
+                offset += entrySize;
+            }
+            flush(channel, buffer);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(slotCount).putInt(entryCount).putLong(dataStart).flip();
+            writeFully(channel, header, 0);
+            slots.clear();
+            writeFully(channel, slots, HEADER_SIZE);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * forces the entries of the given directory to the storage device, so a file moved into it survives a crash of the machine.
+     * platforms not permitting a directory to be opened, e.g. Windows, persist the entries together with the files and are skipped.
+     * @param directory the directory to force.
+     * @throws IOException thrown if the directory cannot be forced.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            //the directory cannot be opened on this platform.
+        }
+    }
+
+    /**
+     * inserts an entry into the first free slot of its probe sequence.
+     */
+    private static void insertSlot(ByteBuffer slots, int slotCount, int hash, long offset) {
+        int mask = slotCount - 1;
+        int slot = hash & mask;
+        while (slots.getLong(slot * SLOT_SIZE) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.putLong(slot * SLOT_SIZE, offset + 1);
+        slots.putInt(slot * SLOT_SIZE + 8, hash);
+    }
+
+    /**
+     * writes the content of the buffer at the current position of the channel and clears the buffer.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * writes the content of the buffer at the given position of the channel.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    /**
+     * Looks up the answers of the given question in place.
+     * @param question the question to look up.
+     * @return an immutable list decoding the answers lazily, or null if the question is not contained.
+     */
+    @Override
+    public List<String> get(Object question) {
+        if (!(question instanceof String)) return null;
+        String key = (String) question;
+        int hash = hash(key);
+        int mask = this.slotCount - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long stored = this.slots.getLong(slot * SLOT_SIZE);
+            if (stored == 0) return null;
+            if (this.slots.getInt(slot * SLOT_SIZE + 8) != hash) continue;
+            long offset = stored - 1;
+            ByteBuffer segment = this.segments[(int) (offset >>> SEGMENT_SHIFT)];
+            int position = (int) (offset & (SEGMENT_SIZE - 1));
+            if (equalsUtf8(key, segment, position + 4, segment.getInt(position))) return new AnswerList(segment, position);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * a miss costs one lookup only, as no question is mapped to null.
+     */
+    @Override
+    public List<String> getOrDefault(Object question, List<String> defaultValue) {
+        List<String> answers = this.get(question);
+        return answers != null ? answers : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object question) {
+        return this.get(question) != null;
+    }
+
+    @Override
+    public int size() {
+        return this.entryCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the entries are decoded lazily while iterating in the order of the hash table slots.
+     */
+    @Override
+    public Set<Map.Entry<String, List<String>>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, List<String>>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return entryCount;
+                }
+            };
+        }
+        return this.entrySet;
+    }
+
+    /**
+     * computes the hash of the UTF-8 encoding of the given string, without encoding it into a byte array.
+     * equal to {@link #hash(byte[])} of the bytes of {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    static int hash(String value) {
+        int hash = 0x811C9DC5;
+        int length = value.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = codePointAt(value, i);
+            i += Character.charCount(codePoint);
+            int byteCount = utf8Length(codePoint);
+            for (int k = 0; k < byteCount; k++) {
+                hash = (hash ^ utf8Byte(codePoint, byteCount, k)) * 0x01000193;
+            }
+        }
+        return mix(hash);
+    }
+
+    /**
+     * computes the hash of the given UTF-8 bytes, FNV-1a followed by a final avalanche step.
+     */
+    static int hash(byte[] value) {
+        int hash = 0x811C9DC5;
+        for (byte b : value) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * spreads the bits of the hash, so the low bits used for the slot are well distributed.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    /**
+     * compares the UTF-8 encoding of the given string with the bytes stored at the given position, without encoding it into a byte array.
+     */
+    private static boolean equalsUtf8(String value, ByteBuffer segment, int position, int byteLength) {
+        int end = position + byteLength;
+        int length = value.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = codePointAt(value, i);
+            i += Character.charCount(codePoint);
+            int byteCount = utf8Length(codePoint);
+            if (position + byteCount > end) return false;
+            for (int k = 0; k < byteCount; k++) {
+                if ((segment.get(position++) & 0xFF) != utf8Byte(codePoint, byteCount, k)) return false;
+            }
+        }
+        return position == end;
+    }
+
+    /**
+     * @return the code point at the given index, an unpaired surrogate is replaced by '?' like the UTF-8 encoder does.
+     */
+    private static int codePointAt(String value, int index) {
+        char c = value.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+            return Character.toCodePoint(c, value.charAt(index + 1));
+        }
+        return Character.isSurrogate(c) ? '?' : c;
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding of the code point.
+     */
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) return 1;
+        if (codePoint < 0x800) return 2;
+        if (codePoint < 0x10000) return 3;
+        return 4;
+    }
+
+    /**
+     * @return the byte at index k of the UTF-8 encoding of the code point.
+     */
+    private static int utf8Byte(int codePoint, int byteCount, int k) {
+        if (byteCount == 1) return codePoint;
+        if (k == 0) return (0xF00 >> byteCount) & 0xFF | codePoint >>> (6 * (byteCount - 1));
+        return 0x80 | (codePoint >>> (6 * (byteCount - 1 - k))) & 0x3F;
+    }
+
+    /**
+     * decodes the UTF-8 string of the given length at the given position using absolute reads only.
+     */
+    private static String decode(ByteBuffer segment, int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = segment.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An immutable list of the answers of one entry, each answer is decoded when it is retrieved.
+     */
+    private static final class AnswerList extends AbstractList<String> implements RandomAccess {
+
+        private final ByteBuffer segment;
+        private final int entry;
+        private final int answerTable;
+        private final int size;
+
+        AnswerList(ByteBuffer segment, int entry) {
+            this.segment = segment;
+            this.entry = entry;
+            int answerCountPosition = entry + 4 + segment.getInt(entry);
+            this.size = segment.getInt(answerCountPosition);
+            this.answerTable = answerCountPosition + 4;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            int answer = this.entry + this.segment.getInt(this.answerTable + 4 * index);
+            return decode(this.segment, answer + 4, this.segment.getInt(answer));
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+
+    /**
+     * Iterates over the used slots of the hash table, decoding the questions and creating lazy answer lists.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, List<String>>> {
+
+        private int slot = -1;
+
+        EntryIterator() {
+            this.advance();
+        }
+
+        private void advance() {
+            do {
+                this.slot++;
+            } while (this.slot < slotCount && slots.getLong(this.slot * SLOT_SIZE) == 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.slot < slotCount;
+        }
+
+        @Override
+        public Map.Entry<String, List<String>> next() {
+            if (!this.hasNext()) throw new NoSuchElementException();
+            long offset = slots.getLong(this.slot * SLOT_SIZE) - 1;
+            ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+            int position = (int) (offset & (SEGMENT_SIZE - 1));
+            String question = decode(segment, position + 4, segment.getInt(position));
+            this.advance();
+            return new AbstractMap.SimpleImmutableEntry<>(question, new AnswerList(segment, position));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.cgm.at.knowledgebase.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * An append-only log of knowledge records written through a memory-mapped region of the log file.
+ * Every append is a single sequential copy into the mapped region; the file is extended region by region.
+ * The records reach the page cache immediately and therefore survive a crash of the process,
+ * {@link #flush()} forces them to the storage device. Appends are serialized by the log.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class MappedKnowledgeLog implements KnowledgeLog {
+
+    //the number of bytes the log file is extended by whenever the mapped region is full.
+    static final int REGION_SIZE = 16 << 20;
+
+    //the channel of the log file.
+    private final FileChannel channel;
+
+    //the currently mapped region the records are appended to.
+    private MappedByteBuffer region;
+
+    //the end of the last intact record, the position the next record is appended at.
+    private volatile long position;
+
+    //the number of times the records were forced to the storage device.
+    private volatile long syncCount;
+
+    /**
+     * opens or creates the log file, the records must be replayed before anything is appended.
+     * @param file the path of the log file.
+     * @throws IOException thrown if the log file cannot be opened.
+     */
+    MappedKnowledgeLog(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * a torn record at the end of the log, caused by a crash while appending, is cut off together with the region padding.
+     */
+    @Override
+    public long replay(BiConsumer<String, List<String>> consumer) throws IOException {
+        long[] count = new long[1];
+        this.position = KnowledgeRecordReader.read(this.channel, 0, this.channel.size(), (question, answers) -> {
+            consumer.accept(question, answers);
+            count[0]++;
+        });
+        this.channel.truncate(this.position);
+        this.mapRegion(REGION_SIZE);
+        return count[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     * the records reach the page cache at once, but the storage device only when the log is flushed.
+     */
+    @Override
+    public synchronized void append(List<ByteBuffer> records) throws IOException {
+        for (ByteBuffer record : records) {
+            int length = record.remaining();
+            if (this.region.remaining() < length) this.mapRegion(Math.max(REGION_SIZE, length));
+            this.region.put(record);
+            this.position += length;
+        }
+    }
+
+    @Override
+    public long size() {
+        return this.position;
+    }
+
+    @Override
+    public synchronized void flush() {
+        this.region.force();
+        this.syncCount++;
+    }
+
+    @Override
+    public long syncCount() {
+        return this.syncCount;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        this.region = null;
+        this.channel.truncate(0);
+        this.position = 0;
+        this.mapRegion(REGION_SIZE);
+    }
+
+    /**
+     * maps a new region starting at the current position, extending the file if necessary.
+     * @param size the size of the region.
+     * @throws IOException thrown if the region cannot be mapped.
+     */
+    private void mapRegion(int size) throws IOException {
+        this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, this.position, size);
+    }
+
+    /**
+     * forces the appended records to the storage device, cuts off the region padding and closes the log file.
+     * @throws IOException thrown if the log file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.region != null) this.region.force();
+        this.region = null;
+        this.channel.truncate(this.position);
+        this.channel.close();
+    }
+}
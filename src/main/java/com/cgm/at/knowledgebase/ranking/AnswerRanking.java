@@ -0,0 +1,185 @@
+package com.cgm.at.knowledgebase.ranking;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ranks the answers of every question by how often or how recently they were used, so the best k answers are returned without sorting.
+ *
+ * Every question whose answers have been used owns a compact ranking: one score per answer and the positions of its answers ordered by
+ * descending score, answers of equal score keep the order they were added in. An ordered array is a heap whose every prefix holds the best answers,
+ * so the top k answers are the first k positions, taken in O(k). Recording a usage raises the score of one answer and moves it up to its new rank
+ * with one binary search and one array copy, the remaining answers keep their relative order.
+ * Questions without any usage are not tracked at all, their answers are ranked in the order they were added.
+ * Replacing or removing the answers of a question discards its ranking. The ranking is thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ * @param <Q> Generic type of Question.
+ * @param <A> Generic type of Answer.
+ */
+public class AnswerRanking<Q, A> implements IKnowledgeListener<Q, A> {
+
+    /**
+     * the orders the answers can be ranked in.
+     */
+    public enum Order {
+        //the most often used answers first.
+        POPULARITY,
+        //the most recently used answers first.
+        RECENCY
+    }
+
+    //the order the answers are ranked in.
+    private final Order order;
+
+    //the rankings of all questions whose answers have been used.
+    private final ConcurrentMap<Q, Ranking> rankings = new ConcurrentHashMap<>();
+
+    //the logical clock stamping every usage when ranking by recency, so no two usages have the same score.
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * initializes the ranking with the given order.
+     * @param order the order the answers are ranked in.
+     */
+    public AnswerRanking(Order order) {
+        if (order == null) throw new IllegalArgumentException("The order must not be null!");
+        this.order = order;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the ranking of a replaced question is discarded.
+     */
+    @Override
+    public void knowledgeAdded(Q question, List<A> answers) {
+        this.rankings.remove(question);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the ranking of a removed question is discarded.
+     */
+    @Override
+    public void knowledgeRemoved(Q question) {
+        this.rankings.remove(question);
+    }
+
+    /**
+     * records that an answer of a question has been used, e.g. selected by a client.
+     * The answer is searched in the answers, so recording a usage takes time linear in the number of answers.
+     * @param question the stored question.
+     * @param answers the stored answers of the question.
+     * @param answer the answer used.
+     * @return true if the answer is one of the answers and the usage has been recorded, otherwise false.
+     */
+    public boolean recordUsage(Q question, List<A> answers, A answer) {
+        int index = answers.indexOf(answer);
+        if (index < 0) return false;
+        Ranking ranking = this.rankings.computeIfAbsent(question, key -> new Ranking(answers.size()));
+        synchronized (ranking) {
+            //the answers have been replaced concurrently, their ranking has been discarded.
+            if (ranking.size() != answers.size()) return false;
+            long score = this.order == Order.POPULARITY ? ranking.scores[index] + 1 : this.clock.incrementAndGet();
+            ranking.raise(index, score);
+        }
+        return true;
+    }
+
+    /**
+     * returns the best answers of a question in ranked order.
+     * @param question the stored question.
+     * @param answers the stored answers of the question.
+     * @param limit the maximum number of answers to return.
+     * @return an immutable list of at most limit answers, the best answer first.
+     */
+    public List<A> top(Q question, List<A> answers, int limit) {
+        int count = Math.min(limit, answers.size());
+        Ranking ranking = this.rankings.get(question);
+        if (ranking == null) return count == answers.size() ? answers : answers.subList(0, count);
+        List<A> top = new ArrayList<>(count);
+        synchronized (ranking) {
+            if (ranking.size() != answers.size()) return answers.subList(0, count);
+            for (int rank = 0; rank < count; rank++) {
+                top.add(answers.get(ranking.positions[rank]));
+            }
+        }
+        return Collections.unmodifiableList(top);
+    }
+
+    /**
+     * Gets the order
+     * @return the order the answers are ranked in.
+     */
+    public Order getOrder() {
+        return this.order;
+    }
+
+    /**
+     * @return the number of questions whose answers have been used.
+     */
+    public int size() {
+        return this.rankings.size();
+    }
+
+    /**
+     * the ranking of the answers of one question, guarded by its own monitor.
+     */
+    private static final class Ranking {
+
+        //the score of every answer by its position in the answers.
+        private final long[] scores;
+
+        //the positions of the answers by descending score, equal scores by ascending position.
+        private final int[] positions;
+
+        //the rank of every answer by its position in the answers, the inverse of positions.
+        private final int[] ranks;
+
+        private Ranking(int size) {
+            this.scores = new long[size];
+            this.positions = new int[size];
+            this.ranks = new int[size];
+            for (int i = 0; i < size; i++) {
+                this.positions[i] = i;
+                this.ranks[i] = i;
+            }
+        }
+
+        private int size() {
+            return this.scores.length;
+        }
+
+        /**
+         * raises the score of an answer and moves it up to the rank of its new score.
+         */
+        private void raise(int position, long score) {
+            this.scores[position] = score;
+            int rank = this.ranks[position];
+            //the first rank in [0, rank) ranked below the raised answer, the ranks above it are ordered.
+            int low = 0;
+            int high = rank;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int other = this.positions[middle];
+                if (this.scores[other] > score || (this.scores[other] == score && other < position)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low == rank) return;
+            System.arraycopy(this.positions, low, this.positions, low + 1, rank - low);
+            this.positions[low] = position;
+            for (int i = low; i <= rank; i++) {
+                this.ranks[this.positions[i]] = i;
+            }
+        }
+    }
+}
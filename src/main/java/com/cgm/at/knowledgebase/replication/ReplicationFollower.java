@@ -0,0 +1,400 @@
+package com.cgm.at.knowledgebase.replication;
+
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A read replica of a {@link ReplicationPrimary}, applying the changes shipped by the primary to its own knowledge base,
+ * which answers the questions locally.
+ *
+ * A background thread connects to the primary, sends the sequence of the latest change applied and applies the snapshot and changes received
+ * in order, acknowledging them whenever it has applied all frames received. If the connection fails or stays silent for four heartbeats,
+ * the follower reconnects after the retry interval and continues with the changes following the sequence applied,
+ * or with a snapshot if the primary does not retain them anymore or has been restarted.
+ * A snapshot is applied over the knowledge of the follower, and once it is complete every question it did not contain is removed
+ * by {@link KnowledgeBase#removeKnowledge(Object)}, so the follower holds exactly the knowledge of the primary afterwards,
+ * e.g. after the primary has been restarted with other knowledge. While a snapshot is applied, readers may see old and new knowledge mixed.
+ *
+ * The knowledge base must be thread-safe, e.g. a {@link com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService},
+ * as it is read by the clients while the changes are applied. Answers shipped with a time to live are added with the remaining time to live,
+ * a {@link com.cgm.at.knowledgebase.expiry.KnowledgeExpiryScheduler} of the follower removes them once expired.
+ * Questions removed from the primary otherwise are removed by {@link KnowledgeBase#removeKnowledge(Object)}.
+ * If the knowledge base rejects a change, the follower stops and the failure is thrown by {@link #close()}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class ReplicationFollower implements AutoCloseable {
+
+    //the default time waited before reconnecting to the primary.
+    public static final Duration DEFAULT_RETRY_INTERVAL = Duration.ofMillis(200);
+
+    //the size of the socket buffers.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    //the knowledge base the changes are applied to.
+    private final KnowledgeBase<String, String, ?> knowledgeBase;
+
+    //the address of the primary.
+    private final InetSocketAddress primary;
+
+    //the time waited before reconnecting in nanoseconds.
+    private final long retryNanos;
+
+    //the monitor the readers waiting for a sequence wait on.
+    private final Object appliedMonitor = new Object();
+
+    //the number of snapshots and changes applied.
+    private final AtomicLong snapshotCount = new AtomicLong();
+    private final AtomicLong changeCount = new AtomicLong();
+
+    //the epoch of the primary and the sequence of the latest change applied, replaced as a whole so readers never see them mixed.
+    private volatile ReplicationToken applied = ReplicationToken.INITIAL;
+
+    //the sequence of the latest change of the primary known.
+    private volatile long primarySequence;
+
+    //the time of System.nanoTime() the follower has last applied all changes of the primary known.
+    private volatile long caughtUpNanos = System.nanoTime();
+
+    //the socket connected to the primary, null while disconnected.
+    private volatile Socket socket;
+
+    //the background thread, null until started.
+    private Thread receiver;
+
+    //true once the follower is closed.
+    private volatile boolean closed;
+
+    //the failure of applying a change, null while the follower works.
+    private volatile KnowledgeBaseException failure;
+
+    /**
+     * initializes the follower of the primary at the given address with the default retry interval.
+     * @param knowledgeBase the thread-safe knowledge base to apply the changes to, its knowledge is replaced by the first snapshot.
+     * @param primary the address of the primary.
+     */
+    public ReplicationFollower(KnowledgeBase<String, String, ?> knowledgeBase, InetSocketAddress primary) {
+        this(knowledgeBase, primary, DEFAULT_RETRY_INTERVAL);
+    }
+
+    /**
+     * initializes the follower of the primary at the given address, call {@link #start()} to connect.
+     * @param knowledgeBase the thread-safe knowledge base to apply the changes to, its knowledge is replaced by the first snapshot.
+     * @param primary the address of the primary.
+     * @param retryInterval the time waited before reconnecting after the connection failed.
+     * @throws IllegalArgumentException thrown if the retry interval is not positive or the knowledge base does not support a time to live,
+     *                                  which the knowledge added with a time to live on the primary is replicated with.
+     */
+    public ReplicationFollower(KnowledgeBase<String, String, ?> knowledgeBase, InetSocketAddress primary, Duration retryInterval) {
+        if (retryInterval.isNegative() || retryInterval.isZero()) throw new IllegalArgumentException("The retry interval must be positive!");
+        if (!knowledgeBase.supportsTimeToLive()) throw new IllegalArgumentException("The knowledge base does not support a time to live!");
+        this.knowledgeBase = knowledgeBase;
+        this.primary = primary;
+        this.retryNanos = retryInterval.toNanos();
+    }
+
+    /**
+     * starts the background thread connecting to the primary and applying its changes.
+     * @throws IllegalStateException thrown if the follower is started twice or already closed.
+     */
+    public synchronized void start() {
+        if (this.receiver != null || this.closed) throw new IllegalStateException("The follower can only be started once!");
+        this.receiver = new Thread(this::receiveLoop, "knowledge-replication-follower");
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+
+    /**
+     * waits until the change of the given token has been applied from the primary which issued the token.
+     * a token of another primary, e.g. of a primary restarted since, is only applied once the follower has caught up with that primary.
+     * @param token the token returned by the primary for a write, null to return at once.
+     * @param timeout the maximum time to wait.
+     * @return true if the change has been applied, false if the timeout elapsed before.
+     * @throws KnowledgeBaseException thrown if the thread is interrupted while waiting.
+     */
+    public boolean awaitSequence(ReplicationToken token, Duration timeout) throws KnowledgeBaseException {
+        if (token == null || this.applied.includes(token)) return true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (this.appliedMonitor) {
+            for (long remaining = timeout.toNanos(); !this.applied.includes(token); remaining = deadline - System.nanoTime()) {
+                if (remaining <= 0) return false;
+                try {
+                    this.appliedMonitor.wait(Math.max(1, remaining / 1_000_000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new KnowledgeBaseException("Interrupted while waiting for the replication of a change.", e);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the answers of the asked question once the change of the given token has been applied,
+     * so a client reads at least the knowledge it has written through the primary.
+     * @param question the question to ask.
+     * @param token the token returned by the primary for the latest write of the client, null to read without waiting.
+     * @param timeout the maximum time to wait for the change.
+     * @return the answers of the question, like {@link KnowledgeBase#askQuestion(Object)}.
+     * @throws IllegalArgumentException thrown if the knowledge base invalidates the question given.
+     * @throws KnowledgeBaseException thrown if the change has not been applied within the timeout.
+     */
+    public List<String> askQuestion(String question, ReplicationToken token, Duration timeout) throws IllegalArgumentException, KnowledgeBaseException {
+        if (!this.awaitSequence(token, timeout)) {
+            throw new KnowledgeBaseException("The change " + token + " has not been replicated within " + timeout.toMillis() + " ms, the replica has applied "
+                    + this.applied + ".");
+        }
+        return this.knowledgeBase.askQuestion(question);
+    }
+
+    /**
+     * Gets the applied token
+     * @return the epoch of the primary and the sequence of the latest change applied, both 0 until the first snapshot is applied.
+     */
+    public ReplicationToken getAppliedToken() {
+        return this.applied;
+    }
+
+    /**
+     * Gets the applied sequence
+     * @return the sequence of the latest change applied.
+     */
+    public long getAppliedSequence() {
+        return this.applied.getSequence();
+    }
+
+    /**
+     * Gets the epoch
+     * @return the epoch of the primary the applied sequence belongs to, 0 until the first snapshot is applied.
+     */
+    public long getEpoch() {
+        return this.applied.getEpoch();
+    }
+
+    /**
+     * @return the number of changes of the primary known but not yet applied.
+     */
+    public long getLag() {
+        return Math.max(0, this.primarySequence - this.applied.getSequence());
+    }
+
+    /**
+     * @return the time since the follower has last applied all changes of the primary known, zero if it is caught up.
+     */
+    public Duration getLagTime() {
+        if (this.getLag() == 0) return Duration.ZERO;
+        return Duration.ofNanos(Math.max(0, System.nanoTime() - this.caughtUpNanos));
+    }
+
+    /**
+     * @return the number of snapshots applied.
+     */
+    public long getSnapshotCount() {
+        return this.snapshotCount.get();
+    }
+
+    /**
+     * @return the number of changes applied, not counting the knowledge of the snapshots.
+     */
+    public long getChangeCount() {
+        return this.changeCount.get();
+    }
+
+    /**
+     * @return true if the follower is connected to the primary.
+     */
+    public boolean isConnected() {
+        return this.socket != null;
+    }
+
+    /**
+     * disconnects from the primary and stops the background thread.
+     * @throws KnowledgeBaseException thrown if the knowledge base rejected a change.
+     */
+    @Override
+    public void close() throws KnowledgeBaseException {
+        Thread receiver;
+        synchronized (this) {
+            if (this.closed) return;
+            this.closed = true;
+            receiver = this.receiver;
+        }
+        closeQuietly(this.socket);
+        boolean interrupted = false;
+        while (receiver != null && receiver.isAlive()) {
+            LockSupport.unpark(receiver);
+            try {
+                receiver.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (this.failure != null) throw this.failure;
+    }
+
+    /**
+     * the loop of the background thread: connects to the primary and replicates until the connection fails, then retries.
+     */
+    private void receiveLoop() {
+        while (!this.closed) {
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(4 * ReplicationProtocol.HEARTBEAT_MILLIS);
+                socket.connect(this.primary, 4 * ReplicationProtocol.HEARTBEAT_MILLIS);
+                this.socket = socket;
+                //a socket connected while closing would not be closed by close().
+                if (this.closed) return;
+                this.replicate(socket);
+            } catch (IOException e) {
+                //the primary is unreachable or the connection failed, retried after the interval.
+            } catch (KnowledgeBaseException e) {
+                this.failure = e;
+                return;
+            } finally {
+                this.socket = null;
+                closeQuietly(socket);
+            }
+            if (!this.closed) LockSupport.parkNanos(this.retryNanos);
+        }
+    }
+
+    /**
+     * sends the handshake and applies the frames received until the connection fails.
+     * @throws KnowledgeBaseException thrown if the knowledge base rejects a change.
+     */
+    private void replicate(Socket socket) throws IOException, KnowledgeBaseException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(ReplicationProtocol.MAGIC);
+        ReplicationToken applied = this.applied;
+        out.writeLong(applied.getEpoch());
+        out.writeLong(applied.getSequence());
+        out.flush();
+
+        //the epoch, sequence and questions of the snapshot being received, the sequence is -1 outside of a snapshot.
+        long snapshotEpoch = 0;
+        long snapshotSequence = -1;
+        Set<String> snapshotQuestions = new HashSet<>();
+        while (true) {
+            byte type = in.readByte();
+            switch (type) {
+                case ReplicationProtocol.SNAPSHOT:
+                    snapshotEpoch = in.readLong();
+                    snapshotSequence = in.readLong();
+                    snapshotQuestions.clear();
+                    break;
+                case ReplicationProtocol.ENTRY:
+                    if (snapshotSequence < 0) throw new IOException("Snapshot entry received outside of a snapshot.");
+                    snapshotQuestions.add(this.apply(in));
+                    break;
+                case ReplicationProtocol.SNAPSHOT_END:
+                    if (snapshotSequence < 0) throw new IOException("Snapshot end received outside of a snapshot.");
+                    this.removeAllExcept(snapshotQuestions);
+                    snapshotQuestions = new HashSet<>();
+                    this.snapshotCount.incrementAndGet();
+                    this.applied(new ReplicationToken(snapshotEpoch, snapshotSequence));
+                    snapshotSequence = -1;
+                    break;
+                case ReplicationProtocol.HEAD:
+                    this.primarySequence = in.readLong();
+                    break;
+                case ReplicationProtocol.CHANGE:
+                    long sequence = in.readLong();
+                    if (snapshotSequence >= 0 || sequence != this.applied.getSequence() + 1) throw new IOException("Change " + sequence + " received out of order.");
+                    this.apply(in);
+                    this.changeCount.incrementAndGet();
+                    this.applied(new ReplicationToken(this.applied.getEpoch(), sequence));
+                    break;
+                case ReplicationProtocol.REMOVE:
+                    long removalSequence = in.readLong();
+                    if (snapshotSequence >= 0 || removalSequence != this.applied.getSequence() + 1) throw new IOException("Change " + removalSequence + " received out of order.");
+                    this.knowledgeBase.removeKnowledge(ReplicationProtocol.readQuestion(in));
+                    this.changeCount.incrementAndGet();
+                    this.applied(new ReplicationToken(this.applied.getEpoch(), removalSequence));
+                    break;
+                default:
+                    throw new IOException("Unknown frame type: " + type);
+            }
+            if (this.applied.getSequence() >= this.primarySequence) this.caughtUpNanos = System.nanoTime();
+            //acknowledges once all frames received have been applied.
+            if (snapshotSequence < 0 && in.available() == 0) {
+                out.writeLong(this.applied.getSequence());
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * removes all questions of the knowledge base not contained in the snapshot just applied.
+     * @throws KnowledgeBaseException thrown if a question cannot be removed due to collection implementation errors.
+     */
+    private void removeAllExcept(Set<String> snapshotQuestions) throws KnowledgeBaseException {
+        List<String> stale = new ArrayList<>();
+        for (String question : this.knowledgeBase.getAllKnowledge().keySet()) {
+            if (!snapshotQuestions.contains(question)) stale.add(question);
+        }
+        for (String question : stale) {
+            this.knowledgeBase.removeKnowledge(question);
+        }
+    }
+
+    /**
+     * reads the knowledge of a frame and adds it to the knowledge base.
+     * @return the question added.
+     * @throws KnowledgeBaseException thrown if the knowledge base rejects the knowledge.
+     */
+    private String apply(DataInputStream in) throws IOException, KnowledgeBaseException {
+        long timeToLive = in.readLong();
+        Map.Entry<String, List<String>> knowledge = ReplicationProtocol.readRecord(in);
+        try {
+            if (timeToLive == ReplicationProtocol.NO_EXPIRY) {
+                this.knowledgeBase.addKnowledge(knowledge.getKey(), knowledge.getValue());
+            } else {
+                this.knowledgeBase.addKnowledge(knowledge.getKey(), knowledge.getValue(), Duration.ofNanos(timeToLive));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new KnowledgeBaseException("The replica rejected the knowledge of " + knowledge.getKey() + ": " + e.getMessage(), e);
+        }
+        return knowledge.getKey();
+    }
+
+    /**
+     * records the sequence applied and wakes the readers waiting for it.
+     */
+    private void applied(ReplicationToken applied) {
+        synchronized (this.appliedMonitor) {
+            this.applied = applied;
+            this.appliedMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * closes a socket, ignoring failures.
+     */
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //the socket is closed anyway.
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.cgm.at.knowledgebase.replication;
+
+import java.util.List;
+
+/**
+ * The change log of a {@link ReplicationPrimary}: the most recent changes of the knowledge base, numbered by consecutive sequences.
+ *
+ * The changes are kept in a ring of fixed capacity, appending a change overwrites the oldest one once the ring is full,
+ * so a follower lagging behind by more than the capacity cannot be sent the changes it misses and catches up from a snapshot instead.
+ * Sequence 0 stands for the knowledge contained before the first change. The log is thread-safe, guarded by its own monitor,
+ * which also serializes the writes of the primary.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class ReplicationLog {
+
+    //the questions and answers of the retained changes, the change of a sequence at the index sequence modulo the capacity,
+    //the answers of a removal are null.
+    private final String[] questions;
+    private final Object[] answers;
+
+    //the sequence of the latest change, 0 if no change has been appended.
+    private long head;
+
+    /**
+     * initializes an empty log.
+     * @param capacity the number of changes retained.
+     */
+    ReplicationLog(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity of the log must be positive!");
+        this.questions = new String[capacity];
+        this.answers = new Object[capacity];
+    }
+
+    /**
+     * appends a change and wakes the threads waiting for it.
+     * @param question the question added, replaced or removed.
+     * @param answers the immutable answers of the question, null if the question was removed.
+     * @return the sequence of the change.
+     */
+    synchronized long append(String question, List<String> answers) {
+        long sequence = ++this.head;
+        int index = (int) (sequence % this.questions.length);
+        this.questions[index] = question;
+        this.answers[index] = answers;
+        this.notifyAll();
+        return sequence;
+    }
+
+    /**
+     * Gets the head
+     * @return the sequence of the latest change, 0 if no change has been appended.
+     */
+    synchronized long getHead() {
+        return this.head;
+    }
+
+    /**
+     * waits until a change after the given sequence is appended or the timeout elapses.
+     * @param sequence the sequence of the latest change already known.
+     * @param timeoutMillis the maximum time to wait in milliseconds.
+     * @return the sequence of the latest change.
+     * @throws InterruptedException thrown if the thread is interrupted while waiting.
+     */
+    synchronized long await(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        for (long remaining = timeoutMillis; this.head <= sequence && remaining > 0; remaining = (deadline - System.nanoTime()) / 1_000_000L) {
+            this.wait(remaining);
+        }
+        return this.head;
+    }
+
+    /**
+     * @param sequence the sequence of the latest change a follower has applied.
+     * @return true if all changes after the given sequence are still retained.
+     */
+    synchronized boolean follows(long sequence) {
+        return sequence <= this.head && this.head - sequence <= this.questions.length;
+    }
+
+    /**
+     * copies the changes following the given sequence, at most as many as fit into the arrays given.
+     * @param sequence the sequence of the latest change already copied.
+     * @param questions receives the questions of the changes.
+     * @param answers receives the answers of the changes, null for a removal.
+     * @return the number of changes copied, or -1 if the changes following the sequence have been overwritten.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized int read(long sequence, String[] questions, List<String>[] answers) {
+        if (!this.follows(sequence)) return -1;
+        int count = (int) Math.min(this.head - sequence, questions.length);
+        for (int i = 0; i < count; i++) {
+            int index = (int) ((sequence + 1 + i) % this.questions.length);
+            questions[i] = this.questions[index];
+            answers[i] = (List<String>) this.answers[index];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,457 @@
+package com.cgm.at.knowledgebase.replication;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeListener;
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The primary of a replicated textual knowledge base, shipping every change of its knowledge base to the {@link ReplicationFollower}s
+ * connected over a socket, which apply the changes to their own knowledge base and answer questions locally.
+ *
+ * The primary listens to its knowledge base and appends every question added, replaced or removed to a {@link ReplicationLog},
+ * numbering the changes by consecutive sequences. Every follower is served by its own thread, which sends the changes following
+ * the latest change the follower has applied, in order, and sends heartbeats while the knowledge base is idle.
+ * A follower connecting for the first time, connecting to a restarted primary or lagging behind by more than the retained changes
+ * is sent a snapshot of all knowledge first, followed by the changes appended since the snapshot was started.
+ * The follower removes the questions the snapshot does not contain once it is complete.
+ *
+ * Writes should be made through {@link #addKnowledge(String, List)} and {@link #removeKnowledge(String)},
+ * which serialize them and return the epoch of the primary and the sequence of the change as a {@link ReplicationToken}.
+ * A client reading from a follower passes the token to {@link ReplicationFollower#askQuestion(String, ReplicationToken, Duration)} to read its own writes,
+ * a follower only treats it as applied once it has applied the change from this primary, not from a primary restarted since.
+ * Knowledge added to or removed from the knowledge base directly is replicated as well, but concurrent writes of the same question may then be
+ * shipped in another order than they were stored. The knowledge base must be thread-safe, e.g. a
+ * {@link com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService}, as the snapshots are read concurrently to the writes.
+ * Knowledge removed from the primary on expiry is not shipped, the followers expire it by the time to live shipped with the answers.
+ * Questions removed otherwise, e.g. by {@link KnowledgeBase#removeKnowledge(Object)} when a partition moves, are removed from the followers.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class ReplicationPrimary implements IKnowledgeListener<String, String>, AutoCloseable {
+
+    //the default number of changes retained for lagging followers.
+    public static final int DEFAULT_LOG_CAPACITY = 1 << 16;
+
+    //the maximum number of changes sent to a follower at once.
+    private static final int BATCH_SIZE = 256;
+
+    //the size of the socket buffers of a connection.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    //the knowledge base whose changes are shipped.
+    private final KnowledgeBase<String, String, ?> knowledgeBase;
+
+    //the most recent changes of the knowledge base.
+    private final ReplicationLog log;
+
+    //the identity of this primary, the sequences of its changes are only meaningful together with it.
+    private final long epoch;
+
+    //the socket the followers connect to.
+    private final ServerSocket serverSocket;
+
+    //the connections of the followers.
+    private final Set<FollowerConnection> followers = ConcurrentHashMap.newKeySet();
+
+    //the number of snapshots sent.
+    private final AtomicLong snapshotCount = new AtomicLong();
+
+    //the thread accepting the followers, null until started.
+    private Thread acceptor;
+
+    //true once the primary is closed.
+    private volatile boolean closed;
+
+    /**
+     * creates the primary bound to the given address retaining the default number of changes, call {@link #start()} to accept followers.
+     * @param knowledgeBase the thread-safe knowledge base whose changes are shipped.
+     * @param address the address to bind to, port 0 binds to a free port.
+     * @throws KnowledgeBaseException thrown if the primary cannot be bound to the address.
+     */
+    public ReplicationPrimary(KnowledgeBase<String, String, ?> knowledgeBase, InetSocketAddress address) throws KnowledgeBaseException {
+        this(knowledgeBase, address, DEFAULT_LOG_CAPACITY);
+    }
+
+    /**
+     * creates the primary bound to the given address and registers it as listener, call {@link #start()} to accept followers.
+     * @param knowledgeBase the thread-safe knowledge base whose changes are shipped.
+     * @param address the address to bind to, port 0 binds to a free port.
+     * @param logCapacity the number of changes retained, a follower lagging behind by more changes catches up from a snapshot.
+     * @throws KnowledgeBaseException thrown if the primary cannot be bound to the address.
+     */
+    public ReplicationPrimary(KnowledgeBase<String, String, ?> knowledgeBase, InetSocketAddress address, int logCapacity) throws KnowledgeBaseException {
+        this.knowledgeBase = knowledgeBase;
+        this.log = new ReplicationLog(logCapacity);
+        long epoch;
+        do {
+            epoch = ThreadLocalRandom.current().nextLong();
+        } while (epoch == 0);
+        this.epoch = epoch;
+        try {
+            this.serverSocket = new ServerSocket();
+            this.serverSocket.setReuseAddress(true);
+            this.serverSocket.bind(address);
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("The primary could not be bound to " + address + ": " + e.getMessage(), e);
+        }
+        knowledgeBase.addKnowledgeListener(this);
+    }
+
+    /**
+     * starts accepting followers in the background.
+     * @throws IllegalStateException thrown if the primary is started twice or already closed.
+     */
+    public synchronized void start() {
+        if (this.acceptor != null || this.closed) throw new IllegalStateException("The primary can only be started once!");
+        this.acceptor = new Thread(this::acceptLoop, "knowledge-replication-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * Adds the given question and answers to the knowledge base, serialized with all other writes of the primary.
+     * @param question the question to add.
+     * @param answers the answers of the question, the list must not be empty!
+     * @return the token of the write, the epoch of the primary and the sequence of the change a follower must have applied to read it.
+     * @throws IllegalArgumentException thrown if the knowledge base invalidates the question or answers given.
+     * @throws KnowledgeBaseException thrown if the question cannot be added due to collection implementation errors.
+     */
+    public ReplicationToken addKnowledge(String question, List<String> answers) throws IllegalArgumentException, KnowledgeBaseException {
+        synchronized (this.log) {
+            this.knowledgeBase.addKnowledge(question, answers);
+            return new ReplicationToken(this.epoch, this.log.getHead());
+        }
+    }
+
+    /**
+     * Adds the given question and answers expiring after the given time to live, like {@link #addKnowledge(String, List)}.
+     * The followers expire the answers after the time to live remaining when the change is shipped.
+     * @param question the question to add.
+     * @param answers the answers of the question, the list must not be empty!
+     * @param timeToLive the positive time after which the answers expire.
+     * @return the token of the write, the epoch of the primary and the sequence of the change a follower must have applied to read it.
+     * @throws IllegalArgumentException thrown if the time to live is not positive or the knowledge base invalidates the question or answers given.
+     * @throws KnowledgeBaseException thrown if the question cannot be added due to collection implementation errors.
+     */
+    public ReplicationToken addKnowledge(String question, List<String> answers, Duration timeToLive) throws IllegalArgumentException, KnowledgeBaseException {
+        synchronized (this.log) {
+            this.knowledgeBase.addKnowledge(question, answers, timeToLive);
+            return new ReplicationToken(this.epoch, this.log.getHead());
+        }
+    }
+
+    /**
+     * Removes the given question from the knowledge base, serialized with all other writes of the primary.
+     * @param question the question to remove.
+     * @return the token of the write, the epoch of the primary and the sequence of the latest change a follower must have applied to read it.
+     * @throws KnowledgeBaseException thrown if the question cannot be removed due to collection implementation errors.
+     */
+    public ReplicationToken removeKnowledge(String question) throws KnowledgeBaseException {
+        synchronized (this.log) {
+            this.knowledgeBase.removeKnowledge(question);
+            return new ReplicationToken(this.epoch, this.log.getHead());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * appends the change to the log shipped to the followers.
+     */
+    @Override
+    public void knowledgeAdded(String question, List<String> answers) {
+        this.log.append(question, answers);
+    }
+
+    /**
+     * {@inheritDoc}
+     * appends the removal to the log shipped to the followers.
+     */
+    @Override
+    public void knowledgeRemoved(String question) {
+        this.log.append(question, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the expiry is not shipped, the followers expire the answers by the time to live shipped with them.
+     */
+    @Override
+    public void knowledgeExpired(String question) {
+    }
+
+    /**
+     * @return the address the primary is bound to, including the actual port.
+     */
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(this.serverSocket.getInetAddress(), this.serverSocket.getLocalPort());
+    }
+
+    /**
+     * Gets the sequence
+     * @return the sequence of the latest change, the token of every write made so far.
+     */
+    public long getSequence() {
+        return this.log.getHead();
+    }
+
+    /**
+     * Gets the token
+     * @return the epoch of this primary and the sequence of the latest change, the token of every write made so far.
+     */
+    public ReplicationToken getToken() {
+        return new ReplicationToken(this.epoch, this.log.getHead());
+    }
+
+    /**
+     * Gets the epoch
+     * @return the identity of this primary, different for every primary created.
+     */
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * @return the number of followers connected.
+     */
+    public int getFollowerCount() {
+        return this.followers.size();
+    }
+
+    /**
+     * @return the number of changes the slowest connected follower has not acknowledged yet, 0 if no follower is connected.
+     */
+    public long getMaxLag() {
+        long head = this.log.getHead();
+        long lag = 0;
+        for (FollowerConnection follower : this.followers) {
+            lag = Math.max(lag, head - follower.acknowledged);
+        }
+        return lag;
+    }
+
+    /**
+     * @return the number of snapshots sent to followers.
+     */
+    public long getSnapshotCount() {
+        return this.snapshotCount.get();
+    }
+
+    /**
+     * stops accepting followers, disconnects the followers connected and unregisters the primary from the knowledge base.
+     */
+    @Override
+    public void close() {
+        Thread acceptor;
+        synchronized (this) {
+            if (this.closed) return;
+            this.closed = true;
+            acceptor = this.acceptor;
+        }
+        this.knowledgeBase.removeKnowledgeListener(this);
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            //the socket is closed anyway.
+        }
+        boolean interrupted = join(acceptor);
+        for (FollowerConnection follower : this.followers) {
+            follower.close();
+            interrupted |= join(follower.sender);
+            interrupted |= join(follower.acknowledger);
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * waits for a thread to terminate.
+     * @return true if the calling thread has been interrupted while waiting.
+     */
+    private static boolean join(Thread thread) {
+        boolean interrupted = false;
+        while (thread != null && thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        return interrupted;
+    }
+
+    /**
+     * the loop of the accepting thread: starts a connection for every follower connecting.
+     */
+    private void acceptLoop() {
+        while (!this.closed) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(4 * ReplicationProtocol.HEARTBEAT_MILLIS);
+                FollowerConnection follower;
+                try {
+                    follower = new FollowerConnection(socket);
+                } catch (IOException e) {
+                    socket.close();
+                    continue;
+                }
+                this.followers.add(follower);
+                //a connection accepted while closing would not be closed by close().
+                if (this.closed) {
+                    follower.close();
+                    return;
+                }
+                follower.sender.start();
+            } catch (IOException e) {
+                //the socket has been closed, or the follower failed while connecting.
+            }
+        }
+    }
+
+    /**
+     * sends a snapshot of all knowledge.
+     * The sequence is read before the knowledge, so every change not contained in the snapshot follows the sequence.
+     * @return the sequence of the latest change contained in the snapshot.
+     */
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long sequence = this.log.getHead();
+        out.writeByte(ReplicationProtocol.SNAPSHOT);
+        out.writeLong(this.epoch);
+        out.writeLong(sequence);
+        for (Map.Entry<String, List<String>> knowledge : this.knowledgeBase.getAllKnowledge().entrySet()) {
+            out.writeByte(ReplicationProtocol.ENTRY);
+            ReplicationProtocol.writeKnowledge(out, knowledge.getKey(), knowledge.getValue());
+        }
+        out.writeByte(ReplicationProtocol.SNAPSHOT_END);
+        this.snapshotCount.incrementAndGet();
+        return sequence;
+    }
+
+    /**
+     * The connection of one follower, served by a thread sending the changes and a thread reading the acknowledgements.
+     */
+    private final class FollowerConnection {
+
+        //the socket connected to the follower and its streams.
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        //the threads sending the changes and reading the acknowledgements.
+        private final Thread sender;
+        private final Thread acknowledger;
+
+        //the sequence of the latest change the follower has acknowledged.
+        private volatile long acknowledged;
+
+        //true once the connection is closed, set before it is removed from the followers.
+        private volatile boolean closed;
+
+        private FollowerConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            this.sender = new Thread(this::send, "knowledge-replication-sender");
+            this.sender.setDaemon(true);
+            this.acknowledger = new Thread(this::acknowledge, "knowledge-replication-acknowledger");
+            this.acknowledger.setDaemon(true);
+        }
+
+        /**
+         * the loop of the sending thread: reads the handshake, sends a snapshot if needed and the changes following the sequence of the follower.
+         */
+        private void send() {
+            DataInputStream in = this.in;
+            DataOutputStream out = this.out;
+            try {
+                if (in.readInt() != ReplicationProtocol.MAGIC) throw new IOException("The peer is no replication follower.");
+                long epoch = in.readLong();
+                long sent = in.readLong();
+                ReplicationLog log = ReplicationPrimary.this.log;
+                if (epoch != ReplicationPrimary.this.epoch || !log.follows(sent)) sent = sendSnapshot(out);
+                this.acknowledged = sent;
+                this.acknowledger.start();
+
+                String[] questions = new String[BATCH_SIZE];
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                List<String>[] answers = new List[BATCH_SIZE];
+                while (!ReplicationPrimary.this.closed && !this.closed) {
+                    long head = log.await(sent, ReplicationProtocol.HEARTBEAT_MILLIS);
+                    out.writeByte(ReplicationProtocol.HEAD);
+                    out.writeLong(head);
+                    while (sent < head) {
+                        int count = log.read(sent, questions, answers);
+                        if (count < 0) {
+                            //the changes may have been overwritten after the connection was closed, await returns without
+                            //noticing the interrupt while changes are pending, so no snapshot is sent to a closed connection.
+                            if (this.closed) return;
+                            //the follower fell behind the retained changes while they were sent.
+                            sent = sendSnapshot(out);
+                            break;
+                        }
+                        for (int i = 0; i < count; i++) {
+                            if (answers[i] == null) {
+                                out.writeByte(ReplicationProtocol.REMOVE);
+                                out.writeLong(++sent);
+                                ReplicationProtocol.writeQuestion(out, questions[i]);
+                            } else {
+                                out.writeByte(ReplicationProtocol.CHANGE);
+                                out.writeLong(++sent);
+                                ReplicationProtocol.writeKnowledge(out, questions[i], answers[i]);
+                            }
+                        }
+                    }
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                //the follower disconnected or the primary is closed, the follower reconnects with the sequence it has applied.
+            } finally {
+                this.close();
+            }
+        }
+
+        /**
+         * the loop of the acknowledging thread: records the sequences acknowledged by the follower.
+         */
+        private void acknowledge() {
+            try {
+                while (true) {
+                    this.acknowledged = this.in.readLong();
+                }
+            } catch (IOException e) {
+                //the follower disconnected or stopped acknowledging.
+            } finally {
+                this.close();
+            }
+        }
+
+        /**
+         * closes the socket, ending both threads, and removes the connection.
+         */
+        private void close() {
+            this.closed = true;
+            ReplicationPrimary.this.followers.remove(this);
+            this.sender.interrupt();
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                //the socket is closed anyway.
+            }
+        }
+    }
+}
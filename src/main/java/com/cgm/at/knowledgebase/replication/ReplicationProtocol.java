@@ -0,0 +1,120 @@
+package com.cgm.at.knowledgebase.replication;
+
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeCodec;
+import com.cgm.at.knowledgebase.expiry.ExpiringAnswers;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The frames exchanged between a {@link ReplicationPrimary} and its followers over a socket, all integers are big endian.
+ *
+ * The follower opens the connection with [int MAGIC][long epoch][long sequence], naming the primary and the latest change it has applied,
+ * and acknowledges the changes applied since by [long sequence] whenever it has applied all frames received.
+ * The primary sends the following frames, each starting with its type:
+ * SNAPSHOT [long epoch][long sequence], followed by one ENTRY [knowledge] per question and SNAPSHOT_END: all knowledge up to the sequence.
+ * HEAD [long sequence]: the sequence of the latest change of the primary, sent before every batch of changes and as heartbeat.
+ * CHANGE [long sequence][knowledge]: the question added or replaced by the change.
+ * REMOVE [long sequence][int questionLength][UTF-8 question]: the question removed by the change.
+ * knowledge: [long timeToLiveNanos][int recordLength][record of {@link BinaryKnowledgeCodec}], a time to live of 0 never expires.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+final class ReplicationProtocol {
+
+    //the first int of a connection, "KBRL".
+    static final int MAGIC = 0x4B42524C;
+
+    //the types of the frames sent by the primary.
+    static final byte SNAPSHOT = 'S';
+    static final byte ENTRY = 'E';
+    static final byte SNAPSHOT_END = 'F';
+    static final byte HEAD = 'H';
+    static final byte CHANGE = 'C';
+    static final byte REMOVE = 'R';
+
+    //the interval of the heartbeats of the primary, a follower not receiving any frame for four intervals reconnects.
+    static final int HEARTBEAT_MILLIS = 500;
+
+    //the time to live of answers which never expire.
+    static final long NO_EXPIRY = 0;
+
+    /**
+     * The caller should be prevented from constructing objects of
+     * this class, by declaring this private constructor.
+     */
+    private ReplicationProtocol() {
+        throw new AssertionError();
+    }
+
+    /**
+     * writes a question and its answers, including the time remaining until the answers expire.
+     * answers already expired are written with the shortest time to live, so they still replace the previous answers of the follower.
+     * @param out the output to write to.
+     * @param question the question.
+     * @param answers the answers of the question, an {@link ExpiringAnswers} if they expire.
+     * @throws IOException thrown if the knowledge cannot be written.
+     */
+    static void writeKnowledge(DataOutputStream out, String question, List<String> answers) throws IOException {
+        long timeToLive = NO_EXPIRY;
+        if (answers instanceof ExpiringAnswers) {
+            timeToLive = Math.max(1, ((ExpiringAnswers<String>) answers).getDeadline() - System.nanoTime());
+        }
+        ByteBuffer record = BinaryKnowledgeCodec.encode(question, answers);
+        out.writeLong(timeToLive);
+        out.writeInt(record.remaining());
+        out.write(record.array(), record.arrayOffset() + record.position(), record.remaining());
+    }
+
+    /**
+     * writes a removed question.
+     * @param out the output to write to.
+     * @param question the question removed.
+     * @throws IOException thrown if the question cannot be written.
+     */
+    static void writeQuestion(DataOutputStream out, String question) throws IOException {
+        byte[] bytes = question.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * reads a removed question.
+     * @param in the input to read from.
+     * @return the question removed.
+     * @throws IOException thrown if the question cannot be read or is malformed.
+     */
+    static String readQuestion(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Malformed question length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * reads the question and answers following the time to live of the knowledge.
+     * @param in the input to read from, positioned behind the time to live.
+     * @return the question as key and the immutable answers as value.
+     * @throws IOException thrown if the record cannot be read or is malformed.
+     */
+    static Map.Entry<String, List<String>> readRecord(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Malformed record length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        try {
+            Map.Entry<String, List<String>> knowledge = BinaryKnowledgeCodec.decode(record);
+            if (record.hasRemaining()) throw new IOException("Malformed record: unexpected bytes behind the record.");
+            return knowledge;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed record: " + e.getMessage(), e);
+        }
+    }
+}
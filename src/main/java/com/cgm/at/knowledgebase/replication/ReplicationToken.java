@@ -0,0 +1,61 @@
+package com.cgm.at.knowledgebase.replication;
+
+/**
+ * The token of a write made through a {@link ReplicationPrimary}: the epoch of the primary together with the sequence of the change.
+ * A sequence is only meaningful together with the epoch of the primary which numbered it, so a follower only treats a token as applied
+ * once it has applied the change of the sequence from the same primary, not when a restarted primary has reached a higher sequence.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class ReplicationToken {
+
+    //the token of the knowledge a follower holds before it has applied its first snapshot.
+    static final ReplicationToken INITIAL = new ReplicationToken(0, 0);
+
+    //the identity of the primary the sequence belongs to.
+    private final long epoch;
+
+    //the sequence of the change.
+    private final long sequence;
+
+    /**
+     * initializes the token with the parameters given, e.g. with a token passed between processes.
+     * @param epoch the identity of the primary the sequence belongs to, see {@link ReplicationPrimary#getEpoch()}.
+     * @param sequence the sequence of the change.
+     */
+    public ReplicationToken(long epoch, long sequence) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Gets the epoch
+     * @return the identity of the primary the sequence belongs to.
+     */
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * Gets the sequence
+     * @return the sequence of the change.
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * @param token the token of a write.
+     * @return true if the change of the given token is contained in the changes up to this token, i.e. both belong to the same primary
+     *         and the sequence of the given token is not after the sequence of this token.
+     */
+    public boolean includes(ReplicationToken token) {
+        return this.epoch == token.epoch && this.sequence >= token.sequence;
+    }
+
+    @Override
+    public String toString() {
+        return this.epoch + ":" + this.sequence;
+    }
+}
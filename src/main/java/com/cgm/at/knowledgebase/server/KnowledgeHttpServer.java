@@ -0,0 +1,318 @@
+package com.cgm.at.knowledgebase.server;
+
+import com.cgm.at.knowledgebase.BatchQueryProcessor;
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * An embedded HTTP server exposing a textual knowledge base, based on the HTTP server built into the JDK.
+ * The server provides the following endpoints, all responses are UTF-8 encoded plain text:
+ * 1) GET /ask?question=&lt;question&gt; or POST /ask with the question as body: the answers, one answer per line.
+ *    Answers exceeding {@link #BUFFERED_ANSWERS_SIZE} characters are streamed as they are read from the knowledge base,
+ *    so large answer sets are never buffered as a whole. If reading them fails once the response has been started,
+ *    the connection is closed without completing the response, so the client never receives a truncated answer as complete.
+ *    The query parameter limit=&lt;k&gt; restricts the answers to the best k answers, see {@link IKnowledgeService#askQuestion(Object, int)}.
+ * 2) POST /add with a question line as body: adds the knowledge, answered with 201.
+ * 3) POST /bulk with one question per line as body: one line of the format {@code <question> "<answer1>" ... "<answerX>"}
+ *    per valid question, streamed in the order of the questions. If questions are invalid,
+ *    an empty line follows the answers and then one line per invalid question with its line number and error.
+ *    If the knowledge base fails while the questions are answered, the connection is closed without completing the response.
+ * Invalid questions and knowledge are answered with 400, unknown paths with 404 and unsupported methods with 405.
+ *
+ * The connections are accepted and parsed by the dispatcher thread of the JDK server and kept alive between requests,
+ * the requests are handled on a fixed pool of threads. The knowledge base must therefore be thread-safe.
+ * The JDK server writes the headers and the body of a response separately, so with Nagle's algorithm the body of every response
+ * on a kept alive connection waits for the delayed acknowledgement of the headers. Deployments should disable it by setting the
+ * JVM-wide system property {@link #NO_DELAY_PROPERTY} to true, e.g. with -Dsun.net.httpserver.nodelay=true, the property is read
+ * once by the JDK server, before the first server of the JVM is created. The server mode of the Application sets it on start.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class KnowledgeHttpServer implements AutoCloseable {
+
+    //the paths of the endpoints.
+    public static final String ASK_PATH = "/ask";
+    public static final String ADD_PATH = "/add";
+    public static final String BULK_PATH = "/bulk";
+
+    //the name of the query parameter containing the question to ask.
+    public static final String QUESTION_PARAMETER = "question";
+
+    //the name of the query parameter containing the maximum number of answers.
+    public static final String LIMIT_PARAMETER = "limit";
+
+    //the maximum size of the body of an ask or add request.
+    private static final int MAX_BODY_SIZE = 1 << 20;
+
+    //the number of characters of answers buffered before an answer response is streamed,
+    //smaller responses are sent with their length, so a failure while reading the answers is still answered with 500.
+    private static final int BUFFERED_ANSWERS_SIZE = 1 << 16;
+
+    //the content type of all responses.
+    private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    //the system property of the JDK server disabling Nagle's algorithm on accepted connections.
+    public static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    //the knowledge base answering the requests.
+    private final IKnowledgeService<String, String, String> knowledgeService;
+
+    //the JDK HTTP server and the pool its requests are handled on.
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * creates the server bound to the given address, call {@link #start()} to accept requests.
+     * @param knowledgeService the thread-safe knowledge base answering the requests.
+     * @param address the address to bind to, port 0 binds to a free port.
+     * @param threads the number of threads handling requests.
+     * @throws KnowledgeBaseException thrown if the server cannot be bound to the address.
+     */
+    public KnowledgeHttpServer(IKnowledgeService<String, String, String> knowledgeService, InetSocketAddress address, int threads) throws KnowledgeBaseException {
+        if (threads < 1) throw new IllegalArgumentException("The number of threads must be at least 1!");
+        this.knowledgeService = knowledgeService;
+        try {
+            this.server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("The server could not be bound to " + address + ": " + e.getMessage(), e);
+        }
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server.setExecutor(this.executor);
+        this.server.createContext(ASK_PATH, exchange -> this.handle(exchange, ASK_PATH, this::ask));
+        this.server.createContext(ADD_PATH, exchange -> this.handle(exchange, ADD_PATH, this::add));
+        this.server.createContext(BULK_PATH, exchange -> this.handle(exchange, BULK_PATH, this::bulk));
+    }
+
+    /**
+     * starts accepting requests in the background.
+     */
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * @return the address the server is bound to, including the actual port.
+     */
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    /**
+     * stops accepting requests, waits at most one second for running requests and stops the threads handling them.
+     */
+    @Override
+    public void close() {
+        this.server.stop(1);
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(1, TimeUnit.SECONDS)) this.executor.shutdownNow();
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * answers the question given as query parameter or body.
+     */
+    private void ask(HttpExchange exchange) throws IOException, KnowledgeBaseException {
+        String question;
+        if ("GET".equals(exchange.getRequestMethod())) {
+            question = queryParameter(exchange.getRequestURI().getRawQuery(), QUESTION_PARAMETER);
+        } else if ("POST".equals(exchange.getRequestMethod())) {
+            question = readBody(exchange);
+        } else {
+            respond(exchange, 405, "Method " + exchange.getRequestMethod() + " is not allowed.");
+            return;
+        }
+        if (question == null) {
+            respond(exchange, 400, "The question is missing.");
+            return;
+        }
+        String limit = queryParameter(exchange.getRequestURI().getRawQuery(), LIMIT_PARAMETER);
+        //the question is validated before the response is started, so an invalid question is still answered with 400.
+        Stream<String> answers = limit == null ? this.knowledgeService.streamAnswers(question)
+                : this.knowledgeService.askQuestion(question, parseLimit(limit)).stream();
+        Iterator<String> iterator = answers.iterator();
+        StringBuilder body = new StringBuilder();
+        try {
+            while (body.length() < BUFFERED_ANSWERS_SIZE && iterator.hasNext()) {
+                body.append(iterator.next()).append('\n');
+            }
+        } catch (RuntimeException e) {
+            throw new KnowledgeBaseException("Error while reading the answers: " + e.getMessage(), e);
+        }
+        if (!iterator.hasNext()) {
+            respond(exchange, 200, body.toString());
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        try {
+            out.append(body);
+            while (iterator.hasNext()) {
+                out.write(iterator.next());
+                out.write('\n');
+            }
+        } catch (RuntimeException e) {
+            throw new AbortedResponseException(e);
+        }
+        out.close();
+    }
+
+    /**
+     * adds the question line given as body.
+     */
+    private void add(HttpExchange exchange) throws IOException, KnowledgeBaseException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Method " + exchange.getRequestMethod() + " is not allowed.");
+            return;
+        }
+        this.knowledgeService.addKnowledge(readBody(exchange));
+        respond(exchange, 201, "Question has been added successfully!\n");
+    }
+
+    /**
+     * answers the questions of the body, streaming the answers in chunks.
+     */
+    private void bulk(HttpExchange exchange) throws IOException, KnowledgeBaseException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Method " + exchange.getRequestMethod() + " is not allowed.");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        StringWriter errors = new StringWriter();
+        try {
+            new BatchQueryProcessor(this.knowledgeService, 1).process(in, out, errors);
+            if (errors.getBuffer().length() > 0) {
+                out.write('\n');
+                out.write(errors.toString());
+            }
+        } catch (KnowledgeBaseException | RuntimeException e) {
+            throw new AbortedResponseException(e);
+        }
+        out.close();
+    }
+
+    /**
+     * handles a request of an endpoint, answering errors with the matching status code and closing the exchange.
+     */
+    private void handle(HttpExchange exchange, String path, Endpoint endpoint) throws IOException {
+        boolean aborted = false;
+        try {
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404, "No endpoint at " + exchange.getRequestURI().getPath() + ".");
+                return;
+            }
+            endpoint.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, e.getMessage());
+        } catch (KnowledgeBaseException e) {
+            respond(exchange, 500, "The knowledge base reported following error: " + e.getMessage());
+        } catch (AbortedResponseException e) {
+            //the exchange is left open, the JDK server closes the connection on the exception, so the response is never completed.
+            aborted = true;
+            throw e;
+        } finally {
+            if (!aborted) exchange.close();
+        }
+    }
+
+    /**
+     * sends the status code and body if the response has not been started yet.
+     */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (exchange.getResponseCode() != -1) return;
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * reads the whole body of a request as UTF-8 text.
+     * @throws IllegalArgumentException thrown if the body is larger than the maximum body size.
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_SIZE + 1);
+            if (bytes.length > MAX_BODY_SIZE) throw new IllegalArgumentException("The request body is larger than " + MAX_BODY_SIZE + " bytes.");
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * parses the value of the limit parameter.
+     * @throws IllegalArgumentException thrown if the value is not a number.
+     */
+    private static int parseLimit(String limit) {
+        try {
+            return Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The limit " + limit + " is not a number.");
+        }
+    }
+
+    /**
+     * extracts and decodes a parameter of a raw query string.
+     * @return the decoded value of the first occurrence of the parameter, or null if it is not contained.
+     */
+    private static String queryParameter(String rawQuery, String name) {
+        if (rawQuery == null) return null;
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Thrown if a response fails after its status has been sent, the response must not be completed.
+     */
+    private static final class AbortedResponseException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        AbortedResponseException(Throwable cause) {
+            super("The response has been aborted: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * The handler of one endpoint.
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        void handle(HttpExchange exchange) throws IOException, KnowledgeBaseException;
+    }
+}
@@ -0,0 +1,96 @@
+package com.cgm.at.knowledgebase.services;
+
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeCodec;
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeReader;
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeWriter;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A binary implementation of the knowledge base, questions and answers are of type String
+ * and knowledge is serialized as one {@link BinaryKnowledgeCodec} record per ByteBuffer.
+ * Records are length prefixed, so they are decoded without scanning for quotations, and answers may contain quotations.
+ * The whole knowledge is exported to and imported from files of binary knowledge streams, optionally compressed,
+ * see {@link BinaryKnowledgeWriter} and {@link BinaryKnowledgeReader}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class BinaryKnowledgeService extends KnowledgeBase<String, String, ByteBuffer> {
+
+    /**
+     * initializes the binary knowledge base with an empty HashMap, a new validationService, and a default answer for unknown questions.
+     */
+    public BinaryKnowledgeService() {
+        super(new HashMap<>(), new BinaryKnowledgeValidationService(), TextualKnowledgeService.DEFAULT_ANSWER);
+    }
+
+    /**
+     * initializes the binary knowledge base with the given Map, a new validationService, and the given default answer for unknown questions.
+     * @param knowledge A Map containing predefined knowledge (Questions and Answers accordingly).
+     * @param defaultValue A String containing the default answer.
+     */
+    public BinaryKnowledgeService(Map<String, List<String>> knowledge, String defaultValue) {
+        super(knowledge, new BinaryKnowledgeValidationService(), defaultValue);
+    }
+
+    /**
+     * Imports all records of the given binary knowledge file, the records are passed to the import without being copied.
+     * @param path the path of a file written by {@link #exportTo(Path, boolean)} or a {@link BinaryKnowledgeWriter}.
+     * @return an {@link ImportReport} containing the counts, errors and timings of the import,
+     *         the line numbers of the errors are the numbers of the records in the file.
+     * @throws KnowledgeBaseException thrown if the file cannot be read, is truncated or corrupt, or the knowledge cannot be added.
+     */
+    public ImportReport importFrom(Path path) throws KnowledgeBaseException {
+        try (BinaryKnowledgeReader reader = new BinaryKnowledgeReader(FileChannel.open(path, StandardOpenOption.READ));
+             Stream<ByteBuffer> records = reader.records()) {
+            return this.addKnowledgeBatch(records);
+        } catch (IOException | UncheckedIOException e) {
+            throw new KnowledgeBaseException("Error while importing knowledge from file " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Exports the whole knowledge into a binary knowledge file, replacing the file if it exists.
+     * @param path the path of the file to write.
+     * @param compress true if the blocks of the file should be deflated.
+     * @return the number of questions exported.
+     * @throws KnowledgeBaseException thrown if the file cannot be written.
+     */
+    public long exportTo(Path path, boolean compress) throws KnowledgeBaseException {
+        try (BinaryKnowledgeWriter writer = new BinaryKnowledgeWriter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), BinaryKnowledgeWriter.DEFAULT_BLOCK_SIZE, compress)) {
+            writer.writeAll(this.getAllKnowledge());
+            return writer.getRecordCount();
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while exporting knowledge to file " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the record between position and limit of the buffer is decoded, the position of the buffer is not changed.
+     * @param serializedKnowledge A buffer containing exactly one record, see {@link BinaryKnowledgeCodec#encode(String, List)}.
+     */
+    @Override
+    protected Map.Entry<String, List<String>> deserializeKnowledge(ByteBuffer serializedKnowledge) throws IllegalArgumentException {
+        if (serializedKnowledge == null) throw new InvalidKnowledgeException(ValidationError.QUESTION_NONE_GIVEN, null);
+        ByteBuffer record = serializedKnowledge.duplicate();
+        Map.Entry<String, List<String>> knowledge = BinaryKnowledgeCodec.decode(record);
+        if (record.hasRemaining()) throw new InvalidKnowledgeException(ValidationError.BINARY_FORMAT_INCORRECT, null);
+        return knowledge;
+    }
+}
@@ -0,0 +1,73 @@
+package com.cgm.at.knowledgebase.services;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeCodec;
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@inheritDoc}
+ * the following implementation validates knowledge serialized as one {@link BinaryKnowledgeCodec} record per buffer,
+ * questions and answers are strings validated like the {@link TextualKnowledgeValidationService} does.
+ * a record is checked between position and limit of its buffer without decoding it, the position of a buffer is never changed.
+ */
+public class BinaryKnowledgeValidationService implements IKnowledgeValidationService<String, String, ByteBuffer> {
+
+    //the validation of the decoded questions and answers.
+    private final TextualKnowledgeValidationService textualValidationService = new TextualKnowledgeValidationService();
+
+    @Override
+    public void validateQuestion(String question) throws IllegalArgumentException {
+        this.textualValidationService.validateQuestion(question);
+    }
+
+    @Override
+    public void validateAnswers(List<String> answers) throws IllegalArgumentException {
+        this.textualValidationService.validateAnswers(answers);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @param serializedKnowledge A buffer containing exactly one record between its position and limit.
+     * @throws IllegalArgumentException thrown if the record is truncated, malformed, or followed by further bytes.
+     */
+    @Override
+    public void validateSerializedKnowledgeFormat(ByteBuffer serializedKnowledge) throws IllegalArgumentException {
+        if (this.checkSerializedKnowledge(serializedKnowledge) == ValidationError.BINARY_FORMAT_INCORRECT) {
+            throw new InvalidKnowledgeException(ValidationError.BINARY_FORMAT_INCORRECT, null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the record is decoded only to build the exception, a valid record is checked without decoding it.
+     */
+    @Override
+    public void validateSerializedKnowledge(ByteBuffer serializedKnowledge) throws IllegalArgumentException {
+        ValidationError error = this.checkSerializedKnowledge(serializedKnowledge);
+        if (error == null) return;
+        if (serializedKnowledge == null || error == ValidationError.BINARY_FORMAT_INCORRECT) throw new InvalidKnowledgeException(error, null);
+        Map.Entry<String, List<String>> knowledge = BinaryKnowledgeCodec.decode(serializedKnowledge.duplicate());
+        this.validateQuestion(knowledge.getKey());
+        this.validateAnswers(knowledge.getValue());
+    }
+
+    @Override
+    public ValidationError checkQuestion(String question) {
+        return this.textualValidationService.checkQuestion(question);
+    }
+
+    @Override
+    public ValidationError checkAnswers(List<String> answers) {
+        return this.textualValidationService.checkAnswers(answers);
+    }
+
+    @Override
+    public ValidationError checkSerializedKnowledge(ByteBuffer serializedKnowledge) {
+        if (serializedKnowledge == null) return ValidationError.QUESTION_NONE_GIVEN;
+        return BinaryKnowledgeCodec.check(serializedKnowledge, this.textualValidationService.getMaxLength());
+    }
+}
@@ -0,0 +1,35 @@
+package com.cgm.at.knowledgebase.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe textual implementation of the knowledge base,
+ * questions and answers are both of type String.
+ * The knowledge is kept in a {@link ConcurrentHashMap}, so asking questions never blocks,
+ * and adding knowledge only locks the hash bin of the question added, instead of the whole knowledge base.
+ * Adding a question that is already contained replaces its answers atomically,
+ * a concurrent reader either sees all old or all new answers, which are published as immutable lists.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class ConcurrentTextualKnowledgeService extends TextualKnowledgeService {
+
+    /**
+     * initializes the concurrent textual knowledge base with an empty ConcurrentHashMap, a new validationService, and a default answer for unknown questions.
+     */
+    public ConcurrentTextualKnowledgeService() {
+        super(new ConcurrentHashMap<>(), DEFAULT_ANSWER);
+    }
+
+    /**
+     * initializes the concurrent textual knowledge base with a copy of the given knowledge, a new validationService, and the given default answer for unknown questions.
+     * @param knowledge A Map containing predefined knowledge (Questions and Answers accordingly), copied into a ConcurrentHashMap.
+     * @param defaultValue A String containing the default answer.
+     */
+    public ConcurrentTextualKnowledgeService(Map<String, List<String>> knowledge, String defaultValue) {
+        super(new ConcurrentHashMap<>(knowledge), defaultValue);
+    }
+}
@@ -0,0 +1,81 @@
+package com.cgm.at.knowledgebase.services;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.intern.AnswerDictionary;
+import com.cgm.at.knowledgebase.intern.InternedKnowledgeMap;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A textual implementation of the knowledge base storing every distinct answer once,
+ * questions and answers are both of type String.
+ * The knowledge is held by an {@link InternedKnowledgeMap}, so every question only holds the int ids of its answers
+ * in an {@link AnswerDictionary}, and the heap grows with the distinct answers instead of with every answer added.
+ * The answers are decoded on every question asked and when they are streamed, like the {@link TextualKnowledgeService} it is not thread-safe.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class InternedTextualKnowledgeService extends TextualKnowledgeService {
+
+    /**
+     * initializes the textual knowledge base with an empty interned map and a default answer for unknown questions.
+     */
+    public InternedTextualKnowledgeService() {
+        super(new InternedKnowledgeMap(), DEFAULT_ANSWER);
+    }
+
+    /**
+     * initializes the textual knowledge base with the given knowledge interned into a new map, and the given default answer for unknown questions.
+     * @param knowledge A Map containing predefined knowledge (Questions and Answers accordingly), it is copied.
+     * @param defaultValue A String containing the default answer.
+     */
+    public InternedTextualKnowledgeService(Map<String, List<String>> knowledge, String defaultValue) {
+        super(intern(knowledge), defaultValue);
+    }
+
+    /**
+     * the interned map stores the ids of the answers without a time to live, adding expiring knowledge always fails.
+     * @throws KnowledgeBaseException always.
+     */
+    @Override
+    public long addKnowledge(String question, List<String> answers, Duration timeToLive) throws KnowledgeBaseException {
+        throw new KnowledgeBaseException("The interned knowledge base does not support a time to live!");
+    }
+
+    /**
+     * @return false, see {@link #addKnowledge(String, List, Duration)}.
+     */
+    @Override
+    public boolean supportsTimeToLive() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the answers are decoded from the answer dictionary when they are consumed.
+     */
+    @Override
+    protected Stream<String> streamStoredAnswers(String question) {
+        return ((InternedKnowledgeMap) this.getAllKnowledge()).streamAnswers(question);
+    }
+
+    /**
+     * Gets the answer dictionary
+     * @return the dictionary holding the distinct answers of the knowledge base.
+     */
+    public AnswerDictionary getAnswerDictionary() {
+        return ((InternedKnowledgeMap) this.getAllKnowledge()).getDictionary();
+    }
+
+    /**
+     * @return a new interned map containing the given knowledge.
+     */
+    private static InternedKnowledgeMap intern(Map<String, List<String>> knowledge) {
+        InternedKnowledgeMap interned = new InternedKnowledgeMap();
+        interned.putAll(knowledge);
+        return interned;
+    }
+}
@@ -0,0 +1,87 @@
+package com.cgm.at.knowledgebase.services;
+
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.persistence.MappedKnowledgeIndex;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only textual implementation of the knowledge base,
+ * questions and answers are both of type String.
+ * The knowledge is served from a {@link MappedKnowledgeIndex}, an off-heap hash table in a memory-mapped file,
+ * so the heap only holds the answers currently handed out. Asking questions is thread-safe and never blocks.
+ * An index file can be exported from the knowledge of any textual knowledge base using {@link #export(KnowledgeBase, Path)}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class MappedTextualKnowledgeService extends TextualKnowledgeService {
+
+    /**
+     * initializes the read-only textual knowledge base with the index file at the given path and the default answer for unknown questions.
+     * @param indexFile the path of an index file written by {@link #export(KnowledgeBase, Path)}.
+     * @throws KnowledgeBaseException thrown if the index file cannot be mapped.
+     */
+    public MappedTextualKnowledgeService(Path indexFile) throws KnowledgeBaseException {
+        this(indexFile, DEFAULT_ANSWER);
+    }
+
+    /**
+     * initializes the read-only textual knowledge base with the index file at the given path and the given default answer for unknown questions.
+     * @param indexFile the path of an index file written by {@link #export(KnowledgeBase, Path)}.
+     * @param defaultValue A String containing the default answer.
+     * @throws KnowledgeBaseException thrown if the index file cannot be mapped.
+     */
+    public MappedTextualKnowledgeService(Path indexFile, String defaultValue) throws KnowledgeBaseException {
+        super(openIndex(indexFile), defaultValue);
+    }
+
+    /**
+     * maps the index file at the given path.
+     * @param indexFile the path of the index file.
+     * @return the mapped index.
+     * @throws KnowledgeBaseException thrown if the index file cannot be mapped.
+     */
+    private static MappedKnowledgeIndex openIndex(Path indexFile) throws KnowledgeBaseException {
+        try {
+            return MappedKnowledgeIndex.open(indexFile);
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while opening the knowledge index " + indexFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * writes the whole knowledge of the given knowledge base into an index file, which can be served by this knowledge base.
+     * @param knowledgeBase the knowledge base to export, it must not change during the export.
+     * @param indexFile the path of the index file to write.
+     * @throws KnowledgeBaseException thrown if the index file cannot be written.
+     */
+    public static void export(KnowledgeBase<String, String, ?> knowledgeBase, Path indexFile) throws KnowledgeBaseException {
+        try {
+            MappedKnowledgeIndex.write(knowledgeBase.getAllKnowledge(), indexFile);
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while exporting the knowledge index " + indexFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * the knowledge base is read-only, adding a question always fails.
+     * @throws KnowledgeBaseException always.
+     */
+    @Override
+    protected void storeKnowledge(String question, List<String> answers) throws KnowledgeBaseException {
+        throw new KnowledgeBaseException("The knowledge base is read-only, Questions cannot be added!");
+    }
+
+    /**
+     * the knowledge base is read-only, importing questions always fails.
+     * @throws KnowledgeBaseException always.
+     */
+    @Override
+    protected void storeKnowledge(Map<String, List<String>> knowledge) throws KnowledgeBaseException {
+        throw new KnowledgeBaseException("The knowledge base is read-only, Questions cannot be added!");
+    }
+}
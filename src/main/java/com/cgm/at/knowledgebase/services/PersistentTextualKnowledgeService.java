@@ -0,0 +1,279 @@
+package com.cgm.at.knowledgebase.services;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.persistence.KnowledgeStore;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A persistent textual implementation of the knowledge base,
+ * questions and answers are both of type String.
+ * Every question added is appended to the log of a {@link KnowledgeStore} before it becomes visible,
+ * and once the log exceeds the compaction threshold the whole knowledge is compacted into a new snapshot.
+ * On construction the snapshot of the store directory is mapped and only its log tail is loaded into the heap,
+ * the questions of the snapshot are served off-heap like by a {@link MappedTextualKnowledgeService}.
+ *
+ * By default the log is memory-mapped, so added questions survive a crash of the process, but not necessarily of the machine.
+ * A durable knowledge base, created with a maximum batch delay and size, writes ahead to a group commit log:
+ * adding a question returns only once its record is forced to the storage device, and the records of concurrent writers
+ * are forced together, so the throughput of many writers is not limited by the latency of one force.
+ * Asking questions never blocks. Questions are added concurrently, only writers of questions sharing a lock stripe wait for each other,
+ * so the answers of a question are applied in the order they are logged. Bulk imports and compactions run exclusively.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class PersistentTextualKnowledgeService extends TextualKnowledgeService implements AutoCloseable {
+
+    //the default size of the log in bytes that triggers a compaction.
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+    //the default time the first record of a group commit waits for further records.
+    public static final Duration DEFAULT_MAX_BATCH_DELAY = Duration.ofMillis(1);
+
+    //the default number of bytes of waiting records that forces a group commit at once.
+    public static final int DEFAULT_MAX_BATCH_BYTES = 1 << 20;
+
+    //the number of lock stripes ordering the writers of the same question.
+    private static final int QUESTION_LOCK_STRIPES = 64;
+
+    //the store the knowledge is persisted in.
+    private final KnowledgeStore store;
+
+    //the size of the log in bytes that triggers a compaction.
+    private final long compactionThreshold;
+
+    //held shared while adding a question, and exclusively while importing, compacting or closing.
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+
+    //the lock stripes serializing the writers of the same question.
+    private final Object[] questionLocks = new Object[QUESTION_LOCK_STRIPES];
+
+    /**
+     * initializes the persistent textual knowledge base with the knowledge stored in the given directory and the default compaction threshold.
+     * @param directory the directory of the store, created if it does not exist.
+     * @throws KnowledgeBaseException thrown if the store cannot be opened or loaded.
+     */
+    public PersistentTextualKnowledgeService(Path directory) throws KnowledgeBaseException {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * initializes the persistent textual knowledge base with the knowledge stored in the given directory.
+     * @param directory the directory of the store, created if it does not exist.
+     * @param compactionThreshold the size of the log in bytes that triggers a compaction.
+     * @throws KnowledgeBaseException thrown if the store cannot be opened or loaded.
+     */
+    public PersistentTextualKnowledgeService(Path directory, long compactionThreshold) throws KnowledgeBaseException {
+        this(openStore(directory, null, 0), compactionThreshold);
+    }
+
+    /**
+     * initializes the durable textual knowledge base with the knowledge stored in the given directory,
+     * adding a question returns once it is forced to the storage device together with the questions added concurrently.
+     * @param directory the directory of the store, created if it does not exist.
+     * @param compactionThreshold the size of the log in bytes that triggers a compaction.
+     * @param maxBatchDelay the time the first record of a group commit waits for further records, e.g. {@link #DEFAULT_MAX_BATCH_DELAY}.
+     * @param maxBatchBytes the number of bytes of waiting records that forces a group commit at once, e.g. {@link #DEFAULT_MAX_BATCH_BYTES}.
+     * @throws KnowledgeBaseException thrown if the store cannot be opened or loaded.
+     */
+    public PersistentTextualKnowledgeService(Path directory, long compactionThreshold, Duration maxBatchDelay, int maxBatchBytes) throws KnowledgeBaseException {
+        this(openStore(directory, Objects.requireNonNull(maxBatchDelay, "maxBatchDelay"), maxBatchBytes), compactionThreshold);
+    }
+
+    /**
+     * initializes the persistent textual knowledge base with the knowledge loaded from the given store.
+     * @param store the opened store.
+     * @param compactionThreshold the size of the log in bytes that triggers a compaction.
+     * @throws KnowledgeBaseException thrown if the store cannot be loaded.
+     */
+    private PersistentTextualKnowledgeService(KnowledgeStore store, long compactionThreshold) throws KnowledgeBaseException {
+        super(loadKnowledge(store), DEFAULT_ANSWER);
+        this.store = store;
+        this.compactionThreshold = compactionThreshold;
+        for (int i = 0; i < QUESTION_LOCK_STRIPES; i++) {
+            this.questionLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * opens the store in the given directory.
+     * @param directory the directory of the store.
+     * @param maxBatchDelay the maximum batch delay of a durable store, or null for a memory-mapped log.
+     * @param maxBatchBytes the maximum batch size of a durable store.
+     * @return the opened store.
+     * @throws KnowledgeBaseException thrown if the store cannot be opened.
+     */
+    private static KnowledgeStore openStore(Path directory, Duration maxBatchDelay, int maxBatchBytes) throws KnowledgeBaseException {
+        try {
+            return maxBatchDelay == null ? KnowledgeStore.open(directory) : KnowledgeStore.open(directory, maxBatchDelay, maxBatchBytes);
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while opening the knowledge store in " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * loads the knowledge of the given store, the store is closed if it cannot be loaded.
+     * @param store the opened store.
+     * @return the stored knowledge, the snapshot mapped and the log tail on the heap.
+     * @throws KnowledgeBaseException thrown if the store cannot be loaded.
+     */
+    private static Map<String, List<String>> loadKnowledge(KnowledgeStore store) throws KnowledgeBaseException {
+        try {
+            return store.load();
+        } catch (IOException e) {
+            try {
+                store.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw new KnowledgeBaseException("Error while loading the knowledge store: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the question is appended to the log before it is added to the knowledge map,
+     * a durable knowledge base waits until the question is forced to the storage device.
+     */
+    @Override
+    protected void storeKnowledge(String question, List<String> answers) throws KnowledgeBaseException {
+        Lock lock = this.storeLock.readLock();
+        lock.lock();
+        try {
+            synchronized (this.questionLocks[Math.floorMod(question.hashCode(), QUESTION_LOCK_STRIPES)]) {
+                try {
+                    this.store.append(question, answers);
+                } catch (IOException e) {
+                    throw new KnowledgeBaseException("Error while persisting a Question to the knowledge store: " + e.getMessage(), e);
+                }
+                super.storeKnowledge(question, answers);
+            }
+        } finally {
+            lock.unlock();
+        }
+        this.compactIfNecessary();
+    }
+
+    /**
+     * {@inheritDoc}
+     * the questions are appended to the log before they are added to the knowledge map,
+     * a durable knowledge base forces them to the storage device as one group.
+     */
+    @Override
+    protected void storeKnowledge(Map<String, List<String>> knowledge) throws KnowledgeBaseException {
+        Lock lock = this.storeLock.writeLock();
+        lock.lock();
+        try {
+            try {
+                this.store.appendAll(knowledge);
+            } catch (IOException e) {
+                throw new KnowledgeBaseException("Error while persisting Questions to the knowledge store: " + e.getMessage(), e);
+            }
+            super.storeKnowledge(knowledge);
+        } finally {
+            lock.unlock();
+        }
+        this.compactIfNecessary();
+    }
+
+    /**
+     * {@inheritDoc}
+     * the question is removed like it is added, so the removal is not lost by a compaction rebasing the knowledge map concurrently.
+     */
+    @Override
+    public boolean removeKnowledge(String question) throws KnowledgeBaseException {
+        if (question == null) return super.removeKnowledge(null);
+        Lock lock = this.storeLock.readLock();
+        lock.lock();
+        try {
+            synchronized (this.questionLocks[Math.floorMod(question.hashCode(), QUESTION_LOCK_STRIPES)]) {
+                return super.removeKnowledge(question);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * the store persists the answers without a time to live, so they would never expire once loaded again, adding expiring knowledge always fails.
+     * @throws KnowledgeBaseException always.
+     */
+    @Override
+    public long addKnowledge(String question, List<String> answers, Duration timeToLive) throws KnowledgeBaseException {
+        throw new KnowledgeBaseException("The persistent knowledge base does not support a time to live!");
+    }
+
+    /**
+     * @return false, see {@link #addKnowledge(String, List, Duration)}.
+     */
+    @Override
+    public boolean supportsTimeToLive() {
+        return false;
+    }
+
+    /**
+     * compacts the whole knowledge into a new snapshot of the store and discards the log.
+     * @throws KnowledgeBaseException thrown if the snapshot cannot be written.
+     */
+    public void compact() throws KnowledgeBaseException {
+        Lock lock = this.storeLock.writeLock();
+        lock.lock();
+        try {
+            this.store.compact();
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while compacting the knowledge store: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the sync count
+     * @return the number of times the log was forced to the storage device, once per group commit of a durable knowledge base.
+     */
+    public long getSyncCount() {
+        return this.store.getSyncCount();
+    }
+
+    /**
+     * compacts the store if the log exceeds the compaction threshold, checking the threshold again once no question is being added.
+     * @throws KnowledgeBaseException thrown if the snapshot cannot be written.
+     */
+    private void compactIfNecessary() throws KnowledgeBaseException {
+        if (this.store.getLogSize() < this.compactionThreshold) return;
+        Lock lock = this.storeLock.writeLock();
+        lock.lock();
+        try {
+            if (this.store.getLogSize() >= this.compactionThreshold) this.store.compact();
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while compacting the knowledge store: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * closes the store, forcing the log to the storage device.
+     * @throws KnowledgeBaseException thrown if the store cannot be closed.
+     */
+    @Override
+    public void close() throws KnowledgeBaseException {
+        Lock lock = this.storeLock.writeLock();
+        lock.lock();
+        try {
+            this.store.close();
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Error while closing the knowledge store: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
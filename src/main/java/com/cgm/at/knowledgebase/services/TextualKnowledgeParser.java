@@ -0,0 +1,126 @@
+package com.cgm.at.knowledgebase.services;
+
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import java.util.List;
+
+/**
+ * A hand-written single pass scanner for serialized textual knowledge of the following format:
+ * <question>? "<answer1>" "<answer2>" ... "<answerX>"
+ *
+ * The scanner checks the well-formedness of the serialization, finds the question boundary
+ * and extracts the answer spans while walking over the characters of the input exactly once.
+ * No intermediate arrays, patterns or matchers are created, the only allocations are the question
+ * and answer strings handed back to the caller.
+ * The error semantics are identical to {@link TextualKnowledgeValidationService#validateSerializedKnowledgeFormat(String)}.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class TextualKnowledgeParser {
+
+    //the character marking the end of the question part.
+    public static final char QUESTION_MARK = '?';
+
+    //the character opening and closing an answer.
+    public static final char QUOTATION_MARK = '"';
+
+    /**
+     * parses the given serialized knowledge and adds all answers found between quotations to {@param answers}.
+     * text outside of quotations in the answers part is ignored.
+     * @param serializedKnowledge A String of the following format: <question>? "<answer1>" "<answer2>" ... "<answerX>"
+     * @param answers A List the extracted answers are added to in the order of their occurrence.
+     * @return the question part including the question mark.
+     * @throws IllegalArgumentException thrown if the format of {@param serializedKnowledge} is not well formed.
+     */
+    public String parse(String serializedKnowledge, List<String> answers) throws IllegalArgumentException {
+        int questionEnd = this.scan(serializedKnowledge, answers);
+        return serializedKnowledge.substring(0, questionEnd + 1);
+    }
+
+    /**
+     * validates the format of the serialized knowledge and extracts the question only, without extracting the answers.
+     * @param serializedKnowledge A String of the following format: <question>? "<answer1>" "<answer2>" ... "<answerX>"
+     * @return the question part including the question mark.
+     * @throws IllegalArgumentException thrown if the format of {@param serializedKnowledge} is not well formed.
+     */
+    public String parseQuestion(String serializedKnowledge) throws IllegalArgumentException {
+        int questionEnd = this.scan(serializedKnowledge, null);
+        return serializedKnowledge.substring(0, questionEnd + 1);
+    }
+
+    /**
+     * validates the format of the serialized knowledge only, without extracting anything.
+     * @param serializedKnowledge A String of the following format: <question>? "<answer1>" "<answer2>" ... "<answerX>"
+     * @throws IllegalArgumentException thrown if the format of {@param serializedKnowledge} is not well formed.
+     */
+    public void validateFormat(String serializedKnowledge) throws IllegalArgumentException {
+        this.scan(serializedKnowledge, null);
+    }
+
+    /**
+     * checks the format as well as the question and the answers of the serialized knowledge in a single pass, without extracting anything.
+     * the errors are reported in the order {@link TextualKnowledgeValidationService#validateSerializedKnowledge(String)} reports them:
+     * format errors first, then errors of the question, then the first error of the answers.
+     * @param serializedKnowledge A String of the following format: <question>? "<answer1>" "<answer2>" ... "<answerX>"
+     * @param maxLength the maximum length of the question and of every answer.
+     * @return the error of the first violation found, or null if the serialized knowledge is valid.
+     */
+    public ValidationError check(String serializedKnowledge, int maxLength) {
+        int length = serializedKnowledge.length();
+        int questionEnd = -1;
+        int answerStart = -1;
+        int answerCount = 0;
+        ValidationError answerError = null;
+        for (int i = 0; i < length; i++) {
+            char c = serializedKnowledge.charAt(i);
+            if (questionEnd < 0) {
+                if (c == QUESTION_MARK) questionEnd = i;
+            } else if (c == QUOTATION_MARK) {
+                if (answerStart < 0) {
+                    answerStart = i + 1;
+                } else {
+                    answerCount++;
+                    if (answerError == null) answerError = TextualKnowledgeValidationService.checkAnswer(serializedKnowledge, answerStart, i, maxLength);
+                    answerStart = -1;
+                }
+            }
+        }
+        if (questionEnd < 0) return ValidationError.QUESTION_FORMAT_INCORRECT;
+        if (answerStart >= 0) return ValidationError.ANSWERS_FORMAT_INCORRECT;
+        ValidationError questionError = TextualKnowledgeValidationService.checkQuestion(serializedKnowledge, questionEnd + 1, maxLength);
+        if (questionError != null) return questionError;
+        if (answerCount == 0) return ValidationError.ANSWERS_NONE_GIVEN;
+        return answerError;
+    }
+
+    /**
+     * walks once over the characters of the serialized knowledge.
+     * the first question mark ends the question part, every pair of quotations after it encloses one answer.
+     * @param serializedKnowledge the serialized knowledge to scan.
+     * @param answers the list to add the extracted answers to, or null if the format should only be validated.
+     * @return the index of the question mark ending the question part.
+     * @throws IllegalArgumentException thrown if no question mark is found or a quotation is not closed.
+     */
+    private int scan(String serializedKnowledge, List<String> answers) throws IllegalArgumentException {
+        int length = serializedKnowledge.length();
+        int questionEnd = -1;
+        int answerStart = -1;
+        for (int i = 0; i < length; i++) {
+            char c = serializedKnowledge.charAt(i);
+            if (questionEnd < 0) {
+                if (c == QUESTION_MARK) questionEnd = i;
+            } else if (c == QUOTATION_MARK) {
+                if (answerStart < 0) {
+                    answerStart = i + 1;
+                } else {
+                    if (answers != null) answers.add(serializedKnowledge.substring(answerStart, i));
+                    answerStart = -1;
+                }
+            }
+        }
+        if (questionEnd < 0) throw new InvalidKnowledgeException(ValidationError.QUESTION_FORMAT_INCORRECT, null);
+        if (answerStart >= 0) throw new InvalidKnowledgeException(ValidationError.ANSWERS_FORMAT_INCORRECT, null);
+        return questionEnd;
+    }
+}
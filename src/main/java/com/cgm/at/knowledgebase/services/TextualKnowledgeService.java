@@ -1,29 +1,47 @@
 package com.cgm.at.knowledgebase.services;
 
+import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
+import com.cgm.at.knowledgebase.common.ImportReport;
 import com.cgm.at.knowledgebase.common.KnowledgeBase;
 import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.QuestionTrie;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
 
 /**
  * A Textual implementation of the knowledge base,
  * questions and answers are both of type String.
+ * The format of serialized knowledge is validated by the validation service, see {@link #getValidationService()}.
+ * If it is a {@link TextualKnowledgeValidationService}, the format is validated while the knowledge is parsed,
+ * by the {@link TextualKnowledgeParser} reporting the same errors, instead of in a separate pass.
  *
  * @author Usama Morad
  * @version 1.0
  */
 public class TextualKnowledgeService extends KnowledgeBase<String, String, String> {
 
+    //the default answer for unknown questions.
+    public static final String DEFAULT_ANSWER = "the answer to life, universe and everything is 42";
+
+    //the single pass scanner used to extract question and answers from a question line.
+    private final TextualKnowledgeParser parser = new TextualKnowledgeParser();
+
+    //the trie suggesting stored questions by prefix, created on the first suggestion and kept in sync as listener.
+    private volatile QuestionTrie questionTrie;
+
     /**
      * initializes the textual knowledge base with an empty HashMap, a new validationService, and a default answer for unknown questions.
      */
     public TextualKnowledgeService() {
-        super(new HashMap<>(), new TextualKnowledgeValidationService(), "the answer to life, universe and everything is 42");
+        super(new HashMap<>(), new TextualKnowledgeValidationService(), DEFAULT_ANSWER);
     }
 
     /**
@@ -36,37 +54,61 @@ public class TextualKnowledgeService extends KnowledgeBase<String, String, Strin
     }
 
     /**
-     * Extracts the question, and the answers to that question from the given question line.
-     * then adds the extracted information as new knowledge to the knowledge base.
-     * makes sure, that the input is validated properly.
+     * Imports all question lines of the given UTF-8 text file, one question line per line.
+     * @param path the path of the file containing question lines of the following format:
+     * <question>? "<answer1>" "<answer2>" "<answerX>"
+     * @return an {@link ImportReport} containing the counts, errors and timings of the import,
+     *         the line numbers of the errors are the line numbers in the file.
+     * @throws KnowledgeBaseException thrown if the file cannot be read or the knowledge cannot be added.
+     */
+    public ImportReport importFrom(Path path) throws KnowledgeBaseException {
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return this.addKnowledgeBatch(lines);
+        } catch (IOException | UncheckedIOException e) {
+            throw new KnowledgeBaseException("Error while importing knowledge from file " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * suggests the stored questions starting with the given prefix, e.g. to complete a question while it is typed.
+     * the first call indexes all stored questions in a {@link QuestionTrie}, which is kept in sync with all knowledge added afterwards.
+     * @param prefix the case-sensitive prefix the questions must start with.
+     * @param limit the maximum number of questions to return.
+     * @return at most limit stored questions starting with the prefix, in lexicographic order.
+     * @throws IllegalArgumentException thrown if the prefix is null or the limit is negative.
+     */
+    public List<String> suggest(String prefix, int limit) throws IllegalArgumentException {
+        QuestionTrie trie = this.questionTrie;
+        if (trie == null) trie = this.createQuestionTrie();
+        return trie.suggest(prefix, limit);
+    }
+
+    /**
+     * creates the trie of the stored questions once, registering it as listener before indexing the stored questions,
+     * so no question added concurrently is missed.
+     */
+    private synchronized QuestionTrie createQuestionTrie() {
+        if (this.questionTrie != null) return this.questionTrie;
+        QuestionTrie trie = new QuestionTrie();
+        this.addKnowledgeListener(trie);
+        this.getAllKnowledge().forEach(trie::knowledgeAdded);
+        this.questionTrie = trie;
+        return trie;
+    }
+
+    /**
+     * {@inheritDoc}
+     * the answers are extracted using the {@link TextualKnowledgeParser}, which validates the format in the same pass,
+     * the format is validated by the validation service beforehand if it is not a {@link TextualKnowledgeValidationService}.
      * @param questionLine the question provided as String of the following format:
      * <question>? "<answer1>" "<answer2>" "<answerX>"
      */
     @Override
-    public boolean addKnowledge(String questionLine) throws IllegalArgumentException, KnowledgeBaseException {
-        try {
-            getValidationService().validateSerializedKnowledgeFormat(questionLine);
-            //split question and answer part
-            String[] parts = questionLine.split("\\?", 2);
-            String question = parts[0] + "?";
-            String answersPart = parts[1];
-            //get answers separated into different strings and add to list
-            List<String> answers = new ArrayList<>();
-            Pattern p = Pattern.compile("(\")([\\S\\s]+?)(\")");
-            Matcher m = p.matcher(answersPart);
-            //find answers using the pattern defined and add to knowledge base
-            while (m.find()) {
-                String answer = m.group(2);
-                answers.add(answer);
-            }
-            return super.addKnowledge(question, answers);
-        } catch(PatternSyntaxException e) {
-            //encapsulate exception as root cause, and delegate to be handled by the caller.
-            throw new KnowledgeBaseException("Question and answers cannot be extracted due to pattern syntax errors, please contact your administrator!" + e.getMessage(), e);
-        } catch (IllegalStateException e) {
-            throw new KnowledgeBaseException("Question and answers cannot be extracted due to pattern match operation errors, please contact your administrator!" + e.getMessage(), e);
-        } catch (IndexOutOfBoundsException e) {
-            throw new KnowledgeBaseException("Question and answers cannot be extracted due to indexing errors, please contact your administrator!" + e.getMessage(), e);
-        }
+    protected Map.Entry<String, List<String>> deserializeKnowledge(String questionLine) throws IllegalArgumentException {
+        IKnowledgeValidationService<String, String, String> validationService = this.getValidationService();
+        if (validationService.getClass() != TextualKnowledgeValidationService.class) validationService.validateSerializedKnowledgeFormat(questionLine);
+        List<String> answers = new ArrayList<>();
+        String question = this.parser.parse(questionLine, answers);
+        return Map.entry(question, answers);
     }
 }
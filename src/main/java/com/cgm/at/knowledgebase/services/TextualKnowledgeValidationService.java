@@ -1,18 +1,25 @@
 package com.cgm.at.knowledgebase.services;
 
 import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
-import com.cgm.at.knowledgebase.common.ErrorMessages;
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * {@inheritDoc}
  * the following implementation uses strings for question and answer.
+ * questions and answers are checked as character ranges of the original string, so a check allocates nothing,
+ * neither for valid nor for rejected input. The exceptions thrown format their message on first use.
  */
 public class TextualKnowledgeValidationService implements IKnowledgeValidationService<String, String, String> {
 
     //the maxLength predefined for validation of answer's length and question length.
     private int maxLength;
 
+    //the single pass scanner used to check the format of serialized knowledge.
+    private final TextualKnowledgeParser parser = new TextualKnowledgeParser();
+
     /**
      * Initializes the knowledge validation service with the validity constraint for Strings of max length of 255.
      */
@@ -20,6 +27,14 @@ public class TextualKnowledgeValidationService implements IKnowledgeValidationSe
         this.maxLength = 255;
     }
 
+    /**
+     * Gets the max length
+     * @return the maximum length of a question and of an answer.
+     */
+    public int getMaxLength() {
+        return this.maxLength;
+    }
+
     /**
      * {@inheritDoc}
      * @param question A string representing a question with a question mark at the end.
@@ -31,11 +46,14 @@ public class TextualKnowledgeValidationService implements IKnowledgeValidationSe
      */
     @Override
     public void validateQuestion(String question) throws IllegalArgumentException {
-        if(question == null || question.length() == 0) throw new IllegalArgumentException(ErrorMessages.QUESTION_NONE_GIVEN);
-        if(question.length() > this.maxLength) throw new IllegalArgumentException(String.format(ErrorMessages.QUESTION_EXCEEDS_255_CHARACTERS, question));
-        if(question.charAt(question.length()-1) != '?') throw new IllegalArgumentException(String.format(ErrorMessages.QUESTION_NO_QUESTIONMARK, question));
-        String questionWithoutQuestionMark = question.substring(0, question.length()-1);
-        if(questionWithoutQuestionMark.isBlank() || questionWithoutQuestionMark.isEmpty()) throw new IllegalArgumentException(String.format(ErrorMessages.QUESTION_IS_EMPTY_OR_BLANK, question));
+        ValidationError error = this.checkQuestion(question);
+        if(error != null) throw new InvalidKnowledgeException(error, question);
+    }
+
+    @Override
+    public ValidationError checkQuestion(String question) {
+        if(question == null) return ValidationError.QUESTION_NONE_GIVEN;
+        return checkQuestion(question, question.length(), this.maxLength);
     }
 
     /**
@@ -48,10 +66,21 @@ public class TextualKnowledgeValidationService implements IKnowledgeValidationSe
      */
     @Override
     public void validateAnswers(List<String> answers) throws IllegalArgumentException {
-        if(answers.isEmpty()) throw new IllegalArgumentException(ErrorMessages.ANSWERS_NONE_GIVEN);
+        if(answers.isEmpty()) throw new InvalidKnowledgeException(ValidationError.ANSWERS_NONE_GIVEN, null);
+        for (String answer: answers) {
+            ValidationError error = this.checkAnswer(answer);
+            if(error != null) throw new InvalidKnowledgeException(error, answer);
+        }
+    }
+
+    @Override
+    public ValidationError checkAnswers(List<String> answers) {
+        if(answers.isEmpty()) return ValidationError.ANSWERS_NONE_GIVEN;
         for (String answer: answers) {
-            this.validateAnswer(answer);
+            ValidationError error = this.checkAnswer(answer);
+            if(error != null) return error;
         }
+        return null;
     }
 
     /**
@@ -77,35 +106,83 @@ public class TextualKnowledgeValidationService implements IKnowledgeValidationSe
      */
     @Override
     public void validateSerializedKnowledgeFormat(String serializedKnowledge) throws IllegalArgumentException {
-        //split question and answer part
-        String[] parts = serializedKnowledge.split("\\?", 2);
-        if (parts.length < 2) {
-            throw new IllegalArgumentException(ErrorMessages.QUESTION_FORMAT_INCORRECT);
-        }
-        //check format of answer chunk
-        String answersChunk = parts[1];
-        boolean wellFormed = true;
-        for(int i=0; i < answersChunk.length(); i++) {
-            if(answersChunk.charAt(i) == '"') {
-                wellFormed = !wellFormed;
-            }
-        }
-        if(!wellFormed) throw new IllegalArgumentException(ErrorMessages.ANSWERS_FORMAT_INCORRECT);
+        this.parser.validateFormat(serializedKnowledge);
     }
 
     /**
      * {@inheritDoc}
-     * an answer is valid if the following rules apply:
+     * the question and the answers are extracted only to build the exception, valid knowledge is checked without extracting anything.
+     */
+    @Override
+    public void validateSerializedKnowledge(String serializedKnowledge) throws IllegalArgumentException {
+        if(this.checkSerializedKnowledge(serializedKnowledge) == null) return;
+        if(serializedKnowledge == null) throw new InvalidKnowledgeException(ValidationError.QUESTION_NONE_GIVEN, null);
+        List<String> answers = new ArrayList<>();
+        String question = this.parser.parse(serializedKnowledge, answers);
+        this.validateQuestion(question);
+        this.validateAnswers(answers);
+    }
+
+    /**
+     * {@inheritDoc}
+     * the format, the question and every answer are checked in a single pass over the characters of the serialized knowledge.
+     */
+    @Override
+    public ValidationError checkSerializedKnowledge(String serializedKnowledge) {
+        if(serializedKnowledge == null) return ValidationError.QUESTION_NONE_GIVEN;
+        return this.parser.check(serializedKnowledge, this.maxLength);
+    }
+
+    /**
+     * checks an answer, an answer is valid if the following rules apply:
      * 1) an answer's maxLength is not exceeded
      * 2) answer is not null
      * 3) answer is not empty
      *
      * @param answer A String representing an answer.
-     * @throws IllegalArgumentException if the answer is undefined or null or the larger than maxLength.
+     * @return the error of the first violated rule, or null if the answer is valid.
+     */
+    private ValidationError checkAnswer(String answer) {
+        if(answer == null) return ValidationError.ANSWER_INVALID;
+        return checkAnswer(answer, 0, answer.length(), this.maxLength);
+    }
+
+    /**
+     * checks the question at the start of the given string.
+     * @param text the string starting with the question.
+     * @param end the end of the question, exclusive.
+     * @param maxLength the maximum length of a question.
+     * @return the error of the first violated rule, or null if the question is valid.
      */
-    private void validateAnswer(String answer) throws IllegalArgumentException {
-        if(answer == null) throw new IllegalArgumentException(ErrorMessages.ANSWER_INVALID);
-        if(answer.length() > this.maxLength) throw new IllegalArgumentException(String.format(ErrorMessages.ANSWER_EXCEEDS_255_CHARACTERS, answer));
-        if(answer.isEmpty() || answer.isBlank()) throw new IllegalArgumentException(String.format(ErrorMessages.ANSWER_IS_EMPTY_OR_BLANK, answer));
+    static ValidationError checkQuestion(String text, int end, int maxLength) {
+        if(end == 0) return ValidationError.QUESTION_NONE_GIVEN;
+        if(end > maxLength) return ValidationError.QUESTION_EXCEEDS_255_CHARACTERS;
+        if(text.charAt(end - 1) != '?') return ValidationError.QUESTION_NO_QUESTIONMARK;
+        if(isBlank(text, 0, end - 1)) return ValidationError.QUESTION_IS_EMPTY_OR_BLANK;
+        return null;
+    }
+
+    /**
+     * checks the answer in the given range of a string.
+     * @param text the string containing the answer.
+     * @param from the start of the answer, inclusive.
+     * @param to the end of the answer, exclusive.
+     * @param maxLength the maximum length of an answer.
+     * @return the error of the first violated rule, or null if the answer is valid.
+     */
+    static ValidationError checkAnswer(String text, int from, int to, int maxLength) {
+        if(to - from > maxLength) return ValidationError.ANSWER_EXCEEDS_255_CHARACTERS;
+        if(isBlank(text, from, to)) return ValidationError.ANSWER_IS_EMPTY_OR_BLANK;
+        return null;
+    }
+
+    /**
+     * @return true if the range of the string is empty or contains white space only, like {@link String#isBlank()} of the range.
+     */
+    private static boolean isBlank(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if(!Character.isWhitespace(text.charAt(i))) return false;
+        }
+        return true;
     }
 }
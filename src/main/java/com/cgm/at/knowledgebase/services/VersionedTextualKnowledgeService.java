@@ -0,0 +1,70 @@
+package com.cgm.at.knowledgebase.services;
+
+import com.cgm.at.knowledgebase.snapshot.KnowledgeSnapshot;
+import com.cgm.at.knowledgebase.snapshot.VersionedKnowledgeMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A thread-safe textual implementation of the knowledge base offering consistent snapshots of its knowledge,
+ * questions and answers are both of type String.
+ * The knowledge is kept in a {@link VersionedKnowledgeMap}, a persistent hash trie whose root is replaced atomically by every change,
+ * so asking questions never blocks, and {@link #snapshot()} returns the knowledge at one point in time in O(1) without copying,
+ * which can be iterated or exported while questions keep being added.
+ * Every question added and every chunk of a bulk import is published as one change incrementing the version.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class VersionedTextualKnowledgeService extends TextualKnowledgeService {
+
+    //the versioned map containing all knowledge, also returned by getAllKnowledge.
+    private final VersionedKnowledgeMap<String, List<String>> knowledge;
+
+    /**
+     * initializes the versioned textual knowledge base with an empty VersionedKnowledgeMap, a new validationService, and a default answer for unknown questions.
+     */
+    public VersionedTextualKnowledgeService() {
+        this(new VersionedKnowledgeMap<>(), DEFAULT_ANSWER);
+    }
+
+    /**
+     * initializes the versioned textual knowledge base with a copy of the given knowledge, a new validationService, and the given default answer for unknown questions.
+     * @param knowledge A Map containing predefined knowledge (Questions and Answers accordingly), copied into a VersionedKnowledgeMap of version 0.
+     * @param defaultValue A String containing the default answer.
+     */
+    public VersionedTextualKnowledgeService(Map<String, List<String>> knowledge, String defaultValue) {
+        this(new VersionedKnowledgeMap<>(immutableCopy(knowledge)), defaultValue);
+    }
+
+    private VersionedTextualKnowledgeService(VersionedKnowledgeMap<String, List<String>> knowledge, String defaultValue) {
+        super(knowledge, defaultValue);
+        this.knowledge = knowledge;
+    }
+
+    /**
+     * copies the knowledge with immutable answer lists, so the answers do not have to be replaced in the versioned map.
+     */
+    private static Map<String, List<String>> immutableCopy(Map<String, List<String>> knowledge) {
+        Map<String, List<String>> copy = new HashMap<>();
+        knowledge.forEach((question, answers) -> copy.put(question, List.copyOf(answers)));
+        return copy;
+    }
+
+    /**
+     * Gets a snapshot of the knowledge
+     * @return the immutable knowledge at this point in time, with the version of the knowledge base at this point.
+     */
+    public KnowledgeSnapshot<String, List<String>> snapshot() {
+        return this.knowledge.snapshot();
+    }
+
+    /**
+     * Gets the version of the knowledge
+     * @return the number of changes of the knowledge so far, e.g. to detect a change since a snapshot was taken.
+     */
+    public long getVersion() {
+        return this.knowledge.getVersion();
+    }
+}
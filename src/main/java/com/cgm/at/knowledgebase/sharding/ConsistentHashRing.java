@@ -0,0 +1,125 @@
+package com.cgm.at.knowledgebase.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable consistent hash ring assigning keys to named nodes.
+ *
+ * Every node is placed on the ring at several points derived from its name, the virtual nodes,
+ * and a key belongs to the node of the first point following the hash of the key.
+ * Adding a node therefore only moves the keys between its points and their predecessors to the new node,
+ * about 1 / n of all keys, and keys never move between the nodes already contained.
+ * As the positions only depend on the names of the nodes and the hash codes of the keys, all rings with the same nodes assign keys
+ * identically, even in different processes, as long as the hash codes of the keys are stable, e.g. for Strings.
+ *
+ * @param <N> the type of the nodes.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class ConsistentHashRing<N> {
+
+    //the default number of points per node.
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    //the number of points per node.
+    private final int virtualNodes;
+
+    //the nodes by name, in the order they were added.
+    private final Map<String, N> nodes;
+
+    //the sorted positions of all points and the node of each point.
+    private final long[] points;
+    private final Object[] owners;
+
+    /**
+     * initializes a ring of the given nodes.
+     * @param nodes the nodes by their unique name, at least one.
+     * @param virtualNodes the number of points per node, more points spread the keys more evenly.
+     */
+    public ConsistentHashRing(Map<String, N> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("A hash ring needs at least one node!");
+        if (virtualNodes < 1) throw new IllegalArgumentException("A node needs at least one point on the hash ring!");
+        this.virtualNodes = virtualNodes;
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+        int count = nodes.size() * virtualNodes;
+        long[] entries = new long[count];
+        List<N> nodeList = new ArrayList<>(nodes.values());
+        int i = 0;
+        for (String name : nodes.keySet()) {
+            long seed = hash(name);
+            for (int point = 0; point < virtualNodes; point++) {
+                entries[i++] = mix(seed + point * 0x9E3779B97F4A7C15L);
+            }
+        }
+        //sorts the indexes of the points by position, the node of a point is its index divided by the virtual nodes.
+        Integer[] order = new Integer[count];
+        for (int j = 0; j < count; j++) order[j] = j;
+        Arrays.sort(order, (a, b) -> Long.compare(entries[a], entries[b]));
+        this.points = new long[count];
+        this.owners = new Object[count];
+        for (int j = 0; j < count; j++) {
+            this.points[j] = entries[order[j]];
+            this.owners[j] = nodeList.get(order[j] / virtualNodes);
+        }
+    }
+
+    /**
+     * @param name the unique name of the node to add.
+     * @param node the node to add.
+     * @return a new ring containing all nodes of this ring and the given node.
+     */
+    public ConsistentHashRing<N> with(String name, N node) {
+        if (this.nodes.containsKey(name)) throw new IllegalArgumentException("The hash ring already contains a node named " + name + "!");
+        Map<String, N> nodes = new LinkedHashMap<>(this.nodes);
+        nodes.put(name, Objects.requireNonNull(node, "node"));
+        return new ConsistentHashRing<>(nodes, this.virtualNodes);
+    }
+
+    /**
+     * @param key the key to look up, null is assigned like a key with hash code 0.
+     * @return the node the key belongs to.
+     */
+    @SuppressWarnings("unchecked")
+    public N nodeOf(Object key) {
+        long hash = mix(Objects.hashCode(key));
+        int index = Arrays.binarySearch(this.points, hash);
+        if (index < 0) index = -index - 1;
+        return (N) this.owners[index == this.points.length ? 0 : index];
+    }
+
+    /**
+     * @return the unmodifiable nodes by name, in the order they were added.
+     */
+    public Map<String, N> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * the 64 bit FNV-1a hash of the characters of a name.
+     */
+    private static long hash(String name) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * the finalizer of the 64 bit MurmurHash3, spreading every bit of the input over all bits of the output.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
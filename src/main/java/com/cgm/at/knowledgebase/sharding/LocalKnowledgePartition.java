@@ -0,0 +1,127 @@
+package com.cgm.at.knowledgebase.sharding;
+
+import com.cgm.at.knowledgebase.api.IKnowledgePartition;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * A partition of a sharded knowledge base held in process by a knowledge base of its own.
+ *
+ * All changes of the partition are serialized by a lock of the partition, so partitions are changed in parallel
+ * and {@link #importKnowledgeIfAbsent(Map)} is atomic per question. Questions are asked without locking,
+ * the knowledge base must therefore be safe for concurrent readers, e.g. a ConcurrentTextualKnowledgeService.
+ * Removed questions are removed by {@link KnowledgeBase#removeKnowledge(Object)}, which notifies the listeners of the knowledge base,
+ * but knowledge bases persisting their knowledge keep them in their storage.
+ * @param <Q> Generic type of Question
+ * @param <A> Generic type of Answer
+ * @param <S> Generic type of serialized Knowledge.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class LocalKnowledgePartition<Q, A, S> implements IKnowledgePartition<Q, A, S> {
+
+    //the knowledge base holding the knowledge of the partition.
+    private final KnowledgeBase<Q, A, S> knowledgeBase;
+
+    //the lock serializing all changes of the partition.
+    private final Object lock = new Object();
+
+    /**
+     * initializes the partition with the parameters given.
+     * @param knowledgeBase the knowledge base holding the knowledge of the partition, safe for concurrent readers.
+     */
+    public LocalKnowledgePartition(KnowledgeBase<Q, A, S> knowledgeBase) {
+        this.knowledgeBase = knowledgeBase;
+    }
+
+    @Override
+    public List<A> askQuestion(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(question);
+    }
+
+    @Override
+    public List<A> askQuestion(Q question, int limit) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.knowledgeBase.askQuestion(question, limit);
+    }
+
+    @Override
+    public Stream<A> streamAnswers(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.knowledgeBase.streamAnswers(question);
+    }
+
+    @Override
+    public List<List<A>> askQuestions(List<Q> questions) throws IllegalArgumentException, KnowledgeBaseException {
+        List<List<A>> answers = new ArrayList<>(questions.size());
+        for (Q question : questions) {
+            answers.add(this.knowledgeBase.askQuestion(question));
+        }
+        return answers;
+    }
+
+    @Override
+    public boolean addKnowledge(Q question, List<A> answers) throws IllegalArgumentException, KnowledgeBaseException {
+        synchronized (this.lock) {
+            return this.knowledgeBase.addKnowledge(question, answers);
+        }
+    }
+
+    @Override
+    public boolean addKnowledge(S serializedKnowledge) throws IllegalArgumentException, KnowledgeBaseException {
+        synchronized (this.lock) {
+            return this.knowledgeBase.addKnowledge(serializedKnowledge);
+        }
+    }
+
+    @Override
+    public ImportReport addKnowledgeBatch(Stream<S> serializedKnowledge) throws KnowledgeBaseException {
+        synchronized (this.lock) {
+            return this.knowledgeBase.addKnowledgeBatch(serializedKnowledge);
+        }
+    }
+
+    @Override
+    public void exportKnowledge(BiConsumer<Q, List<A>> consumer) {
+        this.knowledgeBase.getAllKnowledge().forEach(consumer);
+    }
+
+    @Override
+    public long importKnowledgeIfAbsent(Map<Q, List<A>> knowledge) throws KnowledgeBaseException {
+        long imported = 0;
+        synchronized (this.lock) {
+            Map<Q, List<A>> contained = this.knowledgeBase.getAllKnowledge();
+            for (Map.Entry<Q, List<A>> entry : knowledge.entrySet()) {
+                if (contained.containsKey(entry.getKey())) continue;
+                this.knowledgeBase.addKnowledge(entry.getKey(), entry.getValue());
+                imported++;
+            }
+        }
+        return imported;
+    }
+
+    @Override
+    public long removeKnowledge(Collection<Q> questions) throws KnowledgeBaseException {
+        long removed = 0;
+        synchronized (this.lock) {
+            for (Q question : questions) {
+                if (this.knowledgeBase.removeKnowledge(question)) removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the knowledge base
+     * @return the knowledge base holding the knowledge of the partition.
+     */
+    public KnowledgeBase<Q, A, S> getKnowledgeBase() {
+        return this.knowledgeBase;
+    }
+}
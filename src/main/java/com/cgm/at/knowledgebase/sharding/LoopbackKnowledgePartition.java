@@ -0,0 +1,173 @@
+package com.cgm.at.knowledgebase.sharding;
+
+import com.cgm.at.knowledgebase.api.IKnowledgePartition;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A stand-in for a transport to a partition held by another node, connecting to a partition in the same process.
+ *
+ * Like a remote call, every call is executed by the threads of the receiving node instead of the calling thread,
+ * its arguments and results are copied instead of shared, and it takes at least the given round trip time.
+ * Exceptions thrown by the partition are rethrown to the caller, other failures are reported as {@link KnowledgeBaseException}.
+ * Serialized knowledge passed to {@link #addKnowledgeBatch(Stream)} is collected before it is sent, like a request body.
+ * @param <Q> Generic type of Question
+ * @param <A> Generic type of Answer
+ * @param <S> Generic type of serialized Knowledge.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class LoopbackKnowledgePartition<Q, A, S> implements IKnowledgePartition<Q, A, S>, AutoCloseable {
+
+    //the partition receiving the calls.
+    private final IKnowledgePartition<Q, A, S> remote;
+
+    //the threads of the receiving node.
+    private final ExecutorService executor;
+
+    //the simulated round trip time of a call in nanoseconds.
+    private final long roundTripNanos;
+
+    /**
+     * initializes the transport with the parameters given.
+     * @param remote the partition receiving the calls.
+     * @param threads the number of threads of the receiving node handling calls in parallel.
+     * @param roundTripNanos the simulated round trip time of a call in nanoseconds, 0 for none.
+     */
+    public LoopbackKnowledgePartition(IKnowledgePartition<Q, A, S> remote, int threads, long roundTripNanos) {
+        if (threads < 1) throw new IllegalArgumentException("The number of threads must be positive!");
+        this.remote = remote;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "knowledge-loopback-partition");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.roundTripNanos = roundTripNanos;
+    }
+
+    @Override
+    public List<A> askQuestion(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.call(() -> List.copyOf(this.remote.askQuestion(question)));
+    }
+
+    @Override
+    public List<A> askQuestion(Q question, int limit) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.call(() -> List.copyOf(this.remote.askQuestion(question, limit)));
+    }
+
+    @Override
+    public Stream<A> streamAnswers(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.call(() -> this.remote.streamAnswers(question).collect(Collectors.toUnmodifiableList())).stream();
+    }
+
+    @Override
+    public List<List<A>> askQuestions(List<Q> questions) throws IllegalArgumentException, KnowledgeBaseException {
+        List<Q> request = new ArrayList<>(questions);
+        return this.call(() -> {
+            List<List<A>> response = new ArrayList<>(request.size());
+            for (List<A> answers : this.remote.askQuestions(request)) {
+                response.add(List.copyOf(answers));
+            }
+            return response;
+        });
+    }
+
+    @Override
+    public boolean addKnowledge(Q question, List<A> answers) throws IllegalArgumentException, KnowledgeBaseException {
+        List<A> request = answers == null ? null : new ArrayList<>(answers);
+        return this.call(() -> this.remote.addKnowledge(question, request));
+    }
+
+    @Override
+    public boolean addKnowledge(S serializedKnowledge) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.call(() -> this.remote.addKnowledge(serializedKnowledge));
+    }
+
+    @Override
+    public ImportReport addKnowledgeBatch(Stream<S> serializedKnowledge) throws KnowledgeBaseException {
+        List<S> request = serializedKnowledge.collect(Collectors.toList());
+        return this.call(() -> this.remote.addKnowledgeBatch(request.stream()));
+    }
+
+    @Override
+    public void exportKnowledge(BiConsumer<Q, List<A>> consumer) throws KnowledgeBaseException {
+        Map<Q, List<A>> response = this.call(() -> {
+            Map<Q, List<A>> knowledge = new HashMap<>();
+            this.remote.exportKnowledge((question, answers) -> knowledge.put(question, List.copyOf(answers)));
+            return knowledge;
+        });
+        response.forEach(consumer);
+    }
+
+    @Override
+    public long importKnowledgeIfAbsent(Map<Q, List<A>> knowledge) throws KnowledgeBaseException {
+        Map<Q, List<A>> request = new HashMap<>(knowledge);
+        return this.call(() -> this.remote.importKnowledgeIfAbsent(request));
+    }
+
+    @Override
+    public long removeKnowledge(Collection<Q> questions) throws KnowledgeBaseException {
+        List<Q> request = new ArrayList<>(questions);
+        return this.call(() -> this.remote.removeKnowledge(request));
+    }
+
+    /**
+     * stops the threads of the receiving node, waiting at most one second for running calls.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(1, TimeUnit.SECONDS)) this.executor.shutdownNow();
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * executes the call on the threads of the receiving node and waits for its result, at least for the round trip time.
+     */
+    private <T> T call(Callable<T> call) throws IllegalArgumentException, KnowledgeBaseException {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = this.executor.submit(call);
+        } catch (RejectedExecutionException e) {
+            throw new KnowledgeBaseException("The partition is closed.", e);
+        }
+        try {
+            T result = future.get();
+            for (long remaining; (remaining = this.roundTripNanos - (System.nanoTime() - start)) > 0; ) {
+                LockSupport.parkNanos(remaining);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new KnowledgeBaseException("Interrupted while calling a partition.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException) throw (IllegalArgumentException) cause;
+            if (cause instanceof KnowledgeBaseException) throw (KnowledgeBaseException) cause;
+            throw new KnowledgeBaseException("Error while calling a partition: " + cause.getMessage(), cause);
+        }
+    }
+}
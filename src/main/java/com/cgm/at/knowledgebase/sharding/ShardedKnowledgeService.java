@@ -0,0 +1,523 @@
+package com.cgm.at.knowledgebase.sharding;
+
+import com.cgm.at.knowledgebase.api.IKnowledgePartition;
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeParser;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A knowledge base partitioned over several {@link IKnowledgePartition}s, each holding the questions assigned to it
+ * by a {@link ConsistentHashRing}. A partition may be a {@link LocalKnowledgePartition} with its own lock and storage,
+ * or be reached through a transport, e.g. the {@link LoopbackKnowledgePartition}.
+ *
+ * Every question is asked of and added to its partition only, so partitions are changed in parallel.
+ * Batches of questions and bulk imports are split by partition and sent to all partitions in parallel, one call per partition and chunk.
+ * Only batches of questions for local partitions are asked in the calling thread, as a lookup in memory is cheaper than handing it to another thread.
+ *
+ * {@link #addPartition(String, IKnowledgePartition)} rebalances online: while the questions moving to the new partition are copied,
+ * questions are still asked of their old partitions, and questions added meanwhile are added to the old and the new partition.
+ * Then the new assignment is published at once and the moved questions are removed from their old partitions.
+ * A question asked while the assignment changes is asked again of its new partition.
+ * Adding knowledge only waits for the rebalancing at the two points the assignment changes, asking questions never waits.
+ * @param <Q> Generic type of Question
+ * @param <A> Generic type of Answer
+ * @param <S> Generic type of serialized Knowledge.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class ShardedKnowledgeService<Q, A, S> implements IKnowledgeService<Q, A, S>, AutoCloseable {
+
+    //the number of entries sent to a partition in one call by bulk imports and rebalancing.
+    public static final int CHUNK_SIZE = 1024;
+
+    //extracts the question of serialized knowledge to route it to its partition.
+    private final Function<S, Q> questionExtractor;
+
+    //the assignment of questions to partitions.
+    private volatile ConsistentHashRing<IKnowledgePartition<Q, A, S>> ring;
+
+    //the assignment being rebalanced to, knowledge added is added to both assignments, null if not rebalancing.
+    private volatile ConsistentHashRing<IKnowledgePartition<Q, A, S>> pendingRing;
+
+    //held shared while adding knowledge and exclusively while changing an assignment.
+    private final ReadWriteLock routingLock = new ReentrantReadWriteLock();
+
+    //serializes rebalancing.
+    private final Object rebalanceLock = new Object();
+
+    //the threads sending the calls of a fan-out in parallel.
+    private final ExecutorService executor;
+
+    /**
+     * initializes the sharded knowledge base with {@link ConsistentHashRing#DEFAULT_VIRTUAL_NODES} points per partition.
+     * @param partitions the partitions by their unique name, at least one.
+     * @param questionExtractor extracts the question of serialized knowledge, may throw IllegalArgumentException if it has none.
+     */
+    public ShardedKnowledgeService(Map<String, ? extends IKnowledgePartition<Q, A, S>> partitions, Function<S, Q> questionExtractor) {
+        this(partitions, questionExtractor, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * initializes the sharded knowledge base with the parameters given.
+     * @param partitions the partitions by their unique name, at least one.
+     * @param questionExtractor extracts the question of serialized knowledge, may throw IllegalArgumentException if it has none.
+     * @param virtualNodes the number of points per partition on the hash ring.
+     */
+    public ShardedKnowledgeService(Map<String, ? extends IKnowledgePartition<Q, A, S>> partitions, Function<S, Q> questionExtractor, int virtualNodes) {
+        this.ring = new ConsistentHashRing<>(new LinkedHashMap<>(partitions), virtualNodes);
+        this.questionExtractor = questionExtractor;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "knowledge-shard-fan-out");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * creates a textual knowledge base partitioned over local partitions, each a {@link ConcurrentTextualKnowledgeService}.
+     * @param partitionCount the number of partitions, named partition-0 to partition-(n-1).
+     * @return the sharded knowledge base.
+     */
+    public static ShardedKnowledgeService<String, String, String> forTextual(int partitionCount) {
+        if (partitionCount < 1) throw new IllegalArgumentException("The number of partitions must be positive!");
+        Map<String, IKnowledgePartition<String, String, String>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.put("partition-" + i, newTextualPartition());
+        }
+        return new ShardedKnowledgeService<>(partitions, new TextualKnowledgeParser()::parseQuestion);
+    }
+
+    /**
+     * @return a new empty local textual partition, e.g. to be added to a textual sharded knowledge base.
+     */
+    public static LocalKnowledgePartition<String, String, String> newTextualPartition() {
+        return new LocalKnowledgePartition<>(new ConcurrentTextualKnowledgeService());
+    }
+
+    /**
+     * {@inheritDoc}
+     * the question is asked of its partition.
+     */
+    @Override
+    public List<A> askQuestion(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        while (true) {
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> ring = this.ring;
+            List<A> answers = ring.nodeOf(question).askQuestion(question);
+            if (ring == this.ring) return answers;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the question is asked of its partition, which ranks the answers if its knowledge base does.
+     */
+    @Override
+    public List<A> askQuestion(Q question, int limit) throws IllegalArgumentException, KnowledgeBaseException {
+        if (limit < 1) throw new IllegalArgumentException("The limit must be positive!");
+        while (true) {
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> ring = this.ring;
+            List<A> answers = ring.nodeOf(question).askQuestion(question, limit);
+            if (ring == this.ring) return answers;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the answers are streamed by the partition of the question, so a local partition decodes them only when consumed.
+     */
+    @Override
+    public Stream<A> streamAnswers(Q question) throws IllegalArgumentException, KnowledgeBaseException {
+        while (true) {
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> ring = this.ring;
+            Stream<A> answers = ring.nodeOf(question).streamAnswers(question);
+            if (ring == this.ring) return answers;
+        }
+    }
+
+    /**
+     * Returns the answers of all questions asked, asking the questions of every partition in one call,
+     * all partitions reached through a transport in parallel.
+     * @param questions the questions to ask.
+     * @return a List containing the answers of every question, in the order of the questions.
+     * @throws IllegalArgumentException thrown if any of the questions is invalid.
+     * @throws KnowledgeBaseException thrown if the questions cannot be asked of a partition.
+     */
+    public List<List<A>> askQuestions(List<Q> questions) throws IllegalArgumentException, KnowledgeBaseException {
+        while (true) {
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> ring = this.ring;
+            Map<IKnowledgePartition<Q, A, S>, List<Integer>> positions = new IdentityHashMap<>();
+            for (int i = 0; i < questions.size(); i++) {
+                positions.computeIfAbsent(ring.nodeOf(questions.get(i)), partition -> new ArrayList<>()).add(i);
+            }
+            //the calls of remote partitions come first, so they are sent before the local partitions are asked.
+            List<Callable<List<List<A>>>> calls = new ArrayList<>(positions.size());
+            List<List<Integer>> callPositions = new ArrayList<>(positions.size());
+            int remoteCalls = 0;
+            for (Map.Entry<IKnowledgePartition<Q, A, S>, List<Integer>> entry : positions.entrySet()) {
+                IKnowledgePartition<Q, A, S> partition = entry.getKey();
+                List<Q> partitionQuestions = new ArrayList<>(entry.getValue().size());
+                for (int index : entry.getValue()) partitionQuestions.add(questions.get(index));
+                int position = partition instanceof LocalKnowledgePartition ? calls.size() : remoteCalls++;
+                calls.add(position, () -> partition.askQuestions(partitionQuestions));
+                callPositions.add(position, entry.getValue());
+            }
+            List<List<List<A>>> results = this.fanOut(calls, remoteCalls);
+            if (ring != this.ring) continue;
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            List<A>[] answers = new List[questions.size()];
+            for (int call = 0; call < results.size(); call++) {
+                List<Integer> indexes = callPositions.get(call);
+                List<List<A>> partitionAnswers = results.get(call);
+                for (int i = 0; i < indexes.size(); i++) {
+                    answers[indexes.get(i)] = partitionAnswers.get(i);
+                }
+            }
+            return Arrays.asList(answers);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the knowledge is added to the partition of the question.
+     */
+    @Override
+    public boolean addKnowledge(Q question, List<A> answers) throws IllegalArgumentException, KnowledgeBaseException {
+        Lock lock = this.routingLock.readLock();
+        lock.lock();
+        try {
+            IKnowledgePartition<Q, A, S> partition = this.ring.nodeOf(question);
+            boolean added = partition.addKnowledge(question, answers);
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> pendingRing = this.pendingRing;
+            if (pendingRing != null && pendingRing.nodeOf(question) != partition) pendingRing.nodeOf(question).addKnowledge(question, answers);
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the knowledge is added to the partition of the question extracted from it.
+     */
+    @Override
+    public boolean addKnowledge(S serializedKnowledge) throws IllegalArgumentException, KnowledgeBaseException {
+        Object key = this.routingKey(serializedKnowledge);
+        Lock lock = this.routingLock.readLock();
+        lock.lock();
+        try {
+            IKnowledgePartition<Q, A, S> partition = this.ring.nodeOf(key);
+            boolean added = partition.addKnowledge(serializedKnowledge);
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> pendingRing = this.pendingRing;
+            if (pendingRing != null && pendingRing.nodeOf(key) != partition) pendingRing.nodeOf(key).addKnowledge(serializedKnowledge);
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * the entries are read in blocks of {@link #CHUNK_SIZE} entries per partition, every block is split by partition
+     * and imported by all partitions in parallel. The errors of the partitions are reported with their line numbers in the stream.
+     */
+    @Override
+    public ImportReport addKnowledgeBatch(Stream<S> serializedKnowledge) throws KnowledgeBaseException {
+        long start = System.nanoTime();
+        BatchTotals totals = new BatchTotals();
+        Iterator<S> iterator = serializedKnowledge.iterator();
+        List<S> block = new ArrayList<>();
+        long lineNumber = 0;
+        while (iterator.hasNext()) {
+            block.add(iterator.next());
+            lineNumber++;
+            if (block.size() == CHUNK_SIZE * this.ring.getNodes().size()) {
+                this.importBlock(block, lineNumber - block.size(), totals);
+                block.clear();
+            }
+        }
+        if (!block.isEmpty()) this.importBlock(block, lineNumber - block.size(), totals);
+        return new ImportReport(lineNumber, totals.importedCount, totals.failedCount, totals.errors,
+                Duration.ofNanos(totals.parseNanos), Duration.ofNanos(totals.mergeNanos), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * adds a partition and moves the questions assigned to it from the other partitions, while the knowledge base stays available.
+     * @param name the unique name of the partition.
+     * @param partition the empty partition to add.
+     * @return the number of questions moved to the partition.
+     * @throws KnowledgeBaseException thrown if the questions cannot be moved, the partition is not added then.
+     */
+    public long addPartition(String name, IKnowledgePartition<Q, A, S> partition) throws KnowledgeBaseException {
+        synchronized (this.rebalanceLock) {
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> current = this.ring;
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> next = current.with(name, partition);
+            this.changeAssignment(current, next);
+            long moved = 0;
+            try {
+                for (IKnowledgePartition<Q, A, S> source : current.getNodes().values()) {
+                    Map<Q, List<A>> moving = new HashMap<>();
+                    source.exportKnowledge((question, answers) -> {
+                        if (next.nodeOf(question) == partition) moving.put(question, answers);
+                    });
+                    moved += moving.size();
+                    for (Map<Q, List<A>> chunk : chunks(moving)) {
+                        partition.importKnowledgeIfAbsent(chunk);
+                    }
+                }
+            } catch (KnowledgeBaseException | RuntimeException e) {
+                this.changeAssignment(current, null);
+                throw e;
+            }
+            this.changeAssignment(next, null);
+            //exports again, to remove the questions added to both partitions while moving as well.
+            for (IKnowledgePartition<Q, A, S> source : current.getNodes().values()) {
+                List<Q> stale = new ArrayList<>();
+                source.exportKnowledge((question, answers) -> {
+                    if (next.nodeOf(question) != source) stale.add(question);
+                });
+                for (int from = 0; from < stale.size(); from += CHUNK_SIZE) {
+                    source.removeKnowledge(stale.subList(from, Math.min(stale.size(), from + CHUNK_SIZE)));
+                }
+            }
+            return moved;
+        }
+    }
+
+    /**
+     * Gets the partitions
+     * @return the unmodifiable partitions by name, in the order they were added.
+     */
+    public Map<String, IKnowledgePartition<Q, A, S>> getPartitions() {
+        return this.ring.getNodes();
+    }
+
+    /**
+     * Gets the partition of a question
+     * @param question the question to look up.
+     * @return the partition the question is assigned to.
+     */
+    public IKnowledgePartition<Q, A, S> getPartition(Q question) {
+        return this.ring.nodeOf(question);
+    }
+
+    /**
+     * stops the threads sending the calls of fan-outs, the partitions are not closed.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(1, TimeUnit.SECONDS)) this.executor.shutdownNow();
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * imports a block of entries, split by partition, waiting for all partitions before the assignment may change again.
+     * @param firstLine the number of lines of the stream before the block.
+     */
+    private void importBlock(List<S> block, long firstLine, BatchTotals totals) throws KnowledgeBaseException {
+        Lock lock = this.routingLock.readLock();
+        lock.lock();
+        try {
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> ring = this.ring;
+            ConsistentHashRing<IKnowledgePartition<Q, A, S>> pendingRing = this.pendingRing;
+            Map<IKnowledgePartition<Q, A, S>, BatchChunk<S>> chunks = new IdentityHashMap<>();
+            Map<IKnowledgePartition<Q, A, S>, BatchChunk<S>> copies = new IdentityHashMap<>();
+            for (int i = 0; i < block.size(); i++) {
+                S entry = block.get(i);
+                Object key = this.routingKey(entry);
+                IKnowledgePartition<Q, A, S> partition = ring.nodeOf(key);
+                chunks.computeIfAbsent(partition, p -> new BatchChunk<>()).add(entry, firstLine + i + 1);
+                if (pendingRing != null && pendingRing.nodeOf(key) != partition) {
+                    copies.computeIfAbsent(pendingRing.nodeOf(key), p -> new BatchChunk<>()).add(entry, firstLine + i + 1);
+                }
+            }
+            List<Callable<ImportReport>> calls = new ArrayList<>();
+            List<BatchChunk<S>> reported = new ArrayList<>();
+            chunks.forEach((partition, chunk) -> {
+                calls.add(() -> partition.addKnowledgeBatch(chunk.entries.stream()));
+                reported.add(chunk);
+            });
+            copies.forEach((partition, chunk) -> calls.add(() -> partition.addKnowledgeBatch(chunk.entries.stream())));
+            List<ImportReport> reports = this.fanOut(calls);
+            for (int i = 0; i < reported.size(); i++) {
+                totals.add(reports.get(i), reported.get(i));
+            }
+            totals.trimErrors();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * publishes an assignment and the assignment being rebalanced to, once all knowledge being added is added.
+     */
+    private void changeAssignment(ConsistentHashRing<IKnowledgePartition<Q, A, S>> ring, ConsistentHashRing<IKnowledgePartition<Q, A, S>> pendingRing) {
+        Lock lock = this.routingLock.writeLock();
+        lock.lock();
+        try {
+            this.ring = ring;
+            this.pendingRing = pendingRing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the question of the serialized knowledge, or the serialized knowledge itself if it has none,
+     *         so it is rejected by the partition it is assigned to like by any knowledge base.
+     */
+    private Object routingKey(S serializedKnowledge) {
+        if (serializedKnowledge == null) return null;
+        try {
+            return this.questionExtractor.apply(serializedKnowledge);
+        } catch (IllegalArgumentException e) {
+            return serializedKnowledge;
+        }
+    }
+
+    /**
+     * executes the calls in parallel, the last one in the calling thread, and waits for all of them.
+     * @return the results of the calls, in the order of the calls.
+     */
+    private <T> List<T> fanOut(List<Callable<T>> calls) throws IllegalArgumentException, KnowledgeBaseException {
+        return this.fanOut(calls, Math.max(calls.size() - 1, 0));
+    }
+
+    /**
+     * executes the first calls in parallel to the calling thread, the remaining calls one after another in the calling thread,
+     * and waits for all of them.
+     * @param parallelCalls the number of calls executed by other threads.
+     * @return the results of the calls, in the order of the calls.
+     */
+    private <T> List<T> fanOut(List<Callable<T>> calls, int parallelCalls) throws IllegalArgumentException, KnowledgeBaseException {
+        List<Future<T>> futures = new ArrayList<>(parallelCalls);
+        try {
+            for (int i = 0; i < parallelCalls; i++) {
+                futures.add(this.executor.submit(calls.get(i)));
+            }
+            List<T> inline = new ArrayList<>(calls.size() - parallelCalls);
+            for (int i = parallelCalls; i < calls.size(); i++) {
+                inline.add(calls.get(i).call());
+            }
+            List<T> results = new ArrayList<>(calls.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            results.addAll(inline);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KnowledgeBaseException("Interrupted while calling the partitions.", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (Exception e) {
+            throw rethrow(e);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * rethrows an IllegalArgumentException or KnowledgeBaseException of a partition, and wraps any other failure.
+     */
+    private static KnowledgeBaseException rethrow(Throwable cause) throws IllegalArgumentException, KnowledgeBaseException {
+        if (cause instanceof IllegalArgumentException) throw (IllegalArgumentException) cause;
+        if (cause instanceof KnowledgeBaseException) throw (KnowledgeBaseException) cause;
+        return new KnowledgeBaseException("Error while calling a partition: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * splits the knowledge into maps of at most {@link #CHUNK_SIZE} questions.
+     */
+    private static <Q, A> List<Map<Q, List<A>>> chunks(Map<Q, List<A>> knowledge) {
+        List<Map<Q, List<A>>> chunks = new ArrayList<>();
+        Map<Q, List<A>> chunk = new HashMap<>();
+        for (Map.Entry<Q, List<A>> entry : knowledge.entrySet()) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() == CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new HashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) chunks.add(chunk);
+        return chunks;
+    }
+
+    /**
+     * The entries of a block sent to one partition, with their line numbers in the imported stream.
+     */
+    private static final class BatchChunk<S> {
+
+        private final List<S> entries = new ArrayList<>();
+        private long[] lineNumbers = new long[16];
+
+        void add(S entry, long lineNumber) {
+            if (this.entries.size() == this.lineNumbers.length) this.lineNumbers = Arrays.copyOf(this.lineNumbers, this.lineNumbers.length * 2);
+            this.lineNumbers[this.entries.size()] = lineNumber;
+            this.entries.add(entry);
+        }
+    }
+
+    /**
+     * The counts, errors and timings of the reports of all partitions.
+     */
+    private static final class BatchTotals {
+
+        private long importedCount;
+        private long failedCount;
+        private long parseNanos;
+        private long mergeNanos;
+        private final List<ImportReport.ImportError> errors = new ArrayList<>();
+
+        /**
+         * sorts the errors by line number and keeps the first {@link ImportReport#MAX_REPORTED_ERRORS} of them.
+         */
+        void trimErrors() {
+            this.errors.sort(Comparator.comparingLong(ImportReport.ImportError::getLineNumber));
+            if (this.errors.size() > ImportReport.MAX_REPORTED_ERRORS) this.errors.subList(ImportReport.MAX_REPORTED_ERRORS, this.errors.size()).clear();
+        }
+
+        /**
+         * adds the report of a partition, translating the line numbers of its errors from the chunk to the imported stream.
+         */
+        void add(ImportReport report, BatchChunk<?> chunk) {
+            this.importedCount += report.getImportedCount();
+            this.failedCount += report.getFailedCount();
+            this.parseNanos += report.getParseTime().toNanos();
+            this.mergeNanos += report.getMergeTime().toNanos();
+            for (ImportReport.ImportError error : report.getErrors()) {
+                this.errors.add(new ImportReport.ImportError(chunk.lineNumbers[(int) error.getLineNumber() - 1], error.getMessage()));
+            }
+        }
+    }
+}
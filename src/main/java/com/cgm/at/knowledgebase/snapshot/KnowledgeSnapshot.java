@@ -0,0 +1,92 @@
+package com.cgm.at.knowledgebase.snapshot;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable point in time version of the knowledge of a {@link VersionedKnowledgeMap}.
+ *
+ * A snapshot is taken in O(1) without copying, as it shares the nodes of the persistent trie the knowledge was stored in at the time.
+ * It can be iterated and exported without locks while the knowledge keeps being changed, and never changes itself.
+ * The version is incremented by every change of the knowledge, so two snapshots of the same map with equal versions contain the same knowledge.
+ *
+ * @param <K> the type of the questions.
+ * @param <V> the type of the answers.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class KnowledgeSnapshot<K, V> extends AbstractMap<K, V> {
+
+    //the knowledge at the time of the snapshot.
+    private final PersistentHashTrie<K, V> trie;
+
+    //the number of changes of the knowledge before the snapshot.
+    private final long version;
+
+    //the view of the entries, created on first use.
+    private Set<Map.Entry<K, V>> entrySet;
+
+    KnowledgeSnapshot(PersistentHashTrie<K, V> trie, long version) {
+        this.trie = trie;
+        this.version = version;
+    }
+
+    /**
+     * @return the number of changes of the knowledge before the snapshot was taken, 0 for the initial knowledge.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return the persistent trie the knowledge of the snapshot is stored in.
+     */
+    PersistentHashTrie<K, V> trie() {
+        return this.trie;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key == null ? null : this.trie.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return this.trie.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        this.trie.forEach(action);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entrySet = this.entrySet;
+        if (entrySet == null) {
+            this.entrySet = entrySet = new AbstractSet<Map.Entry<K, V>>() {
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return KnowledgeSnapshot.this.trie.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return KnowledgeSnapshot.this.trie.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+}
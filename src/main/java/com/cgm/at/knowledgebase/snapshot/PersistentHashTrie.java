@@ -0,0 +1,495 @@
+package com.cgm.at.knowledgebase.snapshot;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash map in the form of a hash array mapped trie.
+ *
+ * Every node branches on five bits of the hash of the keys and only stores the present branches, selected by a bitmap.
+ * Keys with identical hashes share a collision node. Adding or removing a key copies only the nodes on the path to the key,
+ * all other nodes are shared with the previous trie, so a new version costs O(log32 n) and old versions stay valid.
+ * {@link #putAll(Map)} edits the nodes it created itself in place, so bulk additions do not copy a path per key.
+ * Neither keys nor values may be null.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public final class PersistentHashTrie<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    //the number of hash bits a node branches on.
+    private static final int BITS = 5;
+
+    //the maximum depth of nested nodes, the deepest bitmap node branches on the last two bits of the hash.
+    private static final int MAX_DEPTH = 32 / BITS + 2;
+
+    //the empty trie.
+    private static final PersistentHashTrie<?, ?> EMPTY = new PersistentHashTrie<>(new BitmapNode(null, 0, new Object[0]), 0);
+
+    //the root node, never null.
+    private final Node root;
+
+    //the number of keys.
+    private final int size;
+
+    private PersistentHashTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty trie.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashTrie<K, V> empty() {
+        return (PersistentHashTrie<K, V>) EMPTY;
+    }
+
+    /**
+     * @return the number of keys.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return the value of the key, or null if the key is not contained.
+     * @throws NullPointerException thrown if the key is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Objects.requireNonNull(key, "key");
+        int hash = hash(key);
+        Node node = this.root;
+        for (int shift = 0; ; shift += BITS) {
+            Object slot = node.find(key, hash, shift);
+            if (slot instanceof Leaf) return ((Leaf<K, V>) slot).value;
+            if (slot == null) return null;
+            node = (Node) slot;
+        }
+    }
+
+    /**
+     * @param key the key to add.
+     * @param value the value of the key.
+     * @return a trie with the key mapped to the value, this trie if it already is.
+     * @throws NullPointerException thrown if the key or value is null.
+     */
+    public PersistentHashTrie<K, V> put(K key, V value) {
+        Change change = new Change();
+        Node root = this.root.put(null, new Leaf<>(hash(key), key, Objects.requireNonNull(value, "value")), 0, change);
+        return root == this.root ? this : new PersistentHashTrie<>(root, change.added ? this.size + 1 : this.size);
+    }
+
+    /**
+     * adds all keys at once, the nodes created for the new trie are edited in place instead of being copied per key.
+     * @param entries the keys and values to add.
+     * @return a trie containing the entries, this trie if all entries already are.
+     * @throws NullPointerException thrown if a key or value is null.
+     */
+    public PersistentHashTrie<K, V> putAll(Map<? extends K, ? extends V> entries) {
+        //the token owning the nodes created by this call, which no other call may edit.
+        Object edit = new Object();
+        Change change = new Change();
+        Node root = this.root;
+        int size = this.size;
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            change.added = false;
+            K key = entry.getKey();
+            root = root.put(edit, new Leaf<>(hash(key), key, Objects.requireNonNull(entry.getValue(), "value")), 0, change);
+            if (change.added) size++;
+        }
+        return root == this.root ? this : new PersistentHashTrie<>(root, size);
+    }
+
+    /**
+     * @param key the key to remove.
+     * @return a trie without the key, this trie if the key is not contained.
+     * @throws NullPointerException thrown if the key is null.
+     */
+    public PersistentHashTrie<K, V> remove(Object key) {
+        Node root = this.root.remove(key, hash(key), 0);
+        if (root == this.root) return this;
+        return root == null ? empty() : new PersistentHashTrie<>(root, this.size - 1);
+    }
+
+    /**
+     * passes every key and value to the action, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        this.root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    /**
+     * @return an iterator over the immutable entries, in no particular order.
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(this.root);
+    }
+
+    /**
+     * spreads the higher bits of the hash code to the lower bits branched on first.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * whether a put added a new key.
+     */
+    private static final class Change {
+        boolean added;
+    }
+
+    /**
+     * An immutable key and value with the hash of the key.
+     */
+    private static final class Leaf<K, V> implements Map.Entry<K, V> {
+
+        private final int hash;
+        private final K key;
+        private final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return this.key;
+        }
+
+        @Override
+        public V getValue() {
+            return this.value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("The entries of a persistent hash trie are immutable.");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return this.key.equals(entry.getKey()) && this.value.equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return this.key.hashCode() ^ this.value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "=" + this.value;
+        }
+    }
+
+    /**
+     * A node of the trie, its slots are either leaves or nodes.
+     */
+    private abstract static class Node {
+
+        /**
+         * @return the leaf of the key, the node to descend to, or null if the key is not contained.
+         */
+        abstract Object find(Object key, int hash, int shift);
+
+        /**
+         * @param edit the token of the nodes that may be edited in place, or null to copy every node changed.
+         * @return the node containing the leaf, this node if unchanged.
+         */
+        abstract Node put(Object edit, Leaf<?, ?> leaf, int shift, Change change);
+
+        /**
+         * @return the node without the key, this node if unchanged, or null if the node became empty.
+         */
+        abstract Node remove(Object key, int hash, int shift);
+
+        /**
+         * @return the only slot if it is a leaf, otherwise null.
+         */
+        abstract Leaf<?, ?> singleLeaf();
+
+        abstract int slotCount();
+
+        abstract Object slot(int index);
+
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0, count = this.slotCount(); i < count; i++) {
+                Object slot = this.slot(i);
+                if (slot instanceof Leaf) {
+                    Leaf<Object, Object> leaf = (Leaf<Object, Object>) slot;
+                    action.accept(leaf.key, leaf.value);
+                } else {
+                    ((Node) slot).forEach(action);
+                }
+            }
+        }
+    }
+
+    /**
+     * A node storing a slot for every set bit of its bitmap.
+     */
+    private static final class BitmapNode extends Node {
+
+        //the token of the putAll call that created the node and may edit it in place, null if immutable.
+        private final Object edit;
+
+        private int bitmap;
+        private Object[] slots;
+
+        BitmapNode(Object edit, int bitmap, Object[] slots) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((this.bitmap & bit) == 0) return null;
+            Object slot = this.slots[Integer.bitCount(this.bitmap & (bit - 1))];
+            if (slot instanceof Leaf) {
+                Leaf<?, ?> leaf = (Leaf<?, ?>) slot;
+                return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+            }
+            return slot;
+        }
+
+        @Override
+        Node put(Object edit, Leaf<?, ?> leaf, int shift, Change change) {
+            int bit = 1 << ((leaf.hash >>> shift) & 31);
+            int index = Integer.bitCount(this.bitmap & (bit - 1));
+            if ((this.bitmap & bit) == 0) {
+                change.added = true;
+                Object[] slots = new Object[this.slots.length + 1];
+                System.arraycopy(this.slots, 0, slots, 0, index);
+                slots[index] = leaf;
+                System.arraycopy(this.slots, index, slots, index + 1, this.slots.length - index);
+                if (edit != null && this.edit == edit) {
+                    this.bitmap |= bit;
+                    this.slots = slots;
+                    return this;
+                }
+                return new BitmapNode(edit, this.bitmap | bit, slots);
+            }
+            Object slot = this.slots[index];
+            if (slot instanceof Node) {
+                Node node = ((Node) slot).put(edit, leaf, shift + BITS, change);
+                return node == slot ? this : this.withSlot(edit, index, node);
+            }
+            Leaf<?, ?> existing = (Leaf<?, ?>) slot;
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                return existing.value == leaf.value ? this : this.withSlot(edit, index, leaf);
+            }
+            change.added = true;
+            return this.withSlot(edit, index, branch(edit, existing, leaf, shift + BITS));
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((this.bitmap & bit) == 0) return this;
+            int index = Integer.bitCount(this.bitmap & (bit - 1));
+            Object slot = this.slots[index];
+            if (slot instanceof Node) {
+                Node node = ((Node) slot).remove(key, hash, shift + BITS);
+                if (node == slot) return this;
+                if (node != null) {
+                    Leaf<?, ?> single = node.singleLeaf();
+                    return this.withSlot(null, index, single != null ? single : node);
+                }
+            } else {
+                Leaf<?, ?> leaf = (Leaf<?, ?>) slot;
+                if (leaf.hash != hash || !leaf.key.equals(key)) return this;
+            }
+            if (this.slots.length == 1) return null;
+            Object[] slots = new Object[this.slots.length - 1];
+            System.arraycopy(this.slots, 0, slots, 0, index);
+            System.arraycopy(this.slots, index + 1, slots, index, slots.length - index);
+            return new BitmapNode(null, this.bitmap & ~bit, slots);
+        }
+
+        @Override
+        Leaf<?, ?> singleLeaf() {
+            return this.slots.length == 1 && this.slots[0] instanceof Leaf ? (Leaf<?, ?>) this.slots[0] : null;
+        }
+
+        @Override
+        int slotCount() {
+            return this.slots.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return this.slots[index];
+        }
+
+        /**
+         * @return this node with the slot replaced, edited in place if owned by the edit token.
+         */
+        private Node withSlot(Object edit, int index, Object slot) {
+            if (edit != null && this.edit == edit) {
+                this.slots[index] = slot;
+                return this;
+            }
+            Object[] slots = this.slots.clone();
+            slots[index] = slot;
+            return new BitmapNode(edit, this.bitmap, slots);
+        }
+
+        /**
+         * @return a node containing two leaves of different keys that share the hash bits below the shift.
+         */
+        private static Node branch(Object edit, Leaf<?, ?> first, Leaf<?, ?> second, int shift) {
+            if (first.hash == second.hash) return new CollisionNode(first.hash, new Leaf<?, ?>[]{first, second});
+            int firstBit = 1 << ((first.hash >>> shift) & 31);
+            int secondBit = 1 << ((second.hash >>> shift) & 31);
+            if (firstBit == secondBit) return new BitmapNode(edit, firstBit, new Object[]{branch(edit, first, second, shift + BITS)});
+            Object[] slots = Integer.compareUnsigned(firstBit, secondBit) < 0 ? new Object[]{first, second} : new Object[]{second, first};
+            return new BitmapNode(edit, firstBit | secondBit, slots);
+        }
+    }
+
+    /**
+     * A node storing the leaves of different keys with an identical hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Leaf<?, ?>[] leaves;
+
+        CollisionNode(int hash, Leaf<?, ?>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int index = this.indexOf(key, hash);
+            return index < 0 ? null : this.leaves[index];
+        }
+
+        @Override
+        Node put(Object edit, Leaf<?, ?> leaf, int shift, Change change) {
+            if (leaf.hash != this.hash) {
+                //the hash only shares the bits below the shift, so the collision node moves one level down.
+                Node node = new BitmapNode(edit, 1 << ((this.hash >>> shift) & 31), new Object[]{this});
+                return node.put(edit, leaf, shift, change);
+            }
+            int index = this.indexOf(leaf.key, leaf.hash);
+            if (index >= 0) {
+                if (this.leaves[index].value == leaf.value) return this;
+                Leaf<?, ?>[] leaves = this.leaves.clone();
+                leaves[index] = leaf;
+                return new CollisionNode(this.hash, leaves);
+            }
+            change.added = true;
+            Leaf<?, ?>[] leaves = new Leaf<?, ?>[this.leaves.length + 1];
+            System.arraycopy(this.leaves, 0, leaves, 0, this.leaves.length);
+            leaves[this.leaves.length] = leaf;
+            return new CollisionNode(this.hash, leaves);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int index = this.indexOf(key, hash);
+            if (index < 0) return this;
+            if (this.leaves.length == 1) return null;
+            Leaf<?, ?>[] leaves = new Leaf<?, ?>[this.leaves.length - 1];
+            System.arraycopy(this.leaves, 0, leaves, 0, index);
+            System.arraycopy(this.leaves, index + 1, leaves, index, leaves.length - index);
+            return new CollisionNode(this.hash, leaves);
+        }
+
+        @Override
+        Leaf<?, ?> singleLeaf() {
+            return this.leaves.length == 1 ? this.leaves[0] : null;
+        }
+
+        @Override
+        int slotCount() {
+            return this.leaves.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return this.leaves[index];
+        }
+
+        private int indexOf(Object key, int hash) {
+            if (hash != this.hash) return -1;
+            for (int i = 0; i < this.leaves.length; i++) {
+                if (this.leaves[i].key.equals(key)) return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A depth first iterator over the leaves, keeping the path of nodes and slot positions on a stack.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+        private final Node[] nodes = new Node[MAX_DEPTH + 1];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth;
+        private Leaf<K, V> next;
+
+        EntryIterator(Node root) {
+            this.nodes[0] = root;
+            this.advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            Leaf<K, V> leaf = this.next;
+            if (leaf == null) throw new NoSuchElementException();
+            this.advance();
+            return leaf;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            while (this.depth >= 0) {
+                Node node = this.nodes[this.depth];
+                int position = this.positions[this.depth];
+                if (position == node.slotCount()) {
+                    this.nodes[this.depth--] = null;
+                    continue;
+                }
+                this.positions[this.depth] = position + 1;
+                Object slot = node.slot(position);
+                if (slot instanceof Leaf) {
+                    this.next = (Leaf<K, V>) slot;
+                    return;
+                }
+                this.depth++;
+                this.nodes[this.depth] = (Node) slot;
+                this.positions[this.depth] = 0;
+            }
+            this.next = null;
+        }
+    }
+}
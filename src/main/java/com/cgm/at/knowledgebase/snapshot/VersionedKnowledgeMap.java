@@ -0,0 +1,167 @@
+package com.cgm.at.knowledgebase.snapshot;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A thread-safe map keeping the knowledge in a {@link PersistentHashTrie}, published as {@link KnowledgeSnapshot}s.
+ *
+ * Every change builds a new trie sharing all unchanged nodes with the current one and publishes it atomically
+ * together with an incremented version, retrying if another change was published concurrently.
+ * Reads never lock or retry: {@link #get(Object)} looks up the current snapshot, {@link #snapshot()} returns it in O(1),
+ * and the views of the map iterate the snapshot current when the iteration starts,
+ * so an iteration never fails or sees a change made while iterating.
+ * {@link #putAll(Map)} publishes all entries as one change. Neither keys nor values may be null.
+ *
+ * @param <K> the type of the questions.
+ * @param <V> the type of the answers.
+ *
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class VersionedKnowledgeMap<K, V> extends AbstractMap<K, V> {
+
+    //the current knowledge and its version.
+    private final AtomicReference<KnowledgeSnapshot<K, V>> current;
+
+    //the view of the entries, created on first use.
+    private Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * initializes an empty map with version 0.
+     */
+    public VersionedKnowledgeMap() {
+        this.current = new AtomicReference<>(new KnowledgeSnapshot<>(PersistentHashTrie.empty(), 0));
+    }
+
+    /**
+     * initializes a map containing the given knowledge with version 0.
+     * @param knowledge the knowledge to copy.
+     */
+    public VersionedKnowledgeMap(Map<? extends K, ? extends V> knowledge) {
+        this.current = new AtomicReference<>(new KnowledgeSnapshot<>(PersistentHashTrie.<K, V>empty().putAll(knowledge), 0));
+    }
+
+    /**
+     * @return the current knowledge as immutable snapshot, taken in O(1).
+     */
+    public KnowledgeSnapshot<K, V> snapshot() {
+        return this.current.get();
+    }
+
+    /**
+     * @return the number of changes published so far.
+     */
+    public long getVersion() {
+        return this.current.get().getVersion();
+    }
+
+    @Override
+    public V get(Object key) {
+        return this.current.get().trie().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return this.current.get().size();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        while (true) {
+            KnowledgeSnapshot<K, V> snapshot = this.current.get();
+            PersistentHashTrie<K, V> trie = snapshot.trie();
+            V previous = trie.get(key);
+            PersistentHashTrie<K, V> changed = trie.put(key, value);
+            if (changed == trie || this.publish(snapshot, changed)) return previous;
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> knowledge) {
+        while (true) {
+            KnowledgeSnapshot<K, V> snapshot = this.current.get();
+            PersistentHashTrie<K, V> trie = snapshot.trie();
+            PersistentHashTrie<K, V> changed = trie.putAll(knowledge);
+            if (changed == trie || this.publish(snapshot, changed)) return;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        while (true) {
+            KnowledgeSnapshot<K, V> snapshot = this.current.get();
+            PersistentHashTrie<K, V> trie = snapshot.trie();
+            V previous = trie.get(key);
+            PersistentHashTrie<K, V> changed = trie.remove(key);
+            if (changed == trie || this.publish(snapshot, changed)) return previous;
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function, "function");
+        while (true) {
+            KnowledgeSnapshot<K, V> snapshot = this.current.get();
+            Map<K, V> replaced = new HashMap<>();
+            snapshot.forEach((key, value) -> replaced.put(key, function.apply(key, value)));
+            PersistentHashTrie<K, V> trie = snapshot.trie();
+            PersistentHashTrie<K, V> changed = trie.putAll(replaced);
+            if (changed == trie || this.publish(snapshot, changed)) return;
+        }
+    }
+
+    @Override
+    public void clear() {
+        while (true) {
+            KnowledgeSnapshot<K, V> snapshot = this.current.get();
+            if (snapshot.isEmpty() || this.publish(snapshot, PersistentHashTrie.empty())) return;
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        this.current.get().forEach(action);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entrySet = this.entrySet;
+        if (entrySet == null) {
+            this.entrySet = entrySet = new AbstractSet<Map.Entry<K, V>>() {
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return VersionedKnowledgeMap.this.current.get().trie().iterator();
+                }
+
+                @Override
+                public int size() {
+                    return VersionedKnowledgeMap.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * publishes the changed trie with the next version, if the snapshot it was derived from is still current.
+     * @return true if published, false if another change was published first.
+     */
+    private boolean publish(KnowledgeSnapshot<K, V> snapshot, PersistentHashTrie<K, V> changed) {
+        return this.current.compareAndSet(snapshot, new KnowledgeSnapshot<>(changed, snapshot.getVersion() + 1));
+    }
+}
@@ -0,0 +1,87 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.FuzzyQuestionIndex;
+import com.cgm.at.knowledgebase.ranking.AnswerRanking;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the top k answers of the Textual Knowledge Base ranked by the Answer Ranking.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class AnswerRankingTest {
+
+    @Test
+    public void askQuestion_ShouldSucceed_FirstAnswersWithoutRanking_Test() throws KnowledgeBaseException {
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService();
+        knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\" \"green\"");
+
+        assertEquals(List.of("red", "blue"), knowledgeService.askQuestion("What are Peters favorite colors?", 2));
+        assertEquals(List.of("red", "blue", "green"), knowledgeService.askQuestion("What are Peters favorite colors?", 10));
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("How old is Peter?", 2));
+        assertFalse(knowledgeService.recordAnswerUsage("What are Peters favorite colors?", "green"));
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.askQuestion("What are Peters favorite colors?", 0));
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.askQuestion("What are Peters favorite colors", 1));
+        assertThrows(UnsupportedOperationException.class, () -> knowledgeService.askQuestion("What are Peters favorite colors?", 2).add("pink"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_AnswersRankedByPopularity_Test() throws KnowledgeBaseException {
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService();
+        knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\" \"green\" \"black\"");
+        AnswerRanking<String, String> ranking = new AnswerRanking<>(AnswerRanking.Order.POPULARITY);
+        knowledgeService.setAnswerRanking(ranking);
+
+        assertTrue(knowledgeService.recordAnswerUsage("What are Peters favorite colors?", "green"));
+        assertTrue(knowledgeService.recordAnswerUsage("What are Peters favorite colors?", "black"));
+        assertTrue(knowledgeService.recordAnswerUsage("What are Peters favorite colors?", "black"));
+        assertFalse(knowledgeService.recordAnswerUsage("What are Peters favorite colors?", "pink"));
+        assertFalse(knowledgeService.recordAnswerUsage("How old is Peter?", "35"));
+        assertEquals(List.of("black", "green"), knowledgeService.askQuestion("What are Peters favorite colors?", 2));
+        //answers of equal usages keep the order they were added in, the unranked list is not affected.
+        assertEquals(List.of("black", "green", "red", "blue"), knowledgeService.askQuestion("What are Peters favorite colors?", 4));
+        assertEquals(List.of("red", "blue", "green", "black"), knowledgeService.askQuestion("What are Peters favorite colors?"));
+        assertEquals(1, ranking.size());
+
+        //usages of matched questions are recorded for the stored question.
+        knowledgeService.setQuestionMatcher(new FuzzyQuestionIndex());
+        assertTrue(knowledgeService.recordAnswerUsage("what are peters favorite colors?", "blue"));
+        assertTrue(knowledgeService.recordAnswerUsage("what are peters favorite colors?", "blue"));
+        assertTrue(knowledgeService.recordAnswerUsage("what are peters favorite colors?", "blue"));
+        assertEquals(List.of("blue"), knowledgeService.askQuestion("what are peters favorite colors?", 1));
+
+        //replacing the answers discards their ranking.
+        knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\" \"green\" \"black\"");
+        assertEquals(0, ranking.size());
+        assertEquals(List.of("red", "blue"), knowledgeService.askQuestion("What are Peters favorite colors?", 2));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_ManyAnswersRankedByRecency_Test() throws KnowledgeBaseException {
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService();
+        List<String> answers = IntStream.range(0, 500).mapToObj(i -> "answer " + i).collect(Collectors.toList());
+        knowledgeService.addKnowledge("Which answers are there?", answers);
+        knowledgeService.setAnswerRanking(new AnswerRanking<>(AnswerRanking.Order.RECENCY));
+
+        Random random = new Random(3);
+        Deque<String> used = new ArrayDeque<>();
+        for (int i = 0; i < 2000; i++) {
+            String answer = answers.get(random.nextInt(answers.size()));
+            knowledgeService.recordAnswerUsage("Which answers are there?", answer);
+            used.remove(answer);
+            used.addFirst(answer);
+        }
+        //the most recently used answers first, followed by the unused answers in the order they were added.
+        List<String> expected = new ArrayList<>(used);
+        answers.stream().filter(answer -> !used.contains(answer)).forEach(expected::add);
+        assertEquals(expected.subList(0, 10), knowledgeService.askQuestion("Which answers are there?", 10));
+        assertEquals(expected, knowledgeService.askQuestion("Which answers are there?", answers.size()));
+        assertThrows(IllegalArgumentException.class, () -> new AnswerRanking<String, String>(null));
+    }
+}
@@ -0,0 +1,185 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.async.AsyncKnowledgeService;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Async Knowledge Service, its coalescing of identical questions and its back-pressure.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class AsyncKnowledgeServiceTest {
+
+    private ConcurrentTextualKnowledgeService knowledgeService;
+    private BlockingKnowledgeService backend;
+    private AsyncKnowledgeService<String, String, String> asyncService;
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeService = new ConcurrentTextualKnowledgeService();
+        this.knowledgeService.addKnowledge("Who is Peter? \"a friend\"");
+        this.backend = new BlockingKnowledgeService(this.knowledgeService);
+        this.asyncService = new AsyncKnowledgeService<>(this.backend, 2, 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.backend.release();
+        this.asyncService.close();
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_AnswersDeliveredByFuture_Test() throws Exception {
+        this.backend.release();
+
+        assertEquals(List.of("a friend"), this.asyncService.askQuestion("Who is Peter?").get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), this.asyncService.askQuestion("Who is Paul?").get(5, TimeUnit.SECONDS));
+        assertTrue(this.asyncService.addKnowledge("Who is Paul?", List.of("a cousin")).get(5, TimeUnit.SECONDS));
+        assertTrue(this.asyncService.addKnowledge("Who is Mary? \"a sister\"").get(5, TimeUnit.SECONDS));
+        ImportReport report = this.asyncService.addKnowledgeBatch(Stream.of("Who is Anna? \"an aunt\"", "Who is Tom")).get(5, TimeUnit.SECONDS);
+        assertEquals(1, report.getImportedCount());
+        assertEquals(List.of("a cousin"), this.asyncService.askQuestion("Who is Paul?").get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("an aunt"), this.asyncService.askQuestion("Who is Anna?").get(5, TimeUnit.SECONDS));
+
+        ExecutionException invalid = assertThrows(ExecutionException.class, () -> this.asyncService.askQuestion("Who is Peter").get(5, TimeUnit.SECONDS));
+        assertTrue(invalid.getCause() instanceof IllegalArgumentException);
+        invalid = assertThrows(ExecutionException.class, () -> this.asyncService.askQuestion(null).get(5, TimeUnit.SECONDS));
+        assertTrue(invalid.getCause() instanceof IllegalArgumentException);
+        invalid = assertThrows(ExecutionException.class, () -> this.asyncService.addKnowledge("Who is Tom?", List.of()).get(5, TimeUnit.SECONDS));
+        assertTrue(invalid.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_IdenticalQuestionsCoalesced_Test() throws Exception {
+        List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+        futures.add(this.asyncService.askQuestion("Who is Peter?"));
+        this.backend.awaitBlocked();
+        for (int i = 0; i < 99; i++) {
+            futures.add(this.asyncService.askQuestion("Who is Peter?"));
+        }
+        futures.get(1).cancel(true);
+        this.backend.release();
+
+        for (int i = 0; i < futures.size(); i++) {
+            if (i != 1) assertEquals(List.of("a friend"), futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, this.backend.lookups.get());
+        assertEquals(1, this.asyncService.getLookupCount());
+        assertEquals(99, this.asyncService.getCoalescedCount());
+        assertEquals(List.of("a friend"), this.asyncService.askQuestion("Who is Peter?").get(5, TimeUnit.SECONDS));
+        assertEquals(2, this.backend.lookups.get());
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_NotCoalescedWithLookupBeforeWrite_Test() throws Exception {
+        CompletableFuture<List<String>> before = this.asyncService.askQuestion("Who is Peter?");
+        this.backend.awaitBlocked();
+
+        assertTrue(this.asyncService.addKnowledge("Who is Peter?", List.of("a colleague")).get(5, TimeUnit.SECONDS));
+        CompletableFuture<List<String>> after = this.asyncService.askQuestion("Who is Peter?");
+        this.backend.release();
+
+        assertEquals(List.of("a colleague"), after.get(5, TimeUnit.SECONDS));
+        assertEquals(2, this.backend.lookups.get());
+        assertEquals(0, this.asyncService.getCoalescedCount());
+        before.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void askQuestion_ShouldFail_TooManyOperationsPending_Test() throws Exception {
+        List<CompletableFuture<List<String>>> accepted = new ArrayList<>();
+        accepted.add(this.asyncService.askQuestion("Who is person 0?"));
+        accepted.add(this.asyncService.askQuestion("Who is person 1?"));
+        this.backend.awaitBlocked();
+        for (int i = 2; i < 6; i++) {
+            accepted.add(this.asyncService.askQuestion("Who is person " + i + "?"));
+        }
+        assertEquals(4, this.asyncService.getPendingCount());
+
+        CompletableFuture<List<String>> rejected = this.asyncService.askQuestion("Who is person 6?");
+        CompletableFuture<Boolean> rejectedWrite = this.asyncService.addKnowledge("Who is person 6?", List.of("a stranger"));
+        CompletableFuture<List<String>> coalesced = this.asyncService.askQuestion("Who is person 5?");
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof KnowledgeBaseException);
+        assertTrue(rejectedWrite.isCompletedExceptionally());
+        assertEquals(2, this.asyncService.getRejectedCount());
+        this.backend.release();
+        for (CompletableFuture<List<String>> future : accepted) {
+            assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), coalesced.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), this.asyncService.askQuestion("Who is person 6?").get(5, TimeUnit.SECONDS));
+
+        this.asyncService.close();
+        failure = assertThrows(ExecutionException.class, () -> this.asyncService.askQuestion("Who is Peter?").get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof KnowledgeBaseException);
+        assertEquals(2, this.asyncService.getRejectedCount());
+    }
+
+    /**
+     * a backend blocking every question until released, counting the questions asked.
+     */
+    private static final class BlockingKnowledgeService implements IKnowledgeService<String, String, String> {
+
+        private final IKnowledgeService<String, String, String> delegate;
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        BlockingKnowledgeService(IKnowledgeService<String, String, String> delegate) {
+            this.delegate = delegate;
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertTrue(this.blocked.await(5, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            this.released.countDown();
+        }
+
+        @Override
+        public List<String> askQuestion(String question) throws IllegalArgumentException, KnowledgeBaseException {
+            this.lookups.incrementAndGet();
+            this.blocked.countDown();
+            try {
+                if (!this.released.await(5, TimeUnit.SECONDS)) throw new KnowledgeBaseException("The backend was not released.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KnowledgeBaseException("Interrupted while blocked.", e);
+            }
+            return this.delegate.askQuestion(question);
+        }
+
+        @Override
+        public boolean addKnowledge(String question, List<String> answers) throws IllegalArgumentException, KnowledgeBaseException {
+            return this.delegate.addKnowledge(question, answers);
+        }
+
+        @Override
+        public boolean addKnowledge(String serializedKnowledge) throws IllegalArgumentException, KnowledgeBaseException {
+            return this.delegate.addKnowledge(serializedKnowledge);
+        }
+
+        @Override
+        public ImportReport addKnowledgeBatch(Stream<String> serializedKnowledge) throws KnowledgeBaseException {
+            return this.delegate.addKnowledgeBatch(serializedKnowledge);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.BatchQueryProcessor;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the non-interactive Batch Query Processor answering questions line by line.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class BatchQueryProcessorTest {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private ConcurrentTextualKnowledgeService knowledgeService;
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeService = new ConcurrentTextualKnowledgeService();
+        this.knowledgeService.addKnowledgeBatch(IntStream.range(0, 5000).mapToObj(i -> "How old is person " + i + "? \"" + i + "\" \"" + (i + 1) + "\""));
+    }
+
+    @Test
+    public void process_ShouldSucceed_AnswersWrittenInSerializedFormat_Test() throws KnowledgeBaseException {
+        StringWriter out = new StringWriter();
+        StringWriter errors = new StringWriter();
+        BatchQueryProcessor.BatchQueryReport report = new BatchQueryProcessor(this.knowledgeService, 1)
+                .process(reader("How old is person 7?", "How old is Peter?"), out, errors);
+        assertEquals("How old is person 7? \"7\" \"8\"" + NEWLINE
+                + "How old is Peter? \"" + TextualKnowledgeService.DEFAULT_ANSWER + "\"" + NEWLINE, out.toString());
+        assertEquals("", errors.toString());
+        assertEquals(2, report.getQuestionCount());
+        assertEquals(2, report.getAnsweredCount());
+    }
+
+    @Test
+    public void process_ShouldSucceed_InvalidQuestionsReportedAndSkipped_Test() throws KnowledgeBaseException {
+        StringWriter out = new StringWriter();
+        StringWriter errors = new StringWriter();
+        BatchQueryProcessor.BatchQueryReport report = new BatchQueryProcessor(this.knowledgeService, 1)
+                .process(reader("How old is person 1?", "How old is person 2", "", "How old is person 3?"), out, errors);
+        assertEquals("How old is person 1? \"1\" \"2\"" + NEWLINE + "How old is person 3? \"3\" \"4\"" + NEWLINE, out.toString());
+        assertTrue(errors.toString().startsWith("line 2: "));
+        assertTrue(errors.toString().contains(NEWLINE + "line 3: "));
+        assertEquals(4, report.getQuestionCount());
+        assertEquals(2, report.getFailedCount());
+    }
+
+    @Test
+    public void process_ShouldSucceed_ParallelOutputInInputOrder_Test() throws KnowledgeBaseException {
+        String[] questions = IntStream.range(0, 20000)
+                .mapToObj(i -> i % 1000 == 999 ? "invalid question " + i : "How old is person " + (i * 7919 % 6000) + "?")
+                .toArray(String[]::new);
+        StringWriter sequentialOut = new StringWriter();
+        StringWriter sequentialErrors = new StringWriter();
+        new BatchQueryProcessor(this.knowledgeService, 1).process(reader(questions), sequentialOut, sequentialErrors);
+        StringWriter parallelOut = new StringWriter();
+        StringWriter parallelErrors = new StringWriter();
+        BatchQueryProcessor.BatchQueryReport report = new BatchQueryProcessor(this.knowledgeService, 4).process(reader(questions), parallelOut, parallelErrors);
+        assertEquals(sequentialOut.toString(), parallelOut.toString());
+        assertEquals(sequentialErrors.toString(), parallelErrors.toString());
+        assertEquals(20000, report.getQuestionCount());
+        assertEquals(20, report.getFailedCount());
+    }
+
+    @Test
+    public void constructor_ShouldThrow_NoThreads_Test() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchQueryProcessor(this.knowledgeService, 0));
+    }
+
+    private static BufferedReader reader(String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+}
@@ -0,0 +1,200 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeCodec;
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeReader;
+import com.cgm.at.knowledgebase.codec.BinaryKnowledgeWriter;
+import com.cgm.at.knowledgebase.common.ErrorMessages;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.BinaryKnowledgeService;
+import com.cgm.at.knowledgebase.services.BinaryKnowledgeValidationService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeValidationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Binary Knowledge Base implementation, its record codec and the export and import of binary knowledge streams.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class BinaryKnowledgeServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void addKnowledge_ShouldSucceed_AnswersWithQuotationsAndUnicode_Test() throws KnowledgeBaseException {
+        BinaryKnowledgeService knowledgeService = new BinaryKnowledgeService();
+        List<String> answers = List.of("He said \"hello\"", "gr\u00fc\u00dfe \u4f60\u597d \ud83d\ude00", "a\nb");
+        ByteBuffer record = BinaryKnowledgeCodec.encode("What did Peter say?", answers);
+        int position = record.position();
+
+        assertTrue(knowledgeService.addKnowledge(record));
+        assertEquals(position, record.position());
+        assertEquals(answers, knowledgeService.askQuestion("What did Peter say?"));
+        assertEquals(BinaryKnowledgeCodec.encodedLength("What did Peter say?", answers), record.remaining());
+        assertEquals(BinaryKnowledgeCodec.encodedLength("What did Peter say?", answers), BinaryKnowledgeCodec.recordLength(record));
+
+        //an unpaired surrogate is encoded as replacement, like String.getBytes does.
+        ByteBuffer unpaired = BinaryKnowledgeCodec.encode("Who is \ud800?", List.of("x"));
+        assertEquals(Map.entry(new String("Who is \ud800?".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8), List.of("x")), BinaryKnowledgeCodec.decode(unpaired));
+    }
+
+    @Test
+    public void checkSerializedKnowledge_ShouldSucceed_AgreesWithTextualValidation_Test() {
+        BinaryKnowledgeValidationService validationService = new BinaryKnowledgeValidationService();
+        TextualKnowledgeValidationService textualValidationService = new TextualKnowledgeValidationService();
+        List<Map.Entry<String, List<String>>> knowledge = List.of(
+                Map.entry("Who is Peter?", List.of("a friend")),
+                Map.entry("\u00e4".repeat(254) + "?", List.of("\ud83d\ude00".repeat(127))),
+                Map.entry("\u00e4".repeat(255) + "?", List.of("a friend")),
+                Map.entry("Who is Peter?", List.of("\ud83d\ude00".repeat(128))),
+                Map.entry(" \u2003?", List.of("a friend")),
+                Map.entry("?", List.of("a friend")),
+                Map.entry("", List.of("a friend")),
+                Map.entry("Who is Peter", List.of("a friend")),
+                Map.entry("Who is Peter?", List.of()),
+                Map.entry("Who is Peter?", List.of("a friend", " ", "")),
+                Map.entry("Who is Peter?", List.of("")));
+        for (Map.Entry<String, List<String>> entry : knowledge) {
+            ValidationError expected = textualValidationService.checkQuestion(entry.getKey());
+            if (expected == null) expected = textualValidationService.checkAnswers(entry.getValue());
+            ByteBuffer record = BinaryKnowledgeCodec.encode(entry.getKey(), entry.getValue());
+            assertEquals(expected, validationService.checkSerializedKnowledge(record), entry.getKey());
+            assertEquals(0, record.position());
+        }
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> validationService.validateSerializedKnowledge(BinaryKnowledgeCodec.encode("Who is Peter?", List.of("a friend", " "))));
+        assertEquals(String.format(ErrorMessages.ANSWER_IS_EMPTY_OR_BLANK, " "), exception.getMessage());
+
+        ByteBuffer record = BinaryKnowledgeCodec.encode("Who is Peter?", List.of("a friend"));
+        ByteBuffer truncated = record.duplicate().limit(record.limit() - 1);
+        ByteBuffer trailing = ByteBuffer.allocate(record.remaining() + 1).put(record.duplicate()).put((byte) 0).flip();
+        ByteBuffer invalidUtf8 = record.duplicate();
+        invalidUtf8.put(1, (byte) 0xC3);
+        ByteBuffer hugeCount = ByteBuffer.wrap(new byte[]{2, 'a', '?', (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        for (ByteBuffer malformed : List.of(truncated, trailing, invalidUtf8, hugeCount, ByteBuffer.allocate(0))) {
+            assertEquals(ValidationError.BINARY_FORMAT_INCORRECT, validationService.checkSerializedKnowledge(malformed));
+            exception = assertThrows(IllegalArgumentException.class, () -> validationService.validateSerializedKnowledgeFormat(malformed));
+            assertEquals(ErrorMessages.BINARY_FORMAT_INCORRECT, exception.getMessage());
+        }
+        BinaryKnowledgeService knowledgeService = new BinaryKnowledgeService();
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.addKnowledge(trailing));
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.addKnowledge(hugeCount));
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.addKnowledge((ByteBuffer) null));
+    }
+
+    @Test
+    public void exportTo_ShouldSucceed_KnowledgeImportedAgain_Test() throws KnowledgeBaseException, IOException {
+        Map<String, List<String>> knowledge = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            knowledge.put("How old is person " + i + "?", List.of(String.valueOf(i % 100), "born in \"" + (1900 + i % 120) + "\""));
+        }
+        BinaryKnowledgeService knowledgeService = new BinaryKnowledgeService(knowledge, "unknown");
+        Path raw = this.directory.resolve("raw.kb");
+        Path compressed = this.directory.resolve("compressed.kb");
+
+        assertEquals(20000, knowledgeService.exportTo(raw, false));
+        assertEquals(20000, knowledgeService.exportTo(compressed, true));
+        assertTrue(Files.size(compressed) < Files.size(raw) / 2, Files.size(compressed) + " of " + Files.size(raw));
+
+        for (Path file : List.of(raw, compressed)) {
+            BinaryKnowledgeService imported = new BinaryKnowledgeService();
+            ImportReport report = imported.importFrom(file);
+            assertEquals(20000, report.getImportedCount());
+            assertEquals(0, report.getFailedCount());
+            assertEquals(knowledge, imported.getAllKnowledge());
+
+            Map<String, List<String>> decoded = new HashMap<>();
+            try (BinaryKnowledgeReader reader = new BinaryKnowledgeReader(FileChannel.open(file, StandardOpenOption.READ))) {
+                assertEquals(20000, reader.forEach(decoded::put));
+                assertNull(reader.nextBlock());
+            }
+            assertEquals(knowledge, decoded);
+        }
+    }
+
+    @Test
+    public void importFrom_ShouldSucceed_InvalidRecordsReportedAndOversizedRecordsSupported_Test() throws KnowledgeBaseException, IOException {
+        Path file = this.directory.resolve("knowledge.kb");
+        String longAnswer = "x".repeat(200);
+        try (BinaryKnowledgeWriter writer = new BinaryKnowledgeWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE), 64, true)) {
+            writer.write("Who is Peter?", List.of("a friend"));
+            writer.write("Who is Paul", List.of("a cousin"));
+            writer.write("Who is Mary?", List.of(longAnswer));
+            writer.write("Who is Anna?", List.of());
+            writer.write("Who is Tom?", List.of("an uncle"));
+        }
+        BinaryKnowledgeService knowledgeService = new BinaryKnowledgeService();
+        ImportReport report = knowledgeService.importFrom(file);
+
+        assertEquals(5, report.getTotalCount());
+        assertEquals(3, report.getImportedCount());
+        assertEquals(2, report.getFailedCount());
+        assertEquals(2, report.getErrors().get(0).getLineNumber());
+        assertEquals(String.format(ErrorMessages.QUESTION_NO_QUESTIONMARK, "Who is Paul"), report.getErrors().get(0).getMessage());
+        assertEquals(ErrorMessages.ANSWERS_NONE_GIVEN, report.getErrors().get(1).getMessage());
+        assertEquals(List.of(longAnswer), knowledgeService.askQuestion("Who is Mary?"));
+        assertEquals(List.of("an uncle"), knowledgeService.askQuestion("Who is Tom?"));
+
+        try (BinaryKnowledgeReader reader = new BinaryKnowledgeReader(FileChannel.open(file, StandardOpenOption.READ));
+             Stream<ByteBuffer> records = reader.records()) {
+            List<String> questions = records.map(record -> BinaryKnowledgeCodec.decode(record).getKey()).collect(Collectors.toList());
+            assertEquals(List.of("Who is Peter?", "Who is Paul", "Who is Mary?", "Who is Anna?", "Who is Tom?"), questions);
+        }
+    }
+
+    @Test
+    public void importFrom_ShouldThrow_StreamCorruptOrTruncated_Test() throws KnowledgeBaseException, IOException {
+        BinaryKnowledgeService knowledgeService = new BinaryKnowledgeService(IntStream.range(0, 1000).boxed()
+                .collect(Collectors.toMap(i -> "Who is person " + i + "?", i -> List.of("person " + i))), "unknown");
+        Path file = this.directory.resolve("knowledge.kb");
+        knowledgeService.exportTo(file, false);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = this.directory.resolve("truncated.kb");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(KnowledgeBaseException.class, () -> new BinaryKnowledgeService().importFrom(truncated));
+
+        Path corrupt = this.directory.resolve("corrupt.kb");
+        byte[] corruptBytes = bytes.clone();
+        corruptBytes[bytes.length / 2] ^= 0x20;
+        Files.write(corrupt, corruptBytes);
+        KnowledgeBaseException exception = assertThrows(KnowledgeBaseException.class, () -> new BinaryKnowledgeService().importFrom(corrupt));
+        assertTrue(exception.getMessage().contains("corrupt"), exception.getMessage());
+
+        Path text = this.directory.resolve("knowledge.txt");
+        Files.write(text, List.of("Who is Peter? \"a friend\""));
+        assertThrows(KnowledgeBaseException.class, () -> new BinaryKnowledgeService().importFrom(text));
+    }
+
+    @Test
+    public void nextBlock_ShouldThrow_BlockLengthExceedsMaximum_Test() throws IOException {
+        //a stream header followed by a stored block header claiming Integer.MAX_VALUE bytes, which must not be allocated.
+        byte[] bytes = {0x4B, 0x42, 0x49, 0x4E, 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0, 0, 0};
+        try (BinaryKnowledgeReader reader = new BinaryKnowledgeReader(Channels.newChannel(new ByteArrayInputStream(bytes)))) {
+            IOException exception = assertThrows(IOException.class, reader::nextBlock);
+            assertTrue(exception.getMessage().contains("corrupt block header"), exception.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new BinaryKnowledgeWriter(Channels.newChannel(new ByteArrayOutputStream()),
+                BinaryKnowledgeWriter.MAX_BLOCK_SIZE + 1, false));
+    }
+}
@@ -0,0 +1,157 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.cache.CacheStats;
+import com.cgm.at.knowledgebase.cache.CachingKnowledgeService;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.ranking.AnswerRanking;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the read-through Caching Knowledge Service in front of a textual knowledge base counting its lookups.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class CachingKnowledgeServiceTest {
+
+    //the backend, counting the questions that reach it.
+    private CountingKnowledgeService backend;
+
+    private CachingKnowledgeService<String, String, String> cachingKnowledgeService;
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.backend = new CountingKnowledgeService();
+        this.backend.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        this.cachingKnowledgeService = CachingKnowledgeService.forTextual(this.backend, 10000);
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_RepeatedQuestionAnsweredFromCache_Test() throws KnowledgeBaseException {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Arrays.asList("red", "blue"), this.cachingKnowledgeService.askQuestion("What are Peters favorite colors?"));
+        }
+        assertEquals(1, this.backend.lookups);
+        CacheStats stats = this.cachingKnowledgeService.getStats();
+        assertEquals(4, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_UnknownQuestionCached_Test() throws KnowledgeBaseException {
+        this.cachingKnowledgeService.askQuestion("How old is Peter?");
+        assertEquals(Collections.singletonList(TextualKnowledgeService.DEFAULT_ANSWER), this.cachingKnowledgeService.askQuestion("How old is Peter?"));
+        assertEquals(1, this.backend.lookups);
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_CachedAnswersInvalidated_Test() throws KnowledgeBaseException {
+        this.cachingKnowledgeService.askQuestion("How old is Peter?");
+        this.cachingKnowledgeService.addKnowledge("How old is Peter? \"35\"");
+        assertEquals(Collections.singletonList("35"), this.cachingKnowledgeService.askQuestion("How old is Peter?"));
+
+        this.cachingKnowledgeService.addKnowledge("How old is Peter?", Collections.singletonList("36"));
+        assertEquals(Collections.singletonList("36"), this.cachingKnowledgeService.askQuestion("How old is Peter?"));
+
+        this.cachingKnowledgeService.addKnowledgeBatch(Stream.of("How old is Peter? \"37\""));
+        assertEquals(Collections.singletonList("37"), this.cachingKnowledgeService.askQuestion("How old is Peter?"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_HotQuestionSurvivesScanOfOneOffQuestions_Test() throws KnowledgeBaseException {
+        CachingKnowledgeService<String, String, String> smallCache = CachingKnowledgeService.forTextual(this.backend, 2000);
+        for (int i = 0; i < 10; i++) {
+            smallCache.askQuestion("What are Peters favorite colors?");
+        }
+        //the frequencies age while scanning, the hot question stays hot by being asked now and then.
+        for (int i = 0; i < 1000; i++) {
+            smallCache.askQuestion("How old is person " + i + "?");
+            if (i % 100 == 49) smallCache.askQuestion("What are Peters favorite colors?");
+        }
+        smallCache.askQuestion("What are Peters favorite colors?");
+        assertEquals(1001, this.backend.lookups);
+        CacheStats stats = smallCache.getStats();
+        assertTrue(stats.getWeightedSize() <= 2000);
+        assertTrue(stats.getEvictionCount() + stats.getRejectionCount() > 0);
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_RejectedCandidateEvictsNothing_Test() throws KnowledgeBaseException {
+        Map<String, Long> weights = Map.of("Is it cold?", 40L, "Is it hot?", 40L, "Is it big?", 70L);
+        CachingKnowledgeService<String, String, String> weighedCache = new CachingKnowledgeService<>(this.backend, 100, 10,
+                (question, answers) -> weights.get(question), question -> question);
+        weighedCache.askQuestion("Is it cold?");
+        for (int i = 0; i < 5; i++) {
+            weighedCache.askQuestion("Is it hot?");
+        }
+        //the second time the candidate is accessed more often than the cold victim, but not than the hot one it needs to evict as well.
+        weighedCache.askQuestion("Is it big?");
+        weighedCache.askQuestion("Is it big?");
+        CacheStats stats = weighedCache.getStats();
+        assertEquals(0, stats.getEvictionCount());
+        assertEquals(2, stats.getRejectionCount());
+        assertEquals(2, stats.getEntryCount());
+        weighedCache.askQuestion("Is it cold?");
+        assertEquals(4, this.backend.lookups);
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_BestAnswersCachedOnlyWithoutRanking_Test() throws KnowledgeBaseException {
+        this.backend.addKnowledge("What are Peters favorite colors? \"red\" \"blue\" \"green\"");
+        assertEquals(Arrays.asList("red", "blue"), this.cachingKnowledgeService.askQuestion("What are Peters favorite colors?", 2));
+        assertEquals(Collections.singletonList("red"), this.cachingKnowledgeService.askQuestion("What are Peters favorite colors?", 1));
+        assertEquals(1, this.backend.lookups);
+
+        this.backend.setAnswerRanking(new AnswerRanking<>(AnswerRanking.Order.POPULARITY));
+        this.backend.recordAnswerUsage("What are Peters favorite colors?", "green");
+        assertEquals(Collections.singletonList("green"), this.cachingKnowledgeService.askQuestion("What are Peters favorite colors?", 1));
+        assertThrows(IllegalArgumentException.class, () -> this.cachingKnowledgeService.askQuestion("What are Peters favorite colors?", 0));
+    }
+
+    @Test
+    public void streamAnswers_ShouldSucceed_CachedAnswersStreamedOthersStreamedByBackend_Test() throws KnowledgeBaseException {
+        assertEquals(Arrays.asList("red", "blue"), this.cachingKnowledgeService.streamAnswers("What are Peters favorite colors?").collect(Collectors.toList()));
+        assertEquals(1, this.backend.streams);
+        assertEquals(0, this.backend.lookups);
+
+        this.cachingKnowledgeService.askQuestion("What are Peters favorite colors?");
+        assertEquals(Collections.singletonList("red"), this.cachingKnowledgeService.streamAnswers("What are Peters favorite colors?").limit(1).collect(Collectors.toList()));
+        assertEquals(1, this.backend.streams);
+        assertEquals(1, this.backend.lookups);
+        CacheStats stats = this.cachingKnowledgeService.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    public void constructor_ShouldThrow_InvalidSizes_Test() {
+        assertThrows(IllegalArgumentException.class, () -> new CachingKnowledgeService<>(this.backend, 1, 1, (question, answers) -> 1L, question -> question));
+        assertThrows(IllegalArgumentException.class, () -> new CachingKnowledgeService<>(this.backend, 1000, 0, (question, answers) -> 1L, question -> question));
+    }
+
+    /**
+     * A textual knowledge base counting the questions asked.
+     */
+    private static final class CountingKnowledgeService extends TextualKnowledgeService {
+
+        private int lookups;
+        private int streams;
+
+        @Override
+        public List<String> askQuestion(String question) throws IllegalArgumentException, KnowledgeBaseException {
+            this.lookups++;
+            return super.askQuestion(question);
+        }
+
+        @Override
+        public Stream<String> streamAnswers(String question) throws IllegalArgumentException, KnowledgeBaseException {
+            this.streams++;
+            return super.streamAnswers(question);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * stress tests the Concurrent Textual Knowledge Base implementation with concurrent readers and writers.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class ConcurrentTextualKnowledgeServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int QUESTIONS_PER_THREAD = 2000;
+
+    private ConcurrentTextualKnowledgeService concurrentKnowledgeService;
+
+    @BeforeEach
+    public void setUp() {
+        this.concurrentKnowledgeService = new ConcurrentTextualKnowledgeService();
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_ConcurrentWritersLoseNoQuestion_Test() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < QUESTIONS_PER_THREAD; i++) {
+                    this.concurrentKnowledgeService.addKnowledge("What is question " + thread + "-" + i + "? \"" + i + "\"");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(THREADS * QUESTIONS_PER_THREAD, this.concurrentKnowledgeService.getAllKnowledge().size());
+        assertEquals(Collections.singletonList("7"), this.concurrentKnowledgeService.askQuestion("What is question 3-7?"));
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_ReadersSeeAtomicReplacement_Test() throws Exception {
+        String question = "What are Peters favorite colors?";
+        this.concurrentKnowledgeService.addKnowledge(question, Arrays.asList("0", "0", "0"));
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < THREADS - 1; t++) {
+            readers.add(executor.submit(() -> {
+                while (running.get()) {
+                    List<String> answers = this.concurrentKnowledgeService.askQuestion(question);
+                    //all answers of a version are equal, a mix of versions would mean a torn replacement.
+                    assertEquals(3, answers.size());
+                    assertEquals(answers.get(0), answers.get(1));
+                    assertEquals(answers.get(0), answers.get(2));
+                }
+                return null;
+            }));
+        }
+        Future<?> writer = executor.submit(() -> {
+            for (int version = 1; version <= 20000; version++) {
+                String value = String.valueOf(version);
+                this.concurrentKnowledgeService.addKnowledge(question, Arrays.asList(value, value, value));
+            }
+            return null;
+        });
+        writer.get(30, TimeUnit.SECONDS);
+        running.set(false);
+        for (Future<?> reader : readers) reader.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(Arrays.asList("20000", "20000", "20000"), this.concurrentKnowledgeService.askQuestion(question));
+    }
+
+    @Test
+    public void askQuestion_ShouldThrow_AnswersAreImmutable_Test() throws KnowledgeBaseException {
+        List<String> added = new ArrayList<>(Arrays.asList("red", "blue"));
+        this.concurrentKnowledgeService.addKnowledge("What are Peters favorite colors?", added);
+        added.add("green");
+        List<String> answers = this.concurrentKnowledgeService.askQuestion("What are Peters favorite colors?");
+        assertEquals(Arrays.asList("red", "blue"), answers);
+        assertThrows(UnsupportedOperationException.class, () -> answers.add("green"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> this.concurrentKnowledgeService.askQuestion("What is unknown?").add("green"));
+    }
+}
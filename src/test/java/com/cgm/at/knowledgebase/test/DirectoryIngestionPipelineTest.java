@@ -0,0 +1,129 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.common.ErrorMessages;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.ingest.DirectoryIngestionPipeline;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Directory Ingestion Pipeline tailing the files of a watched directory into a knowledge base.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class DirectoryIngestionPipelineTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void start_ShouldSucceed_AppendedLinesIngestedIncrementally_Test() throws KnowledgeBaseException, IOException, InterruptedException {
+        ConcurrentTextualKnowledgeService knowledgeService = new ConcurrentTextualKnowledgeService();
+        List<ImportReport> reports = Collections.synchronizedList(new ArrayList<>());
+        Path file = this.directory.resolve("colors.txt");
+        Files.write(file, "Who is Peter? \"a friend\"\r\nWhat is red? \"a color\"\nWhat is bl".getBytes(StandardCharsets.UTF_8));
+        long firstLines = "Who is Peter? \"a friend\"\r\nWhat is red? \"a color\"\n".length();
+
+        try (DirectoryIngestionPipeline pipeline = new DirectoryIngestionPipeline(knowledgeService, this.directory, (path, report) -> {
+            if (path.equals(file.toAbsolutePath())) reports.add(report);
+        })) {
+            pipeline.start();
+            assertTrue(pipeline.awaitOffset(file, firstLines, TIMEOUT));
+            assertEquals(List.of("a friend"), knowledgeService.askQuestion("Who is Peter?"));
+            assertEquals(List.of("a color"), knowledgeService.askQuestion("What is red?"));
+            assertEquals(firstLines, pipeline.getOffset(file));
+
+            //the trailing line is ingested once its line break is written.
+            Files.write(file, "ue? \"a color\"\nWhat is green \"a color\"\nWhat is gr\u00fcn? \"a color\"\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            assertTrue(pipeline.awaitOffset(file, Files.size(file), TIMEOUT));
+            assertEquals(List.of("a color"), knowledgeService.askQuestion("What is blue?"));
+            assertEquals(List.of("a color"), knowledgeService.askQuestion("What is gr\u00fcn?"));
+            assertEquals(4, pipeline.getIngestedCount());
+            assertEquals(1, pipeline.getFailedCount());
+
+            //a rejected line is reported with its line number in the file.
+            ImportReport.ImportError error = reports.stream().flatMap(report -> report.getErrors().stream()).findFirst().orElseThrow();
+            assertEquals(4, error.getLineNumber());
+            assertEquals(ErrorMessages.QUESTION_FORMAT_INCORRECT, error.getMessage());
+
+            //files created later are ingested as well.
+            Path other = Files.write(this.directory.resolve("other.txt"), List.of("Who is Paul? \"a cousin\""), StandardCharsets.UTF_8);
+            assertTrue(pipeline.awaitOffset(other, Files.size(other), TIMEOUT));
+            assertEquals(List.of("a cousin"), knowledgeService.askQuestion("Who is Paul?"));
+        }
+        assertTrue(Files.exists(this.directory.resolve(DirectoryIngestionPipeline.DEFAULT_CHECKPOINT_FILE)));
+    }
+
+    @Test
+    public void start_ShouldSucceed_RestartReadsOnlyAppendedBytes_Test() throws KnowledgeBaseException, IOException, InterruptedException {
+        Path checkpoint = this.directory.resolve("ingestion.checkpoint");
+        Path watched = Files.createDirectory(this.directory.resolve("knowledge"));
+        Path file = watched.resolve("persons.txt");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            lines.add("How old is person " + i + "? \"" + i + "\"");
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        ConcurrentTextualKnowledgeService knowledgeService = new ConcurrentTextualKnowledgeService();
+        try (DirectoryIngestionPipeline pipeline = new DirectoryIngestionPipeline(knowledgeService, watched, checkpoint, 64, null)) {
+            pipeline.start();
+            assertTrue(pipeline.awaitOffset(file, Files.size(file), TIMEOUT));
+            assertEquals(1000, pipeline.getIngestedCount());
+        }
+        assertEquals(1000, knowledgeService.getAllKnowledge().size());
+
+        //the lines appended and the files created while the pipeline is stopped are ingested on the next start, and nothing else,
+        //a line longer than a batch is read into a batch of its own.
+        Files.write(file, List.of("How old is person 1000? \"1000\""), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Path created = Files.write(watched.resolve("created.txt"), List.of("Who is Peter? " + "\"a friend\" ".repeat(20)), StandardCharsets.UTF_8);
+        ConcurrentTextualKnowledgeService restarted = new ConcurrentTextualKnowledgeService();
+        try (DirectoryIngestionPipeline pipeline = new DirectoryIngestionPipeline(restarted, watched, checkpoint, 64, null)) {
+            pipeline.start();
+            assertTrue(pipeline.awaitOffset(file, Files.size(file), TIMEOUT));
+            assertTrue(pipeline.awaitOffset(created, Files.size(created), TIMEOUT));
+            assertEquals(2, pipeline.getIngestedCount());
+            assertEquals(Set.of("How old is person 1000?", "Who is Peter?"), restarted.getAllKnowledge().keySet());
+
+            //a truncated file is ingested again from its start.
+            Files.write(file, List.of("How old is person 0? \"zero\""), StandardCharsets.UTF_8);
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (pipeline.getOffset(file) != Files.size(file) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(Files.size(file), pipeline.getOffset(file));
+            assertEquals(List.of("zero"), restarted.askQuestion("How old is person 0?"));
+        }
+        assertEquals(TextualKnowledgeService.DEFAULT_ANSWER, restarted.askQuestion("How old is person 1?").get(0));
+    }
+
+    @Test
+    public void constructor_ShouldThrow_InvalidArguments_Test() throws KnowledgeBaseException, IOException {
+        ConcurrentTextualKnowledgeService knowledgeService = new ConcurrentTextualKnowledgeService();
+        Path file = Files.createFile(this.directory.resolve("file.txt"));
+        assertThrows(IllegalArgumentException.class, () -> new DirectoryIngestionPipeline(knowledgeService, file, null));
+        assertThrows(IllegalArgumentException.class, () -> new DirectoryIngestionPipeline(knowledgeService, this.directory, null, 0, null));
+
+        Path checkpoint = Files.write(this.directory.resolve("broken.checkpoint"), List.of("not a checkpoint"));
+        assertThrows(KnowledgeBaseException.class, () -> new DirectoryIngestionPipeline(knowledgeService, this.directory, checkpoint, 64, null));
+
+        DirectoryIngestionPipeline pipeline = new DirectoryIngestionPipeline(knowledgeService, this.directory, null, 64, null);
+        pipeline.start();
+        assertThrows(IllegalStateException.class, pipeline::start);
+        pipeline.close();
+        pipeline.close();
+    }
+}
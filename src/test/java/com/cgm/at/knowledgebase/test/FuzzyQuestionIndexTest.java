@@ -0,0 +1,75 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.FuzzyQuestionIndex;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the approximate question matching of the Textual Knowledge Base using the Fuzzy Question Index.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class FuzzyQuestionIndexTest {
+
+    private TextualKnowledgeService textualKnowledgeService;
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.textualKnowledgeService = new TextualKnowledgeService();
+        this.textualKnowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        this.textualKnowledgeService.addKnowledgeBatch(IntStream.range(0, 10000).mapToObj(i -> "How old is person number " + i + "? \"" + i + "\""));
+        this.textualKnowledgeService.setQuestionMatcher(new FuzzyQuestionIndex());
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_CaseAndWhitespaceVariantMatched_Test() throws KnowledgeBaseException {
+        assertEquals(Arrays.asList("red", "blue"), this.textualKnowledgeService.askQuestion("  what are   PETERS favorite\tcolors?"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_TypoMatched_Test() throws KnowledgeBaseException {
+        assertEquals(Arrays.asList("red", "blue"), this.textualKnowledgeService.askQuestion("What are Peter's favourite colors?"));
+        assertEquals(Collections.singletonList("4711"), this.textualKnowledgeService.askQuestion("How old is persn number 4711?"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_UnrelatedQuestionReturnsDefaultAnswer_Test() throws KnowledgeBaseException {
+        assertEquals(Collections.singletonList(TextualKnowledgeService.DEFAULT_ANSWER), this.textualKnowledgeService.askQuestion("Where is the nearest train station?"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_QuestionAddedAfterEnablingMatched_Test() throws KnowledgeBaseException {
+        this.textualKnowledgeService.addKnowledge("Where is the nearest train station? \"around the corner\"");
+        assertEquals(Collections.singletonList("around the corner"), this.textualKnowledgeService.askQuestion("where is the nearest train-station?"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_MatchingDisabled_Test() throws KnowledgeBaseException {
+        this.textualKnowledgeService.setQuestionMatcher(null);
+        assertEquals(Collections.singletonList(TextualKnowledgeService.DEFAULT_ANSWER), this.textualKnowledgeService.askQuestion("what are peters favorite colors?"));
+    }
+
+    @Test
+    public void knowledgeRemoved_ShouldSucceed_SurvivingCaseVariantStillMatched_Test() {
+        FuzzyQuestionIndex index = new FuzzyQuestionIndex();
+        index.knowledgeAdded("What?", List.of("a"));
+        index.knowledgeAdded("what?", List.of("b"));
+        assertEquals("what?", index.match("WHAT?"));
+        index.knowledgeRemoved("what?");
+        assertEquals("What?", index.match("WHAT?"));
+        assertEquals(1, index.size());
+        index.knowledgeRemoved("What?");
+        assertNull(index.match("WHAT?"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void normalize_ShouldSucceed_CaseFoldedAndWhitespaceCollapsed_Test() {
+        assertEquals("what are peters colors?", FuzzyQuestionIndex.normalize(" What  are\nPeters COLORS? "));
+    }
+}
@@ -0,0 +1,121 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.FuzzyQuestionIndex;
+import com.cgm.at.knowledgebase.index.HashedNgramEmbedding;
+import com.cgm.at.knowledgebase.index.HnswQuestionIndex;
+import com.cgm.at.knowledgebase.index.QuestionMatcherChain;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the semantic question matching of the Textual Knowledge Base using the HNSW Question Index and the Hashed Ngram Embedding.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class HnswQuestionIndexTest {
+
+    private static final String[] SUBJECTS = {"Peter", "Mary", "the train", "the museum", "my order", "the invoice", "the printer", "the server"};
+    private static final String[] TOPICS = {"favorite color", "opening hours", "delivery date", "phone number", "home address", "price", "status"};
+    private static final String[] FORMS = {"What is the %s of %s number %d?", "Where can I find the %s of %s number %d?", "How do I change the %s of %s number %d?"};
+
+    private final HashedNgramEmbedding embedding = new HashedNgramEmbedding();
+
+    @Test
+    public void askQuestion_ShouldSucceed_RewordedQuestionMatchedAfterFuzzyMatching_Test() throws KnowledgeBaseException {
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService();
+        knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        knowledgeService.addKnowledgeBatch(IntStream.range(0, 2000).mapToObj(i -> "How old is person number " + i + "? \"" + i + "\""));
+        HnswQuestionIndex<String, String> semanticIndex = new HnswQuestionIndex<>(this.embedding);
+        knowledgeService.setQuestionMatcher(new QuestionMatcherChain<>(new FuzzyQuestionIndex(), semanticIndex));
+
+        assertEquals(2001, semanticIndex.size());
+        assertEquals(List.of("red", "blue"), knowledgeService.askQuestion("what are peters favorite colors?"));
+        assertEquals(List.of("red", "blue"), knowledgeService.askQuestion("Which colors are Peter's favorite?"));
+        assertEquals(List.of("red", "blue"), knowledgeService.askQuestion("What are the favorite colors of Peter?"));
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("Where is the nearest train station?"));
+
+        //questions added later are indexed incrementally.
+        knowledgeService.addKnowledge("Where is the nearest train station? \"around the corner\"");
+        assertEquals(List.of("around the corner"), knowledgeService.askQuestion("The nearest train station is where?"));
+        assertEquals("Where is the nearest train station?", semanticIndex.nearest("train station nearest?", 1).get(0));
+
+        //a higher threshold rejects the reordered question.
+        knowledgeService.setQuestionMatcher(new HnswQuestionIndex<>(this.embedding, 0.99));
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("Which colors are Peter's favorite?"));
+    }
+
+    @Test
+    public void nearest_ShouldSucceed_RecallOfExactSearch_Test() {
+        List<String> questions = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            String form = FORMS[i % FORMS.length];
+            questions.add(String.format(form, TOPICS[(i / 3) % TOPICS.length], SUBJECTS[(i / 21) % SUBJECTS.length], i / 168));
+        }
+        HnswQuestionIndex<String, String> index = new HnswQuestionIndex<>(this.embedding);
+        questions.forEach(question -> index.knowledgeAdded(question, List.of("answer")));
+        assertEquals(new HashSet<>(questions).size(), index.size());
+
+        int dimension = this.embedding.getDimension();
+        float[] vectors = new float[questions.size() * dimension];
+        for (int i = 0; i < questions.size(); i++) {
+            this.embedding.embed(questions.get(i), vectors, i * dimension);
+        }
+        Random random = new Random(7);
+        int found = 0;
+        int expected = 0;
+        for (int q = 0; q < 200; q++) {
+            String query = String.format(FORMS[random.nextInt(FORMS.length)].replace("number", "no"), TOPICS[random.nextInt(TOPICS.length)],
+                    SUBJECTS[random.nextInt(SUBJECTS.length)], random.nextInt(130));
+            float[] queryVector = new float[dimension];
+            this.embedding.embed(query, queryVector, 0);
+            //the exact 10 nearest questions by brute force, ties broken by the position of the question.
+            List<Integer> exact = IntStream.range(0, questions.size()).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> -similarity(queryVector, vectors, i * dimension, dimension)))
+                    .limit(10).collect(Collectors.toList());
+            float tenthSimilarity = similarity(queryVector, vectors, exact.get(9) * dimension, dimension);
+            List<String> nearest = index.nearest(query, 10);
+            assertEquals(10, nearest.size());
+            for (String question : nearest) {
+                //a question as similar as the tenth exact one is as good as it.
+                float value = similarity(queryVector, vectors, questions.indexOf(question) * dimension, dimension);
+                if (value >= tenthSimilarity - 1e-6f) found++;
+            }
+            expected += 10;
+        }
+        assertTrue(found >= 0.95 * expected, "recall " + found + " of " + expected);
+        assertEquals(questions.get(4711), index.nearest(questions.get(4711), 1).get(0));
+        assertEquals(List.of(), index.nearest(questions.get(0), 0));
+    }
+
+    @Test
+    public void embed_ShouldSucceed_UnitVectorsOfSharedWords_Test() {
+        int dimension = this.embedding.getDimension();
+        float[] vectors = new float[3 * dimension];
+        this.embedding.embed("What are Peters favorite colors?", vectors, 0);
+        this.embedding.embed("Peter's favorite colors are what?", vectors, dimension);
+        this.embedding.embed("?!", vectors, 2 * dimension);
+
+        assertEquals(1f, similarity(vectors, vectors, 0, dimension), 1e-5f);
+        assertTrue(similarity(vectors, vectors, dimension, dimension) > 0.95f);
+        assertEquals(0f, similarity(vectors, vectors, 2 * dimension, dimension));
+        assertThrows(IllegalArgumentException.class, () -> new HashedNgramEmbedding(0));
+        assertThrows(IllegalArgumentException.class, () -> new HnswQuestionIndex<>(this.embedding, 1.5));
+        assertNull(new HnswQuestionIndex<String, String>(this.embedding).match("What are Peters favorite colors?"));
+    }
+
+    /**
+     * @return the dot product of the vector at index 0 of the first array and the vector at the offset of the second array.
+     */
+    private static float similarity(float[] query, float[] vectors, int offset, int dimension) {
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors[offset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,115 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.intern.AnswerDictionary;
+import com.cgm.at.knowledgebase.intern.InternedKnowledgeMap;
+import com.cgm.at.knowledgebase.services.InternedTextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Answer Dictionary, the Interned Knowledge Map and the Interned Textual Knowledge Base.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class InternedTextualKnowledgeServiceTest {
+
+    @Test
+    public void intern_ShouldSucceed_EqualAnswersShareOneId_Test() {
+        AnswerDictionary dictionary = new AnswerDictionary();
+        int[] ids = new int[100000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dictionary.intern("answer " + i);
+        }
+        assertEquals(100000, dictionary.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i, ids[i]);
+            assertEquals(ids[i], dictionary.intern(new String("answer " + i)));
+            assertEquals("answer " + i, dictionary.answer(ids[i]));
+        }
+        int unicode = dictionary.intern("Gr\u00FC\u00DFe, \u65E5\u672C \uD83D\uDE00");
+        assertEquals("Gr\u00FC\u00DFe, \u65E5\u672C \uD83D\uDE00", dictionary.answer(unicode));
+        assertEquals(dictionary.intern(""), dictionary.intern(""));
+        assertEquals("", dictionary.answer(dictionary.intern("")));
+        assertEquals(100002, dictionary.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionary.answer(100002));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.intern((String) null));
+    }
+
+    @Test
+    public void put_ShouldSucceed_SameContentAsHashMap_Test() {
+        InternedKnowledgeMap map = new InternedKnowledgeMap();
+        Map<String, List<String>> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            List<String> answers = List.of("answer " + i % 7, "answer " + i % 3);
+            assertEquals(expected.put("question " + i % 800, answers), map.put("question " + i % 800, new ArrayList<>(answers)));
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(7, map.getDictionary().size());
+        assertEquals(List.of("answer 1", "answer 1"), map.remove("question 20"));
+        assertNull(map.remove("question 20"));
+        assertNull(map.get("question 20"));
+
+        map.entrySet().removeIf(entry -> entry.getKey().endsWith("1"));
+        map.replaceAll((question, answers) -> List.of(answers.get(0).toUpperCase()));
+
+        assertEquals(720 - 1, map.size());
+        assertFalse(map.containsKey("question 11"));
+        assertEquals(List.of("ANSWER 0"), map.get("question 12"));
+        assertThrows(UnsupportedOperationException.class, () -> map.get("question 12").add("answer"));
+        assertThrows(UnsupportedOperationException.class, () -> map.entrySet().iterator().next().setValue(List.of()));
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_AnswersStoredOnce_Test() throws KnowledgeBaseException {
+        InternedTextualKnowledgeService knowledgeService = new InternedTextualKnowledgeService(
+                Map.of("Who is Peter?", List.of("a friend")), InternedTextualKnowledgeService.DEFAULT_ANSWER);
+        for (int i = 0; i < 1000; i++) {
+            knowledgeService.addKnowledge("Who is person " + i + "? \"a friend\" \"a colleague\"");
+        }
+        ImportReport report = knowledgeService.addKnowledgeBatch(IntStream.range(0, 1000).mapToObj(i -> "How old is person " + i + "? \"" + i % 100 + "\""));
+
+        assertEquals(1000, report.getImportedCount());
+        assertEquals(2001, knowledgeService.getAllKnowledge().size());
+        assertEquals(102, knowledgeService.getAnswerDictionary().size());
+        assertEquals(List.of("a friend", "a colleague"), knowledgeService.askQuestion("Who is person 7?"));
+        assertEquals(List.of("42"), knowledgeService.askQuestion("How old is person 142?"));
+        assertEquals(List.of("a friend"), knowledgeService.askQuestion("Who is Peter?"));
+        assertEquals(List.of(InternedTextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("Who is Paul?"));
+        assertEquals(List.of("Who is person 99?"), knowledgeService.suggest("Who is person 99?", 1));
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.addKnowledge("Who is Paul? \"a friend"));
+    }
+
+    @Test
+    public void intern_ShouldSucceed_ConcurrentWritersGetSameIds_Test() throws Exception {
+        AnswerDictionary dictionary = new AnswerDictionary();
+        InternedKnowledgeMap map = new InternedKnowledgeMap(new ConcurrentHashMap<>(), dictionary);
+        AtomicInteger mismatches = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    int question = (i + offset * 5000) % 20000;
+                    map.put("question " + question, List.of("answer " + question % 5000));
+                    if (!List.of("answer " + question % 5000).equals(map.get("question " + question))) mismatches.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(0, mismatches.get());
+        assertEquals(20000, map.size());
+        assertEquals(5000, dictionary.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("answer " + i, dictionary.answer(dictionary.intern("answer " + i)));
+        }
+    }
+}
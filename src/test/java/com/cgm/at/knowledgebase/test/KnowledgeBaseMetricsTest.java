@@ -0,0 +1,135 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.FuzzyQuestionIndex;
+import com.cgm.at.knowledgebase.metrics.HistogramSnapshot;
+import com.cgm.at.knowledgebase.metrics.KnowledgeBaseMetrics;
+import com.cgm.at.knowledgebase.metrics.LatencyHistogram;
+import com.cgm.at.knowledgebase.metrics.MetricsSnapshot;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Knowledge Base Metrics recorded by a textual knowledge base and their histograms.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class KnowledgeBaseMetricsTest {
+
+    private ConcurrentTextualKnowledgeService knowledgeService;
+    private KnowledgeBaseMetrics metrics;
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeService = new ConcurrentTextualKnowledgeService();
+        this.knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        this.metrics = new KnowledgeBaseMetrics(1);
+        this.knowledgeService.setMetrics(this.metrics);
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_HitsMatchesAndMissesCounted_Test() throws KnowledgeBaseException {
+        this.knowledgeService.askQuestion("What are Peters favorite colors?");
+        this.knowledgeService.askQuestion("How old is Peter?");
+        this.knowledgeService.setQuestionMatcher(new FuzzyQuestionIndex());
+        this.knowledgeService.askQuestion("what are peters favorite colors?");
+        assertThrows(IllegalArgumentException.class, () -> this.knowledgeService.askQuestion("How old is Peter"));
+
+        MetricsSnapshot snapshot = this.metrics.snapshot();
+        assertEquals(3, snapshot.getAskCount());
+        assertEquals(1, snapshot.getHitCount());
+        assertEquals(1, snapshot.getMatchCount());
+        assertEquals(1, snapshot.getMissCount());
+        assertEquals(3, snapshot.getAskLatency().getCount());
+        assertEquals(3, snapshot.getValidateLatency().getCount());
+        assertEquals(Collections.singletonMap("QUESTION_NO_QUESTIONMARK", 1L), snapshot.getValidationFailures());
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_AddsParsesAndFailuresCounted_Test() throws KnowledgeBaseException {
+        this.knowledgeService.addKnowledge("How old is Peter? \"35\"");
+        this.knowledgeService.addKnowledge("How old is Paul?", Collections.singletonList("36"));
+        assertThrows(IllegalArgumentException.class, () -> this.knowledgeService.addKnowledge("How old is Peter? \"35"));
+        assertThrows(IllegalArgumentException.class, () -> this.knowledgeService.addKnowledge("How old is Peter? \" \""));
+        this.knowledgeService.addKnowledgeBatch(Stream.of("Who is Peter? \"a friend\"", "Who is Paul?", "Who is Mary? \"a cousin\""));
+
+        MetricsSnapshot snapshot = this.metrics.snapshot();
+        assertEquals(2, snapshot.getAddCount());
+        assertEquals(2, snapshot.getImportedCount());
+        assertEquals(2, snapshot.getAddLatency().getCount());
+        assertEquals(5, snapshot.getParseLatency().getCount());
+        Map<String, Long> failures = snapshot.getValidationFailures();
+        assertEquals(1L, failures.get("ANSWERS_FORMAT_INCORRECT"));
+        assertEquals(1L, failures.get("ANSWER_IS_EMPTY_OR_BLANK"));
+        assertEquals(1L, failures.get("ANSWERS_NONE_GIVEN"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_ConcurrentOperationsCountedExactly_Test() {
+        IntStream.range(0, 100000).parallel().forEach(i -> {
+            try {
+                this.knowledgeService.askQuestion(i % 2 == 0 ? "What are Peters favorite colors?" : "How old is person " + i + "?");
+            } catch (KnowledgeBaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertEquals(50000, this.metrics.getHitCount());
+        assertEquals(50000, this.metrics.getMissCount());
+        assertEquals(0.5, this.metrics.getHitRate());
+        assertEquals(100000, this.metrics.getAskLatency().getCount());
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_LatenciesSampledCountersExact_Test() throws KnowledgeBaseException {
+        KnowledgeBaseMetrics sampledMetrics = new KnowledgeBaseMetrics(16);
+        this.knowledgeService.setMetrics(sampledMetrics);
+        for (int i = 0; i < 16000; i++) {
+            this.knowledgeService.askQuestion("What are Peters favorite colors?");
+        }
+        assertEquals(16000, sampledMetrics.getHitCount());
+        long sampled = sampledMetrics.getAskLatency().getCount();
+        assertTrue(sampled > 500 && sampled < 1500, "sampled " + sampled);
+        assertThrows(IllegalArgumentException.class, () -> new KnowledgeBaseMetrics(12));
+    }
+
+    @Test
+    public void snapshot_ShouldSucceed_PercentilesWithinBucketPrecision_Test() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000000; value++) {
+            histogram.record(value);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000000, snapshot.getCount());
+        assertEquals(500000.5, snapshot.getMeanNanos());
+        assertEquals(1000000, snapshot.getMaxNanos());
+        assertEquals(500000, snapshot.getP50Nanos(), 500000 / 32.0);
+        assertEquals(990000, snapshot.getP99Nanos(), 990000 / 32.0);
+        assertTrue(snapshot.getP50Nanos() >= 500000);
+        assertEquals(1, snapshot.getPercentileNanos(0));
+        assertEquals(1000000, snapshot.getPercentileNanos(100));
+        assertEquals(0, new LatencyHistogram().snapshot().getP99Nanos());
+    }
+
+    @Test
+    public void registerMBean_ShouldSucceed_AttributesReadableThroughJmx_Test() throws Exception {
+        this.knowledgeService.askQuestion("What are Peters favorite colors?");
+        ObjectName objectName = this.metrics.registerMBean("metrics-test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(objectName, "HitCount"));
+            assertEquals(1L, ((CompositeData) server.getAttribute(objectName, "AskLatency")).get("count"));
+            assertThrows(KnowledgeBaseException.class, () -> this.metrics.registerMBean("metrics-test"));
+        } finally {
+            KnowledgeBaseMetrics.unregisterMBean(objectName);
+        }
+    }
+}
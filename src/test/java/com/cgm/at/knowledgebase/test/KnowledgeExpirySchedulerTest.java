@@ -0,0 +1,132 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.cache.CachingKnowledgeService;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.expiry.ExpiringAnswers;
+import com.cgm.at.knowledgebase.expiry.KnowledgeExpiryScheduler;
+import com.cgm.at.knowledgebase.index.FuzzyQuestionIndex;
+import com.cgm.at.knowledgebase.index.HashedNgramEmbedding;
+import com.cgm.at.knowledgebase.index.HnswQuestionIndex;
+import com.cgm.at.knowledgebase.index.QuestionMatcherChain;
+import com.cgm.at.knowledgebase.ranking.AnswerRanking;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.InternedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the knowledge added with a time to live and its removal by the Knowledge Expiry Scheduler.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class KnowledgeExpirySchedulerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    public void addKnowledge_ShouldSucceed_ExpiredAnswersHiddenImmediately_Test() throws KnowledgeBaseException, InterruptedException {
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService();
+        KnowledgeExpiryScheduler<String, String> scheduler = new KnowledgeExpiryScheduler<>(knowledgeService, Duration.ofMillis(10));
+        assertEquals(1, knowledgeService.addKnowledge("What is new?", List.of("a sale"), Duration.ofMillis(50)));
+        assertEquals(2, knowledgeService.addKnowledge("What is next?", List.of("a party"), Duration.ofHours(1)));
+        assertEquals(List.of("a sale"), knowledgeService.askQuestion("What is new?"));
+        assertEquals(List.of("a sale"), knowledgeService.askQuestion("What is new?", 1));
+
+        //the expired answers are hidden before the scheduler removes them.
+        Thread.sleep(100);
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("What is new?"));
+        assertEquals(List.of("a party"), knowledgeService.askQuestion("What is next?"));
+        assertTrue(knowledgeService.getAllKnowledge().get("What is new?") instanceof ExpiringAnswers);
+        assertEquals(1, scheduler.expireDue());
+        assertFalse(knowledgeService.getAllKnowledge().containsKey("What is new?"));
+        assertEquals(1, scheduler.getPendingCount());
+
+        //answers added again without a time to live are not removed by the timer of the replaced answers.
+        knowledgeService.addKnowledge("What is later?", List.of("a break"), Duration.ofMillis(30));
+        knowledgeService.addKnowledge("What is later? \"a meeting\"");
+        Thread.sleep(60);
+        assertEquals(0, scheduler.expireDue());
+        assertEquals(List.of("a meeting"), knowledgeService.askQuestion("What is later?"));
+        assertFalse(knowledgeService.expireKnowledge("What is next?", 2));
+        assertEquals(1, scheduler.getExpiredCount());
+
+        scheduler.close();
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.addKnowledge("What is new?", List.of("a sale"), Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> knowledgeService.addKnowledge("What is new", List.of("a sale"), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new KnowledgeExpiryScheduler<>(knowledgeService, Duration.ZERO));
+        assertThrows(KnowledgeBaseException.class, () -> new InternedTextualKnowledgeService().addKnowledge("What is new?", List.of("a sale"), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new KnowledgeExpiryScheduler<>(new InternedTextualKnowledgeService()));
+    }
+
+    @Test
+    public void start_ShouldSucceed_ExpiredQuestionsRemovedInBackground_Test() throws KnowledgeBaseException, InterruptedException {
+        ConcurrentTextualKnowledgeService knowledgeService = new ConcurrentTextualKnowledgeService();
+        AnswerRanking<String, String> ranking = new AnswerRanking<>(AnswerRanking.Order.POPULARITY);
+        knowledgeService.setAnswerRanking(ranking);
+        for (int i = 0; i < 100; i++) {
+            knowledgeService.addKnowledge("How old is person " + i + "?", List.of(String.valueOf(i)));
+        }
+        //knowledge already contained is scheduled when the scheduler is created.
+        knowledgeService.addKnowledge("What is new?", List.of("a sale"), Duration.ofMillis(20));
+        try (KnowledgeExpiryScheduler<String, String> scheduler = new KnowledgeExpiryScheduler<>(knowledgeService, Duration.ofMillis(5))) {
+            scheduler.start();
+            assertThrows(IllegalStateException.class, scheduler::start);
+            Random random = new Random(11);
+            long longestDeadline = 0;
+            for (int i = 0; i < 2000; i++) {
+                long timeToLive = 20 + random.nextInt(400);
+                String question = "What is offer " + i + "?";
+                knowledgeService.addKnowledge(question, List.of("a discount", "a gift"), Duration.ofMillis(timeToLive));
+                knowledgeService.recordAnswerUsage(question, "a gift");
+                longestDeadline = Math.max(longestDeadline, System.nanoTime() + Duration.ofMillis(timeToLive).toNanos());
+            }
+            knowledgeService.addKnowledge("What is next?", List.of("a party"), Duration.ofHours(1));
+
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (knowledgeService.getAllKnowledge().size() > 101 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(System.nanoTime() >= longestDeadline);
+            assertEquals(101, knowledgeService.getAllKnowledge().size());
+            assertEquals(2001, scheduler.getExpiredCount());
+            assertEquals(1, scheduler.getPendingCount());
+            assertEquals(List.of("a party"), knowledgeService.askQuestion("What is next?"));
+            assertEquals(List.of("42"), knowledgeService.askQuestion("How old is person 42?"));
+            //the rankings of the removed questions are discarded.
+            assertEquals(0, ranking.size());
+        }
+    }
+
+    @Test
+    public void expireDue_ShouldSucceed_ExpiredQuestionsDroppedFromIndexesAndCache_Test() throws KnowledgeBaseException, InterruptedException {
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService();
+        FuzzyQuestionIndex fuzzyIndex = new FuzzyQuestionIndex();
+        HnswQuestionIndex<String, String> semanticIndex = new HnswQuestionIndex<>(new HashedNgramEmbedding());
+        knowledgeService.setQuestionMatcher(new QuestionMatcherChain<>(fuzzyIndex, semanticIndex));
+        CachingKnowledgeService<String, String, String> cachingKnowledgeService = CachingKnowledgeService.forTextual(knowledgeService, 10000);
+        KnowledgeExpiryScheduler<String, String> scheduler = new KnowledgeExpiryScheduler<>(knowledgeService, Duration.ofMillis(10));
+        knowledgeService.addKnowledge("What are Peters favorite colors?", List.of("red", "blue"));
+        for (int i = 0; i < 100; i++) {
+            knowledgeService.addKnowledge("What is offer number " + i + "?", List.of("a discount " + i), Duration.ofMillis(50));
+        }
+        knowledgeService.addKnowledge("What is offer number 1000?", List.of("a gift"));
+        assertEquals(List.of("a discount 7"), cachingKnowledgeService.askQuestion("What is offer number 7?"));
+        assertEquals("What is offer number 7?", fuzzyIndex.match("what is offer number 7?"));
+        assertEquals(12, knowledgeService.suggest("What is offer number 1", 20).size());
+
+        Thread.sleep(100);
+        assertEquals(100, scheduler.expireDue());
+        //the expired questions are neither suggested nor matched, so they do not hide the live question matched instead.
+        assertEquals(List.of("What is offer number 1000?"), knowledgeService.suggest("What is offer", 20));
+        assertEquals("What is offer number 1000?", fuzzyIndex.match("what is offer number 7?"));
+        assertEquals(List.of("What is offer number 1000?"), semanticIndex.nearest("What is offer number 7?", 1));
+        assertEquals(2, fuzzyIndex.size());
+        assertEquals(2, semanticIndex.size());
+        //the cache does not serve the expired answers anymore.
+        assertEquals(List.of("a gift"), cachingKnowledgeService.askQuestion("What is offer number 7?"));
+        scheduler.close();
+    }
+}
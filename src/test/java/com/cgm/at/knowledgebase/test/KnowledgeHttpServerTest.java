@@ -0,0 +1,184 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.server.KnowledgeHttpServer;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Knowledge HTTP Server against localhost.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class KnowledgeHttpServerTest {
+
+    private ConcurrentTextualKnowledgeService knowledgeService;
+    private KnowledgeHttpServer server;
+    private HttpClient client;
+    private String baseUri;
+
+    @BeforeAll
+    public static void setUpClass() {
+        //disables Nagle's algorithm like the server mode of the Application does, before the first server is created.
+        System.setProperty(KnowledgeHttpServer.NO_DELAY_PROPERTY, "true");
+    }
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.knowledgeService = new ConcurrentTextualKnowledgeService();
+        this.knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        this.server = new KnowledgeHttpServer(this.knowledgeService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4);
+        this.server.start();
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.baseUri = "http://localhost:" + this.server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.server.close();
+    }
+
+    @Test
+    public void ask_ShouldSucceed_QuestionAsQueryParameterOrBody_Test() throws IOException, InterruptedException {
+        HttpResponse<String> response = this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("What are Peters favorite colors?"));
+        assertEquals(200, response.statusCode());
+        assertEquals("red\nblue\n", response.body());
+
+        response = this.post(KnowledgeHttpServer.ASK_PATH, "How old is Peter?");
+        assertEquals(200, response.statusCode());
+        assertEquals(TextualKnowledgeService.DEFAULT_ANSWER + "\n", response.body());
+
+        //the limit restricts the answers.
+        assertEquals("red\n", this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("What are Peters favorite colors?") + "&limit=1").body());
+        assertEquals(400, this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("What are Peters favorite colors?") + "&limit=0").statusCode());
+        assertEquals(400, this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("What are Peters favorite colors?") + "&limit=all").statusCode());
+    }
+
+    @Test
+    public void ask_ShouldFail_InvalidOrMissingQuestion_Test() throws IOException, InterruptedException {
+        assertEquals(400, this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("How old is Peter")).statusCode());
+        assertEquals(400, this.get(KnowledgeHttpServer.ASK_PATH).statusCode());
+        assertEquals(404, this.get(KnowledgeHttpServer.ASK_PATH + "/more?question=x").statusCode());
+        assertEquals(404, this.get("/").statusCode());
+    }
+
+    @Test
+    public void add_ShouldSucceed_AddedKnowledgeAnswered_Test() throws IOException, InterruptedException {
+        assertEquals(201, this.post(KnowledgeHttpServer.ADD_PATH, "How old is Peter? \"35\"").statusCode());
+        assertEquals("35\n", this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("How old is Peter?")).body());
+        assertEquals(400, this.post(KnowledgeHttpServer.ADD_PATH, "How old is Peter? 35").statusCode());
+        assertEquals(405, this.get(KnowledgeHttpServer.ADD_PATH).statusCode());
+    }
+
+    @Test
+    public void bulk_ShouldSucceed_AnswersInOrderFollowedByErrors_Test() throws IOException, InterruptedException {
+        String questions = IntStream.range(0, 3000)
+                .mapToObj(i -> i == 1500 ? "invalid" : i % 2 == 0 ? "What are Peters favorite colors?" : "How old is Peter?")
+                .collect(Collectors.joining("\n"));
+        HttpResponse<String> response = this.post(KnowledgeHttpServer.BULK_PATH, questions);
+        assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        assertEquals(3001, lines.length);
+        assertEquals("What are Peters favorite colors? \"red\" \"blue\"", lines[0]);
+        assertEquals("How old is Peter? \"" + TextualKnowledgeService.DEFAULT_ANSWER + "\"", lines[1]);
+        assertEquals("", lines[2999]);
+        assertTrue(lines[3000].startsWith("line 1501: "));
+    }
+
+    @Test
+    public void ask_ShouldSucceed_ConcurrentRequestsOnKeptAliveConnections_Test() {
+        String uri = this.baseUri + KnowledgeHttpServer.ASK_PATH + "?question=" + encode("What are Peters favorite colors?");
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            responses.add(this.client.sendAsync(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals("red\nblue\n", response.join().body());
+        }
+    }
+
+    @Test
+    public void ask_ShouldFail_AnswersFailingWhileRead_Test() throws KnowledgeBaseException, IOException, InterruptedException {
+        List<String> answers = IntStream.range(0, 20000).mapToObj(i -> "answer " + i).collect(Collectors.toList());
+        ConcurrentTextualKnowledgeService failingKnowledgeService = new ConcurrentTextualKnowledgeService() {
+            @Override
+            public Stream<String> streamAnswers(String question) throws IllegalArgumentException, KnowledgeBaseException {
+                //fails reading the answer given as question, or never if it is not a number.
+                String failing = question.substring(0, question.length() - 1);
+                return super.streamAnswers(question).peek(answer -> {
+                    if (answer.equals("answer " + failing)) throw new IllegalStateException("The answer cannot be read.");
+                });
+            }
+        };
+        failingKnowledgeService.addKnowledge("2?", answers);
+        failingKnowledgeService.addKnowledge("19999?", answers);
+        failingKnowledgeService.addKnowledge("all?", answers);
+        try (KnowledgeHttpServer failingServer = new KnowledgeHttpServer(failingKnowledgeService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1)) {
+            failingServer.start();
+            this.baseUri = "http://localhost:" + failingServer.getAddress().getPort();
+            HttpResponse<String> response = this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("all?"));
+            assertEquals(200, response.statusCode());
+            assertEquals(answers.stream().map(answer -> answer + "\n").collect(Collectors.joining()), response.body());
+
+            //a failure before the response is started is answered with 500, a failure afterwards never completes the response.
+            assertEquals(500, this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("2?")).statusCode());
+            assertThrows(IOException.class, () -> this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("19999?")));
+            assertEquals(200, this.get(KnowledgeHttpServer.ASK_PATH + "?question=" + encode("all?")).statusCode());
+        }
+    }
+
+    @Test
+    public void bulk_ShouldFail_KnowledgeBaseFailingWhileAnswering_Test() throws KnowledgeBaseException, IOException, InterruptedException {
+        ConcurrentTextualKnowledgeService failingKnowledgeService = new ConcurrentTextualKnowledgeService() {
+            @Override
+            public Stream<String> streamAnswers(String question) throws IllegalArgumentException, KnowledgeBaseException {
+                if (question.equals("What fails?")) throw new KnowledgeBaseException("The answers cannot be read.");
+                return super.streamAnswers(question);
+            }
+        };
+        failingKnowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        String questions = IntStream.range(0, 3000)
+                .mapToObj(i -> i == 2500 ? "What fails?" : "What are Peters favorite colors?")
+                .collect(Collectors.joining("\n"));
+        try (KnowledgeHttpServer failingServer = new KnowledgeHttpServer(failingKnowledgeService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1)) {
+            failingServer.start();
+            this.baseUri = "http://localhost:" + failingServer.getAddress().getPort();
+            //the answers already streamed are never completed by the end of the response.
+            assertThrows(IOException.class, () -> this.post(KnowledgeHttpServer.BULK_PATH, questions));
+            assertEquals(200, this.post(KnowledgeHttpServer.BULK_PATH, "What are Peters favorite colors?").statusCode());
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return this.client.send(HttpRequest.newBuilder(URI.create(this.baseUri + path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(this.baseUri + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)).build();
+        return this.client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.MappedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the read-only Mapped Textual Knowledge Base implementation served from an exported index file.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class MappedTextualKnowledgeServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private TextualKnowledgeService sourceKnowledgeService;
+    private MappedTextualKnowledgeService mappedKnowledgeService;
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.sourceKnowledgeService = new TextualKnowledgeService();
+        this.sourceKnowledgeService.addKnowledgeBatch(IntStream.range(0, 5000).mapToObj(i -> "How old is person " + i + "? \"" + i + "\" \"" + (i + 1) + "\""));
+        this.sourceKnowledgeService.addKnowledge("Wie hei\u00DFt der B\u00E4r auf Franz\u00F6sisch? \"l'ours\" \"\uD83D\uDC3B\"");
+        Path indexFile = this.directory.resolve("knowledge.index");
+        MappedTextualKnowledgeService.export(this.sourceKnowledgeService, indexFile);
+        this.mappedKnowledgeService = new MappedTextualKnowledgeService(indexFile);
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_AllExportedQuestionsFound_Test() throws KnowledgeBaseException {
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(Arrays.asList(String.valueOf(i), String.valueOf(i + 1)), this.mappedKnowledgeService.askQuestion("How old is person " + i + "?"));
+        }
+        assertEquals(Arrays.asList("l'ours", "\uD83D\uDC3B"), this.mappedKnowledgeService.askQuestion("Wie hei\u00DFt der B\u00E4r auf Franz\u00F6sisch?"));
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_UnknownQuestionReturnsDefaultAnswer_Test() throws KnowledgeBaseException {
+        assertEquals(Collections.singletonList(TextualKnowledgeService.DEFAULT_ANSWER), this.mappedKnowledgeService.askQuestion("How old is person 5000?"));
+        assertEquals(Collections.singletonList(TextualKnowledgeService.DEFAULT_ANSWER), this.mappedKnowledgeService.askQuestion("Wie heisst der B\u00E4r auf Franz\u00F6sisch?"));
+        assertEquals(Collections.singletonList(TextualKnowledgeService.DEFAULT_ANSWER), this.mappedKnowledgeService.askQuestion("Unpaired \uD83D surrogate?"));
+    }
+
+    @Test
+    public void getAllKnowledge_ShouldSucceed_EqualToExportedKnowledge_Test() {
+        Map<String, List<String>> knowledge = this.mappedKnowledgeService.getAllKnowledge();
+        assertEquals(5001, knowledge.size());
+        assertEquals(new HashMap<>(this.sourceKnowledgeService.getAllKnowledge()), new HashMap<>(knowledge));
+    }
+
+    @Test
+    public void addKnowledge_ShouldThrow_KnowledgeBaseIsReadOnly_Test() {
+        assertThrows(KnowledgeBaseException.class, () -> this.mappedKnowledgeService.addKnowledge("How old is Peter? \"35\""));
+        assertThrows(UnsupportedOperationException.class, () -> this.mappedKnowledgeService.askQuestion("How old is person 1?").add("3"));
+    }
+}
@@ -0,0 +1,187 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.persistence.KnowledgeStore;
+import com.cgm.at.knowledgebase.persistence.LayeredKnowledgeMap;
+import com.cgm.at.knowledgebase.services.PersistentTextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests that the Persistent Textual Knowledge Base implementation restores its knowledge after a restart.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class PersistentTextualKnowledgeServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void addKnowledge_ShouldSucceed_KnowledgeRestoredFromLog_Test() throws KnowledgeBaseException {
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+            knowledgeService.addKnowledge("How old is Peter? \"35\"");
+            knowledgeService.addKnowledge("What are Peters favorite colors? \"green\"");
+        }
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            assertEquals(Collections.singletonList("green"), knowledgeService.askQuestion("What are Peters favorite colors?"));
+            assertEquals(Collections.singletonList("35"), knowledgeService.askQuestion("How old is Peter?"));
+            assertEquals(2, knowledgeService.getAllKnowledge().size());
+        }
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_KnowledgeRestoredFromSnapshotAndLogTail_Test() throws KnowledgeBaseException, IOException {
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory, 4096)) {
+            knowledgeService.addKnowledgeBatch(IntStream.range(0, 1000).mapToObj(i -> "How old is person " + i + "? \"" + i + "\""));
+            knowledgeService.addKnowledge("How old is Peter? \"35\"");
+        }
+        assertTrue(Files.exists(this.directory.resolve(KnowledgeStore.SNAPSHOT_FILE)));
+        assertTrue(Files.size(this.directory.resolve(KnowledgeStore.LOG_FILE)) < 4096);
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            assertEquals(1001, knowledgeService.getAllKnowledge().size());
+            assertEquals(Collections.singletonList("999"), knowledgeService.askQuestion("How old is person 999?"));
+            assertEquals(Collections.singletonList("35"), knowledgeService.askQuestion("How old is Peter?"));
+        }
+    }
+
+    @Test
+    public void compact_ShouldSucceed_SnapshotMappedOnlyLogTailOnHeap_Test() throws KnowledgeBaseException {
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory, 4096)) {
+            knowledgeService.addKnowledgeBatch(IntStream.range(0, 1000).mapToObj(i -> "How old is person " + i + "? \"" + i + "\""));
+            knowledgeService.addKnowledge("How old is Peter? \"35\"");
+            LayeredKnowledgeMap knowledge = (LayeredKnowledgeMap) knowledgeService.getAllKnowledge();
+            assertEquals(1, knowledge.getHeapSize());
+            assertTrue(knowledgeService.removeKnowledge("How old is person 5?"));
+            assertEquals(1000, knowledge.size());
+            assertEquals(Collections.singletonList(PersistentTextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("How old is person 5?"));
+        }
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory, 4096)) {
+            LayeredKnowledgeMap knowledge = (LayeredKnowledgeMap) knowledgeService.getAllKnowledge();
+            assertEquals(1, knowledge.getHeapSize());
+            assertEquals(1001, knowledge.size());
+            assertTrue(knowledgeService.removeKnowledge("How old is person 5?"));
+            knowledgeService.compact();
+            assertEquals(0, knowledge.getHeapSize());
+            assertEquals(1000, knowledge.size());
+            assertEquals(Collections.singletonList("35"), knowledgeService.askQuestion("How old is Peter?"));
+        }
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            assertEquals(1000, knowledgeService.getAllKnowledge().size());
+            assertEquals(Collections.singletonList(PersistentTextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("How old is person 5?"));
+            assertEquals(Collections.singletonList("999"), knowledgeService.askQuestion("How old is person 999?"));
+        }
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_TornRecordAtEndOfLogIgnored_Test() throws KnowledgeBaseException, IOException {
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            knowledgeService.addKnowledge("How old is Peter? \"35\"");
+            knowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        }
+        //simulate a crash while appending the last record by cutting off its last bytes.
+        Path log = this.directory.resolve(KnowledgeStore.LOG_FILE);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            assertEquals(Collections.singletonList("35"), knowledgeService.askQuestion("How old is Peter?"));
+            assertEquals(1, knowledgeService.getAllKnowledge().size());
+            knowledgeService.addKnowledge("What are Peters favorite colors? \"green\"");
+        }
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            assertEquals(Collections.singletonList("green"), knowledgeService.askQuestion("What are Peters favorite colors?"));
+        }
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_ConcurrentWritersCommittedInGroups_Test() throws Exception {
+        int writers = 16;
+        int questionsPerWriter = 100;
+        long syncCount;
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory,
+                PersistentTextualKnowledgeService.DEFAULT_COMPACTION_THRESHOLD, Duration.ofMillis(2), PersistentTextualKnowledgeService.DEFAULT_MAX_BATCH_BYTES)) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int w = 0; w < writers; w++) {
+                    int writer = w;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < questionsPerWriter; i++) {
+                            knowledgeService.addKnowledge("How old is person " + writer + "-" + i + "? \"" + i + "\"");
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) future.get(60, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+            syncCount = knowledgeService.getSyncCount();
+        }
+        assertTrue(syncCount > 0);
+        assertTrue(syncCount < writers * questionsPerWriter / 2, "expected fewer forces than appends, was " + syncCount);
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            assertEquals(writers * questionsPerWriter, knowledgeService.getAllKnowledge().size());
+            assertEquals(Collections.singletonList("99"), knowledgeService.askQuestion("How old is person 15-99?"));
+        }
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_DurableLogCutsOffTornRecord_Test() throws KnowledgeBaseException, IOException {
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory,
+                PersistentTextualKnowledgeService.DEFAULT_COMPACTION_THRESHOLD, Duration.ZERO, 1)) {
+            knowledgeService.addKnowledge("How old is Peter? \"35\"");
+            knowledgeService.addKnowledgeBatch(IntStream.range(0, 10).mapToObj(i -> "How old is person " + i + "? \"" + i + "\""));
+            assertEquals(2, knowledgeService.getSyncCount());
+        }
+        //simulate a crash while a batch was written by appending the first bytes of a record.
+        Path log = this.directory.resolve(KnowledgeStore.LOG_FILE);
+        long size = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory,
+                PersistentTextualKnowledgeService.DEFAULT_COMPACTION_THRESHOLD, PersistentTextualKnowledgeService.DEFAULT_MAX_BATCH_DELAY, PersistentTextualKnowledgeService.DEFAULT_MAX_BATCH_BYTES)) {
+            assertEquals(size, Files.size(log));
+            assertEquals(11, knowledgeService.getAllKnowledge().size());
+            knowledgeService.addKnowledge("How old is Peter? \"36\"");
+        }
+        try (PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory)) {
+            assertEquals(Collections.singletonList("36"), knowledgeService.askQuestion("How old is Peter?"));
+            assertEquals(Collections.singletonList("9"), knowledgeService.askQuestion("How old is person 9?"));
+        }
+    }
+
+    @Test
+    public void addKnowledge_ShouldThrow_DurableKnowledgeBaseClosed_Test() throws KnowledgeBaseException {
+        PersistentTextualKnowledgeService knowledgeService = new PersistentTextualKnowledgeService(this.directory,
+                PersistentTextualKnowledgeService.DEFAULT_COMPACTION_THRESHOLD, Duration.ofSeconds(10), 64);
+        //a record larger than the batch size is committed without waiting for the delay.
+        long start = System.nanoTime();
+        knowledgeService.addKnowledge("How old is Peter? \"thirty-five years and some months\"");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        knowledgeService.close();
+        assertThrows(KnowledgeBaseException.class, () -> knowledgeService.addKnowledge("How old is Paul? \"40\""));
+        assertThrows(IllegalArgumentException.class, () -> new PersistentTextualKnowledgeService(this.directory,
+                PersistentTextualKnowledgeService.DEFAULT_COMPACTION_THRESHOLD, Duration.ofMillis(-1), 64));
+    }
+
+    @Test
+    public void constructor_ShouldThrow_SnapshotIsCorrupt_Test() throws IOException {
+        Files.write(this.directory.resolve(KnowledgeStore.SNAPSHOT_FILE), "not a snapshot".getBytes());
+        assertThrows(KnowledgeBaseException.class, () -> new PersistentTextualKnowledgeService(this.directory));
+    }
+}
@@ -0,0 +1,118 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.index.QuestionTrie;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the prefix suggestions of the Textual Knowledge Base backed by the Question Trie.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class QuestionTrieTest {
+
+    private TextualKnowledgeService textualKnowledgeService;
+
+    @BeforeEach
+    public void setUp() throws KnowledgeBaseException {
+        this.textualKnowledgeService = new TextualKnowledgeService();
+        this.textualKnowledgeService.addKnowledge("What is Peters favorite food? \"Pizza\"");
+        this.textualKnowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+        this.textualKnowledgeService.addKnowledge("What is Peters age? \"35\"");
+        this.textualKnowledgeService.addKnowledge("Who is Peter? \"a friend\"");
+    }
+
+    @Test
+    public void suggest_ShouldSucceed_CompletionsInLexicographicOrder_Test() {
+        assertEquals(Arrays.asList("What are Peters favorite colors?", "What is Peters age?", "What is Peters favorite food?"),
+                this.textualKnowledgeService.suggest("What", 10));
+        assertEquals(Arrays.asList("What is Peters age?", "What is Peters favorite food?"), this.textualKnowledgeService.suggest("What is", 10));
+        assertEquals(Collections.singletonList("What is Peters favorite food?"), this.textualKnowledgeService.suggest("What is Peters f", 10));
+    }
+
+    @Test
+    public void suggest_ShouldSucceed_LimitRespected_Test() {
+        assertEquals(Arrays.asList("What are Peters favorite colors?", "What is Peters age?"), this.textualKnowledgeService.suggest("", 2));
+        assertTrue(this.textualKnowledgeService.suggest("W", 0).isEmpty());
+    }
+
+    @Test
+    public void suggest_ShouldSucceed_NoQuestionStartsWithPrefix_Test() {
+        assertTrue(this.textualKnowledgeService.suggest("How", 10).isEmpty());
+        assertTrue(this.textualKnowledgeService.suggest("What is Paul", 10).isEmpty());
+        assertTrue(this.textualKnowledgeService.suggest("Who is Peter? Really?", 10).isEmpty());
+    }
+
+    @Test
+    public void suggest_ShouldSucceed_KnowledgeAddedAfterFirstSuggestionIncluded_Test() throws KnowledgeBaseException {
+        assertEquals(1, this.textualKnowledgeService.suggest("Who", 10).size());
+        this.textualKnowledgeService.addKnowledge("Who is Paul?", Collections.singletonList("a neighbour"));
+        this.textualKnowledgeService.addKnowledgeBatch(Stream.of("Who is Pete? \"a cousin\"", "Who is Peter? \"an old friend\""));
+        assertEquals(Arrays.asList("Who is Paul?", "Who is Pete?", "Who is Peter?"), this.textualKnowledgeService.suggest("Who", 10));
+    }
+
+    @Test
+    public void suggest_ShouldThrow_InvalidArguments_Test() {
+        assertThrows(IllegalArgumentException.class, () -> this.textualKnowledgeService.suggest(null, 10));
+        assertThrows(IllegalArgumentException.class, () -> this.textualKnowledgeService.suggest("What", -1));
+    }
+
+    @Test
+    public void suggest_ShouldSucceed_ManyQuestionsSharingPrefixes_Test() {
+        QuestionTrie trie = new QuestionTrie();
+        Set<String> questions = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String question = "Q" + Integer.toString(random.nextInt(100000), 7) + "?";
+            questions.add(question);
+            trie.knowledgeAdded(question, Collections.emptyList());
+        }
+        assertEquals(questions.size(), trie.size());
+        for (String prefix : Arrays.asList("", "Q", "Q1", "Q12", "Q1234", "Q66")) {
+            List<String> expected = new ArrayList<>();
+            for (String question : questions) {
+                if (question.startsWith(prefix) && expected.size() < 25) expected.add(question);
+            }
+            assertEquals(expected, trie.suggest(prefix, 25));
+        }
+    }
+
+    @Test
+    public void knowledgeRemoved_ShouldSucceed_RemovedQuestionsNotSuggested_Test() {
+        QuestionTrie trie = new QuestionTrie();
+        Set<String> questions = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String question = "Q" + Integer.toString(random.nextInt(100000), 7) + "?";
+            questions.add(question);
+            trie.knowledgeAdded(question, Collections.emptyList());
+        }
+        //removing a prefix of stored questions or an unknown question changes nothing.
+        trie.knowledgeRemoved("Q1");
+        trie.knowledgeRemoved("Q1234567?");
+        Iterator<String> iterator = questions.iterator();
+        while (iterator.hasNext()) {
+            String question = iterator.next();
+            if (random.nextBoolean()) {
+                trie.knowledgeRemoved(question);
+                iterator.remove();
+            }
+        }
+        assertEquals(questions.size(), trie.size());
+        for (String prefix : Arrays.asList("", "Q", "Q1", "Q12", "Q1234", "Q66")) {
+            List<String> expected = new ArrayList<>();
+            for (String question : questions) {
+                if (question.startsWith(prefix) && expected.size() < 25) expected.add(question);
+            }
+            assertEquals(expected, trie.suggest(prefix, 25));
+        }
+        questions.forEach(trie::knowledgeRemoved);
+        assertEquals(0, trie.size());
+        assertTrue(trie.suggest("", 10).isEmpty());
+    }
+}
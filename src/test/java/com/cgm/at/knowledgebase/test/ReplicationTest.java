@@ -0,0 +1,247 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeListener;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.replication.ReplicationFollower;
+import com.cgm.at.knowledgebase.replication.ReplicationPrimary;
+import com.cgm.at.knowledgebase.replication.ReplicationToken;
+import com.cgm.at.knowledgebase.services.ConcurrentTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.InternedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the replication of a knowledge base from a Replication Primary to Replication Followers on localhost.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class ReplicationTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static final InetSocketAddress ANY_PORT = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    @Test
+    public void askQuestion_ShouldSucceed_FollowersReadTheirWrites_Test() throws KnowledgeBaseException, InterruptedException {
+        ConcurrentTextualKnowledgeService primaryKnowledgeService = new ConcurrentTextualKnowledgeService();
+        for (int i = 0; i < 100; i++) {
+            primaryKnowledgeService.addKnowledge("How old is person " + i + "?", List.of(String.valueOf(i)));
+        }
+        ConcurrentTextualKnowledgeService firstKnowledgeService = new ConcurrentTextualKnowledgeService();
+        ConcurrentTextualKnowledgeService secondKnowledgeService = new ConcurrentTextualKnowledgeService();
+        try (ReplicationPrimary primary = new ReplicationPrimary(primaryKnowledgeService, ANY_PORT);
+             ReplicationFollower first = new ReplicationFollower(firstKnowledgeService, primary.getAddress());
+             ReplicationFollower second = new ReplicationFollower(secondKnowledgeService, primary.getAddress())) {
+            primary.start();
+            first.start();
+            second.start();
+            ReplicationToken token = primary.addKnowledge("What is new?", List.of("a sale"));
+            assertEquals(List.of("a sale"), first.askQuestion("What is new?", token, TIMEOUT));
+            assertEquals(List.of("a sale"), second.askQuestion("What is new?", token, TIMEOUT));
+            //the knowledge contained before the primary was created is replicated by the snapshot.
+            assertEquals(List.of("42"), first.askQuestion("How old is person 42?", null, TIMEOUT));
+            assertEquals(primary.getEpoch(), first.getEpoch());
+
+            //concurrent writers of distinct questions.
+            Thread[] writers = new Thread[2];
+            for (int w = 0; w < writers.length; w++) {
+                int writer = w;
+                writers[w] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 2000; i++) {
+                            primary.addKnowledge("What is offer " + writer + "-" + (i % 500) + "?", List.of("a discount " + i, "a gift"));
+                        }
+                    } catch (KnowledgeBaseException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                writers[w].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            ReplicationToken shortToken = primary.addKnowledge("What is short?", List.of("a flash sale"), Duration.ofMillis(300));
+            assertEquals(List.of("a flash sale"), second.askQuestion("What is short?", shortToken, TIMEOUT));
+            assertTrue(first.awaitSequence(primary.getToken(), TIMEOUT));
+            assertTrue(second.awaitSequence(primary.getToken(), TIMEOUT));
+            assertEquals(primaryKnowledgeService.getAllKnowledge(), firstKnowledgeService.getAllKnowledge());
+            assertEquals(primaryKnowledgeService.getAllKnowledge(), secondKnowledgeService.getAllKnowledge());
+            assertEquals(List.of("a discount 1999", "a gift"), second.askQuestion("What is offer 1-499?", null, TIMEOUT));
+            assertEquals(primary.getSequence(), first.getAppliedSequence());
+            assertTrue(first.getChangeCount() >= 4001);
+            assertEquals(1, first.getSnapshotCount());
+            assertEquals(2, primary.getSnapshotCount());
+            awaitCondition(() -> primary.getMaxLag() == 0 && first.getLag() == 0);
+            assertEquals(2, primary.getFollowerCount());
+            assertEquals(Duration.ZERO, first.getLagTime());
+
+            //the followers expire the answers by the time to live shipped.
+            Thread.sleep(400);
+            assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), first.askQuestion("What is short?", shortToken, TIMEOUT));
+            assertThrows(KnowledgeBaseException.class, () -> first.askQuestion("What is new?", new ReplicationToken(primary.getEpoch(), primary.getSequence() + 1), Duration.ofMillis(50)));
+            assertThrows(IllegalArgumentException.class, () -> first.askQuestion("What is new", token, TIMEOUT));
+            assertThrows(IllegalArgumentException.class, () -> primary.addKnowledge("What is new", List.of("a sale")));
+            assertThrows(IllegalStateException.class, primary::start);
+        }
+    }
+
+    @Test
+    public void constructor_ShouldThrow_KnowledgeBaseWithoutTimeToLive_Test() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplicationFollower(new InternedTextualKnowledgeService(), ANY_PORT));
+    }
+
+    @Test
+    public void replicate_ShouldSucceed_RemovalsShippedExpiriesNot_Test() throws KnowledgeBaseException, InterruptedException {
+        ConcurrentTextualKnowledgeService primaryKnowledgeService = new ConcurrentTextualKnowledgeService();
+        ConcurrentTextualKnowledgeService followerKnowledgeService = new ConcurrentTextualKnowledgeService();
+        try (ReplicationPrimary primary = new ReplicationPrimary(primaryKnowledgeService, ANY_PORT);
+             ReplicationFollower follower = new ReplicationFollower(followerKnowledgeService, primary.getAddress())) {
+            primary.start();
+            follower.start();
+            primary.addKnowledge("What is new?", List.of("a sale"));
+            ReplicationToken token = primary.addKnowledge("What is old?", List.of("a discount"));
+            assertEquals(List.of("a discount"), follower.askQuestion("What is old?", token, TIMEOUT));
+
+            assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), follower.askQuestion("What is old?", primary.removeKnowledge("What is old?"), TIMEOUT));
+            //questions removed from the knowledge base directly are shipped as well.
+            assertTrue(primaryKnowledgeService.removeKnowledge("What is new?"));
+            assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), follower.askQuestion("What is new?", primary.getToken(), TIMEOUT));
+            long changeCount = follower.getChangeCount();
+
+            //an expiry is not shipped, the follower expires the answers by itself.
+            long version = primaryKnowledgeService.addKnowledge("What is short?", List.of("a flash sale"), Duration.ofMillis(50));
+            ReplicationToken sequence = primary.getToken();
+            Thread.sleep(100);
+            assertTrue(primaryKnowledgeService.expireKnowledge("What is short?", version));
+            assertEquals(sequence.getSequence(), primary.getSequence());
+            assertTrue(follower.awaitSequence(sequence, TIMEOUT));
+            assertEquals(changeCount + 1, follower.getChangeCount());
+            assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), follower.askQuestion("What is short?", sequence, TIMEOUT));
+        }
+    }
+
+    @Test
+    public void replicate_ShouldSucceed_LaggingFollowerCatchesUp_Test() throws KnowledgeBaseException {
+        ConcurrentTextualKnowledgeService primaryKnowledgeService = new ConcurrentTextualKnowledgeService();
+        ConcurrentTextualKnowledgeService followerKnowledgeService = new ConcurrentTextualKnowledgeService();
+        BlockingListener gate = new BlockingListener();
+        followerKnowledgeService.addKnowledgeListener(gate);
+        try (ReplicationPrimary primary = new ReplicationPrimary(primaryKnowledgeService, ANY_PORT, 16);
+             ReplicationFollower follower = new ReplicationFollower(followerKnowledgeService, primary.getAddress(), Duration.ofMillis(50))) {
+            primary.start();
+            follower.start();
+            awaitCondition(() -> follower.getSnapshotCount() == 1);
+            assertTrue(follower.awaitSequence(primary.addKnowledge("What is new?", List.of("a sale")), TIMEOUT));
+            assertEquals(1, follower.getChangeCount());
+
+            //a follower disconnected for a few changes resumes from the changes retained by the primary.
+            this.disconnectWhileBlocked(primary, follower, gate, 5);
+            assertEquals(1, follower.getSnapshotCount());
+            assertEquals(7, follower.getChangeCount());
+
+            //a follower disconnected for more changes than retained catches up from a snapshot.
+            this.disconnectWhileBlocked(primary, follower, gate, 100);
+            assertEquals(2, follower.getSnapshotCount());
+            assertEquals(2, primary.getSnapshotCount());
+            assertEquals(primaryKnowledgeService.getAllKnowledge(), followerKnowledgeService.getAllKnowledge());
+        }
+    }
+
+    @Test
+    public void replicate_ShouldSucceed_FollowerReconnectsToRestartedPrimary_Test() throws KnowledgeBaseException {
+        ConcurrentTextualKnowledgeService followerKnowledgeService = new ConcurrentTextualKnowledgeService();
+        ReplicationPrimary primary = new ReplicationPrimary(new ConcurrentTextualKnowledgeService(), ANY_PORT);
+        InetSocketAddress address = primary.getAddress();
+        primary.start();
+        try (ReplicationFollower follower = new ReplicationFollower(followerKnowledgeService, address, Duration.ofMillis(50))) {
+            follower.start();
+            assertEquals(List.of("a sale"), follower.askQuestion("What is new?", primary.addKnowledge("What is new?", List.of("a sale")), TIMEOUT));
+            ReplicationToken staleToken = primary.addKnowledge("What is next?", List.of("a party"));
+            primary.close();
+
+            //the restarted primary has another epoch, so its sequences are not confused with the sequences applied.
+            ConcurrentTextualKnowledgeService restartedKnowledgeService = new ConcurrentTextualKnowledgeService();
+            restartedKnowledgeService.addKnowledge("What is new?", List.of("a discount"));
+            try (ReplicationPrimary restarted = new ReplicationPrimary(restartedKnowledgeService, address)) {
+                restarted.start();
+                awaitCondition(() -> follower.getEpoch() == restarted.getEpoch());
+                assertEquals(List.of("a discount"), follower.askQuestion("What is new?", restarted.getToken(), TIMEOUT));
+                assertEquals(2, follower.getSnapshotCount());
+                //the knowledge the restarted primary does not hold anymore is removed from the follower.
+                assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), follower.askQuestion("What is next?", null, TIMEOUT));
+                assertEquals(restartedKnowledgeService.getAllKnowledge(), followerKnowledgeService.getAllKnowledge());
+                assertEquals(List.of("a gift"), follower.askQuestion("What is later?", restarted.addKnowledge("What is later?", List.of("a gift")), TIMEOUT));
+                //the sequence of the restarted primary reached the sequence of the token, but the write of the token is lost with the old primary.
+                assertTrue(follower.awaitSequence(restarted.addKnowledge("What is next?", List.of("a concert")), TIMEOUT));
+                assertEquals(staleToken.getSequence(), follower.getAppliedSequence());
+                assertFalse(follower.awaitSequence(staleToken, Duration.ofMillis(50)));
+                assertThrows(KnowledgeBaseException.class, () -> follower.askQuestion("What is next?", staleToken, Duration.ofMillis(50)));
+            }
+        }
+    }
+
+    /**
+     * blocks the follower on the next change, writes the given number of changes once the primary has dropped the silent follower,
+     * and waits until the follower has reconnected and applied them.
+     */
+    private void disconnectWhileBlocked(ReplicationPrimary primary, ReplicationFollower follower, BlockingListener gate, int changes) throws KnowledgeBaseException {
+        gate.block();
+        primary.addKnowledge("What is blocked?", List.of("a change"));
+        awaitCondition(() -> primary.getFollowerCount() == 0);
+        ReplicationToken token = null;
+        for (int i = 0; i < changes; i++) {
+            token = primary.addKnowledge("What is missed " + (i % 10) + "?", List.of("a change " + i));
+        }
+        gate.release();
+        assertTrue(follower.awaitSequence(token, TIMEOUT));
+        awaitCondition(() -> primary.getFollowerCount() == 1);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "The condition has not been met in time.");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * a listener blocking the thread applying the next change while blocked, simulating a slow follower.
+     */
+    private static final class BlockingListener implements IKnowledgeListener<String, String> {
+
+        private volatile CountDownLatch latch;
+
+        void block() {
+            this.latch = new CountDownLatch(1);
+        }
+
+        void release() {
+            CountDownLatch latch = this.latch;
+            this.latch = null;
+            latch.countDown();
+        }
+
+        @Override
+        public void knowledgeAdded(String question, List<String> answers) {
+            CountDownLatch latch = this.latch;
+            if (latch == null) return;
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
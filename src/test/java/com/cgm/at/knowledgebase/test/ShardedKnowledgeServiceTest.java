@@ -0,0 +1,245 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.api.IKnowledgePartition;
+import com.cgm.at.knowledgebase.common.ImportReport;
+import com.cgm.at.knowledgebase.common.KnowledgeBase;
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.ranking.AnswerRanking;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeParser;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import com.cgm.at.knowledgebase.sharding.LocalKnowledgePartition;
+import com.cgm.at.knowledgebase.sharding.LoopbackKnowledgePartition;
+import com.cgm.at.knowledgebase.sharding.ShardedKnowledgeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Sharded Knowledge Base over local and loopback partitions, its fan-out batches and its rebalancing.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class ShardedKnowledgeServiceTest {
+
+    private ShardedKnowledgeService<String, String, String> shardedService;
+
+    @BeforeEach
+    public void setUp() {
+        this.shardedService = ShardedKnowledgeService.forTextual(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.shardedService.close();
+    }
+
+    @Test
+    public void addKnowledge_ShouldSucceed_QuestionsSpreadOverPartitions_Test() throws KnowledgeBaseException {
+        for (int i = 0; i < 40000; i++) {
+            this.shardedService.addKnowledge("What is question " + i + "?", Collections.singletonList("answer " + i));
+        }
+        for (IKnowledgePartition<String, String, String> partition : this.shardedService.getPartitions().values()) {
+            int size = size(partition);
+            assertTrue(size > 40000 * 0.15 && size < 40000 * 0.35, "partition size " + size);
+        }
+        assertEquals(40000, this.shardedService.getPartitions().values().stream().mapToInt(ShardedKnowledgeServiceTest::size).sum());
+        assertEquals(Collections.singletonList("answer 123"), this.shardedService.askQuestion("What is question 123?"));
+        assertEquals(Collections.singletonList("answer 7"), this.shardedService.getPartition("What is question 7?").askQuestion("What is question 7?"));
+        assertEquals(Collections.singletonList("a friend"), addAndAsk(this.shardedService, "Who is Peter? \"a friend\"", "Who is Peter?"));
+        assertThrows(IllegalArgumentException.class, () -> this.shardedService.askQuestion("Who is Peter"));
+    }
+
+    @Test
+    public void askQuestions_ShouldSucceed_AnswersInOrderOfQuestions_Test() throws KnowledgeBaseException {
+        for (int i = 0; i < 1000; i++) {
+            this.shardedService.addKnowledge("What is question " + i + "?", Collections.singletonList("answer " + i));
+        }
+        List<String> questions = IntStream.range(0, 1200).mapToObj(i -> "What is question " + (1199 - i) + "?").collect(Collectors.toList());
+
+        List<List<String>> answers = this.shardedService.askQuestions(questions);
+
+        assertEquals(1200, answers.size());
+        assertEquals(Collections.singletonList("answer 999"), answers.get(200));
+        assertEquals(Collections.singletonList("answer 0"), answers.get(1199));
+        assertEquals(Collections.singletonList(TextualKnowledgeService.DEFAULT_ANSWER), answers.get(0));
+        assertThrows(IllegalArgumentException.class, () -> this.shardedService.askQuestions(Arrays.asList("Who is Peter?", "Who is Peter")));
+    }
+
+    @Test
+    public void addKnowledgeBatch_ShouldSucceed_ErrorsReportedWithStreamLineNumbers_Test() throws KnowledgeBaseException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            lines.add(i % 1000 == 999 ? "What is question " + i : "What is question " + i + "? \"answer " + i + "\"");
+        }
+
+        ImportReport report = this.shardedService.addKnowledgeBatch(lines.stream());
+
+        assertEquals(10000, report.getTotalCount());
+        assertEquals(9990, report.getImportedCount());
+        assertEquals(10, report.getFailedCount());
+        assertEquals(1000, report.getErrors().get(0).getLineNumber());
+        assertEquals(10000, report.getErrors().get(9).getLineNumber());
+        assertEquals(Collections.singletonList("answer 4321"), this.shardedService.askQuestion("What is question 4321?"));
+    }
+
+    @Test
+    public void addPartition_ShouldSucceed_QuestionsMovedOnlyToNewPartition_Test() throws KnowledgeBaseException {
+        for (int i = 0; i < 20000; i++) {
+            this.shardedService.addKnowledge("What is question " + i + "?", Collections.singletonList("answer " + i));
+        }
+        Map<String, IKnowledgePartition<String, String, String>> before = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String question = "What is question " + i + "?";
+            before.put(question, this.shardedService.getPartition(question));
+        }
+        //the rankings of the source partitions track every question, the moved questions must be dropped from them.
+        List<AnswerRanking<String, String>> rankings = new ArrayList<>();
+        for (IKnowledgePartition<String, String, String> partition : this.shardedService.getPartitions().values()) {
+            AnswerRanking<String, String> ranking = new AnswerRanking<>(AnswerRanking.Order.POPULARITY);
+            KnowledgeBase<String, String, String> knowledgeBase = ((LocalKnowledgePartition<String, String, String>) partition).getKnowledgeBase();
+            knowledgeBase.setAnswerRanking(ranking);
+            for (String question : knowledgeBase.getAllKnowledge().keySet()) {
+                knowledgeBase.recordAnswerUsage(question, knowledgeBase.getAllKnowledge().get(question).get(0));
+            }
+            rankings.add(ranking);
+        }
+        LocalKnowledgePartition<String, String, String> added = ShardedKnowledgeService.newTextualPartition();
+
+        long moved = this.shardedService.addPartition("partition-4", added);
+
+        assertTrue(moved > 20000 * 0.12 && moved < 20000 * 0.28, "moved " + moved);
+        assertEquals(moved, size(added));
+        assertEquals(20000 - moved, rankings.stream().mapToInt(AnswerRanking::size).sum());
+        assertEquals(20000, this.shardedService.getPartitions().values().stream().mapToInt(ShardedKnowledgeServiceTest::size).sum());
+        for (int i = 0; i < 20000; i++) {
+            String question = "What is question " + i + "?";
+            IKnowledgePartition<String, String, String> partition = this.shardedService.getPartition(question);
+            assertTrue(partition == added || partition == before.get(question));
+            assertEquals(Collections.singletonList("answer " + i), this.shardedService.askQuestion(question));
+        }
+        assertThrows(IllegalArgumentException.class, () -> this.shardedService.addPartition("partition-4", ShardedKnowledgeService.newTextualPartition()));
+    }
+
+    @Test
+    public void addPartition_ShouldSucceed_NoWriteLostWhileRebalancing_Test() throws Exception {
+        for (int i = 0; i < 20000; i++) {
+            this.shardedService.addKnowledge("What is question " + i + "?", Collections.singletonList("answer 0"));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger rounds = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int round = 1; running.get() || round < 3; round++) {
+                    for (int i = 0; i < 20000; i += 7) {
+                        this.shardedService.addKnowledge("What is question " + i + "?", Collections.singletonList("answer " + round));
+                    }
+                    rounds.set(round);
+                }
+            } catch (KnowledgeBaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        try {
+            this.shardedService.addPartition("partition-4", ShardedKnowledgeService.newTextualPartition());
+            this.shardedService.addPartition("partition-5", ShardedKnowledgeService.newTextualPartition());
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+        String lastAnswer = "answer " + rounds.get();
+        for (int i = 0; i < 20000; i++) {
+            String question = "What is question " + i + "?";
+            assertEquals(Collections.singletonList(i % 7 == 0 ? lastAnswer : "answer 0"), this.shardedService.askQuestion(question));
+        }
+        assertEquals(20000, this.shardedService.getPartitions().values().stream().mapToInt(ShardedKnowledgeServiceTest::size).sum());
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_PartitionsBehindLoopbackTransport_Test() throws KnowledgeBaseException {
+        List<LoopbackKnowledgePartition<String, String, String>> transports = new ArrayList<>();
+        Map<String, IKnowledgePartition<String, String, String>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            LoopbackKnowledgePartition<String, String, String> transport = new LoopbackKnowledgePartition<>(ShardedKnowledgeService.newTextualPartition(), 2, 0);
+            transports.add(transport);
+            partitions.put("node-" + i, transport);
+        }
+        try (ShardedKnowledgeService<String, String, String> remoteService = new ShardedKnowledgeService<>(partitions, new TextualKnowledgeParser()::parseQuestion)) {
+            ImportReport report = remoteService.addKnowledgeBatch(IntStream.range(0, 3000).mapToObj(i -> "What is question " + i + "? \"answer " + i + "\""));
+            assertEquals(3000, report.getImportedCount());
+            LoopbackKnowledgePartition<String, String, String> added = new LoopbackKnowledgePartition<>(ShardedKnowledgeService.newTextualPartition(), 2, 0);
+            transports.add(added);
+            assertTrue(remoteService.addPartition("node-3", added) > 0);
+            assertEquals(Collections.singletonList("answer 2999"), remoteService.askQuestion("What is question 2999?"));
+            assertEquals(Arrays.asList(Collections.singletonList("answer 1"), Collections.singletonList("answer 2")),
+                    remoteService.askQuestions(Arrays.asList("What is question 1?", "What is question 2?")));
+            assertThrows(IllegalArgumentException.class, () -> remoteService.addKnowledge("Who is Peter? \"a friend"));
+        } finally {
+            transports.forEach(LoopbackKnowledgePartition::close);
+        }
+    }
+
+    @Test
+    public void askQuestion_ShouldSucceed_BestAnswersRankedByPartition_Test() throws KnowledgeBaseException {
+        LocalKnowledgePartition<String, String, String> local = ShardedKnowledgeService.newTextualPartition();
+        KnowledgeBase<String, String, String> knowledgeBase = local.getKnowledgeBase();
+        knowledgeBase.setAnswerRanking(new AnswerRanking<>(AnswerRanking.Order.POPULARITY));
+        LoopbackKnowledgePartition<String, String, String> transport = new LoopbackKnowledgePartition<>(local, 1, 0);
+        try (ShardedKnowledgeService<String, String, String> rankedService = new ShardedKnowledgeService<>(Map.of("node-0", transport),
+                new TextualKnowledgeParser()::parseQuestion)) {
+            rankedService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\" \"green\"");
+            knowledgeBase.recordAnswerUsage("What are Peters favorite colors?", "green");
+            assertEquals(List.of("green"), rankedService.askQuestion("What are Peters favorite colors?", 1));
+            assertEquals(List.of("green", "red"), transport.askQuestion("What are Peters favorite colors?", 2));
+            assertThrows(IllegalArgumentException.class, () -> rankedService.askQuestion("What are Peters favorite colors?", 0));
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void streamAnswers_ShouldSucceed_AnswersStreamedByPartition_Test() throws KnowledgeBaseException {
+        AtomicInteger streams = new AtomicInteger();
+        LocalKnowledgePartition<String, String, String> local = new LocalKnowledgePartition<>(new TextualKnowledgeService() {
+            @Override
+            public Stream<String> streamAnswers(String question) throws IllegalArgumentException, KnowledgeBaseException {
+                streams.incrementAndGet();
+                return super.streamAnswers(question);
+            }
+        });
+        LoopbackKnowledgePartition<String, String, String> transport = new LoopbackKnowledgePartition<>(local, 1, 0);
+        try (ShardedKnowledgeService<String, String, String> streamingService = new ShardedKnowledgeService<>(Map.of("node-0", transport),
+                new TextualKnowledgeParser()::parseQuestion)) {
+            streamingService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\"");
+            assertEquals(List.of("red"), streamingService.streamAnswers("What are Peters favorite colors?").limit(1).collect(Collectors.toList()));
+            assertEquals(1, streams.get());
+        } finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * @return the number of questions of a partition.
+     */
+    private static int size(IKnowledgePartition<String, String, String> partition) {
+        AtomicInteger size = new AtomicInteger();
+        try {
+            partition.exportKnowledge((question, answers) -> size.incrementAndGet());
+        } catch (KnowledgeBaseException e) {
+            throw new IllegalStateException(e);
+        }
+        return size.get();
+    }
+
+    private static List<String> addAndAsk(ShardedKnowledgeService<String, String, String> service, String knowledge, String question) throws KnowledgeBaseException {
+        service.addKnowledge(knowledge);
+        return service.askQuestion(question);
+    }
+}
@@ -0,0 +1,65 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.intern.InternedKnowledgeMap;
+import com.cgm.at.knowledgebase.services.InternedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.MappedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests streaming the answers of questions with very large answer sets.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class StreamingAnswersTest {
+
+    private static final List<String> ANSWERS = IntStream.range(0, 20000).mapToObj(i -> "answer " + i).collect(Collectors.toList());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void streamAnswers_ShouldSucceed_EarlyTerminationOnLazyStores_Test() throws KnowledgeBaseException {
+        InternedTextualKnowledgeService internedKnowledgeService = new InternedTextualKnowledgeService();
+        internedKnowledgeService.addKnowledge("What are all answers?", ANSWERS);
+        TextualKnowledgeService sourceKnowledgeService = new TextualKnowledgeService();
+        sourceKnowledgeService.addKnowledge("What are all answers?", ANSWERS);
+        Path indexFile = this.directory.resolve("knowledge.index");
+        MappedTextualKnowledgeService.export(sourceKnowledgeService, indexFile);
+        MappedTextualKnowledgeService mappedKnowledgeService = new MappedTextualKnowledgeService(indexFile);
+
+        assertEquals(ANSWERS.subList(0, 3), internedKnowledgeService.streamAnswers("What are all answers?").limit(3).collect(Collectors.toList()));
+        assertEquals(ANSWERS.subList(0, 3), mappedKnowledgeService.streamAnswers("What are all answers?").limit(3).collect(Collectors.toList()));
+        assertEquals(ANSWERS, internedKnowledgeService.streamAnswers("What are all answers?").collect(Collectors.toList()));
+        assertEquals(ANSWERS, mappedKnowledgeService.askQuestion("What are all answers?"));
+        Iterator<String> iterator = internedKnowledgeService.streamAnswers("What are all answers?").iterator();
+        assertEquals("answer 0", iterator.next());
+        assertEquals("answer 1", iterator.next());
+        assertEquals(Optional.of("answer 19999"), mappedKnowledgeService.streamAnswers("What are all answers?").filter(answer -> answer.endsWith("19999")).findFirst());
+
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), internedKnowledgeService.streamAnswers("What is unknown?").collect(Collectors.toList()));
+        assertEquals(List.of(TextualKnowledgeService.DEFAULT_ANSWER), mappedKnowledgeService.streamAnswers("What is unknown?").collect(Collectors.toList()));
+        //the question is validated when the stream is created, not when it is consumed.
+        assertThrows(IllegalArgumentException.class, () -> internedKnowledgeService.streamAnswers("What is unknown"));
+    }
+
+    @Test
+    public void streamAnswers_ShouldSucceed_AnswersDecodedWhenConsumed_Test() {
+        InternedKnowledgeMap knowledge = new InternedKnowledgeMap();
+        knowledge.put("What is new?", List.of("a sale", "a party"));
+        assertEquals(List.of("a sale"), knowledge.streamAnswers("What is new?").limit(1).collect(Collectors.toList()));
+        assertEquals(knowledge.get("What is new?"), knowledge.streamAnswers("What is new?").collect(Collectors.toList()));
+        assertNull(knowledge.streamAnswers("What is next?"));
+        //the answers retrieved are decoded at once, the same answers are returned equal but not identical.
+        assertEquals(List.of("a sale", "a party"), knowledge.get("What is new?"));
+        assertNotSame(knowledge.get("What is new?"), knowledge.get("What is new?"));
+        assertThrows(UnsupportedOperationException.class, () -> knowledge.get("What is new?").set(0, "a gift"));
+    }
+}
@@ -1,12 +1,23 @@
 package com.cgm.at.knowledgebase.test;
 
+import com.cgm.at.knowledgebase.api.IKnowledgeService;
+import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
 import com.cgm.at.knowledgebase.common.ErrorMessages;
+import com.cgm.at.knowledgebase.common.ImportReport;
 import com.cgm.at.knowledgebase.common.KnowledgeBase;
 import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
 import com.cgm.at.knowledgebase.services.TextualKnowledgeService;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeValidationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -36,6 +47,36 @@ public class TextualKnowledgeServiceTest {
         this.textualKnowledgeService = new TextualKnowledgeService(predefinedKnowledge, "the answer to life, universe and everything is 42");
     }
 
+    @Test
+    public void constructor_ShouldSucceed_GivenKnowledgeLeftAsGiven_Test() throws KnowledgeBaseException {
+        List<String> answers = Arrays.asList("Pizza", null);
+        Map<String, List<String>> predefinedKnowledge = Map.of("What is Peters favorite food?", answers);
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService(predefinedKnowledge, "42");
+        assertSame(answers, predefinedKnowledge.get("What is Peters favorite food?"));
+        assertSame(answers, knowledgeService.askQuestion("What is Peters favorite food?"));
+        assertThrows(KnowledgeBaseException.class, () -> knowledgeService.addKnowledge("What is Peters age? \"35\""));
+    }
+
+    @Test
+    public void addKnowledge_ShouldThrowValidationError_FormatValidatedByValidationService_Test() throws KnowledgeBaseException {
+        IKnowledgeValidationService<String, String, String> strictValidationService = new TextualKnowledgeValidationService() {
+            @Override
+            public void validateSerializedKnowledgeFormat(String serializedKnowledge) throws IllegalArgumentException {
+                super.validateSerializedKnowledgeFormat(serializedKnowledge);
+                if (serializedKnowledge.contains("  ")) throw new IllegalArgumentException("double spaces");
+            }
+        };
+        TextualKnowledgeService knowledgeService = new TextualKnowledgeService() {
+            @Override
+            public IKnowledgeValidationService<String, String, String> getValidationService() {
+                return strictValidationService;
+            }
+        };
+        assertEquals("double spaces", assertThrows(IllegalArgumentException.class,
+                () -> knowledgeService.addKnowledge("What is Peters age?  \"35\"")).getMessage());
+        assertTrue(knowledgeService.addKnowledge("What is Peters age? \"35\""));
+    }
+
     @Test
     public void addKnowledge_ShouldSucceed_QuestionAddedToKnowledgeBase_Test() throws KnowledgeBaseException {
         this.textualKnowledgeService.addKnowledge("What are Peters favorite colors? \"red\" \"blue\" \"green\"");
@@ -98,6 +139,20 @@ public class TextualKnowledgeServiceTest {
         assertEquals(Collections.singletonList(answer), knowledge.get(question));
     }
 
+    @Test
+    public void addKnowledge_ShouldSucceed_TextOutsideOfQuotationsIgnored_Test() throws KnowledgeBaseException {
+        this.textualKnowledgeService.addKnowledge("What are Peters favorite colors?    \"red\" some \"yellow\" text");
+        Map<String, List<String>> knowledge = this.textualKnowledgeService.getAllKnowledge();
+        assertEquals(Arrays.asList("red", "yellow"), knowledge.get("What are Peters favorite colors?"));
+    }
+
+    @Test
+    public void addKnowledge_ShouldThrowValidationError_EmptyAnswerInQuotations_Test() {
+        Throwable exception = assertThrows(IllegalArgumentException.class,
+                () -> this.textualKnowledgeService.addKnowledge("What are Peters favorite colors? \"\" \"red\""));
+        assertEquals(String.format(ErrorMessages.ANSWER_IS_EMPTY_OR_BLANK, ""), exception.getMessage());
+    }
+
     @Test
     public void addKnowledge_ShouldThrowValidationError_MissingQuestionMark_Test() {
         Throwable exception = assertThrows(IllegalArgumentException.class,
@@ -168,6 +223,72 @@ public class TextualKnowledgeServiceTest {
     }
 
 
+    @Test
+    public void addKnowledgeBatch_ShouldSucceed_InvalidLinesReportedAndSkipped_Test() throws KnowledgeBaseException {
+        ImportReport report = this.textualKnowledgeService.addKnowledgeBatch(Stream.of(
+                "How old is Peter? \"35\"",
+                "What are Peters favorite colors \"red\"",
+                "What are Peters favorite colors? \"red\" \"blue",
+                "What are Peters favorite colors? \"red\" \"blue\""));
+        assertEquals(4, report.getTotalCount());
+        assertEquals(2, report.getImportedCount());
+        assertEquals(2, report.getFailedCount());
+        assertEquals(2, report.getErrors().get(0).getLineNumber());
+        assertEquals(ErrorMessages.QUESTION_FORMAT_INCORRECT, report.getErrors().get(0).getMessage());
+        assertEquals(3, report.getErrors().get(1).getLineNumber());
+        assertEquals(ErrorMessages.ANSWERS_FORMAT_INCORRECT, report.getErrors().get(1).getMessage());
+        Map<String, List<String>> knowledge = this.textualKnowledgeService.getAllKnowledge();
+        assertEquals(Collections.singletonList("35"), knowledge.get("How old is Peter?"));
+        assertEquals(Arrays.asList("red", "blue"), knowledge.get("What are Peters favorite colors?"));
+    }
+
+    @Test
+    public void addKnowledgeBatch_ShouldSucceed_LastOccurrenceOfQuestionWins_Test() throws KnowledgeBaseException {
+        Stream<String> lines = IntStream.range(0, 40000).mapToObj(i -> "How old is Peter? \"" + i + "\"");
+        ImportReport report = this.textualKnowledgeService.addKnowledgeBatch(lines);
+        assertEquals(40000, report.getImportedCount());
+        assertEquals(0, report.getFailedCount());
+        assertEquals(Collections.singletonList("39999"), this.textualKnowledgeService.getAllKnowledge().get("How old is Peter?"));
+    }
+
+    @Test
+    public void addKnowledgeBatch_ShouldSucceed_DefaultAddsEntriesOneByOne_Test() throws KnowledgeBaseException {
+        IKnowledgeService<String, String, String> knowledgeService = new IKnowledgeService<>() {
+            @Override
+            public List<String> askQuestion(String question) throws KnowledgeBaseException {
+                return textualKnowledgeService.askQuestion(question);
+            }
+
+            @Override
+            public boolean addKnowledge(String question, List<String> answers) throws KnowledgeBaseException {
+                return textualKnowledgeService.addKnowledge(question, answers);
+            }
+
+            @Override
+            public boolean addKnowledge(String serializedKnowledge) throws KnowledgeBaseException {
+                return textualKnowledgeService.addKnowledge(serializedKnowledge);
+            }
+        };
+        ImportReport report = knowledgeService.addKnowledgeBatch(Stream.of("How old is Peter? \"35\"", "What are Peters favorite colors \"red\""));
+        assertEquals(2, report.getTotalCount());
+        assertEquals(1, report.getImportedCount());
+        assertEquals(1, report.getFailedCount());
+        assertEquals(2, report.getErrors().get(0).getLineNumber());
+        assertEquals(ErrorMessages.QUESTION_FORMAT_INCORRECT, report.getErrors().get(0).getMessage());
+        assertEquals(Collections.singletonList("35"), knowledgeService.askQuestion("How old is Peter?"));
+    }
+
+    @Test
+    public void importFrom_ShouldSucceed_AllLinesOfFileImported_Test(@TempDir Path directory) throws KnowledgeBaseException, IOException {
+        Path file = directory.resolve("knowledge.txt");
+        Files.write(file, IntStream.range(0, 1000)
+                .mapToObj(i -> "How old is person " + i + "? \"" + i + "\"")
+                .collect(Collectors.toList()));
+        ImportReport report = ((TextualKnowledgeService) this.textualKnowledgeService).importFrom(file);
+        assertEquals(1000, report.getImportedCount());
+        assertEquals(Collections.singletonList("999"), this.textualKnowledgeService.askQuestion("How old is person 999?"));
+    }
+
     @Test
     public void askQuestion_ShouldSucceed_Test() throws KnowledgeBaseException {
         List<String> answers = this.textualKnowledgeService.askQuestion("Can a mosquito transmit more than one disease?");
@@ -0,0 +1,160 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.api.IKnowledgeValidationService;
+import com.cgm.at.knowledgebase.common.BatchValidation;
+import com.cgm.at.knowledgebase.common.ErrorMessages;
+import com.cgm.at.knowledgebase.common.ValidationError;
+import com.cgm.at.knowledgebase.exceptions.InvalidKnowledgeException;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeParser;
+import com.cgm.at.knowledgebase.services.TextualKnowledgeValidationService;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests that the checks of the Textual Knowledge Validation Service agree with its validations, for single entries and batches.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class TextualKnowledgeValidationServiceTest {
+
+    private static final String LONG_TEXT = "x".repeat(255);
+
+    private final TextualKnowledgeValidationService validationService = new TextualKnowledgeValidationService();
+
+    private static final List<String> SERIALIZED_KNOWLEDGE = Arrays.asList(
+            "What are Peters favorite colors? \"red\" \"blue\"",
+            "What are Peters favorite colors \"red\"",
+            "What are Peters favorite colors? \"red",
+            " \t? \"red\"",
+            "?",
+            "What are Peters favorite colors?",
+            "What are Peters favorite colors? \"red\" \" \"",
+            "What are Peters favorite colors? \"\" \"" + LONG_TEXT + "x\"",
+            "What are Peters favorite colors? \"red\" \"" + LONG_TEXT + "x\"",
+            LONG_TEXT + "? \"red\"",
+            LONG_TEXT.substring(1) + "? \"red\"",
+            "\u2003\u2003? \"red\"",
+            "a? \" x \"",
+            "",
+            null);
+
+    @Test
+    public void checkSerializedKnowledge_ShouldSucceed_AgreesWithValidation_Test() {
+        List<ValidationError> expected = Arrays.asList(null, ValidationError.QUESTION_FORMAT_INCORRECT, ValidationError.ANSWERS_FORMAT_INCORRECT,
+                ValidationError.QUESTION_IS_EMPTY_OR_BLANK, ValidationError.QUESTION_IS_EMPTY_OR_BLANK, ValidationError.ANSWERS_NONE_GIVEN,
+                ValidationError.ANSWER_IS_EMPTY_OR_BLANK, ValidationError.ANSWER_IS_EMPTY_OR_BLANK, ValidationError.ANSWER_EXCEEDS_255_CHARACTERS,
+                ValidationError.QUESTION_EXCEEDS_255_CHARACTERS, null, ValidationError.QUESTION_IS_EMPTY_OR_BLANK, null,
+                ValidationError.QUESTION_FORMAT_INCORRECT, ValidationError.QUESTION_NONE_GIVEN);
+        for (int i = 0; i < SERIALIZED_KNOWLEDGE.size(); i++) {
+            String serialized = SERIALIZED_KNOWLEDGE.get(i);
+            ValidationError error = this.validationService.checkSerializedKnowledge(serialized);
+            assertEquals(expected.get(i), error, "entry " + i);
+            if (error == null) {
+                assertDoesNotThrow(() -> this.validationService.validateSerializedKnowledge(serialized));
+            } else {
+                InvalidKnowledgeException exception = assertThrows(InvalidKnowledgeException.class,
+                        () -> this.validationService.validateSerializedKnowledge(serialized));
+                assertEquals(error, exception.getError());
+            }
+        }
+        InvalidKnowledgeException exception = assertThrows(InvalidKnowledgeException.class,
+                () -> this.validationService.validateSerializedKnowledge(SERIALIZED_KNOWLEDGE.get(8)));
+        assertEquals(String.format(ErrorMessages.ANSWER_EXCEEDS_255_CHARACTERS, LONG_TEXT + "x"), exception.getMessage());
+        //the first rejected answer is reported, even if a later answer is rejected for another reason.
+        exception = assertThrows(InvalidKnowledgeException.class, () -> this.validationService.validateSerializedKnowledge(SERIALIZED_KNOWLEDGE.get(7)));
+        assertEquals(String.format(ErrorMessages.ANSWER_IS_EMPTY_OR_BLANK, ""), exception.getMessage());
+    }
+
+    @Test
+    public void checkQuestion_ShouldSucceed_AgreesWithValidation_Test() {
+        List<String> questions = Arrays.asList("Who is Peter?", "Who is Peter", "?", "  ?", "", null, LONG_TEXT + "?", "a ?", "\u3000?");
+        for (String question : questions) {
+            ValidationError error = this.validationService.checkQuestion(question);
+            String message = null;
+            try {
+                this.validationService.validateQuestion(question);
+            } catch (IllegalArgumentException e) {
+                message = e.getMessage();
+            }
+            assertEquals(error == null ? null : error.format(question), message, question);
+        }
+        assertEquals(ValidationError.QUESTION_NO_QUESTIONMARK, this.validationService.checkQuestion("Who is Peter"));
+        assertEquals(ValidationError.QUESTION_IS_EMPTY_OR_BLANK, this.validationService.checkQuestion("\u3000?"));
+        assertNull(this.validationService.checkQuestion("a ?"));
+
+        assertNull(this.validationService.checkAnswers(List.of("red", "blue")));
+        assertEquals(ValidationError.ANSWERS_NONE_GIVEN, this.validationService.checkAnswers(List.of()));
+        assertEquals(ValidationError.ANSWER_INVALID, this.validationService.checkAnswers(Arrays.asList("red", null)));
+        assertEquals(ValidationError.ANSWER_IS_EMPTY_OR_BLANK, this.validationService.checkAnswers(List.of("red", " ")));
+        InvalidKnowledgeException exception = assertThrows(InvalidKnowledgeException.class,
+                () -> this.validationService.validateAnswers(List.of("red", LONG_TEXT + "x")));
+        assertEquals(ValidationError.ANSWER_EXCEEDS_255_CHARACTERS, exception.getError());
+        assertEquals(String.format(ErrorMessages.ANSWER_EXCEEDS_255_CHARACTERS, LONG_TEXT + "x"), exception.getMessage());
+    }
+
+    @Test
+    public void validateBatch_ShouldSucceed_FailuresCollectedWithoutExceptions_Test() {
+        BatchValidation<String> validation = this.validationService.validateBatch(SERIALIZED_KNOWLEDGE);
+
+        assertEquals(SERIALIZED_KNOWLEDGE.size(), validation.size());
+        assertEquals(12, validation.getFailedCount());
+        BitSet failures = validation.getFailures();
+        assertEquals(12, failures.cardinality());
+        assertFalse(failures.get(0));
+        assertFalse(failures.get(10));
+        assertFalse(failures.get(12));
+        for (int i = 0; i < SERIALIZED_KNOWLEDGE.size(); i++) {
+            assertEquals(!failures.get(i), validation.isValid(i));
+            assertEquals(this.validationService.checkSerializedKnowledge(SERIALIZED_KNOWLEDGE.get(i)), validation.getError(i));
+        }
+        assertNull(validation.getMessage(0));
+        assertEquals(ErrorMessages.QUESTION_FORMAT_INCORRECT, validation.getMessage(1));
+        assertEquals(String.format(ErrorMessages.QUESTION_IS_EMPTY_OR_BLANK, " \t?"), validation.getMessage(3));
+        assertEquals(String.format(ErrorMessages.ANSWER_IS_EMPTY_OR_BLANK, " "), validation.getMessage(6));
+        assertEquals(ErrorMessages.QUESTION_NONE_GIVEN, validation.getMessage(14));
+        assertThrows(IndexOutOfBoundsException.class, () -> validation.isValid(SERIALIZED_KNOWLEDGE.size()));
+
+        //modifying the returned bitmap does not affect the result.
+        failures.clear();
+        assertEquals(12, validation.getFailures().cardinality());
+        assertEquals(0, this.validationService.validateBatch(List.of()).getFailedCount());
+    }
+
+    @Test
+    public void check_ShouldSucceed_MaxLengthAppliesToEveryPart_Test() {
+        TextualKnowledgeParser parser = new TextualKnowledgeParser();
+        assertNull(parser.check("Who is Peter? \"a friend\"", 13));
+        assertEquals(ValidationError.QUESTION_EXCEEDS_255_CHARACTERS, parser.check("Who is Peter? \"a friend\"", 12));
+        assertEquals(ValidationError.ANSWER_EXCEEDS_255_CHARACTERS, parser.check("Who? \"a friend\"", 5));
+    }
+
+    @Test
+    public void checkQuestion_ShouldSucceed_DefaultChecksFallBackToValidation_Test() {
+        IKnowledgeValidationService<String, String, String> minimalService = new IKnowledgeValidationService<>() {
+            @Override
+            public void validateQuestion(String question) {
+                if (question.isEmpty()) throw new IllegalArgumentException("empty");
+            }
+
+            @Override
+            public void validateAnswers(List<String> answers) {
+                if (answers.isEmpty()) throw new InvalidKnowledgeException(ValidationError.ANSWERS_NONE_GIVEN, answers);
+            }
+
+            @Override
+            public void validateSerializedKnowledgeFormat(String serializedKnowledge) {
+                if (!serializedKnowledge.contains("?")) throw new IllegalArgumentException("no question");
+            }
+        };
+        assertNull(minimalService.checkQuestion("Who is Peter?"));
+        assertEquals(ValidationError.KNOWLEDGE_INVALID, minimalService.checkQuestion(""));
+        assertNull(minimalService.checkAnswers(List.of("a friend")));
+        assertEquals(ValidationError.ANSWERS_NONE_GIVEN, minimalService.checkAnswers(List.of()));
+        assertEquals(ValidationError.KNOWLEDGE_INVALID, minimalService.checkSerializedKnowledge("Who is Peter"));
+        assertThrows(IllegalArgumentException.class, () -> minimalService.validateSerializedKnowledge("Who is Peter"));
+        BatchValidation<String> validation = minimalService.validateBatch(List.of("Who is Peter? \"a friend\"", "Who is Peter"));
+        assertEquals(1, validation.getFailedCount());
+        assertEquals("no question", validation.getMessage(1));
+    }
+}
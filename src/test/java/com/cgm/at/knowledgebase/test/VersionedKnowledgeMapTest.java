@@ -0,0 +1,171 @@
+package com.cgm.at.knowledgebase.test;
+
+import com.cgm.at.knowledgebase.exceptions.KnowledgeBaseException;
+import com.cgm.at.knowledgebase.services.VersionedTextualKnowledgeService;
+import com.cgm.at.knowledgebase.snapshot.KnowledgeSnapshot;
+import com.cgm.at.knowledgebase.snapshot.PersistentHashTrie;
+import com.cgm.at.knowledgebase.snapshot.VersionedKnowledgeMap;
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the Versioned Knowledge Map, its persistent hash trie and snapshots, and the Versioned Textual Knowledge Base.
+ * @author Usama Morad
+ * @version 1.0
+ */
+public class VersionedKnowledgeMapTest {
+
+    /**
+     * a key with a chosen hash code, to force collisions.
+     */
+    private static final class CollidingKey {
+
+        private final int hash;
+        private final int id;
+
+        CollidingKey(int hash, int id) {
+            this.hash = hash;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).hash == this.hash && ((CollidingKey) o).id == this.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    @Test
+    public void put_ShouldSucceed_SameContentAsHashMap_Test() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashTrie<Integer, Integer> trie = PersistentHashTrie.empty();
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(50000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                trie = trie.remove(key);
+            } else {
+                expected.put(key, i);
+                trie = trie.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), trie.size());
+        for (int key = 0; key < 50000; key++) {
+            assertEquals(expected.get(key), trie.get(key));
+        }
+        Map<Integer, Integer> iterated = new HashMap<>();
+        trie.forEach(entry -> assertNull(iterated.put(entry.getKey(), entry.getValue())));
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void put_ShouldSucceed_CollidingHashes_Test() {
+        Map<CollidingKey, Integer> expected = new HashMap<>();
+        PersistentHashTrie<CollidingKey, Integer> trie = PersistentHashTrie.empty();
+        for (int i = 0; i < 1000; i++) {
+            //few distinct hashes sharing their lower bits, so collision nodes are nested below bitmap nodes.
+            CollidingKey key = new CollidingKey((i % 7) << 20 | 3, i);
+            expected.put(key, i);
+            trie = trie.put(key, i);
+        }
+        Map<CollidingKey, Integer> bulk = new HashMap<>(expected);
+        assertEquals(expected, new VersionedKnowledgeMap<>(bulk));
+        for (int i = 0; i < 1000; i += 2) {
+            CollidingKey key = new CollidingKey((i % 7) << 20 | 3, i);
+            expected.remove(key);
+            trie = trie.remove(key);
+        }
+        assertEquals(500, trie.size());
+        for (int i = 0; i < 1000; i++) {
+            CollidingKey key = new CollidingKey((i % 7) << 20 | 3, i);
+            assertEquals(expected.get(key), trie.get(key));
+        }
+        assertNull(trie.get(new CollidingKey(3, 5000)));
+    }
+
+    @Test
+    public void snapshot_ShouldSucceed_UnchangedByLaterChanges_Test() {
+        VersionedKnowledgeMap<String, List<String>> map = new VersionedKnowledgeMap<>();
+        map.put("Who is Peter?", List.of("a friend"));
+        map.put("How old is Peter?", List.of("35"));
+        KnowledgeSnapshot<String, List<String>> snapshot = map.snapshot();
+        assertEquals(2, snapshot.getVersion());
+
+        map.put("How old is Peter?", List.of("36"));
+        map.remove("Who is Peter?");
+        map.putAll(Map.of("Who is Paul?", List.of("a cousin"), "Who is Mary?", List.of("a sister")));
+
+        assertEquals(5, map.getVersion());
+        assertEquals(Map.of("Who is Peter?", List.of("a friend"), "How old is Peter?", List.of("35")), snapshot);
+        assertEquals(3, map.size());
+        assertEquals(List.of("36"), map.get("How old is Peter?"));
+        assertSame(map.snapshot(), map.snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("Who is Paul?", List.of("a cousin")));
+        map.put("Who is Paul?", map.get("Who is Paul?"));
+        assertEquals(5, map.getVersion());
+    }
+
+    @Test
+    public void snapshot_ShouldSucceed_ConsistentWhileKnowledgeAdded_Test() throws Exception {
+        VersionedTextualKnowledgeService knowledgeService = new VersionedTextualKnowledgeService();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; running.get() && i < 20000; i++) {
+                    knowledgeService.addKnowledge("What is question " + i + "?", List.of("answer " + i));
+                }
+            } catch (KnowledgeBaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        try {
+            for (int round = 0; round < 200; round++) {
+                KnowledgeSnapshot<String, List<String>> snapshot = knowledgeService.snapshot();
+                int count = 0;
+                for (Map.Entry<String, List<String>> entry : knowledgeService.getAllKnowledge().entrySet()) {
+                    assertNotNull(entry.getValue());
+                    count++;
+                }
+                assertTrue(count >= snapshot.size());
+                count = 0;
+                for (Map.Entry<String, List<String>> entry : snapshot.entrySet()) {
+                    assertEquals(entry.getValue(), snapshot.get(entry.getKey()));
+                    count++;
+                }
+                //the questions are added in order, so a consistent snapshot contains exactly the first size questions.
+                assertEquals(snapshot.size(), count);
+                assertEquals(snapshot.size(), snapshot.getVersion());
+                if (count > 0) assertTrue(snapshot.containsKey("What is question " + (count - 1) + "?"));
+                assertFalse(snapshot.containsKey("What is question " + count + "?"));
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    public void addKnowledgeBatch_ShouldSucceed_ChunkPublishedAsOneVersion_Test() throws KnowledgeBaseException {
+        VersionedTextualKnowledgeService knowledgeService = new VersionedTextualKnowledgeService(
+                Map.of("Who is Peter?", new ArrayList<>(List.of("a friend"))), VersionedTextualKnowledgeService.DEFAULT_ANSWER);
+        assertEquals(0, knowledgeService.getVersion());
+        KnowledgeSnapshot<String, List<String>> before = knowledgeService.snapshot();
+
+        knowledgeService.addKnowledgeBatch(Stream.of("Who is Paul? \"a cousin\"", "Who is Mary? \"a sister\""));
+
+        assertEquals(1, knowledgeService.getVersion());
+        assertEquals(1, before.size());
+        assertEquals(3, knowledgeService.snapshot().size());
+        assertEquals(Collections.singletonList("a sister"), knowledgeService.askQuestion("Who is Mary?"));
+        assertEquals(Collections.singletonList(VersionedTextualKnowledgeService.DEFAULT_ANSWER), knowledgeService.askQuestion("Who is John?"));
+    }
+}